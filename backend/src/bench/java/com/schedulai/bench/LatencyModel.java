@@ -0,0 +1,56 @@
+package com.schedulai.bench;
+
+import java.util.Random;
+
+/**
+ * Upstream latency distribution for the stub server.
+ * Spec formats: {@code fixed:MS}, {@code uniform:MIN_MS:MAX_MS}, {@code lognormal:MEDIAN_MS:P99_MS}.
+ */
+public abstract class LatencyModel {
+
+    // z-score of the 99th percentile of a standard normal distribution
+    private static final double Z_99 = 2.3263;
+
+    public abstract long sampleMillis(Random random);
+
+    public static LatencyModel parse(String spec) {
+        String[] parts = spec.split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed": {
+                    long ms = Long.parseLong(parts[1]);
+                    return of(spec, random -> ms);
+                }
+                case "uniform": {
+                    long min = Long.parseLong(parts[1]);
+                    long max = Long.parseLong(parts[2]);
+                    return of(spec, random -> min + (long) (random.nextDouble() * (max - min)));
+                }
+                case "lognormal": {
+                    // A long right tail like a real LLM API: most calls near the median, a few near p99 and beyond
+                    double mu = Math.log(Double.parseDouble(parts[1]));
+                    double sigma = (Math.log(Double.parseDouble(parts[2])) - mu) / Z_99;
+                    return of(spec, random -> Math.round(Math.exp(mu + sigma * random.nextGaussian())));
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown latency model: " + parts[0]);
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid latency spec '" + spec + "'", e);
+        }
+    }
+
+    private static LatencyModel of(String spec, java.util.function.ToLongFunction<Random> sampler) {
+        return new LatencyModel() {
+            @Override
+            public long sampleMillis(Random random) {
+                return Math.max(0, sampler.applyAsLong(random));
+            }
+
+            @Override
+            public String toString() {
+                return spec;
+            }
+        };
+    }
+}
@@ -0,0 +1,260 @@
+package com.schedulai.bench;
+
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Closed-loop load generator for the AI endpoints of a running backend (start it with the {@code bench}
+ * profile so OpenAI calls go to {@link StubOpenAIServer}).
+ * <p>
+ * Each of {@code --concurrency} virtual users sends one request, waits for the full response and repeats
+ * until {@code --duration-seconds} is over. Reports throughput, latency percentiles, time to first byte
+ * (relevant for the SSE endpoints) and status codes. With {@code --jmx=host:port} it also samples the
+ * backend's live and peak thread count, the number to watch when the upstream is slow.
+ * <p>
+ * Scenarios: suggest-times, suggest-times-stream, learning-report, learning-report-stream, lesson-report, lesson-report-stream, mixed.
+ * Usage: {@code ./gradlew loadTest --args="--scenario=mixed --concurrency=50 --duration-seconds=60 --jmx=localhost:9010"}
+ */
+public class LoadRunner {
+
+    private final String baseUrl;
+    private final BenchArgs options;
+    private final HttpClient client;
+
+    private final Map<String, AtomicLong> outcomes = new ConcurrentHashMap<>();
+
+    LoadRunner(BenchArgs options) {
+        this.options = options;
+        this.baseUrl = options.get("base-url", "http://localhost:8080");
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newCachedThreadPool())
+                .build();
+    }
+
+    // --- Scenarios ---
+
+    private Supplier<String> scenario(String name) {
+        long studentId = options.getLong("student-id", 1);
+        long teacherId = options.getLong("teacher-id", 1);
+        long enrollmentId = options.getLong("enrollment-id", 1);
+        long lessonId = options.getLong("lesson-id", 1);
+        LocalDate end = LocalDate.now();
+        LocalDate start = end.minusMonths(options.getInt("report-months", 1));
+        String learningQuery = "?startDate=" + start + "&endDate=" + end;
+        switch (name) {
+            case "suggest-times":
+                return () -> "GET /api/scheduling/suggest-times?studentId=" + studentId + "&teacherId=" + teacherId
+                        + "&enrollmentId=" + enrollmentId + "&durationMinutes=60";
+            case "suggest-times-stream":
+                return () -> "GET /api/scheduling/suggest-times/stream?enrollmentId=" + enrollmentId + "&durationMinutes=60";
+            case "learning-report":
+                return () -> "GET /api/reports/learning/" + studentId + learningQuery;
+            case "learning-report-stream":
+                return () -> "GET /api/reports/learning/" + studentId + "/stream" + learningQuery;
+            case "lesson-report":
+                return () -> "POST /api/reports/generate/lesson/" + lessonId;
+            case "lesson-report-stream":
+                return () -> "GET /api/reports/generate/lesson/" + lessonId + "/stream";
+            case "mixed": {
+                List<Supplier<String>> all = List.of(scenario("suggest-times"), scenario("suggest-times-stream"), scenario("learning-report"),
+                        scenario("learning-report-stream"), scenario("lesson-report"), scenario("lesson-report-stream"));
+                AtomicLong next = new AtomicLong();
+                return () -> all.get((int) (next.getAndIncrement() % all.size())).get();
+            }
+            default:
+                throw new IllegalArgumentException("Unknown scenario: " + name);
+        }
+    }
+
+    // --- Run ---
+
+    void run() throws Exception {
+        String scenarioName = options.get("scenario", "mixed");
+        int concurrency = options.getInt("concurrency", 20);
+        long durationNanos = TimeUnit.SECONDS.toNanos(options.getLong("duration-seconds", 60));
+        Supplier<String> scenario = scenario(scenarioName);
+        ThreadSampler threadSampler = options.has("jmx") ? new ThreadSampler(options.get("jmx", null)) : null;
+
+        System.out.printf("Running '%s' against %s with %d users for %ds%n",
+                scenarioName, baseUrl, concurrency, TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+        ExecutorService users = Executors.newFixedThreadPool(concurrency);
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + durationNanos;
+        List<Recorder> recorders = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Recorder recorder = new Recorder();
+            recorders.add(recorder);
+            users.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    execute(scenario.get(), recorder);
+                }
+            });
+        }
+        users.shutdown();
+        while (!users.awaitTermination(1, TimeUnit.SECONDS)) {
+            if (threadSampler != null) {
+                threadSampler.sample();
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+        long[] latencies = recorders.stream().flatMapToLong(r -> Arrays.stream(r.latencies())).sorted().toArray();
+        long[] ttfb = recorders.stream().flatMapToLong(r -> Arrays.stream(r.ttfb())).sorted().toArray();
+        System.out.printf("%nRequests: %d in %.1fs (%.1f req/s)%n", latencies.length, elapsedSeconds, latencies.length / elapsedSeconds);
+        printPercentiles("Latency", latencies);
+        printPercentiles("Time to first byte", ttfb);
+        System.out.println("Outcomes: " + new TreeMap<>(outcomes));
+        if (threadSampler != null) {
+            threadSampler.sample();
+            System.out.println(threadSampler.summary());
+            threadSampler.close();
+        }
+    }
+
+    private void execute(String call, Recorder recorder) {
+        String[] parts = call.split(" ", 2);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + parts[1])).timeout(Duration.ofSeconds(120));
+        HttpRequest request = "POST".equals(parts[0])
+                ? builder.POST(HttpRequest.BodyPublishers.noBody()).build()
+                : builder.GET().build();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            long firstByte;
+            try (InputStream body = response.body()) {
+                body.read();
+                firstByte = System.nanoTime();
+                body.transferTo(OutputStreamSink.INSTANCE);
+            }
+            recorder.record(System.nanoTime() - start, firstByte - start);
+            outcomes.computeIfAbsent(String.valueOf(response.statusCode()), k -> new AtomicLong()).incrementAndGet();
+        } catch (Exception e) {
+            recorder.record(System.nanoTime() - start, System.nanoTime() - start);
+            outcomes.computeIfAbsent(e.getClass().getSimpleName(), k -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    private static void printPercentiles(String label, long[] sortedNanos) {
+        if (sortedNanos.length == 0) {
+            return;
+        }
+        System.out.printf("%-19s p50=%dms p90=%dms p99=%dms p99.9=%dms max=%dms%n", label,
+                percentileMillis(sortedNanos, 0.50), percentileMillis(sortedNanos, 0.90),
+                percentileMillis(sortedNanos, 0.99), percentileMillis(sortedNanos, 0.999),
+                TimeUnit.NANOSECONDS.toMillis(sortedNanos[sortedNanos.length - 1]));
+    }
+
+    // Nearest-rank percentile
+    static long percentileMillis(long[] sortedNanos, double percentile) {
+        int rank = (int) Math.ceil(percentile * sortedNanos.length);
+        return TimeUnit.NANOSECONDS.toMillis(sortedNanos[Math.max(0, Math.min(rank, sortedNanos.length) - 1)]);
+    }
+
+    // Per-user sample buffer, so recording needs no synchronization
+    private static final class Recorder {
+        private long[] latencies = new long[1024];
+        private long[] ttfb = new long[1024];
+        private int size;
+
+        void record(long latencyNanos, long ttfbNanos) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+                ttfb = Arrays.copyOf(ttfb, size * 2);
+            }
+            latencies[size] = latencyNanos;
+            ttfb[size] = ttfbNanos;
+            size++;
+        }
+
+        long[] latencies() {
+            return Arrays.copyOf(latencies, size);
+        }
+
+        long[] ttfb() {
+            return Arrays.copyOf(ttfb, size);
+        }
+    }
+
+    // Discards response bytes
+    private static final class OutputStreamSink extends java.io.OutputStream {
+        static final OutputStreamSink INSTANCE = new OutputStreamSink();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    // Live/peak thread count of the backend JVM over JMX
+    private static final class ThreadSampler implements AutoCloseable {
+        private final JMXConnector connector;
+        private final MBeanServerConnection connection;
+        private final ObjectName threading;
+        private int min = Integer.MAX_VALUE;
+        private int max;
+        private long sum;
+        private int count;
+        private int peak;
+
+        ThreadSampler(String hostPort) throws Exception {
+            JMXServiceURL url = new JMXServiceURL("service:jmx:rmi:///jndi/rmi://" + hostPort + "/jmxrmi");
+            this.connector = JMXConnectorFactory.connect(url);
+            this.connection = connector.getMBeanServerConnection();
+            this.threading = new ObjectName("java.lang:type=Threading");
+            connection.invoke(threading, "resetPeakThreadCount", null, null);
+        }
+
+        void sample() {
+            try {
+                int live = (Integer) connection.getAttribute(threading, "ThreadCount");
+                peak = (Integer) connection.getAttribute(threading, "PeakThreadCount");
+                min = Math.min(min, live);
+                max = Math.max(max, live);
+                sum += live;
+                count++;
+            } catch (Exception e) {
+                System.err.println("Thread sampling failed: " + e.getMessage());
+            }
+        }
+
+        String summary() {
+            return count == 0 ? "Backend threads: no samples"
+                    : String.format("Backend threads: min=%d avg=%d max=%d peak=%d", min, sum / count, max, peak);
+        }
+
+        @Override
+        public void close() throws Exception {
+            connector.close();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadRunner(BenchArgs.parse(args)).run();
+        System.exit(0);
+    }
+}
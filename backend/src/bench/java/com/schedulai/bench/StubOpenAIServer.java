@@ -0,0 +1,305 @@
+package com.schedulai.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-JVM stand-in for the chat-completions API used by OpenAIService, for load tests without the paid API.
+ * <p>
+ * Replies cycle through a script of payloads (see {@code bench/default-script.txt}); a payload is the
+ * assistant message content, or, after an {@code @raw} line, the literal HTTP body. Requests with
+ * {@code "stream": true} are answered as server-sent events. Latency, error rate (429 with Retry-After,
+ * 500, 503) and the rate of malformed responses are configurable.
+ * <p>
+ * Usage: {@code ./gradlew stubOpenAI --args="--port=8089 --latency=lognormal:800:4000 --error-rate=0.02"}
+ * Options: --port, --latency, --error-rate, --malformed-rate, --token-interval-ms, --script=FILE, --seed.
+ * {@code GET /stats} returns request counters.
+ */
+public class StubOpenAIServer implements AutoCloseable {
+
+    private static final Pattern DATE_PLACEHOLDER = Pattern.compile("\\{\\{date\\+(\\d+)}}");
+
+    // Bodies OpenAIService must survive: not JSON, no choices, blank content, truncated/non-array reply
+    private static final List<Payload> MALFORMED = List.of(
+            new Payload("<html><body>502 Bad Gateway</body></html>", true),
+            new Payload("{\"id\":\"chatcmpl-stub\",\"object\":\"chat.completion\"}", true),
+            new Payload("{\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"\"}}]}", true),
+            new Payload("[{\"studentId\": 1, \"teacherId\": 1, \"startDateTime\": \"{{date+1}}T10:00", false),
+            new Payload("I'm sorry, I can't help with scheduling right now.", false)
+    );
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LatencyModel latency;
+    private final double errorRate;
+    private final double malformedRate;
+    private final long tokenIntervalMs;
+    private final List<Payload> script;
+    private final Random random;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong streamedRequests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong malformed = new AtomicLong();
+    private final AtomicLong scriptPosition = new AtomicLong();
+
+    record Payload(String text, boolean raw) {
+    }
+
+    public StubOpenAIServer(int port, LatencyModel latency, double errorRate, double malformedRate,
+                            long tokenIntervalMs, List<Payload> script, long seed) throws IOException {
+        if (script.isEmpty()) {
+            throw new IllegalArgumentException("Script must contain at least one payload");
+        }
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.malformedRate = malformedRate;
+        this.tokenIntervalMs = tokenIntervalMs;
+        this.script = script;
+        this.random = new Random(seed);
+        // Unbounded: simulated latency must not be limited by the stub's own threads
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.server.createContext("/stats", this::handleStats);
+        this.server.createContext("/", this::handleCompletion);
+        this.server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // --- Handlers ---
+
+    private void handleCompletion(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "application/json", "{\"error\":{\"message\":\"Method not allowed\"}}");
+                return;
+            }
+            JsonNode request = readBody(exchange.getRequestBody());
+            boolean stream = request != null && request.path("stream").asBoolean(false);
+
+            double roll;
+            long delay;
+            synchronized (random) {
+                roll = random.nextDouble();
+                delay = latency.sampleMillis(random);
+            }
+            sleep(delay);
+
+            if (roll < errorRate) {
+                errors.incrementAndGet();
+                sendError(exchange);
+                return;
+            }
+            Payload payload = roll < errorRate + malformedRate ? nextMalformed() : nextScripted();
+            String text = fillPlaceholders(payload.text());
+            if (payload.raw()) {
+                send(exchange, 200, "application/json", text);
+            } else if (stream) {
+                streamedRequests.incrementAndGet();
+                stream(exchange, text);
+            } else {
+                send(exchange, 200, "application/json", completionBody(text));
+            }
+        } catch (IOException e) {
+            // client gave up (timeout or cancelled stream)
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            send(exchange, 200, "application/json", objectMapper.writeValueAsString(Map.of(
+                    "requests", requests.get(),
+                    "streamedRequests", streamedRequests.get(),
+                    "errors", errors.get(),
+                    "malformed", malformed.get(),
+                    "latency", latency.toString())));
+        }
+    }
+
+    private void sendError(HttpExchange exchange) throws IOException {
+        int kind = ThreadLocalRandom.current().nextInt(3);
+        if (kind == 0) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 429, "application/json", "{\"error\":{\"message\":\"Rate limit reached\",\"type\":\"requests\"}}");
+        } else {
+            int status = kind == 1 ? 500 : 503;
+            send(exchange, status, "application/json", "{\"error\":{\"message\":\"The server had an error\",\"type\":\"server_error\"}}");
+        }
+    }
+
+    // Chat-completions chunk format: one delta per event, then [DONE]
+    private void stream(HttpExchange exchange, String text) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (String token : tokenize(text)) {
+            ObjectNode chunk = objectMapper.createObjectNode();
+            chunk.put("object", "chat.completion.chunk");
+            chunk.putArray("choices").addObject().put("index", 0).putObject("delta").put("content", token);
+            out.write(("data: " + objectMapper.writeValueAsString(chunk) + "\n\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            sleep(tokenIntervalMs);
+        }
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private String completionBody(String content) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("id", "chatcmpl-stub-" + requests.get());
+        body.put("object", "chat.completion");
+        body.putArray("choices").addObject()
+                .put("index", 0)
+                .put("finish_reason", "stop")
+                .putObject("message").put("role", "assistant").put("content", content);
+        return objectMapper.writeValueAsString(body);
+    }
+
+    // --- Helpers ---
+
+    private Payload nextScripted() {
+        return script.get((int) (scriptPosition.getAndIncrement() % script.size()));
+    }
+
+    private Payload nextMalformed() {
+        malformed.incrementAndGet();
+        return MALFORMED.get(ThreadLocalRandom.current().nextInt(MALFORMED.size()));
+    }
+
+    private JsonNode readBody(InputStream in) {
+        try {
+            return objectMapper.readTree(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    // {{date+N}} -> the date N days from today, so scripted suggestions are always in the future
+    static String fillPlaceholders(String text) {
+        Matcher matcher = DATE_PLACEHOLDER.matcher(text);
+        StringBuilder sb = new StringBuilder();
+        while (matcher.find()) {
+            matcher.appendReplacement(sb, LocalDate.now().plusDays(Long.parseLong(matcher.group(1))).toString());
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    // Roughly token-sized pieces: runs of up to 4 characters, breaking after whitespace
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            current.append(c);
+            if (current.length() >= 4 || Character.isWhitespace(c)) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Script format: payloads separated by lines containing only {@code ---}; a payload starting with
+     * an {@code @raw} line is sent as the literal response body instead of the message content.
+     */
+    static List<Payload> parseScript(String content) {
+        List<Payload> payloads = new ArrayList<>();
+        for (String block : content.split("(?m)^---\\s*$")) {
+            String trimmed = block.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            if (trimmed.startsWith("@raw")) {
+                payloads.add(new Payload(trimmed.substring("@raw".length()).strip(), true));
+            } else {
+                payloads.add(new Payload(trimmed, false));
+            }
+        }
+        return payloads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchArgs options = BenchArgs.parse(args);
+        String script;
+        if (options.has("script")) {
+            script = Files.readString(Path.of(options.get("script", null)));
+        } else {
+            try (InputStream in = StubOpenAIServer.class.getResourceAsStream("/bench/default-script.txt")) {
+                script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        StubOpenAIServer stub = new StubOpenAIServer(
+                options.getInt("port", 8089),
+                LatencyModel.parse(options.get("latency", "lognormal:800:4000")),
+                options.getDouble("error-rate", 0.02),
+                options.getDouble("malformed-rate", 0.02),
+                options.getLong("token-interval-ms", 15),
+                parseScript(script),
+                options.getLong("seed", 42));
+        stub.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::close));
+        System.out.printf("Stub OpenAI server listening on http://localhost:%d/v1/chat/completions (latency=%s)%n",
+                stub.port(), stub.latency);
+        Thread.currentThread().join();
+    }
+}
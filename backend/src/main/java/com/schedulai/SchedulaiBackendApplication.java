@@ -1,21 +1,32 @@
 package com.schedulai;
 
+import com.schedulai.domain.AvailabilityOwnerType;
 import com.schedulai.domain.Student;
 import com.schedulai.domain.User;
 import com.schedulai.domain.UserRole;
+import com.schedulai.repository.AvailabilityVersionRepository;
+import com.schedulai.repository.StudentAvailabilityRepository;
 import com.schedulai.repository.StudentRepository;
+import com.schedulai.repository.TeacherAvailabilityRepository;
 import com.schedulai.repository.UserRepository;
+import com.schedulai.service.ReportJobService;
+import com.schedulai.service.StudentAvailabilityService;
+import com.schedulai.service.TeacherAvailabilityService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.time.LocalDate;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @SpringBootApplication
+@EnableScheduling
 public class SchedulaiBackendApplication {
 	
 	private static final Logger log = LoggerFactory.getLogger(SchedulaiBackendApplication.class);
@@ -114,4 +125,51 @@ public class SchedulaiBackendApplication {
 			}
 		};
 	}
-} 
\ No newline at end of file
+
+	/**
+	 * 系统启动时将旧的可用时间数据规范化（合并重叠/相邻时间段），
+	 * 只处理尚未记录版本号的教师和学生，已规范化的数据不会重复写入
+	 */
+	@Bean
+	public CommandLineRunner canonicalizeLegacyAvailability(TeacherAvailabilityRepository teacherAvailabilityRepository,
+															StudentAvailabilityRepository studentAvailabilityRepository,
+															AvailabilityVersionRepository availabilityVersionRepository,
+															TeacherAvailabilityService teacherAvailabilityService,
+															StudentAvailabilityService studentAvailabilityService) {
+		return args -> {
+			try {
+				Set<Long> versionedTeachers = new HashSet<>(availabilityVersionRepository.findOwnerIdsByOwnerType(AvailabilityOwnerType.TEACHER));
+				Set<Long> versionedStudents = new HashSet<>(availabilityVersionRepository.findOwnerIdsByOwnerType(AvailabilityOwnerType.STUDENT));
+				int teacherCount = 0;
+				int studentCount = 0;
+				for (Long teacherId : teacherAvailabilityRepository.findDistinctTeacherIds()) {
+					if (!versionedTeachers.contains(teacherId)) {
+						teacherAvailabilityService.canonicalizeAvailability(teacherId);
+						teacherCount++;
+					}
+				}
+				for (Long studentId : studentAvailabilityRepository.findDistinctStudentIds()) {
+					if (!versionedStudents.contains(studentId)) {
+						studentAvailabilityService.canonicalizeAvailability(studentId);
+						studentCount++;
+					}
+				}
+				log.info("可用时间规范化完成: {} 位教师, {} 位学生", teacherCount, studentCount);
+			} catch (Exception e) {
+				log.error("可用时间规范化过程中发生错误: {}", e.getMessage(), e);
+			}
+		};
+	}
+
+	@Bean
+	public CommandLineRunner resumeReportJobs(ReportJobService reportJobService) {
+		return args -> {
+			try {
+				// 继续上次进程退出时未完成的批量报告任务
+				reportJobService.resumeInterruptedJobs();
+			} catch (Exception e) {
+				log.error("恢复批量报告任务时发生错误: {}", e.getMessage(), e);
+			}
+		};
+	}
+}
@@ -1,15 +1,27 @@
 package com.schedulai;
 
+import com.schedulai.config.AIQuotaInterceptor;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
 @Configuration
 public class WebConfig {
 
     @Bean
-    public WebMvcConfigurer corsConfigurer() {
+    public WebMvcConfigurer corsConfigurer(AIQuotaInterceptor aiQuotaInterceptor,
+                                           @Value("${export.timeout:30m}") Duration exportTimeout) {
         return new WebMvcConfigurer() {
             @Override
             public void addCorsMappings(CorsRegistry registry) {
@@ -19,6 +31,31 @@ public class WebConfig {
                         .allowedHeaders("*") // 允许所有请求头
                         .allowCredentials(true); // 允许携带 Cookie / 凭据
             }
+
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                // 调用 AI 的接口：先检查用户配额再调用 OpenAI
+                registry.addInterceptor(aiQuotaInterceptor)
+                        .addPathPatterns("/api/reports/learning/**",
+                                "/api/reports/generate/**",
+                                "/api/scheduling/suggest-times",
+                                "/api/scheduling/suggest-times/**");
+            }
+
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                // 流式导出可能持续数分钟，不受 AI 接口的异步超时限制
+                configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                        HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+                        if (request instanceof AsyncWebRequest asyncRequest && servletRequest != null
+                                && servletRequest.getRequestURI().startsWith("/api/exports/")) {
+                            asyncRequest.setTimeout(exportTimeout.toMillis());
+                        }
+                    }
+                });
+            }
         };
     }
 } 
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.schedulai.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.schedulai.domain.User;
+import com.schedulai.dto.ErrorResponse;
+import com.schedulai.repository.UserRepository;
+import com.schedulai.service.AIUsageService;
+import com.schedulai.util.UsageMeter;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.Optional;
+
+/**
+ * Admits requests to AI endpoints against the caller's quotas (429 with Retry-After when exceeded)
+ * and binds the caller to the request thread so the tokens of the resulting upstream calls are metered.
+ * The caller is the authenticated user, else the user named by the X-User-Id header, else the client IP.
+ * The header is not verified, so a user named by it is metered per client IP ("user@ip", so a forged header
+ * cannot use up that user's own quota) and never gets the limits of an exempt role.
+ */
+@Component
+public class AIQuotaInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String USER_ID_HEADER = "X-User-Id";
+    private static final String ANONYMOUS_ROLE = "ANONYMOUS";
+
+    private final AIUsageService aiUsageService;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    public AIQuotaInterceptor(AIUsageService aiUsageService, UserRepository userRepository, ObjectMapper objectMapper) {
+        this.aiUsageService = aiUsageService;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true; // async re-dispatch of an already admitted request
+        }
+        AIUsageService.Subject subject = resolveSubject(request);
+        UsageMeter.Decision decision = aiUsageService.admit(subject);
+        if (!decision.allowed()) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            objectMapper.writeValue(response.getWriter(), new ErrorResponse(rejectionMessage(decision.rejection())));
+            return false;
+        }
+        aiUsageService.bind(subject);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // The upstream calls have been issued on this thread; the thread goes back to the pool
+        aiUsageService.unbind();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        aiUsageService.unbind();
+    }
+
+    private AIUsageService.Subject resolveSubject(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated() && !(authentication instanceof AnonymousAuthenticationToken)) {
+            Optional<User> user = userRepository.findByUsername(authentication.getName());
+            if (user.isPresent()) {
+                return new AIUsageService.Subject(user.get().getUsername(), roleOf(user.get()), true);
+            }
+        } else {
+            String userId = request.getHeader(USER_ID_HEADER);
+            if (userId != null && userId.matches("\\d+")) {
+                Optional<User> user = userRepository.findById(Long.valueOf(userId));
+                if (user.isPresent()) {
+                    return new AIUsageService.Subject(user.get().getUsername() + "@" + request.getRemoteAddr(), roleOf(user.get()), false);
+                }
+            }
+        }
+        return new AIUsageService.Subject("ip:" + request.getRemoteAddr(), ANONYMOUS_ROLE, false);
+    }
+
+    private static String roleOf(User user) {
+        return user.getRole() != null ? user.getRole().name() : ANONYMOUS_ROLE;
+    }
+
+    private static String rejectionMessage(UsageMeter.Rejection rejection) {
+        return switch (rejection) {
+            case DAILY_CALLS -> "今日AI调用次数已达上限，请明天再试";
+            case DAILY_TOKENS -> "今日AI用量已达上限，请明天再试";
+            case BURST -> "AI请求过于频繁，请稍后再试";
+        };
+    }
+}
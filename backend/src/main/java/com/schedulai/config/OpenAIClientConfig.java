@@ -0,0 +1,40 @@
+package com.schedulai.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared HTTP client for all calls to the AI provider. One client means one connection pool
+ * (HTTP/2 multiplexed where the server supports it) instead of a new connection per request.
+ */
+@Configuration
+public class OpenAIClientConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService openAIHttpExecutor(@Value("${openai.http.executor-threads:4}") int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "openai-http-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Bean
+    public HttpClient openAIHttpClient(ExecutorService openAIHttpExecutor,
+                                       @Value("${openai.http.connect-timeout-ms:5000}") long connectTimeoutMs) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(openAIHttpExecutor)
+                .build();
+    }
+}
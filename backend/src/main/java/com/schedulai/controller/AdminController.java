@@ -2,18 +2,31 @@ package com.schedulai.controller;
 
 import com.schedulai.dto.CourseDTO;
 import com.schedulai.dto.TeacherDTO;
+import com.schedulai.service.AIUsageService;
 import com.schedulai.service.CourseService;
+import com.schedulai.service.LessonAnalyticsService;
+import com.schedulai.service.LessonRollupService;
+import com.schedulai.service.LessonTimeSeriesService;
+import com.schedulai.service.OpenAIService;
+import com.schedulai.service.SuggestionPrecomputeService;
 import com.schedulai.service.TeacherRecommendationService;
 import com.schedulai.service.TeacherService;
+import com.schedulai.util.CompletionCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -23,16 +36,188 @@ public class AdminController {
     private final TeacherService teacherService;
     private final CourseService courseService;
     private final TeacherRecommendationService recommendationService;
+    private final OpenAIService openAIService;
+    private final SuggestionPrecomputeService suggestionPrecomputeService;
+    private final AIUsageService aiUsageService;
+    private final LessonRollupService lessonRollupService;
+    private final LessonAnalyticsService lessonAnalyticsService;
+    private final LessonTimeSeriesService lessonTimeSeriesService;
     
     @Autowired
     public AdminController(
         TeacherService teacherService,
         CourseService courseService,
-        TeacherRecommendationService recommendationService
+        TeacherRecommendationService recommendationService,
+        OpenAIService openAIService,
+        SuggestionPrecomputeService suggestionPrecomputeService,
+        AIUsageService aiUsageService,
+        LessonRollupService lessonRollupService,
+        LessonAnalyticsService lessonAnalyticsService
     ) {
         this.teacherService = teacherService;
         this.courseService = courseService;
         this.recommendationService = recommendationService;
+        this.openAIService = openAIService;
+        this.suggestionPrecomputeService = suggestionPrecomputeService;
+        this.aiUsageService = aiUsageService;
+        this.lessonRollupService = lessonRollupService;
+        this.lessonAnalyticsService = lessonAnalyticsService;
+    }
+    
+    /**
+     * AI补全缓存命中统计
+     */
+    @GetMapping("/openai-cache/stats")
+    public ResponseEntity<?> getOpenAICacheStats() {
+        CompletionCache.Stats stats = openAIService.getCacheStats();
+        Map<String, Object> result = new HashMap<>();
+        result.put("cacheEnabled", stats != null);
+        result.put("cache", stats);
+        // 与进行中的相同请求合并、未单独调用上游的请求数
+        result.put("coalescedRequests", openAIService.getCoalescedRequestCount());
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * AI调用熔断器与并发隔离状态
+     */
+    @GetMapping("/openai/resilience")
+    public ResponseEntity<?> getOpenAIResilienceMetrics() {
+        return ResponseEntity.ok(openAIService.getResilienceMetrics());
+    }
+    
+    /**
+     * AI用量报告：按角色汇总及用量最多的用户（默认最近7天）
+     */
+    @GetMapping("/ai-usage")
+    public ResponseEntity<?> getAIUsageReport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "20") int top) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(6);
+        if (start.isAfter(end) || top <= 0) {
+            return ResponseEntity.badRequest().body("from 不能晚于 to，top 必须为正数");
+        }
+        try {
+            return ResponseEntity.ok(aiUsageService.getUsageReport(start, end, top));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("获取AI用量失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 排课建议预计算状态（命中率、最近一次运行）
+     */
+    @GetMapping("/suggestion-precompute/stats")
+    public ResponseEntity<?> getSuggestionPrecomputeStats() {
+        return ResponseEntity.ok(suggestionPrecomputeService.getStats());
+    }
+    
+    /**
+     * 立即在后台运行一次排课建议预计算
+     */
+    @PostMapping("/suggestion-precompute/run")
+    public ResponseEntity<String> runSuggestionPrecompute() {
+        try {
+            if (!suggestionPrecomputeService.startPrecompute()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("预计算正在运行中");
+            }
+            return ResponseEntity.accepted().body("预计算已开始");
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("启动预计算失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 仪表盘每日汇总表状态（是否就绪、最近一次回填）
+     */
+    @GetMapping("/lesson-rollups/stats")
+    public ResponseEntity<?> getLessonRollupStats() {
+        return ResponseEntity.ok(lessonRollupService.getStats());
+    }
+    
+    /**
+     * 在后台从课程记录重建每日汇总表（不指定日期时重建全部历史）
+     */
+    @PostMapping("/lesson-rollups/rebuild")
+    public ResponseEntity<String> rebuildLessonRollups(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().body("from 不能晚于 to");
+        }
+        try {
+            if (!lessonRollupService.startBackfill(from, to)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("汇总表回填正在运行中");
+            }
+            return ResponseEntity.accepted().body("汇总表回填已开始");
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("启动汇总表回填失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 内存课程分析库状态（课程数、最近一次加载）
+     */
+    @GetMapping("/lesson-analytics/stats")
+    public ResponseEntity<?> getLessonAnalyticsStats() {
+        return ResponseEntity.ok(lessonAnalyticsService.getStats());
+    }
+    
+    /**
+     * 在后台从数据库重新加载内存课程分析库
+     */
+    @PostMapping("/lesson-analytics/reload")
+    public ResponseEntity<String> reloadLessonAnalytics() {
+        try {
+            if (!lessonAnalyticsService.startLoad()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("分析库正在加载中");
+            }
+            return ResponseEntity.accepted().body("分析库加载已开始");
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("启动分析库加载失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 课程趋势缓存状态（已缓存的时段数、命中率、失效次数）
+     */
+    @GetMapping("/lesson-time-series/stats")
+    public ResponseEntity<?> getLessonTimeSeriesStats() {
+        return ResponseEntity.ok(lessonTimeSeriesService.getStats());
+    }
+    
+    /**
+     * 清空课程趋势缓存（直接改过数据库中的课程或删除了教师、课程后使用）
+     */
+    @PostMapping("/lesson-time-series/clear")
+    public ResponseEntity<String> clearLessonTimeSeriesCache() {
+        try {
+            lessonTimeSeriesService.clearCache();
+            return ResponseEntity.ok("课程趋势缓存已清空");
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("清空缓存失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 清空AI补全缓存
+     */
+    @PostMapping("/openai-cache/clear")
+    public ResponseEntity<String> clearOpenAICache() {
+        try {
+            openAIService.clearCache();
+            return ResponseEntity.ok("AI补全缓存已清空");
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("清空缓存失败: " + e.getMessage());
+        }
     }
     
     @PostMapping("/sync-teacher-recommendations")
@@ -0,0 +1,81 @@
+package com.schedulai.controller;
+
+import com.schedulai.domain.AvailabilityOwnerType;
+import com.schedulai.dto.AvailabilityTemplateDTO;
+import com.schedulai.service.AvailabilityTemplateService;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/availability-templates")
+@RequiredArgsConstructor
+public class AvailabilityTemplateController {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityTemplateController.class);
+
+    private final AvailabilityTemplateService availabilityTemplateService;
+
+    // --- List dated templates of a teacher or student ---
+    @GetMapping
+    public ResponseEntity<List<AvailabilityTemplateDTO>> getTemplates(@RequestParam AvailabilityOwnerType ownerType,
+                                                                      @RequestParam Long ownerId) {
+        log.info("GET /availability-templates, ownerType={}, ownerId={}", ownerType, ownerId);
+        return ResponseEntity.ok(availabilityTemplateService.getTemplates(ownerType, ownerId));
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createTemplate(@RequestBody AvailabilityTemplateDTO dto) {
+        log.info("POST /availability-templates with data: {}", dto);
+        try {
+            return new ResponseEntity<>(availabilityTemplateService.createTemplate(dto), HttpStatus.CREATED);
+        } catch (EntityNotFoundException e) {
+            log.warn("Owner not found when creating template: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid data when creating template: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error creating template {}: {}", dto, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An internal error occurred.");
+        }
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<?> updateTemplate(@PathVariable Long id, @RequestBody AvailabilityTemplateDTO dto) {
+        log.info("PUT /availability-templates/{} with data: {}", id, dto);
+        try {
+            return ResponseEntity.ok(availabilityTemplateService.updateTemplate(id, dto));
+        } catch (EntityNotFoundException e) {
+            log.warn("Template not found when updating: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid data when updating template: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error updating template {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An internal error occurred.");
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteTemplate(@PathVariable Long id) {
+        log.info("DELETE /availability-templates/{}", id);
+        try {
+            availabilityTemplateService.deleteTemplate(id);
+            return ResponseEntity.noContent().build();
+        } catch (EntityNotFoundException e) {
+            log.warn("Template not found when deleting: {}", e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error deleting template {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.schedulai.controller;
+
+import com.schedulai.dto.BlackoutPeriodDTO;
+import com.schedulai.service.BlackoutService;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/blackouts")
+@RequiredArgsConstructor
+public class BlackoutController {
+
+    private static final Logger log = LoggerFactory.getLogger(BlackoutController.class);
+
+    private final BlackoutService blackoutService;
+
+    // --- List blackout periods (all, or a single teacher's vacations) ---
+    @GetMapping
+    public ResponseEntity<List<BlackoutPeriodDTO>> getBlackouts(@RequestParam(required = false) Long teacherId) {
+        log.info("GET /blackouts, teacherId={}", teacherId);
+        return ResponseEntity.ok(blackoutService.getBlackouts(teacherId));
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createBlackout(@RequestBody BlackoutPeriodDTO dto) {
+        log.info("POST /blackouts with data: {}", dto);
+        try {
+            return new ResponseEntity<>(blackoutService.createBlackout(dto), HttpStatus.CREATED);
+        } catch (EntityNotFoundException e) {
+            log.warn("Teacher not found when creating blackout: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid data when creating blackout: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error creating blackout {}: {}", dto, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An internal error occurred.");
+        }
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<?> updateBlackout(@PathVariable Long id, @RequestBody BlackoutPeriodDTO dto) {
+        log.info("PUT /blackouts/{} with data: {}", id, dto);
+        try {
+            return ResponseEntity.ok(blackoutService.updateBlackout(id, dto));
+        } catch (EntityNotFoundException e) {
+            log.warn("Blackout or teacher not found when updating: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid data when updating blackout: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error updating blackout {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An internal error occurred.");
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteBlackout(@PathVariable Long id) {
+        log.info("DELETE /blackouts/{}", id);
+        try {
+            blackoutService.deleteBlackout(id);
+            return ResponseEntity.noContent().build();
+        } catch (EntityNotFoundException e) {
+            log.warn("Blackout not found when deleting: {}", e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error deleting blackout {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
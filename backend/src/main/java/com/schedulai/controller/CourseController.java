@@ -3,6 +3,7 @@ package com.schedulai.controller;
 import com.schedulai.dto.CourseDTO;
 import com.schedulai.dto.TeacherDTO;
 import com.schedulai.dto.TeacherCourseDTO;
+import com.schedulai.service.CourseAvailabilityHeatmapService;
 import com.schedulai.service.CourseService;
 import com.schedulai.service.TeacherCourseService;
 import jakarta.persistence.EntityNotFoundException;
@@ -24,11 +25,14 @@ public class CourseController {
 
     private final CourseService courseService;
     private final TeacherCourseService teacherCourseService;
+    private final CourseAvailabilityHeatmapService heatmapService;
 
     @Autowired
-    public CourseController(CourseService courseService, TeacherCourseService teacherCourseService) {
+    public CourseController(CourseService courseService, TeacherCourseService teacherCourseService,
+                            CourseAvailabilityHeatmapService heatmapService) {
         this.courseService = courseService;
         this.teacherCourseService = teacherCourseService;
+        this.heatmapService = heatmapService;
     }
 
     @GetMapping
@@ -43,6 +47,33 @@ public class CourseController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Weekly availability heatmap of the students enrolled in a course (for picking group class times)
+    @GetMapping("/{id}/availability-heatmap")
+    public ResponseEntity<?> getAvailabilityHeatmap(@PathVariable Long id) {
+        log.info("Received request for availability heatmap of course {}", id);
+        if (courseService.getCourseById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(heatmapService.getHeatmap(id));
+        } catch (Exception e) {
+            log.error("Error building availability heatmap for course {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An internal error occurred.");
+        }
+    }
+
+    // Heatmaps of all courses in one scan (weekly planning run)
+    @GetMapping("/availability-heatmaps")
+    public ResponseEntity<?> getAllAvailabilityHeatmaps() {
+        log.info("Received request for availability heatmaps of all courses");
+        try {
+            return ResponseEntity.ok(heatmapService.getAllHeatmaps());
+        } catch (Exception e) {
+            log.error("Error building availability heatmaps: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An internal error occurred.");
+        }
+    }
+
     // Example: Get course by name might be useful too
     @GetMapping("/byName")
     public ResponseEntity<CourseDTO> getCourseByName(@RequestParam String name) {
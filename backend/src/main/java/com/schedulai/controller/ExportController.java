@@ -0,0 +1,105 @@
+package com.schedulai.controller;
+
+import com.schedulai.dto.ErrorResponse;
+import com.schedulai.service.ExportService;
+import com.schedulai.util.ExportWriter;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * 课程和选课数据导出（CSV 或 NDJSON，可选 gzip），边查询边发送，
+ * 可按日期、教师、学生过滤
+ */
+@RestController
+@RequestMapping("/api/exports")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportController.class);
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final ExportService exportService;
+
+    // --- 导出课程（按开始日期过滤，如用于课时费结算） ---
+    @GetMapping("/lessons")
+    public ResponseEntity<?> exportLessons(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long teacherId,
+            @RequestParam(required = false) Long studentId) {
+
+        log.info("GET /exports/lessons request received, format: {}, gzip: {}, startDate: {}, endDate: {}, teacherId: {}, studentId: {}",
+                format, gzip, startDate, endDate, teacherId, studentId);
+
+        ExportWriter.Format exportFormat = parseFormat(format);
+        if (exportFormat == null || (startDate != null && endDate != null && startDate.isAfter(endDate))) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("format 只能是 csv 或 ndjson，startDate 不能晚于 endDate"));
+        }
+        StreamingResponseBody body = out ->
+                exportService.writeLessons(out, exportFormat, gzip, startDate, endDate, teacherId, studentId);
+        return ResponseEntity.ok().headers(exportHeaders("lessons", exportFormat, gzip)).body(body);
+    }
+
+    // --- 导出选课记录（按选课日期过滤） ---
+    @GetMapping("/enrollments")
+    public ResponseEntity<?> exportEnrollments(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long teacherId,
+            @RequestParam(required = false) Long studentId) {
+
+        log.info("GET /exports/enrollments request received, format: {}, gzip: {}, startDate: {}, endDate: {}, teacherId: {}, studentId: {}",
+                format, gzip, startDate, endDate, teacherId, studentId);
+
+        ExportWriter.Format exportFormat = parseFormat(format);
+        if (exportFormat == null || (startDate != null && endDate != null && startDate.isAfter(endDate))) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("format 只能是 csv 或 ndjson，startDate 不能晚于 endDate"));
+        }
+        StreamingResponseBody body = out ->
+                exportService.writeEnrollments(out, exportFormat, gzip, startDate, endDate, teacherId, studentId);
+        return ResponseEntity.ok().headers(exportHeaders("enrollments", exportFormat, gzip)).body(body);
+    }
+
+    private static ExportWriter.Format parseFormat(String format) {
+        try {
+            return ExportWriter.Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // 以附件下载，文件名带导出时间，如 lessons-20250303-090000.csv.gz
+    private static HttpHeaders exportHeaders(String name, ExportWriter.Format format, boolean gzip) {
+        String fileName = name + "-" + LocalDateTime.now().format(FILE_TIMESTAMP)
+                + (format == ExportWriter.Format.CSV ? ".csv" : ".ndjson") + (gzip ? ".gz" : "");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(gzip ? GZIP : format == ExportWriter.Format.CSV ? CSV : NDJSON);
+        headers.setContentDisposition(ContentDisposition.attachment().filename(fileName).build());
+        // 不经代理缓冲，客户端立即收到数据
+        headers.set("X-Accel-Buffering", "no");
+        return headers;
+    }
+}
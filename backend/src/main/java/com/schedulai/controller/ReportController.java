@@ -5,21 +5,36 @@ import com.schedulai.dto.MonthlyLessonDTO;
 import com.schedulai.dto.CoursePopularityDTO;
 import com.schedulai.dto.TeacherWorkloadDTO;
 import com.schedulai.dto.StudentLearningDTO;
+import com.schedulai.dto.ErrorResponse;
+import com.schedulai.domain.LessonStatus;
+import com.schedulai.service.LessonTimeSeriesService;
+import com.schedulai.service.OpenAIApiException;
 import com.schedulai.service.ReportService;
+import com.schedulai.util.LessonColumns;
+import com.schedulai.util.LessonTimeSeries;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import com.schedulai.repository.FeedbackRepository;
 import com.schedulai.domain.Feedback;
@@ -31,10 +46,18 @@ public class ReportController {
 
     private static final Logger log = LoggerFactory.getLogger(ReportController.class);
     private final ReportService reportService;
+    private final LessonTimeSeriesService lessonTimeSeriesService;
     private final FeedbackRepository feedbackRepository;
 
+    // Longer than the OpenAI total deadline
+    private static final long SSE_TIMEOUT_MS = 90_000L;
+
+    // Upper bound for one batched evaluation request
+    private static final int MAX_LESSONS_PER_REQUEST = 50;
+
+    // AI-backed endpoints return a CompletableFuture so the request thread is released while waiting for the model
     @GetMapping("/learning/{studentId}")
-    public ResponseEntity<LearningReportDTO> generateLearningReport(
+    public CompletableFuture<ResponseEntity<LearningReportDTO>> generateLearningReport(
             @PathVariable Long studentId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
@@ -51,34 +74,165 @@ public class ReportController {
         }
 
         try {
-            LearningReportDTO report = reportService.generateLearningReport(studentId, startDate, endDate);
-            return ResponseEntity.ok(report);
+            return reportService.generateLearningReportAsync(studentId, startDate, endDate)
+                    .thenApply(ResponseEntity::ok)
+                    .exceptionally(e -> {
+                        log.error("Error generating learning report for student ID {}: {}", studentId, e.getMessage(), e);
+                        return ResponseEntity.internalServerError().body(new LearningReportDTO("Error generating report: " + e.getMessage()));
+                    });
         } catch (Exception e) {
             // Add specific exception handling (e.g., StudentNotFound)
             log.error("Error generating learning report for student ID {}: {}", studentId, e.getMessage(), e);
-            return ResponseEntity.internalServerError().body(new LearningReportDTO("Error generating report: " + e.getMessage()));
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.internalServerError().body(new LearningReportDTO("Error generating report: " + e.getMessage())));
         }
     }
 
     // --- Generate Report for a Single Lesson ---
     @PostMapping("/generate/lesson/{lessonId}")
-    public ResponseEntity<?> generateReportForSingleLesson(@PathVariable Long lessonId) {
+    public CompletableFuture<ResponseEntity<?>> generateReportForSingleLesson(@PathVariable Long lessonId) {
         log.info("POST /generate/lesson/{} request received", lessonId);
         try {
-            LearningReportDTO report = reportService.generateReportForLesson(lessonId);
-            return ResponseEntity.ok(report);
+            return reportService.generateReportForLessonAsync(lessonId)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(e -> {
+                        log.error("Error generating report for lesson {}: {}", lessonId, e.getMessage(), e);
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An internal error occurred while generating the report.");
+                    });
         } catch (EntityNotFoundException e) {
             log.warn("Cannot generate report: {}", e.getMessage());
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage()));
         } catch (IllegalStateException e) {
              log.warn("Cannot generate report: {}", e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage()));
         } catch (Exception e) {
             log.error("Error generating report for lesson {}: {}", lessonId, e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An internal error occurred while generating the report.");
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An internal error occurred while generating the report."));
         }
     }
     
+    // --- Generate Evaluations for Several Lessons (batched AI calls) ---
+    // Body: JSON array of lesson IDs; answer: evaluations keyed by lesson ID
+    @PostMapping("/generate/lessons")
+    public CompletableFuture<ResponseEntity<?>> generateReportsForLessons(@RequestBody List<Long> lessonIds) {
+        log.info("POST /generate/lessons request received for {} lessons", lessonIds != null ? lessonIds.size() : 0);
+        if (lessonIds == null || lessonIds.isEmpty() || lessonIds.size() > MAX_LESSONS_PER_REQUEST) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body("Between 1 and " + MAX_LESSONS_PER_REQUEST + " lesson IDs are required."));
+        }
+        try {
+            return reportService.generateReportsForLessonsAsync(lessonIds)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        if (cause instanceof OpenAIApiException apiError && apiError.isRetryable()) {
+                            // 限流或服务暂不可用：交给调用方稍后重试，而不是改成逐条调用
+                            log.warn("Reports for lessons {} unavailable: {}", lessonIds, cause.getMessage());
+                            ResponseEntity.BodyBuilder response = ResponseEntity.status(apiError.getStatusCode() == 429
+                                    ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE);
+                            if (apiError.getRetryAfterSeconds() != null) {
+                                response.header(HttpHeaders.RETRY_AFTER, String.valueOf(apiError.getRetryAfterSeconds()));
+                            }
+                            return response.body("The AI service is busy, please try again later.");
+                        }
+                        log.error("Error generating reports for lessons {}: {}", lessonIds, e.getMessage(), e);
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An internal error occurred while generating the reports.");
+                    });
+        } catch (EntityNotFoundException e) {
+            log.warn("Cannot generate reports: {}", e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage()));
+        } catch (IllegalStateException e) {
+            log.warn("Cannot generate reports: {}", e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error generating reports for lessons {}: {}", lessonIds, e.getMessage(), e);
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An internal error occurred while generating the reports."));
+        }
+    }
+
+    // --- Streaming (SSE) variants: tokens are pushed as the model produces them ---
+    // Events: "token" (text fragment), "done" (final LearningReportDTO), "error" (message)
+    @GetMapping(value = "/learning/{studentId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLearningReport(
+            @PathVariable Long studentId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        log.info("GET /learning/{}/stream request received, StartDate: {}, EndDate: {}", studentId, startDate, endDate);
+        LocalDate from = startDate != null ? startDate : LocalDate.now().minusDays(30);
+        LocalDate to = endDate != null ? endDate : LocalDate.now();
+
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        try {
+            CompletableFuture<LearningReportDTO> stream =
+                    reportService.streamLearningReport(studentId, from, to, token -> sendEvent(emitter, "token", token));
+            cancelOnDisconnect(emitter, stream);
+            stream.whenComplete((report, ex) -> finishStream(emitter, report, ex));
+        } catch (Exception e) {
+            log.error("Error streaming learning report for student ID {}: {}", studentId, e.getMessage(), e);
+            finishStream(emitter, null, e);
+        }
+        return emitter;
+    }
+
+    // GET (not POST) so the browser can consume it with EventSource
+    @GetMapping(value = "/generate/lesson/{lessonId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamReportForSingleLesson(@PathVariable Long lessonId) {
+        log.info("GET /generate/lesson/{}/stream request received", lessonId);
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        try {
+            CompletableFuture<LearningReportDTO> stream =
+                    reportService.streamReportForLesson(lessonId, token -> sendEvent(emitter, "token", token));
+            cancelOnDisconnect(emitter, stream);
+            stream.whenComplete((report, ex) -> finishStream(emitter, report, ex));
+        } catch (EntityNotFoundException | IllegalStateException e) {
+            log.warn("Cannot generate report: {}", e.getMessage());
+            finishStream(emitter, null, e);
+        } catch (Exception e) {
+            log.error("Error streaming report for lesson {}: {}", lessonId, e.getMessage(), e);
+            finishStream(emitter, null, e);
+        }
+        return emitter;
+    }
+
+    // Client gone, emitter timed out or completed: cancel the upstream AI stream (a no-op once it has finished)
+    private void cancelOnDisconnect(SseEmitter emitter, CompletableFuture<?> stream) {
+        emitter.onTimeout(() -> {
+            stream.cancel(true);
+            emitter.complete();
+        });
+        emitter.onError(ex -> stream.cancel(true));
+        emitter.onCompletion(() -> stream.cancel(true));
+    }
+
+    // Throwing here (client disconnected) makes the AI stream cancel the upstream request
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void finishStream(SseEmitter emitter, LearningReportDTO report, Throwable ex) {
+        try {
+            if (ex == null) {
+                emitter.send(SseEmitter.event().name("done").data(report));
+            } else {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                boolean clientError = cause instanceof EntityNotFoundException || cause instanceof IllegalStateException;
+                emitter.send(SseEmitter.event().name("error")
+                        .data(clientError ? cause.getMessage() : "An internal error occurred while generating the report."));
+            }
+            emitter.complete();
+        } catch (Exception e) {
+            // Client already gone
+            emitter.completeWithError(e);
+        }
+    }
+
     // --- 获取教师工作量统计 ---
     @GetMapping("/teacher-workload")
     public ResponseEntity<List<TeacherWorkloadDTO>> getTeacherWorkloadReport(
@@ -159,6 +313,83 @@ public class ReportController {
         }
     }
 
+    // --- 课程数据即席分析（内存分析库：按时间、状态、教师、学生、课程过滤后分组汇总） ---
+    @GetMapping("/lesson-analytics")
+    public ResponseEntity<?> queryLessonAnalytics(
+            @RequestParam(defaultValue = "NONE") LessonColumns.GroupBy groupBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Set<LessonStatus> status,
+            @RequestParam(required = false) Long teacherId,
+            @RequestParam(required = false) Long studentId,
+            @RequestParam(required = false) Long courseId) {
+
+        log.info("GET /lesson-analytics request received, groupBy: {}, startDate: {}, endDate: {}", groupBy, startDate, endDate);
+
+        // 设置默认日期范围
+        if (startDate == null) {
+            startDate = LocalDate.now().withDayOfMonth(1); // 本月第一天
+        }
+        if (endDate == null) {
+            endDate = LocalDate.now();
+        }
+        if (startDate.isAfter(endDate)) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("startDate 不能晚于 endDate"));
+        }
+
+        try {
+            LessonColumns.Filter filter = LessonColumns.Filter.all()
+                    .between(startDate, endDate)
+                    .statuses(status)
+                    .teacher(teacherId)
+                    .student(studentId)
+                    .course(courseId);
+            return ResponseEntity.ok(reportService.queryLessonAnalytics(filter, groupBy));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            // 按天分组的范围过大，或日期超出可表示的范围
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (IllegalStateException e) {
+            // 分析库尚未加载完成
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error querying lesson analytics: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    // --- 课程趋势（按日、周、月分段，各状态的课程数和分钟数；可按教师或课程过滤） ---
+    @GetMapping("/lesson-time-series")
+    public ResponseEntity<?> getLessonTimeSeries(
+            @RequestParam(defaultValue = "MONTH") LessonTimeSeries.Granularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long teacherId,
+            @RequestParam(required = false) Long courseId) {
+
+        log.info("GET /lesson-time-series request received, granularity: {}, startDate: {}, endDate: {}, teacherId: {}, courseId: {}",
+                granularity, startDate, endDate, teacherId, courseId);
+
+        // 设置默认日期范围：最近一年
+        if (endDate == null) {
+            endDate = LocalDate.now();
+        }
+        if (startDate == null) {
+            startDate = endDate.minusYears(1).plusDays(1);
+        }
+        if (startDate.isAfter(endDate)) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("startDate 不能晚于 endDate"));
+        }
+
+        try {
+            return ResponseEntity.ok(lessonTimeSeriesService.getSeries(granularity, startDate, endDate, teacherId, courseId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error generating lesson time series: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     /**
      * 获取课程的学生评价信息（用于报告生成前查看）
      */
@@ -0,0 +1,103 @@
+package com.schedulai.controller;
+
+import com.schedulai.domain.ReportJobItemStatus;
+import com.schedulai.dto.ReportJobDTO;
+import com.schedulai.service.ReportJobService;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/report-jobs")
+@RequiredArgsConstructor
+public class ReportJobController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportJobController.class);
+
+    private final ReportJobService reportJobService;
+
+    // --- Start a bulk report run (defaults to the previous calendar month) ---
+    @PostMapping
+    public ResponseEntity<?> createJob(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        LocalDate firstOfLastMonth = LocalDate.now().minusMonths(1).withDayOfMonth(1);
+        LocalDate start = startDate != null ? startDate : firstOfLastMonth;
+        LocalDate end = endDate != null ? endDate : firstOfLastMonth.plusMonths(1).minusDays(1);
+        log.info("POST /admin/report-jobs for {} to {}", start, end);
+        try {
+            return new ResponseEntity<>(reportJobService.createJob(start, end), HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid period for report job: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error creating report job for {} to {}: {}", start, end, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An internal error occurred.");
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ReportJobDTO>> getJobs() {
+        log.info("GET /admin/report-jobs");
+        return ResponseEntity.ok(reportJobService.getJobs());
+    }
+
+    // --- Job progress (item counts per status) ---
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getJob(@PathVariable Long id) {
+        log.info("GET /admin/report-jobs/{}", id);
+        try {
+            return ResponseEntity.ok(reportJobService.getJob(id));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    // --- Per-student results, optionally filtered by status ---
+    @GetMapping("/{id}/items")
+    public ResponseEntity<?> getJobItems(@PathVariable Long id,
+                                         @RequestParam(required = false) ReportJobItemStatus status) {
+        log.info("GET /admin/report-jobs/{}/items, status={}", id, status);
+        try {
+            return ResponseEntity.ok(reportJobService.getJobItems(id, status));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<?> cancelJob(@PathVariable Long id) {
+        log.info("POST /admin/report-jobs/{}/cancel", id);
+        try {
+            return ResponseEntity.ok(reportJobService.cancelJob(id));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error cancelling report job {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An internal error occurred.");
+        }
+    }
+
+    // --- Continue a cancelled/interrupted job; retryFailed also re-queues failed students ---
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<?> resumeJob(@PathVariable Long id,
+                                       @RequestParam(defaultValue = "false") boolean retryFailed) {
+        log.info("POST /admin/report-jobs/{}/resume, retryFailed={}", id, retryFailed);
+        try {
+            return ResponseEntity.ok(reportJobService.resumeJob(id, retryFailed));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error resuming report job {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An internal error occurred.");
+        }
+    }
+}
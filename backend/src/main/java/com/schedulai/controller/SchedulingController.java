@@ -3,15 +3,25 @@ package com.schedulai.controller;
 import com.schedulai.dto.ProposedLessonDTO;
 import com.schedulai.dto.TimeSlotDTO;
 import com.schedulai.service.SchedulingService;
+import com.schedulai.service.SuggestionPrecomputeService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/scheduling")
@@ -20,10 +30,15 @@ public class SchedulingController {
     private static final Logger log = LoggerFactory.getLogger(SchedulingController.class);
 
     private final SchedulingService schedulingService;
+    private final SuggestionPrecomputeService suggestionPrecomputeService;
+
+    // Longer than the OpenAI total deadline
+    private static final long SSE_TIMEOUT_MS = 90_000L;
 
     @Autowired
-    public SchedulingController(SchedulingService schedulingService) {
+    public SchedulingController(SchedulingService schedulingService, SuggestionPrecomputeService suggestionPrecomputeService) {
         this.schedulingService = schedulingService;
+        this.suggestionPrecomputeService = suggestionPrecomputeService;
     }
 
     @GetMapping("/common-slots")
@@ -43,9 +58,28 @@ public class SchedulingController {
         }
     }
 
-    // Endpoint to get AI-powered lesson time suggestions
+    // Common availability expanded onto concrete dates, excluding holidays and teacher vacations
+    @GetMapping("/common-slots/dated")
+    public ResponseEntity<?> findCommonAvailableSlotsBetween(
+            @RequestParam Long studentId,
+            @RequestParam Long teacherId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        log.info("Received request for dated common slots: student={}, teacher={}, {} to {}", studentId, teacherId, startDate, endDate);
+        try {
+            return ResponseEntity.ok(schedulingService.findCommonAvailableSlotsBetween(studentId, teacherId, startDate, endDate));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error expanding common slots for student {} and teacher {}: {}", studentId, teacherId, e);
+            return ResponseEntity.internalServerError().body("An error occurred while finding common slots.");
+        }
+    }
+
+    // Endpoint to get AI-powered lesson time suggestions; completes asynchronously so no request thread waits on the model.
+    // Served from the nightly precomputed suggestions when a fresh entry exists
     @GetMapping("/suggest-times")
-    public ResponseEntity<?> suggestLessonTimes(
+    public CompletableFuture<ResponseEntity<?>> suggestLessonTimes(
             @RequestParam Long studentId,
             @RequestParam Long teacherId,
             @RequestParam Long enrollmentId, // Need enrollment to link the lesson
@@ -56,21 +90,77 @@ public class SchedulingController {
 
         // Basic validation
         if (studentId == null || teacherId == null || enrollmentId == null || durationMinutes <= 0) {
-            return ResponseEntity.badRequest().body("studentId, teacherId, enrollmentId, and a positive durationMinutes are required.");
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body("studentId, teacherId, enrollmentId, and a positive durationMinutes are required."));
         }
 
         try {
-            List<ProposedLessonDTO> suggestions = schedulingService.suggestLessonTimes(enrollmentId, durationMinutes);
-            if (suggestions.isEmpty()) {
-                // It's not necessarily an error if no slots are found, return OK with empty list
-                log.info("No suitable lesson time suggestions found for enrollment {}", enrollmentId);
-            }
-            return ResponseEntity.ok(suggestions);
+            return suggestionPrecomputeService.suggest(enrollmentId, durationMinutes)
+                    .<ResponseEntity<?>>thenApply(suggestions -> {
+                        if (suggestions.isEmpty()) {
+                            // It's not necessarily an error if no slots are found, return OK with empty list
+                            log.info("No suitable lesson time suggestions found for enrollment {}", enrollmentId);
+                        }
+                        return ResponseEntity.ok(suggestions);
+                    })
+                    .exceptionally(e -> {
+                        log.error("Error suggesting lesson times for student {}, teacher {}, enrollment {}: {}",
+                                  studentId, teacherId, enrollmentId, e);
+                        return ResponseEntity.internalServerError().body("An error occurred while suggesting lesson times.");
+                    });
         } catch (Exception e) {
             // Catch specific business logic exceptions if needed
             log.error("Error suggesting lesson times for student {}, teacher {}, enrollment {}: {}",
                       studentId, teacherId, enrollmentId, e);
-            return ResponseEntity.internalServerError().body("An error occurred while suggesting lesson times.");
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.internalServerError().body("An error occurred while suggesting lesson times."));
+        }
+    }
+
+    // Streaming (SSE) variant: each suggestion is pushed as soon as the model has produced it and it passed the conflict checks
+    // Events: "suggestion" (ProposedLessonDTO), "done" (all accepted suggestions), "error" (message)
+    @GetMapping(value = "/suggest-times/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLessonTimeSuggestions(
+            @RequestParam Long enrollmentId,
+            @RequestParam int durationMinutes) {
+
+        log.info("Received request to stream lesson time suggestions for enrollment {}, duration {} mins", enrollmentId, durationMinutes);
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        if (durationMinutes <= 0) {
+            finishSuggestionStream(emitter, null, new IllegalArgumentException("A positive durationMinutes is required."));
+            return emitter;
+        }
+        try {
+            schedulingService.streamLessonTimeSuggestions(enrollmentId, durationMinutes, suggestion -> {
+                        try {
+                            emitter.send(SseEmitter.event().name("suggestion").data(suggestion));
+                        } catch (IOException e) {
+                            // Client disconnected: stops the upstream stream
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .whenComplete((suggestions, ex) -> finishSuggestionStream(emitter, suggestions, ex));
+        } catch (Exception e) {
+            log.error("Error streaming lesson time suggestions for enrollment {}: {}", enrollmentId, e.getMessage(), e);
+            finishSuggestionStream(emitter, null, e);
+        }
+        return emitter;
+    }
+
+    private void finishSuggestionStream(SseEmitter emitter, List<ProposedLessonDTO> suggestions, Throwable ex) {
+        try {
+            if (ex == null) {
+                emitter.send(SseEmitter.event().name("done").data(suggestions));
+            } else {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                boolean clientError = cause instanceof EntityNotFoundException || cause instanceof IllegalArgumentException;
+                emitter.send(SseEmitter.event().name("error")
+                        .data(clientError ? cause.getMessage() : "An error occurred while suggesting lesson times."));
+            }
+            emitter.complete();
+        } catch (Exception e) {
+            // Client already gone
+            emitter.completeWithError(e);
         }
     }
 
@@ -0,0 +1,46 @@
+package com.schedulai.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 每个用户每天的 AI 调用次数、估算 token 数和被配额拒绝的次数
+ */
+@Entity
+@Table(name = "ai_usage_daily")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AIUsageDaily {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "usage_date", nullable = false)
+    private LocalDate usageDate;
+
+    // 用户名；无法识别的调用方为 "ip:<地址>"
+    @Column(nullable = false, length = 100)
+    private String subject;
+
+    @Column(nullable = false, length = 20)
+    private String role;
+
+    @Column(nullable = false)
+    private Long calls;
+
+    @Column(nullable = false)
+    private Long tokens;
+
+    @Column(name = "rejected_calls", nullable = false)
+    private Long rejectedCalls;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,6 @@
+package com.schedulai.domain;
+
+public enum AvailabilityOwnerType {
+    TEACHER,
+    STUDENT
+}
@@ -0,0 +1,61 @@
+package com.schedulai.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 有效期内的每周可用时间模板（如暑期课表）。有效期外使用 teacher_availabilities /
+ * student_availabilities 中的基础周模板；切换学期只需修改起止日期，无需重写时间段。
+ */
+@Entity
+@Table(name = "availability_templates")
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(exclude = "slots")
+@ToString(exclude = "slots")
+public class AvailabilityTemplate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "owner_type", nullable = false)
+    private AvailabilityOwnerType ownerType;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Column(name = "effective_from", nullable = false)
+    private LocalDate effectiveFrom;
+
+    @Column(name = "effective_to") // Inclusive, NULL = open-ended
+    private LocalDate effectiveTo;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @OneToMany(mappedBy = "template", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    private List<AvailabilityTemplateSlot> slots = new ArrayList<>();
+
+    public void addSlot(AvailabilityTemplateSlot slot) {
+        slots.add(slot);
+        slot.setTemplate(this);
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
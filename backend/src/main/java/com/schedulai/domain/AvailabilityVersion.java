@@ -0,0 +1,45 @@
+package com.schedulai.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 每个教师/学生基础周可用时间的版本号与规范形式校验和，每次实际变更时递增
+ */
+@Entity
+@Table(name = "availability_versions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityVersion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "owner_type", nullable = false)
+    private AvailabilityOwnerType ownerType;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(nullable = false, length = 64)
+    private String checksum;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
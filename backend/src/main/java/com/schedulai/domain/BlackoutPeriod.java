@@ -0,0 +1,42 @@
+package com.schedulai.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "blackout_periods")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlackoutPeriod {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // NULL 表示机构统一停课（节假日、考试周），否则为该教师的个人休假
+    @Column(name = "teacher_id")
+    private Long teacherId;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    @Column(name = "end_date", nullable = false) // Inclusive
+    private LocalDate endDate;
+
+    @Column(length = 255)
+    private String reason;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,47 @@
+package com.schedulai.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * 每日课程汇总（日期 + 教师 + 学生 + 课程 + 状态一行），
+ * 随课程的增删改在同一事务内增量更新，仪表盘报表直接读取
+ */
+@Entity
+@Table(name = "lesson_daily_rollups")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LessonDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "lesson_date", nullable = false)
+    private LocalDate lessonDate;
+
+    @Column(name = "teacher_id", nullable = false)
+    private Long teacherId;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private LessonStatus status;
+
+    @Column(name = "lesson_count", nullable = false)
+    private Integer lessonCount;
+
+    // 课程时长合计（分钟）
+    @Column(name = "total_minutes", nullable = false)
+    private Long totalMinutes;
+}
@@ -0,0 +1,42 @@
+package com.schedulai.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 已生成的单节课 AI 评价，连同生成时输入（备注、学生评价、模型）的指纹；
+ * 输入变化时标记为 stale，下次读取时重新生成
+ */
+@Entity
+@Table(name = "lesson_evaluations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LessonEvaluation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "lesson_id", nullable = false, unique = true)
+    private Long lessonId;
+
+    @Column(name = "input_fingerprint", nullable = false, length = 64)
+    private String inputFingerprint;
+
+    @Column(nullable = false, length = 100)
+    private String model;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content;
+
+    @Column(nullable = false)
+    private boolean stale = false;
+
+    @Column(name = "generated_at")
+    private LocalDateTime generatedAt;
+}
@@ -0,0 +1,46 @@
+package com.schedulai.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 夜间预计算的课程时间建议（每个选课 + 课程时长一行），
+ * 学生或教师的课程、可用时间变化时删除
+ */
+@Entity
+@Table(name = "precomputed_suggestions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrecomputedSuggestion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "enrollment_id", nullable = false)
+    private Long enrollmentId;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Column(name = "teacher_id", nullable = false)
+    private Long teacherId;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Column(name = "duration_minutes", nullable = false)
+    private Integer durationMinutes;
+
+    // 逗号分隔的开始时间（ISO 格式）
+    @Column(nullable = false, length = 1000)
+    private String slots;
+
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+}
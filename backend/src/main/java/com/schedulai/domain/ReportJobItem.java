@@ -0,0 +1,51 @@
+package com.schedulai.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 批量报告任务中单个学生的生成进度与结果
+ */
+@Entity
+@Table(name = "report_job_items")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJobItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false)
+    private Long jobId;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ReportJobItemStatus status;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "report_content", columnDefinition = "TEXT")
+    private String reportContent;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
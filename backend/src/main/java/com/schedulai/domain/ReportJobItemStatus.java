@@ -0,0 +1,8 @@
+package com.schedulai.domain;
+
+public enum ReportJobItemStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,8 @@
+package com.schedulai.domain;
+
+public enum ReportJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    CANCELLED
+}
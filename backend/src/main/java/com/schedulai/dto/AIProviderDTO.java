@@ -0,0 +1,19 @@
+package com.schedulai.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 额外的AI服务端点（地址、密钥、模型与并发上限）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AIProviderDTO {
+    private String name;
+    private String apiUrl;
+    private String apiKey;
+    private String model;
+    private Integer maxConcurrentCalls;
+}
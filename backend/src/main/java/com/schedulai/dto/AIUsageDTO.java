@@ -0,0 +1,20 @@
+package com.schedulai.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * AI 用量汇总（按角色或按用户）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AIUsageDTO {
+    private String subject; // 按角色汇总时为 null
+    private String role;
+    private long users;
+    private long calls;
+    private long tokens;
+    private long rejectedCalls;
+}
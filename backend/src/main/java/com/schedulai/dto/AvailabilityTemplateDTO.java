@@ -0,0 +1,22 @@
+package com.schedulai.dto;
+
+import com.schedulai.domain.AvailabilityOwnerType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityTemplateDTO {
+    private Long id;
+    private AvailabilityOwnerType ownerType;
+    private Long ownerId;
+    private String name;
+    private LocalDate effectiveFrom;
+    private LocalDate effectiveTo; // null = 长期有效
+    private List<TimeSlotDTO> slots; // 更新时为 null 表示只修改元数据
+}
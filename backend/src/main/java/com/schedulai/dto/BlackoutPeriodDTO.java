@@ -0,0 +1,18 @@
+package com.schedulai.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlackoutPeriodDTO {
+    private Long id;
+    private Long teacherId; // null = 机构统一停课
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String reason;
+}
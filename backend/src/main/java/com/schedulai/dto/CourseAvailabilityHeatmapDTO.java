@@ -0,0 +1,15 @@
+package com.schedulai.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseAvailabilityHeatmapDTO {
+    private Long courseId;
+    private int studentCount;       // 选修该课程的学生人数
+    private int resolutionMinutes;  // 每个时间格的分钟数
+    private int[] counts;           // 从周一 00:00 开始，每个时间格内可用的学生人数
+}
@@ -0,0 +1,21 @@
+package com.schedulai.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LessonTimeSeriesPointDTO {
+    private LocalDate periodStart; // 时段第一天
+    private LocalDate periodEnd; // 时段最后一天（含）
+    private Boolean closed; // 时段是否已完全过去（结果来自缓存或已缓存）
+    private Long totalLessons;
+    private Long totalMinutes;
+    private Map<String, Long> lessonsByStatus; // 每种状态都有，没有课程时为 0
+    private Map<String, Long> minutesByStatus;
+}
@@ -0,0 +1,30 @@
+package com.schedulai.dto;
+
+import com.schedulai.domain.ReportJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 批量报告任务及其进度
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJobDTO {
+    private Long id;
+    private LocalDate periodStart;
+    private LocalDate periodEnd;
+    private ReportJobStatus status;
+    private int totalItems;
+    private long pendingItems;
+    private long runningItems;
+    private long completedItems;
+    private long failedItems;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,21 @@
+package com.schedulai.dto;
+
+import com.schedulai.domain.ReportJobItemStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJobItemDTO {
+    private Long id;
+    private Long studentId;
+    private ReportJobItemStatus status;
+    private int attempts;
+    private String reportContent;
+    private String errorMessage;
+    private LocalDateTime updatedAt;
+}
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -22,6 +24,8 @@ public class SystemSettingsDTO {
     private String openaiApiKey;
     private String openaiApiUrl;
     private String openaiModel;
+    // 额外的AI服务端点，与主端点一起按延迟和错误率分配请求
+    private List<AIProviderDTO> openaiProviders;
     
     // 邮件通知设置
     private Boolean emailNotification;
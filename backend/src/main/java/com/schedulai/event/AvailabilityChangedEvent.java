@@ -0,0 +1,24 @@
+package com.schedulai.event;
+
+import com.schedulai.domain.AvailabilityOwnerType;
+import com.schedulai.util.AvailabilityDiff;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Published after a teacher's or student's base weekly availability changes.
+ * Carries the exact slot deltas so derived structures can be patched instead of rebuilt.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class AvailabilityChangedEvent {
+
+    private final AvailabilityOwnerType ownerType;
+    private final Long ownerId;
+    private final List<AvailabilityDiff.Slot> added;
+    private final List<AvailabilityDiff.Slot> removed;
+}
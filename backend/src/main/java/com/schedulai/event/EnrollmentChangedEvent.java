@@ -0,0 +1,18 @@
+package com.schedulai.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published when a student is enrolled in or removed from a teacher's course.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class EnrollmentChangedEvent {
+
+    private final Long enrollmentId;
+    private final Long studentId;
+    private final Long courseId;
+}
@@ -0,0 +1,17 @@
+package com.schedulai.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published when a student's feedback on a lesson is created, updated or deleted.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class FeedbackChangedEvent {
+
+    private final Long lessonId;
+    private final Long studentId;
+}
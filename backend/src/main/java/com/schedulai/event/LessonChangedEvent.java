@@ -0,0 +1,16 @@
+package com.schedulai.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published when a lesson's time, status or notes are updated.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class LessonChangedEvent {
+
+    private final Long lessonId;
+}
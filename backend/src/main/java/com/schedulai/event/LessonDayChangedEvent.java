@@ -0,0 +1,19 @@
+package com.schedulai.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+
+/**
+ * Published when the lessons counted on a day change: a lesson starting that day was added, removed,
+ * moved away or changed status, duration, teacher or course.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class LessonDayChangedEvent {
+
+    private final LocalDate date;
+}
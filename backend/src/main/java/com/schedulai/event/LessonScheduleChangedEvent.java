@@ -0,0 +1,19 @@
+package com.schedulai.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published when a lesson is created, deleted, moved or changes status, i.e. whenever the
+ * student's or teacher's occupied time may have changed.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class LessonScheduleChangedEvent {
+
+    private final Long lessonId;
+    private final Long studentId;
+    private final Long teacherId;
+}
@@ -0,0 +1,40 @@
+package com.schedulai.repository;
+
+import com.schedulai.domain.AIUsageDaily;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AIUsageDailyRepository extends JpaRepository<AIUsageDaily, Long> {
+
+    List<AIUsageDaily> findByUsageDate(LocalDate usageDate);
+
+    // Adds a flushed delta to the day's row, creating it on first use
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO ai_usage_daily (usage_date, subject, role, calls, tokens, rejected_calls, updated_at) " +
+                   "VALUES (:usageDate, :subject, :role, :calls, :tokens, :rejectedCalls, NOW(6)) " +
+                   "ON DUPLICATE KEY UPDATE calls = calls + VALUES(calls), tokens = tokens + VALUES(tokens), " +
+                   "rejected_calls = rejected_calls + VALUES(rejected_calls), role = VALUES(role), updated_at = VALUES(updated_at)",
+           nativeQuery = true)
+    int addUsage(@Param("usageDate") LocalDate usageDate, @Param("subject") String subject, @Param("role") String role,
+                 @Param("calls") long calls, @Param("tokens") long tokens, @Param("rejectedCalls") long rejectedCalls);
+
+    // 按角色汇总：role, 用户数, 调用次数, token 数, 被拒次数
+    @Query("SELECT u.role, COUNT(DISTINCT u.subject), SUM(u.calls), SUM(u.tokens), SUM(u.rejectedCalls) " +
+           "FROM AIUsageDaily u WHERE u.usageDate BETWEEN :from AND :to GROUP BY u.role")
+    List<Object[]> sumByRole(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // 按用户汇总，token 数从高到低：subject, role, 调用次数, token 数, 被拒次数
+    @Query("SELECT u.subject, MAX(u.role), SUM(u.calls), SUM(u.tokens), SUM(u.rejectedCalls) " +
+           "FROM AIUsageDaily u WHERE u.usageDate BETWEEN :from AND :to GROUP BY u.subject ORDER BY SUM(u.tokens) DESC")
+    List<Object[]> sumBySubject(@Param("from") LocalDate from, @Param("to") LocalDate to, Pageable pageable);
+}
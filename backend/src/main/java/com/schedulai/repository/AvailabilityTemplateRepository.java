@@ -0,0 +1,21 @@
+package com.schedulai.repository;
+
+import com.schedulai.domain.AvailabilityOwnerType;
+import com.schedulai.domain.AvailabilityTemplate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AvailabilityTemplateRepository extends JpaRepository<AvailabilityTemplate, Long> {
+
+    // Template metadata only (slots stay lazy), used to build the effective-date index
+    List<AvailabilityTemplate> findByOwnerTypeAndOwnerIdOrderByEffectiveFromAsc(AvailabilityOwnerType ownerType, Long ownerId);
+
+    @Query("SELECT t FROM AvailabilityTemplate t LEFT JOIN FETCH t.slots WHERE t.id = :id")
+    Optional<AvailabilityTemplate> findByIdWithSlots(@Param("id") Long id);
+}
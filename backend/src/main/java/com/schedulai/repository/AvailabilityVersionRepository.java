@@ -0,0 +1,21 @@
+package com.schedulai.repository;
+
+import com.schedulai.domain.AvailabilityOwnerType;
+import com.schedulai.domain.AvailabilityVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AvailabilityVersionRepository extends JpaRepository<AvailabilityVersion, Long> {
+
+    Optional<AvailabilityVersion> findByOwnerTypeAndOwnerId(AvailabilityOwnerType ownerType, Long ownerId);
+
+    // Owners whose availability has already been canonicalized at least once
+    @Query("SELECT v.ownerId FROM AvailabilityVersion v WHERE v.ownerType = :ownerType")
+    List<Long> findOwnerIdsByOwnerType(@Param("ownerType") AvailabilityOwnerType ownerType);
+}
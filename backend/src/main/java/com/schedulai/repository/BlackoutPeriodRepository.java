@@ -0,0 +1,19 @@
+package com.schedulai.repository;
+
+import com.schedulai.domain.BlackoutPeriod;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BlackoutPeriodRepository extends JpaRepository<BlackoutPeriod, Long> {
+
+    // Organization-wide closures (holidays, exam weeks)
+    List<BlackoutPeriod> findByTeacherIdIsNullOrderByStartDateAsc();
+
+    // Personal vacation ranges of a specific teacher
+    List<BlackoutPeriod> findByTeacherIdOrderByStartDateAsc(Long teacherId);
+
+    List<BlackoutPeriod> findAllByOrderByStartDateAsc();
+}
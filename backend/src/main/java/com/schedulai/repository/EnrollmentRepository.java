@@ -3,13 +3,20 @@ package com.schedulai.repository;
 import com.schedulai.domain.Enrollment;
 import com.schedulai.domain.Student;
 import com.schedulai.domain.TeacherCourse;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
 public interface EnrollmentRepository extends JpaRepository<Enrollment, Long> {
@@ -54,4 +61,32 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, Long> {
     @Query("SELECT tc.course.id, tc.course.name, tc.course.category, COUNT(e.id) " +
            "FROM Enrollment e JOIN e.teacherCourse tc GROUP BY tc.course.id, tc.course.name, tc.course.category")
     List<Object[]> countEnrollmentsByCourse();
-} 
\ No newline at end of file
+
+    // 有近期课程（since 之后）的选课：enrollmentId, studentId, teacherId, courseId, 课程时长
+    @Query("SELECT e.id, e.student.id, tc.teacher.id, tc.course.id, tc.course.duration " +
+           "FROM Enrollment e JOIN e.teacherCourse tc " +
+           "WHERE EXISTS (SELECT l.id FROM Lesson l WHERE l.enrollment = e AND l.startDateTime >= :since)")
+    List<Object[]> findActiveEnrollmentSummaries(@Param("since") LocalDateTime since);
+
+    // 导出列：enrollmentId, 选课时间, studentId, 学生姓名, teacherId, 教师姓名, courseId, 课程名称, 课时费率
+    // 条件为 null 时不过滤（日期按选课时间）；逐行流式读取
+    @Query("SELECT e.id, e.enrollmentDate, s.id, s.name, t.id, t.name, c.id, c.name, e.hourlyRate " +
+           "FROM Enrollment e JOIN e.student s JOIN e.teacherCourse tc JOIN tc.teacher t JOIN tc.course c " +
+           "WHERE (:start IS NULL OR e.enrollmentDate >= :start) AND (:end IS NULL OR e.enrollmentDate < :end) " +
+           "AND (:teacherId IS NULL OR t.id = :teacherId) AND (:studentId IS NULL OR s.id = :studentId) " +
+           "ORDER BY e.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    Stream<Object[]> streamExportRows(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                      @Param("teacherId") Long teacherId, @Param("studentId") Long studentId);
+
+    /**
+     * Streams the export rows to the action inside the read-only transaction the cursor needs
+     */
+    @Transactional(readOnly = true)
+    default void forEachExportRow(LocalDateTime start, LocalDateTime end, Long teacherId, Long studentId,
+                                  Consumer<Object[]> action) {
+        try (Stream<Object[]> rows = streamExportRows(start, end, teacherId, studentId)) {
+            rows.forEach(action);
+        }
+    }
+}
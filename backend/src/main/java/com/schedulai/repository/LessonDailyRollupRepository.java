@@ -0,0 +1,122 @@
+package com.schedulai.repository;
+
+import com.schedulai.domain.LessonDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LessonDailyRollupRepository extends JpaRepository<LessonDailyRollup, Long> {
+
+    // --- Incremental Maintenance ---
+
+    // Adds a lesson's contribution (negative to take one away) to its day's row, creating the row on first use
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO lesson_daily_rollups (lesson_date, teacher_id, student_id, course_id, status, lesson_count, total_minutes) " +
+                   "VALUES (:lessonDate, :teacherId, :studentId, :courseId, :status, :lessonCount, :minutes) " +
+                   "ON DUPLICATE KEY UPDATE lesson_count = lesson_count + VALUES(lesson_count), " +
+                   "total_minutes = total_minutes + VALUES(total_minutes)",
+           nativeQuery = true)
+    int addLessons(@Param("lessonDate") LocalDate lessonDate, @Param("teacherId") Long teacherId,
+                   @Param("studentId") Long studentId, @Param("courseId") Long courseId, @Param("status") String status,
+                   @Param("lessonCount") int lessonCount, @Param("minutes") long minutes);
+
+    // --- Backfill ---
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM LessonDailyRollup r WHERE r.lessonDate >= :from AND r.lessonDate < :to")
+    int deleteBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM LessonDailyRollup r WHERE r.lessonDate < :from OR r.lessonDate >= :to")
+    int deleteOutside(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO lesson_daily_rollups (lesson_date, teacher_id, student_id, course_id, status, lesson_count, total_minutes) " +
+                   "SELECT DATE(l.start_date_time), tc.teacher_id, e.student_id, tc.course_id, l.status, COUNT(*), " +
+                   "SUM(TIMESTAMPDIFF(MINUTE, l.start_date_time, l.end_date_time)) " +
+                   "FROM lessons l " +
+                   "JOIN enrollments e ON e.id = l.enrollment_id " +
+                   "JOIN teacher_courses tc ON tc.id = e.teacher_course_id " +
+                   "WHERE l.start_date_time >= :start AND l.start_date_time < :end " +
+                   "GROUP BY DATE(l.start_date_time), tc.teacher_id, e.student_id, tc.course_id, l.status",
+           nativeQuery = true)
+    int insertFromLessons(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * Rebuilds the rows of [from, to) from the lessons in one transaction
+     */
+    @Transactional
+    default int rebuildBetween(LocalDate from, LocalDate to) {
+        deleteBetween(from, to);
+        return insertFromLessons(from.atStartOfDay(), to.atStartOfDay());
+    }
+
+    // Lessons covered by the rollups, compared with the lesson count on startup
+    @Query("SELECT COALESCE(SUM(r.lessonCount), 0) FROM LessonDailyRollup r")
+    long sumLessonCount();
+
+    // Rows emptied by moves and deletions
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM LessonDailyRollup r WHERE r.lessonCount <= 0")
+    int deleteEmpty();
+
+    // --- Dashboard Aggregates ---
+
+    // 按教师汇总：teacherId, teacherName, 总课时数, 已完成数, 已取消数, 已完成分钟数（按分钟数降序）
+    @Query(value = "SELECT t.id, t.name, SUM(r.lesson_count), " +
+           "SUM(CASE WHEN r.status = 'COMPLETED' THEN r.lesson_count ELSE 0 END), " +
+           "SUM(CASE WHEN r.status IN ('CANCELLED', 'CANCELLED_BY_TEACHER', 'CANCELLED_BY_STUDENT') THEN r.lesson_count ELSE 0 END), " +
+           "SUM(CASE WHEN r.status = 'COMPLETED' THEN r.total_minutes ELSE 0 END) AS completed_minutes " +
+           "FROM lesson_daily_rollups r " +
+           "JOIN teachers t ON t.id = r.teacher_id " +
+           "WHERE r.lesson_date BETWEEN :from AND :to " +
+           "GROUP BY t.id, t.name HAVING SUM(r.lesson_count) > 0 ORDER BY completed_minutes DESC",
+           nativeQuery = true)
+    List<Object[]> sumWorkloadByTeacher(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // 按学生汇总：studentId, studentName, 总课时数, 已完成数, 已取消数, 已完成分钟数（按分钟数降序）
+    @Query(value = "SELECT s.id, s.name, SUM(r.lesson_count), " +
+           "SUM(CASE WHEN r.status = 'COMPLETED' THEN r.lesson_count ELSE 0 END), " +
+           "SUM(CASE WHEN r.status IN ('CANCELLED', 'CANCELLED_BY_TEACHER', 'CANCELLED_BY_STUDENT') THEN r.lesson_count ELSE 0 END), " +
+           "SUM(CASE WHEN r.status = 'COMPLETED' THEN r.total_minutes ELSE 0 END) AS completed_minutes " +
+           "FROM lesson_daily_rollups r " +
+           "JOIN students s ON s.id = r.student_id " +
+           "WHERE r.lesson_date BETWEEN :from AND :to " +
+           "GROUP BY s.id, s.name HAVING SUM(r.lesson_count) > 0 ORDER BY completed_minutes DESC",
+           nativeQuery = true)
+    List<Object[]> sumLearningByStudent(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // 按月汇总：月份(1-12), 计划课程数, 已完成数
+    @Query(value = "SELECT MONTH(r.lesson_date), " +
+           "SUM(CASE WHEN r.status = 'SCHEDULED' THEN r.lesson_count ELSE 0 END), " +
+           "SUM(CASE WHEN r.status = 'COMPLETED' THEN r.lesson_count ELSE 0 END) " +
+           "FROM lesson_daily_rollups r " +
+           "WHERE r.lesson_date BETWEEN :from AND :to " +
+           "GROUP BY MONTH(r.lesson_date)",
+           nativeQuery = true)
+    List<Object[]> sumLessonsByMonth(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // 时间序列按天和状态汇总：日期, 状态, 课程数, 分钟数（[from, to)，teacherId、courseId 为 null 时不过滤）
+    @Query(value = "SELECT r.lesson_date, r.status, SUM(r.lesson_count), SUM(r.total_minutes) " +
+           "FROM lesson_daily_rollups r " +
+           "WHERE r.lesson_date >= :from AND r.lesson_date < :to " +
+           "AND (:teacherId IS NULL OR r.teacher_id = :teacherId) " +
+           "AND (:courseId IS NULL OR r.course_id = :courseId) " +
+           "GROUP BY r.lesson_date, r.status",
+           nativeQuery = true)
+    List<Object[]> sumLessonsByDayAndStatus(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                            @Param("teacherId") Long teacherId, @Param("courseId") Long courseId);
+}
@@ -0,0 +1,23 @@
+package com.schedulai.repository;
+
+import com.schedulai.domain.LessonEvaluation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface LessonEvaluationRepository extends JpaRepository<LessonEvaluation, Long> {
+
+    Optional<LessonEvaluation> findByLessonId(Long lessonId);
+
+    // Called after a lesson or its feedback changed; the next read re-checks the fingerprint
+    @Transactional
+    @Modifying
+    @Query("UPDATE LessonEvaluation e SET e.stale = true WHERE e.lessonId = :lessonId AND e.stale = false")
+    int markStale(@Param("lessonId") Long lessonId);
+}
@@ -2,14 +2,20 @@ package com.schedulai.repository;
 
 import com.schedulai.domain.Lesson;
 import com.schedulai.domain.LessonStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
 public interface LessonRepository extends JpaRepository<Lesson, Long> {
@@ -59,6 +65,121 @@ public interface LessonRepository extends JpaRepository<Lesson, Long> {
     @Query("SELECT l FROM Lesson l JOIN FETCH l.enrollment e JOIN FETCH e.student JOIN FETCH e.teacherCourse tc JOIN FETCH tc.teacher JOIN FETCH tc.course WHERE e.id = :enrollmentId")
     List<Lesson> findByEnrollmentIdWithEnrollmentDetails(@Param("enrollmentId") Long enrollmentId);
 
+    // One query for a student's lessons in a range, with teacher and course names (learning reports)
+    @Query("SELECT l FROM Lesson l JOIN FETCH l.enrollment e JOIN FETCH e.student JOIN FETCH e.teacherCourse tc JOIN FETCH tc.teacher JOIN FETCH tc.course " +
+           "WHERE e.student.id = :studentId AND l.startDateTime BETWEEN :start AND :end ORDER BY l.startDateTime")
+    List<Lesson> findByStudentIdAndStartDateTimeBetweenWithDetails(@Param("studentId") Long studentId,
+                                                                   @Param("start") LocalDateTime start,
+                                                                   @Param("end") LocalDateTime end);
+
     // 添加按时间范围查询所有课程的方法
     List<Lesson> findByStartDateTimeBetweenOrderByStartDateTimeAsc(LocalDateTime start, LocalDateTime end);
-} 
\ No newline at end of file
+
+    // Students with at least one lesson starting in [start, end), for batch report generation
+    @Query("SELECT DISTINCT e.student.id FROM Lesson l JOIN l.enrollment e WHERE l.startDateTime >= :start AND l.startDateTime < :end ORDER BY e.student.id")
+    List<Long> findStudentIdsWithLessonsBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // --- Dashboard Aggregates (one grouped scan instead of loading every lesson; used until the rollups are ready) ---
+
+    // 按教师汇总：teacherId, teacherName, 总课时数, 已完成数, 已取消数, 已完成分钟数（按分钟数降序）
+    @Query(value = "SELECT t.id, t.name, COUNT(*), " +
+           "SUM(CASE WHEN l.status = 'COMPLETED' THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN l.status IN ('CANCELLED', 'CANCELLED_BY_TEACHER', 'CANCELLED_BY_STUDENT') THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN l.status = 'COMPLETED' THEN TIMESTAMPDIFF(MINUTE, l.start_date_time, l.end_date_time) ELSE 0 END) AS total_minutes " +
+           "FROM lessons l " +
+           "JOIN enrollments e ON e.id = l.enrollment_id " +
+           "JOIN teacher_courses tc ON tc.id = e.teacher_course_id " +
+           "JOIN teachers t ON t.id = tc.teacher_id " +
+           "WHERE l.start_date_time >= :start AND l.start_date_time < :end " +
+           "GROUP BY t.id, t.name ORDER BY total_minutes DESC",
+           nativeQuery = true)
+    List<Object[]> sumWorkloadByTeacher(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // 按学生汇总：studentId, studentName, 总课时数, 已完成数, 已取消数, 已完成分钟数（按分钟数降序）
+    @Query(value = "SELECT s.id, s.name, COUNT(*), " +
+           "SUM(CASE WHEN l.status = 'COMPLETED' THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN l.status IN ('CANCELLED', 'CANCELLED_BY_TEACHER', 'CANCELLED_BY_STUDENT') THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN l.status = 'COMPLETED' THEN TIMESTAMPDIFF(MINUTE, l.start_date_time, l.end_date_time) ELSE 0 END) AS total_minutes " +
+           "FROM lessons l " +
+           "JOIN enrollments e ON e.id = l.enrollment_id " +
+           "JOIN students s ON s.id = e.student_id " +
+           "WHERE l.start_date_time >= :start AND l.start_date_time < :end " +
+           "GROUP BY s.id, s.name ORDER BY total_minutes DESC",
+           nativeQuery = true)
+    List<Object[]> sumLearningByStudent(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // 按月汇总：月份(1-12), 计划课程数, 已完成数
+    @Query(value = "SELECT MONTH(l.start_date_time), " +
+           "SUM(CASE WHEN l.status = 'SCHEDULED' THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN l.status = 'COMPLETED' THEN 1 ELSE 0 END) " +
+           "FROM lessons l " +
+           "WHERE l.start_date_time >= :start AND l.start_date_time < :end " +
+           "GROUP BY MONTH(l.start_date_time)",
+           nativeQuery = true)
+    List<Object[]> sumLessonsByMonth(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // 时间序列按天和状态汇总：日期, 状态, 课程数, 分钟数（teacherId、courseId 为 null 时不过滤）
+    @Query(value = "SELECT DATE(l.start_date_time), l.status, COUNT(*), " +
+           "SUM(TIMESTAMPDIFF(MINUTE, l.start_date_time, l.end_date_time)) " +
+           "FROM lessons l " +
+           "JOIN enrollments e ON e.id = l.enrollment_id " +
+           "JOIN teacher_courses tc ON tc.id = e.teacher_course_id " +
+           "WHERE l.start_date_time >= :start AND l.start_date_time < :end " +
+           "AND (:teacherId IS NULL OR tc.teacher_id = :teacherId) " +
+           "AND (:courseId IS NULL OR tc.course_id = :courseId) " +
+           "GROUP BY DATE(l.start_date_time), l.status",
+           nativeQuery = true)
+    List<Object[]> sumLessonsByDayAndStatus(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                            @Param("teacherId") Long teacherId, @Param("courseId") Long courseId);
+
+    // --- Analytics Store Loading ---
+
+    // 内存分析库的列：id, 开始时间, 结束时间, 状态, teacherId, studentId, courseId（按 id 升序）
+    // MySQL 只有 fetch size 为 Integer.MIN_VALUE 时才逐行流式读取，而不是把整个结果集读入内存
+    @Query("SELECT l.id, l.startDateTime, l.endDateTime, l.status, tc.teacher.id, e.student.id, tc.course.id " +
+           "FROM Lesson l JOIN l.enrollment e JOIN e.teacherCourse tc ORDER BY l.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    Stream<Object[]> streamAnalyticsRows();
+
+    @Query("SELECT l.id, l.startDateTime, l.endDateTime, l.status, tc.teacher.id, e.student.id, tc.course.id " +
+           "FROM Lesson l JOIN l.enrollment e JOIN e.teacherCourse tc WHERE l.id = :id")
+    List<Object[]> findAnalyticsRow(@Param("id") Long id);
+
+    /**
+     * Streams the analytics columns of every lesson to the action, inside the read-only transaction the stream needs
+     */
+    @Transactional(readOnly = true)
+    default void forEachAnalyticsRow(Consumer<Object[]> action) {
+        try (Stream<Object[]> rows = streamAnalyticsRows()) {
+            rows.forEach(action);
+        }
+    }
+
+    // --- Export ---
+
+    // 导出列：lessonId, 开始, 结束, 状态, 地点, enrollmentId, studentId, 学生姓名, teacherId, 教师姓名, courseId, 课程名称, 课时费率
+    // 条件为 null 时不过滤；逐行流式读取
+    @Query("SELECT l.id, l.startDateTime, l.endDateTime, l.status, l.location, e.id, s.id, s.name, t.id, t.name, c.id, c.name, e.hourlyRate " +
+           "FROM Lesson l JOIN l.enrollment e JOIN e.student s JOIN e.teacherCourse tc JOIN tc.teacher t JOIN tc.course c " +
+           "WHERE (:start IS NULL OR l.startDateTime >= :start) AND (:end IS NULL OR l.startDateTime < :end) " +
+           "AND (:teacherId IS NULL OR t.id = :teacherId) AND (:studentId IS NULL OR s.id = :studentId) " +
+           "ORDER BY l.startDateTime, l.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    Stream<Object[]> streamExportRows(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                      @Param("teacherId") Long teacherId, @Param("studentId") Long studentId);
+
+    /**
+     * Streams the export rows to the action inside the read-only transaction the cursor needs
+     */
+    @Transactional(readOnly = true)
+    default void forEachExportRow(LocalDateTime start, LocalDateTime end, Long teacherId, Long studentId,
+                                  Consumer<Object[]> action) {
+        try (Stream<Object[]> rows = streamExportRows(start, end, teacherId, studentId)) {
+            rows.forEach(action);
+        }
+    }
+
+    // Earliest and latest lesson start (both null without lessons), the range a rollup backfill covers
+    @Query("SELECT MIN(l.startDateTime), MAX(l.startDateTime) FROM Lesson l")
+    List<Object[]> findStartDateTimeRange();
+}
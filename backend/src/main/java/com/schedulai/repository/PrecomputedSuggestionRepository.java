@@ -0,0 +1,39 @@
+package com.schedulai.repository;
+
+import com.schedulai.domain.PrecomputedSuggestion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface PrecomputedSuggestionRepository extends JpaRepository<PrecomputedSuggestion, Long> {
+
+    Optional<PrecomputedSuggestion> findByEnrollmentIdAndDurationMinutes(Long enrollmentId, Integer durationMinutes);
+
+    // Everything involving a student or teacher whose schedule changed
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PrecomputedSuggestion p WHERE p.studentId = :studentId OR p.teacherId = :teacherId")
+    int deleteByParticipants(@Param("studentId") Long studentId, @Param("teacherId") Long teacherId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PrecomputedSuggestion p WHERE p.studentId = :studentId")
+    int deleteByStudentId(@Param("studentId") Long studentId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PrecomputedSuggestion p WHERE p.teacherId = :teacherId")
+    int deleteByTeacherId(@Param("teacherId") Long teacherId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PrecomputedSuggestion p WHERE p.computedAt < :before")
+    int deleteComputedBefore(@Param("before") LocalDateTime before);
+}
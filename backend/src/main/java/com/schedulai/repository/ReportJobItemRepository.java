@@ -0,0 +1,33 @@
+package com.schedulai.repository;
+
+import com.schedulai.domain.ReportJobItem;
+import com.schedulai.domain.ReportJobItemStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface ReportJobItemRepository extends JpaRepository<ReportJobItem, Long> {
+
+    List<ReportJobItem> findByJobIdOrderByIdAsc(Long jobId);
+
+    List<ReportJobItem> findByJobIdAndStatusOrderByIdAsc(Long jobId, ReportJobItemStatus status);
+
+    @Query("SELECT i.id FROM ReportJobItem i WHERE i.jobId = :jobId AND i.status = :status ORDER BY i.id")
+    List<Long> findIdsByJobIdAndStatus(@Param("jobId") Long jobId, @Param("status") ReportJobItemStatus status);
+
+    // Progress: [status, count] per item status
+    @Query("SELECT i.status, COUNT(i) FROM ReportJobItem i WHERE i.jobId = :jobId GROUP BY i.status")
+    List<Object[]> countByStatus(@Param("jobId") Long jobId);
+
+    // Re-queues items, e.g. RUNNING items interrupted by a crash or FAILED items on retry
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportJobItem i SET i.status = :to WHERE i.jobId = :jobId AND i.status = :from")
+    int updateStatus(@Param("jobId") Long jobId, @Param("from") ReportJobItemStatus from, @Param("to") ReportJobItemStatus to);
+}
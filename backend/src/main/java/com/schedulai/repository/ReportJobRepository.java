@@ -0,0 +1,17 @@
+package com.schedulai.repository;
+
+import com.schedulai.domain.ReportJob;
+import com.schedulai.domain.ReportJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReportJobRepository extends JpaRepository<ReportJob, Long> {
+
+    List<ReportJob> findAllByOrderByCreatedAtDesc();
+
+    List<ReportJob> findByStatusIn(Collection<ReportJobStatus> statuses);
+}
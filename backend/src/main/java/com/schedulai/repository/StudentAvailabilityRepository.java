@@ -2,6 +2,7 @@ package com.schedulai.repository;
 
 import com.schedulai.domain.StudentAvailability;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.DayOfWeek;
@@ -22,6 +23,12 @@ public interface StudentAvailabilityRepository extends JpaRepository<StudentAvai
     // Find availability for a specific student, optionally filtering by availability status
     List<StudentAvailability> findByStudentIdAndIsAvailable(Long studentId, boolean isAvailable);
 
+    // Canonical available slots (sorted, merged at write time), ready for a linear intersection
+    List<StudentAvailability> findByStudentIdAndIsAvailableTrueOrderByDayOfWeekAscStartTimeAsc(Long studentId);
+
+    @Query("SELECT DISTINCT a.student.id FROM StudentAvailability a")
+    List<Long> findDistinctStudentIds();
+
     // Delete all availability slots for a specific student (useful when updating)
     void deleteByStudentId(Long studentId);
 } 
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.schedulai.repository;
 
 import com.schedulai.domain.TeacherAvailability;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.DayOfWeek;
@@ -14,6 +15,12 @@ public interface TeacherAvailabilityRepository extends JpaRepository<TeacherAvai
     // Find availability by teacher, ordered for consistency
     List<TeacherAvailability> findByTeacherIdOrderByDayOfWeekAscStartTimeAsc(Long teacherId);
 
+    // Canonical available slots (sorted, merged at write time), ready for a linear intersection
+    List<TeacherAvailability> findByTeacherIdAndIsAvailableTrueOrderByDayOfWeekAscStartTimeAsc(Long teacherId);
+
+    @Query("SELECT DISTINCT a.teacher.id FROM TeacherAvailability a")
+    List<Long> findDistinctTeacherIds();
+
     // Find specific time slots (e.g., for conflict checking, though less common for general availability)
     List<TeacherAvailability> findByTeacherIdAndDayOfWeek(Long teacherId, DayOfWeek dayOfWeek);
     List<TeacherAvailability> findByTeacherIdAndDayOfWeekAndStartTimeBetween(Long teacherId, DayOfWeek dayOfWeek, LocalTime start, LocalTime end);
@@ -0,0 +1,195 @@
+package com.schedulai.service;
+
+import com.schedulai.domain.AIUsageDaily;
+import com.schedulai.dto.AIUsageDTO;
+import com.schedulai.repository.AIUsageDailyRepository;
+import com.schedulai.util.UsageMeter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Per-user metering and quotas for AI calls. Every request to an AI endpoint is admitted here first
+ * (daily call and token quotas plus a burst limit per user; exempt roles are only metered, and only
+ * when the caller is authenticated).
+ * Estimated tokens of upstream calls are charged to the user bound to the calling thread.
+ * Counters live in memory and are flushed to ai_usage_daily every flush-interval-ms.
+ */
+@Service
+public class AIUsageService {
+
+    private static final Logger log = LoggerFactory.getLogger(AIUsageService.class);
+
+    /**
+     * The caller an AI request is metered against. authenticated is false when the caller was only named by
+     * a client-supplied header: such callers always get the default limits, whatever their role.
+     */
+    public record Subject(String name, String role, boolean authenticated) {
+    }
+
+    private final AIUsageDailyRepository aiUsageDailyRepository;
+    private final UsageMeter meter = new UsageMeter();
+    private final UsageMeter.Limits limits;
+    private final Set<String> exemptRoles;
+
+    // Bound by the quota interceptor for the request thread
+    private final ThreadLocal<Subject> currentSubject = new ThreadLocal<>();
+
+    public AIUsageService(AIUsageDailyRepository aiUsageDailyRepository,
+                          @Value("${ai.quota.daily-calls:200}") long dailyCalls,
+                          @Value("${ai.quota.daily-tokens:400000}") long dailyTokens,
+                          @Value("${ai.quota.burst-calls:10}") long burstCalls,
+                          @Value("${ai.quota.burst-calls-per-minute:20}") long burstCallsPerMinute,
+                          @Value("${ai.quota.exempt-roles:ADMIN}") String exemptRoles) {
+        this.aiUsageDailyRepository = aiUsageDailyRepository;
+        this.limits = new UsageMeter.Limits(dailyCalls, dailyTokens, burstCalls, burstCallsPerMinute);
+        this.exemptRoles = Arrays.stream(exemptRoles.split(","))
+                .map(String::trim)
+                .filter(role -> !role.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    @PostConstruct
+    void restoreToday() {
+        // Today's totals survive restarts so a restart does not reset anyone's quota
+        try {
+            LocalDate today = LocalDate.now();
+            List<AIUsageDaily> rows = aiUsageDailyRepository.findByUsageDate(today);
+            rows.forEach(row -> meter.restore(today, row.getSubject(), row.getRole(), row.getCalls(), row.getTokens()));
+            log.info("Restored today's AI usage for {} users", rows.size());
+        } catch (Exception e) {
+            log.warn("Could not restore today's AI usage: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Checks the caller's quotas and counts the call if it is admitted
+     */
+    public UsageMeter.Decision admit(Subject subject) {
+        UsageMeter.Limits applied = subject.authenticated() && exemptRoles.contains(subject.role()) ? UsageMeter.Limits.UNLIMITED : limits;
+        UsageMeter.Decision decision = meter.admit(subject.name(), subject.role(), applied);
+        if (!decision.allowed()) {
+            log.warn("AI quota exceeded for {} ({}): {}, retry after {}s",
+                    subject.name(), subject.role(), decision.rejection(), decision.retryAfterSeconds());
+        }
+        return decision;
+    }
+
+    /**
+     * Takes back the call counted when the current request was admitted, for requests answered without
+     * calling the model (precomputed suggestions, stored lesson evaluations)
+     */
+    public void refundCall() {
+        Subject subject = currentSubject();
+        if (subject != null) {
+            meter.refundCall(subject.name(), subject.role());
+        }
+    }
+
+    public void bind(Subject subject) {
+        currentSubject.set(subject);
+    }
+
+    public void unbind() {
+        currentSubject.remove();
+    }
+
+    /**
+     * Subject of the current request thread, or null for background work (batch jobs, precompute)
+     */
+    public Subject currentSubject() {
+        return currentSubject.get();
+    }
+
+    /**
+     * Wraps a continuation so AI calls made in it are charged to the current request's subject,
+     * even when it runs on another thread (e.g. after an asynchronous prompt preparation)
+     */
+    public <T, R> Function<T, R> propagate(Function<T, R> continuation) {
+        Subject subject = currentSubject();
+        if (subject == null) {
+            return continuation;
+        }
+        return value -> {
+            Subject previous = currentSubject.get();
+            currentSubject.set(subject);
+            try {
+                return continuation.apply(value);
+            } finally {
+                if (previous != null) {
+                    currentSubject.set(previous);
+                } else {
+                    currentSubject.remove();
+                }
+            }
+        };
+    }
+
+    public void addTokens(Subject subject, long tokens) {
+        if (subject != null) {
+            meter.addTokens(subject.name(), subject.role(), tokens);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ai.quota.flush-interval-ms:10000}")
+    public void flush() {
+        List<UsageMeter.Delta> deltas = meter.drain();
+        for (UsageMeter.Delta delta : deltas) {
+            try {
+                aiUsageDailyRepository.addUsage(delta.date(), delta.subject(), delta.role(),
+                        delta.calls(), delta.tokens(), delta.rejectedCalls());
+            } catch (Exception e) {
+                // The in-memory daily totals still hold; only the persisted report misses this delta
+                log.error("Failed to flush AI usage of {} for {}: {}", delta.subject(), delta.date(), e.getMessage());
+            }
+        }
+        if (!deltas.isEmpty()) {
+            log.debug("Flushed AI usage for {} users", deltas.size());
+        }
+    }
+
+    /**
+     * Usage between two dates (inclusive): totals per role and the heaviest users
+     */
+    public Map<String, Object> getUsageReport(LocalDate from, LocalDate to, int topUsers) {
+        flush();
+        List<AIUsageDTO> byRole = aiUsageDailyRepository.sumByRole(from, to).stream()
+                .map(row -> new AIUsageDTO(null, (String) row[0], toLong(row[1]), toLong(row[2]), toLong(row[3]), toLong(row[4])))
+                .collect(Collectors.toList());
+        List<AIUsageDTO> bySubject = aiUsageDailyRepository.sumBySubject(from, to, PageRequest.of(0, topUsers)).stream()
+                .map(row -> new AIUsageDTO((String) row[0], (String) row[1], 1, toLong(row[2]), toLong(row[3]), toLong(row[4])))
+                .collect(Collectors.toList());
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("from", from);
+        report.put("to", to);
+        report.put("byRole", byRole);
+        report.put("topUsers", bySubject);
+        report.put("limits", limits);
+        report.put("exemptRoles", exemptRoles);
+        return report;
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+}
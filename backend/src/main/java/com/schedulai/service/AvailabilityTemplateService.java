@@ -0,0 +1,219 @@
+package com.schedulai.service;
+
+import com.schedulai.domain.AvailabilityOwnerType;
+import com.schedulai.domain.AvailabilityTemplate;
+import com.schedulai.domain.AvailabilityTemplateSlot;
+import com.schedulai.dto.AvailabilityTemplateDTO;
+import com.schedulai.dto.TimeSlotDTO;
+import com.schedulai.repository.AvailabilityTemplateRepository;
+import com.schedulai.repository.StudentRepository;
+import com.schedulai.repository.TeacherRepository;
+import com.schedulai.util.AvailabilityDiff;
+import com.schedulai.util.EffectiveDateIndex;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Manages dated (seasonal) weekly availability templates for teachers and students.
+ * Dates not covered by any template fall back to the owner's base weekly availability.
+ */
+@Service
+@RequiredArgsConstructor
+public class AvailabilityTemplateService {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityTemplateService.class);
+
+    private final AvailabilityTemplateRepository availabilityTemplateRepository;
+    private final TeacherRepository teacherRepository;
+    private final StudentRepository studentRepository;
+
+    // Compiled effective-date indexes keyed by "OWNER_TYPE:ownerId"
+    private final Map<String, EffectiveDateIndex> indexCache = new ConcurrentHashMap<>();
+
+    // --- Lookups used by slot expansion ---
+
+    /**
+     * Returns the index mapping dates to the owner's active template.
+     */
+    @Transactional(readOnly = true)
+    public EffectiveDateIndex getIndex(AvailabilityOwnerType ownerType, Long ownerId) {
+        return indexCache.computeIfAbsent(cacheKey(ownerType, ownerId), key -> EffectiveDateIndex.of(
+                availabilityTemplateRepository.findByOwnerTypeAndOwnerIdOrderByEffectiveFromAsc(ownerType, ownerId).stream()
+                        .map(t -> new EffectiveDateIndex.Entry(t.getId(), t.getEffectiveFrom(), t.getEffectiveTo()))
+                        .collect(Collectors.toList())));
+    }
+
+    /**
+     * Returns the weekly slots of a template, ordered by day and start time.
+     */
+    @Transactional(readOnly = true)
+    public List<TimeSlotDTO> getTemplateSlots(Long templateId) {
+        AvailabilityTemplate template = availabilityTemplateRepository.findByIdWithSlots(templateId)
+                .orElseThrow(() -> new EntityNotFoundException("Availability template not found with ID: " + templateId));
+        return toSlotDTOs(template.getSlots());
+    }
+
+    // --- CRUD ---
+
+    @Transactional(readOnly = true)
+    public List<AvailabilityTemplateDTO> getTemplates(AvailabilityOwnerType ownerType, Long ownerId) {
+        return availabilityTemplateRepository.findByOwnerTypeAndOwnerIdOrderByEffectiveFromAsc(ownerType, ownerId).stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public AvailabilityTemplateDTO createTemplate(AvailabilityTemplateDTO dto) {
+        log.info("Creating availability template {} for {} {}", dto.getName(), dto.getOwnerType(), dto.getOwnerId());
+        if (dto.getOwnerType() == null || dto.getOwnerId() == null) {
+            throw new IllegalArgumentException("Owner type and owner ID are required.");
+        }
+        checkOwnerExists(dto.getOwnerType(), dto.getOwnerId());
+
+        AvailabilityTemplate template = new AvailabilityTemplate();
+        template.setOwnerType(dto.getOwnerType());
+        template.setOwnerId(dto.getOwnerId());
+        applyMetadata(template, dto);
+        replaceSlots(template, dto.getSlots() != null ? dto.getSlots() : List.of());
+        checkNoOverlap(template);
+
+        AvailabilityTemplate saved = availabilityTemplateRepository.save(template);
+        invalidate(saved.getOwnerType(), saved.getOwnerId());
+        return toDTO(saved);
+    }
+
+    /**
+     * Updates name/effective dates; slots are only replaced when provided, so moving a
+     * term boundary is a single-row metadata change.
+     */
+    @Transactional
+    public AvailabilityTemplateDTO updateTemplate(Long id, AvailabilityTemplateDTO dto) {
+        log.info("Updating availability template {}: {}", id, dto);
+        AvailabilityTemplate template = availabilityTemplateRepository.findByIdWithSlots(id)
+                .orElseThrow(() -> new EntityNotFoundException("Availability template not found with ID: " + id));
+        applyMetadata(template, dto);
+        if (dto.getSlots() != null) {
+            replaceSlots(template, dto.getSlots());
+        }
+        checkNoOverlap(template);
+
+        AvailabilityTemplate saved = availabilityTemplateRepository.save(template);
+        invalidate(saved.getOwnerType(), saved.getOwnerId());
+        return toDTO(saved);
+    }
+
+    @Transactional
+    public void deleteTemplate(Long id) {
+        log.info("Deleting availability template {}", id);
+        AvailabilityTemplate template = availabilityTemplateRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Availability template not found with ID: " + id));
+        availabilityTemplateRepository.delete(template);
+        invalidate(template.getOwnerType(), template.getOwnerId());
+    }
+
+    // --- Helpers ---
+
+    private void applyMetadata(AvailabilityTemplate template, AvailabilityTemplateDTO dto) {
+        if (dto.getName() == null || dto.getName().isBlank()) {
+            throw new IllegalArgumentException("Template name cannot be empty.");
+        }
+        if (dto.getEffectiveFrom() == null) {
+            throw new IllegalArgumentException("Effective-from date cannot be null.");
+        }
+        if (dto.getEffectiveTo() != null && dto.getEffectiveTo().isBefore(dto.getEffectiveFrom())) {
+            throw new IllegalArgumentException("Effective-to date must not be before effective-from date.");
+        }
+        template.setName(dto.getName());
+        template.setEffectiveFrom(dto.getEffectiveFrom());
+        template.setEffectiveTo(dto.getEffectiveTo());
+    }
+
+    // Template slots are stored in the same canonical form as the base weekly availability
+    private void replaceSlots(AvailabilityTemplate template, List<TimeSlotDTO> slots) {
+        List<AvailabilityDiff.Slot> submitted = new ArrayList<>();
+        for (TimeSlotDTO slot : slots) {
+            if (slot.getDayOfWeek() == null || slot.getStartTime() == null || slot.getEndTime() == null) {
+                throw new IllegalArgumentException("DayOfWeek, StartTime, and EndTime cannot be null for all slots.");
+            }
+            if (slot.getStartTime().isAfter(slot.getEndTime())) {
+                throw new IllegalArgumentException("Start time must not be after end time for all slots.");
+            }
+            submitted.add(new AvailabilityDiff.Slot(slot.getDayOfWeek(), slot.getStartTime(), slot.getEndTime(), true));
+        }
+        template.getSlots().clear();
+        for (AvailabilityDiff.Slot slot : AvailabilityDiff.normalize(submitted)) {
+            AvailabilityTemplateSlot entity = new AvailabilityTemplateSlot();
+            entity.setDayOfWeek(slot.dayOfWeek());
+            entity.setStartTime(slot.startTime());
+            entity.setEndTime(slot.endTime());
+            template.addSlot(entity);
+        }
+    }
+
+    // Each date must resolve to at most one template per owner
+    private void checkNoOverlap(AvailabilityTemplate candidate) {
+        List<EffectiveDateIndex.Entry> entries = new ArrayList<>();
+        for (AvailabilityTemplate other : availabilityTemplateRepository
+                .findByOwnerTypeAndOwnerIdOrderByEffectiveFromAsc(candidate.getOwnerType(), candidate.getOwnerId())) {
+            if (!other.getId().equals(candidate.getId())) {
+                entries.add(new EffectiveDateIndex.Entry(other.getId(), other.getEffectiveFrom(), other.getEffectiveTo()));
+            }
+        }
+        entries.add(new EffectiveDateIndex.Entry(candidate.getId() != null ? candidate.getId() : -1L,
+                candidate.getEffectiveFrom(), candidate.getEffectiveTo()));
+        EffectiveDateIndex.of(entries); // throws IllegalArgumentException on overlap
+    }
+
+    private void checkOwnerExists(AvailabilityOwnerType ownerType, Long ownerId) {
+        boolean exists = ownerType == AvailabilityOwnerType.TEACHER
+                ? teacherRepository.existsById(ownerId)
+                : studentRepository.existsById(ownerId);
+        if (!exists) {
+            throw new EntityNotFoundException(ownerType + " not found with ID: " + ownerId);
+        }
+    }
+
+    // Cleared again after commit so a concurrent reader cannot re-cache the pre-commit state.
+    private void invalidate(AvailabilityOwnerType ownerType, Long ownerId) {
+        String key = cacheKey(ownerType, ownerId);
+        indexCache.remove(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    indexCache.remove(key);
+                }
+            });
+        }
+    }
+
+    private String cacheKey(AvailabilityOwnerType ownerType, Long ownerId) {
+        return ownerType + ":" + ownerId;
+    }
+
+    private List<TimeSlotDTO> toSlotDTOs(List<AvailabilityTemplateSlot> slots) {
+        return slots.stream()
+                .map(s -> new TimeSlotDTO(s.getDayOfWeek(), s.getStartTime(), s.getEndTime()))
+                .sorted(Comparator.comparing(TimeSlotDTO::getDayOfWeek).thenComparing(TimeSlotDTO::getStartTime))
+                .collect(Collectors.toList());
+    }
+
+    private AvailabilityTemplateDTO toDTO(AvailabilityTemplate template) {
+        return new AvailabilityTemplateDTO(template.getId(), template.getOwnerType(), template.getOwnerId(),
+                template.getName(), template.getEffectiveFrom(), template.getEffectiveTo(),
+                toSlotDTOs(template.getSlots()));
+    }
+}
@@ -0,0 +1,51 @@
+package com.schedulai.service;
+
+import com.schedulai.domain.AvailabilityOwnerType;
+import com.schedulai.domain.AvailabilityVersion;
+import com.schedulai.repository.AvailabilityVersionRepository;
+import com.schedulai.util.AvailabilityDiff;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Tracks a monotonically increasing version and a checksum of the canonical weekly
+ * availability of each teacher and student.
+ */
+@Service
+@RequiredArgsConstructor
+public class AvailabilityVersionService {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityVersionService.class);
+
+    private final AvailabilityVersionRepository availabilityVersionRepository;
+
+    /**
+     * Records the owner's new canonical slot set, bumping the version when the checksum changed.
+     * @return The current version.
+     */
+    @Transactional
+    public AvailabilityVersion recordChange(AvailabilityOwnerType ownerType, Long ownerId, List<AvailabilityDiff.Slot> slots) {
+        // normalize() is idempotent on canonical rows and fixes the order independent of the database collation
+        String checksum = AvailabilityDiff.checksum(AvailabilityDiff.normalize(slots));
+        AvailabilityVersion version = availabilityVersionRepository.findByOwnerTypeAndOwnerId(ownerType, ownerId)
+                .orElseGet(() -> new AvailabilityVersion(null, ownerType, ownerId, 0L, "", null));
+        if (checksum.equals(version.getChecksum())) {
+            return version;
+        }
+        version.setVersion(version.getVersion() + 1);
+        version.setChecksum(checksum);
+        log.debug("Availability of {} {} is now at version {}", ownerType, ownerId, version.getVersion());
+        return availabilityVersionRepository.save(version);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<AvailabilityVersion> getVersion(AvailabilityOwnerType ownerType, Long ownerId) {
+        return availabilityVersionRepository.findByOwnerTypeAndOwnerId(ownerType, ownerId);
+    }
+}
@@ -0,0 +1,155 @@
+package com.schedulai.service;
+
+import com.schedulai.domain.BlackoutPeriod;
+import com.schedulai.dto.BlackoutPeriodDTO;
+import com.schedulai.repository.BlackoutPeriodRepository;
+import com.schedulai.repository.TeacherRepository;
+import com.schedulai.util.BlackoutCalendar;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Manages organization-wide and per-teacher blackout date ranges and keeps
+ * them compiled into {@link BlackoutCalendar} instances, so slot searches and
+ * booking validation can test dates with a binary search instead of a query.
+ */
+@Service
+@RequiredArgsConstructor
+public class BlackoutService {
+
+    private static final Logger log = LoggerFactory.getLogger(BlackoutService.class);
+
+    // Cache key used for the organization-wide calendar
+    private static final long ORGANIZATION_KEY = -1L;
+
+    private final BlackoutPeriodRepository blackoutPeriodRepository;
+    private final TeacherRepository teacherRepository;
+
+    // Compiled calendars: ORGANIZATION_KEY -> org-wide, teacherId -> org-wide + teacher's own ranges
+    private final Map<Long, BlackoutCalendar> calendarCache = new ConcurrentHashMap<>();
+
+    // --- Calendar lookups ---
+
+    /**
+     * Returns the effective blackout calendar for a teacher (organization closures plus the teacher's vacations).
+     * @param teacherId The ID of the teacher, or null for the organization-wide calendar only.
+     */
+    @Transactional(readOnly = true)
+    public BlackoutCalendar getCalendarForTeacher(Long teacherId) {
+        BlackoutCalendar organization = calendarCache.computeIfAbsent(ORGANIZATION_KEY,
+                key -> compile(blackoutPeriodRepository.findByTeacherIdIsNullOrderByStartDateAsc()));
+        if (teacherId == null) {
+            return organization;
+        }
+        return calendarCache.computeIfAbsent(teacherId,
+                key -> organization.union(compile(blackoutPeriodRepository.findByTeacherIdOrderByStartDateAsc(key))));
+    }
+
+    /**
+     * Throws IllegalStateException if [start, end) touches a blackout day for the teacher.
+     */
+    @Transactional(readOnly = true)
+    public void checkNotBlackedOut(Long teacherId, LocalDateTime start, LocalDateTime end) {
+        if (getCalendarForTeacher(teacherId).overlaps(start, end)) {
+            log.warn("Lesson time {} - {} falls within a blackout period for teacher {}", start, end, teacherId);
+            throw new IllegalStateException("Lesson time falls within a holiday or blackout period.");
+        }
+    }
+
+    // --- CRUD ---
+
+    @Transactional(readOnly = true)
+    public List<BlackoutPeriodDTO> getBlackouts(Long teacherId) {
+        List<BlackoutPeriod> periods = teacherId == null
+                ? blackoutPeriodRepository.findAllByOrderByStartDateAsc()
+                : blackoutPeriodRepository.findByTeacherIdOrderByStartDateAsc(teacherId);
+        return periods.stream().map(this::toDTO).collect(Collectors.toList());
+    }
+
+    @Transactional
+    public BlackoutPeriodDTO createBlackout(BlackoutPeriodDTO dto) {
+        log.info("Creating blackout period: {}", dto);
+        BlackoutPeriod period = new BlackoutPeriod();
+        applyDTO(period, dto);
+        BlackoutPeriod saved = blackoutPeriodRepository.save(period);
+        invalidate();
+        return toDTO(saved);
+    }
+
+    @Transactional
+    public BlackoutPeriodDTO updateBlackout(Long id, BlackoutPeriodDTO dto) {
+        log.info("Updating blackout period {}: {}", id, dto);
+        BlackoutPeriod period = blackoutPeriodRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Blackout period not found with ID: " + id));
+        applyDTO(period, dto);
+        BlackoutPeriod saved = blackoutPeriodRepository.save(period);
+        invalidate();
+        return toDTO(saved);
+    }
+
+    @Transactional
+    public void deleteBlackout(Long id) {
+        log.info("Deleting blackout period {}", id);
+        if (!blackoutPeriodRepository.existsById(id)) {
+            throw new EntityNotFoundException("Blackout period not found with ID: " + id);
+        }
+        blackoutPeriodRepository.deleteById(id);
+        invalidate();
+    }
+
+    // --- Helpers ---
+
+    private void applyDTO(BlackoutPeriod period, BlackoutPeriodDTO dto) {
+        if (dto.getStartDate() == null || dto.getEndDate() == null) {
+            throw new IllegalArgumentException("Start date and end date cannot be null.");
+        }
+        if (dto.getEndDate().isBefore(dto.getStartDate())) {
+            throw new IllegalArgumentException("End date must not be before start date.");
+        }
+        if (dto.getTeacherId() != null && !teacherRepository.existsById(dto.getTeacherId())) {
+            throw new EntityNotFoundException("Teacher not found with ID: " + dto.getTeacherId());
+        }
+        period.setTeacherId(dto.getTeacherId());
+        period.setStartDate(dto.getStartDate());
+        period.setEndDate(dto.getEndDate());
+        period.setReason(dto.getReason());
+    }
+
+    private BlackoutCalendar compile(List<BlackoutPeriod> periods) {
+        return BlackoutCalendar.of(periods.stream()
+                .map(p -> new LocalDate[]{p.getStartDate(), p.getEndDate()})
+                .collect(Collectors.toList()));
+    }
+
+    // Blackouts change rarely; dropping every compiled calendar keeps invalidation trivially correct.
+    // Cleared again after commit so a concurrent reader cannot re-cache the pre-commit state.
+    private void invalidate() {
+        calendarCache.clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    calendarCache.clear();
+                }
+            });
+        }
+    }
+
+    private BlackoutPeriodDTO toDTO(BlackoutPeriod period) {
+        return new BlackoutPeriodDTO(period.getId(), period.getTeacherId(),
+                period.getStartDate(), period.getEndDate(), period.getReason());
+    }
+}
@@ -0,0 +1,170 @@
+package com.schedulai.service;
+
+import com.schedulai.domain.AvailabilityOwnerType;
+import com.schedulai.dto.CourseAvailabilityHeatmapDTO;
+import com.schedulai.event.AvailabilityChangedEvent;
+import com.schedulai.event.EnrollmentChangedEvent;
+import com.schedulai.util.AvailabilityDiff;
+import com.schedulai.util.WeeklyHeatmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aggregates the weekly availability of all students enrolled in a course into a
+ * 30-minute heatmap, used to pick times for new group sections.
+ * Rows are streamed straight into int difference arrays, so no entities are materialized.
+ * Cached heatmaps are patched with the slot deltas of each student availability change.
+ */
+@Service
+public class CourseAvailabilityHeatmapService {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseAvailabilityHeatmapService.class);
+
+    // Distinct (course, student) pairs joined to each student's available weekly slots
+    private static final String SLOTS_SQL =
+            "SELECT ce.course_id, sa.day_of_week, sa.start_time, sa.end_time " +
+            "FROM (SELECT DISTINCT tc.course_id, e.student_id FROM enrollments e " +
+            "      JOIN teacher_courses tc ON tc.id = e.teacher_course_id %s) ce " +
+            "JOIN student_availabilities sa ON sa.student_id = ce.student_id AND sa.is_available = TRUE";
+
+    private static final String STUDENT_COUNT_SQL =
+            "SELECT tc.course_id, COUNT(DISTINCT e.student_id) FROM enrollments e " +
+            "JOIN teacher_courses tc ON tc.id = e.teacher_course_id %s GROUP BY tc.course_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // courseId -> heatmap; entries are never mutated once cached, a change replaces them
+    private final Map<Long, CourseAvailabilityHeatmapDTO> heatmapCache = new ConcurrentHashMap<>();
+    // Bumped on every change; a heatmap built while it moved may miss the change and is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public CourseAvailabilityHeatmapService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns the availability heatmap of the students enrolled in a course.
+     */
+    public CourseAvailabilityHeatmapDTO getHeatmap(Long courseId) {
+        CourseAvailabilityHeatmapDTO cached = heatmapCache.get(courseId);
+        if (cached != null) {
+            return cached;
+        }
+        // Built outside the map: the streaming query must not hold a ConcurrentHashMap bin lock
+        long seenGeneration = generation.get();
+        CourseAvailabilityHeatmapDTO built = build(courseId).getOrDefault(courseId,
+                new CourseAvailabilityHeatmapDTO(courseId, 0, WeeklyHeatmap.BUCKET_MINUTES, new int[WeeklyHeatmap.BUCKETS]));
+        if (generation.get() != seenGeneration) {
+            return built;
+        }
+        CourseAvailabilityHeatmapDTO previous = heatmapCache.putIfAbsent(courseId, built);
+        return previous != null ? previous : built;
+    }
+
+    /**
+     * Builds the heatmaps of every course with enrollments in a single streaming scan and refreshes the cache.
+     */
+    public List<CourseAvailabilityHeatmapDTO> getAllHeatmaps() {
+        long startedAt = System.currentTimeMillis();
+        long seenGeneration = generation.get();
+        Map<Long, CourseAvailabilityHeatmapDTO> built = build(null);
+        if (generation.get() == seenGeneration) {
+            heatmapCache.putAll(built);
+        }
+        log.info("Built availability heatmaps for {} courses in {} ms", built.size(), System.currentTimeMillis() - startedAt);
+        return new ArrayList<>(built.values());
+    }
+
+    public void evict(Long courseId) {
+        generation.incrementAndGet();
+        heatmapCache.remove(courseId);
+    }
+
+    // --- Invalidation ---
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAvailabilityChanged(AvailabilityChangedEvent event) {
+        if (event.getOwnerType() != AvailabilityOwnerType.STUDENT) {
+            return;
+        }
+        generation.incrementAndGet();
+        if (heatmapCache.isEmpty()) {
+            return;
+        }
+        List<Long> courseIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT tc.course_id FROM enrollments e JOIN teacher_courses tc ON tc.id = e.teacher_course_id WHERE e.student_id = ?",
+                Long.class, event.getOwnerId());
+        // The student counts once per course, so each slot delta applies once per cached heatmap
+        courseIds.forEach(courseId -> heatmapCache.computeIfPresent(courseId, (id, heatmap) -> {
+            int[] counts = heatmap.getCounts().clone();
+            applySlots(counts, event.getRemoved(), -1);
+            applySlots(counts, event.getAdded(), 1);
+            return new CourseAvailabilityHeatmapDTO(id, heatmap.getStudentCount(), heatmap.getResolutionMinutes(), counts);
+        }));
+        log.debug("Patched {} course heatmaps after availability change of student {}", courseIds.size(), event.getOwnerId());
+    }
+
+    // Only available slots are counted, as in SLOTS_SQL
+    private static void applySlots(int[] counts, List<AvailabilityDiff.Slot> slots, int delta) {
+        if (slots == null) {
+            return;
+        }
+        for (AvailabilityDiff.Slot slot : slots) {
+            if (slot.available()) {
+                WeeklyHeatmap.applyDelta(counts, slot.dayOfWeek(), slot.startTime(), slot.endTime(), delta);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEnrollmentChanged(EnrollmentChangedEvent event) {
+        evict(event.getCourseId());
+    }
+
+    // --- Aggregation ---
+
+    // courseId == null builds all courses
+    private Map<Long, CourseAvailabilityHeatmapDTO> build(Long courseId) {
+        String filter = courseId != null ? "WHERE tc.course_id = ?" : "";
+        Object[] args = courseId != null ? new Object[]{courseId} : new Object[0];
+
+        Map<Long, WeeklyHeatmap> accumulators = new HashMap<>();
+        RowCallbackHandler handler = rs -> accumulators
+                .computeIfAbsent(rs.getLong(1), id -> new WeeklyHeatmap())
+                .add(DayOfWeek.valueOf(rs.getString(2)), rs.getObject(3, LocalTime.class), rs.getObject(4, LocalTime.class));
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(String.format(SLOTS_SQL, filter), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE); // MySQL: stream rows instead of buffering the whole result
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        }, handler);
+
+        Map<Long, CourseAvailabilityHeatmapDTO> result = new HashMap<>();
+        jdbcTemplate.query(String.format(STUDENT_COUNT_SQL, filter), (RowCallbackHandler) rs -> {
+            long id = rs.getLong(1);
+            WeeklyHeatmap heatmap = accumulators.get(id);
+            int[] counts = heatmap != null ? heatmap.toCounts() : new int[WeeklyHeatmap.BUCKETS];
+            result.put(id, new CourseAvailabilityHeatmapDTO(id, rs.getInt(2), WeeklyHeatmap.BUCKET_MINUTES, counts));
+        }, args);
+        return result;
+    }
+}
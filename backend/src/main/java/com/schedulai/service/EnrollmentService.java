@@ -6,6 +6,8 @@ import com.schedulai.domain.LessonStatus;
 import com.schedulai.domain.Student;
 import com.schedulai.domain.TeacherCourse;
 import com.schedulai.dto.EnrollmentDTO;
+import com.schedulai.event.EnrollmentChangedEvent;
+import com.schedulai.event.LessonScheduleChangedEvent;
 import com.schedulai.repository.EnrollmentRepository;
 import com.schedulai.repository.LessonRepository;
 import com.schedulai.repository.StudentRepository;
@@ -14,6 +16,7 @@ import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -32,6 +35,8 @@ public class EnrollmentService {
     private final StudentRepository studentRepository;
     private final TeacherCourseRepository teacherCourseRepository;
     private final LessonRepository lessonRepository; // Needed to check before deleting enrollment
+    private final LessonRollupService lessonRollupService;
+    private final ApplicationEventPublisher eventPublisher;
 
     // --- DTO Conversion ---
 
@@ -201,6 +206,7 @@ public class EnrollmentService {
         try {
             Enrollment savedEnrollment = enrollmentRepository.save(enrollment);
             log.info("成功创建选课记录，ID: {}", savedEnrollment.getId());
+            eventPublisher.publishEvent(new EnrollmentChangedEvent(savedEnrollment.getId(), student.getId(), teacherCourse.getCourse().getId()));
             return convertToDTO(savedEnrollment);
         } catch (Exception e) {
             log.error("保存选课记录时发生错误: {}", e.getMessage(), e);
@@ -227,7 +233,8 @@ public class EnrollmentService {
     @Transactional
     public void deleteEnrollment(Long id) {
         log.info("Attempting to delete enrollment with ID: {}", id);
-        if (!enrollmentRepository.existsById(id)) {
+        Enrollment enrollment = enrollmentRepository.findById(id).orElse(null);
+        if (enrollment == null) {
             log.warn("Enrollment not found for deletion with ID: {}", id);
             throw new RuntimeException("Enrollment not found with id: " + id);
         }
@@ -246,7 +253,15 @@ public class EnrollmentService {
         // If only cancelled lessons exist, we might allow deletion, or force deletion of lessons first.
         // For now, assume we can delete if no active/completed lessons.
         // We might need to delete the lessons explicitly if cascade isn't set up that way (it is from Enrollment -> Lesson currently).
+        // The cancelled lessons go with the enrollment (cascade), so take them out of the dashboard rollups
+        associatedLessons.forEach(lesson -> lessonRollupService.removed(LessonRollupService.Contribution.of(lesson)));
         enrollmentRepository.deleteById(id);
         log.info("Successfully deleted enrollment with ID: {}", id);
+        // Listeners such as the lesson analytics store only hear about lessons removed through LessonService otherwise
+        Long teacherId = enrollment.getTeacherCourse().getTeacher().getId();
+        associatedLessons.forEach(lesson -> eventPublisher.publishEvent(
+                new LessonScheduleChangedEvent(lesson.getId(), enrollment.getStudent().getId(), teacherId)));
+        eventPublisher.publishEvent(new EnrollmentChangedEvent(id, enrollment.getStudent().getId(),
+                enrollment.getTeacherCourse().getCourse().getId()));
     }
 } 
\ No newline at end of file
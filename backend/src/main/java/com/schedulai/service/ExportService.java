@@ -0,0 +1,117 @@
+package com.schedulai.service;
+
+import com.schedulai.repository.EnrollmentRepository;
+import com.schedulai.repository.LessonRepository;
+import com.schedulai.util.ExportWriter;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams lessons and enrollments as CSV or NDJSON straight from a forward-only database cursor to the
+ * response, optionally gzipped. Rows are scalar projections (no entities, no lazy loads) written as they
+ * are read, so memory stays flat however many rows are exported and the header goes out at once.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    static final List<String> LESSON_COLUMNS = List.of(
+            "lessonId", "startDateTime", "endDateTime", "durationMinutes", "status", "location",
+            "enrollmentId", "studentId", "studentName", "teacherId", "teacherName", "courseId", "courseName",
+            "hourlyRate");
+
+    static final List<String> ENROLLMENT_COLUMNS = List.of(
+            "enrollmentId", "enrollmentDate", "studentId", "studentName", "teacherId", "teacherName",
+            "courseId", "courseName", "hourlyRate");
+
+    private final LessonRepository lessonRepository;
+    private final EnrollmentRepository enrollmentRepository;
+
+    /**
+     * Writes the lessons starting between startDate and endDate (inclusive, either may be null) to out
+     *
+     * @return number of rows written
+     */
+    public long writeLessons(OutputStream out, ExportWriter.Format format, boolean gzip,
+                             LocalDate startDate, LocalDate endDate, Long teacherId, Long studentId) throws IOException {
+        return write("lessons", out, format, gzip, LESSON_COLUMNS, (writer, rows) ->
+                lessonRepository.forEachExportRow(startOf(startDate), endOf(endDate), teacherId, studentId, row -> {
+                    LocalDateTime start = (LocalDateTime) row[1];
+                    LocalDateTime end = (LocalDateTime) row[2];
+                    writeRow(writer, rows, row[0], start, end, ChronoUnit.MINUTES.between(start, end), row[3],
+                            row[4], row[5], row[6], row[7], row[8], row[9], row[10], row[11], row[12]);
+                }));
+    }
+
+    /**
+     * Writes the enrollments made between startDate and endDate (inclusive, either may be null) to out
+     *
+     * @return number of rows written
+     */
+    public long writeEnrollments(OutputStream out, ExportWriter.Format format, boolean gzip,
+                                 LocalDate startDate, LocalDate endDate, Long teacherId, Long studentId) throws IOException {
+        return write("enrollments", out, format, gzip, ENROLLMENT_COLUMNS, (writer, rows) ->
+                enrollmentRepository.forEachExportRow(startOf(startDate), endOf(endDate), teacherId, studentId,
+                        row -> writeRow(writer, rows, row)));
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        void writeAll(ExportWriter writer, AtomicLong rows);
+    }
+
+    private long write(String name, OutputStream target, ExportWriter.Format format, boolean gzip,
+                       List<String> columns, RowSource source) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        // syncFlush so the header flush below actually reaches the client
+        OutputStream out = gzip ? new GZIPOutputStream(target, 8192, true) : target;
+        ExportWriter writer = ExportWriter.create(format, out, columns);
+        writer.flush();
+        AtomicLong rows = new AtomicLong();
+        try {
+            source.writeAll(writer, rows);
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the cursor and transaction are already closed
+            log.warn("Export of {} aborted after {} rows: {}", name, rows.get(), e.getCause().getMessage());
+            throw e.getCause();
+        }
+        writer.flush();
+        if (out instanceof GZIPOutputStream gzipOut) {
+            gzipOut.finish();
+        }
+        log.info("Exported {} {} as {}{} in {} ms", rows.get(), name, format, gzip ? " (gzip)" : "",
+                System.currentTimeMillis() - startedAt);
+        return rows.get();
+    }
+
+    private static void writeRow(ExportWriter writer, AtomicLong rows, Object... values) {
+        try {
+            writer.writeRow(values);
+            rows.incrementAndGet();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static LocalDateTime startOf(LocalDate date) {
+        return date != null ? date.atStartOfDay() : null;
+    }
+
+    private static LocalDateTime endOf(LocalDate date) {
+        return date != null ? date.plusDays(1).atStartOfDay() : null;
+    }
+}
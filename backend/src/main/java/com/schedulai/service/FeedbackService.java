@@ -4,6 +4,7 @@ import com.schedulai.domain.Feedback;
 import com.schedulai.domain.Lesson;
 import com.schedulai.domain.Student;
 import com.schedulai.dto.FeedbackDTO;
+import com.schedulai.event.FeedbackChangedEvent;
 import com.schedulai.repository.FeedbackRepository;
 import com.schedulai.repository.LessonRepository;
 import com.schedulai.repository.StudentRepository;
@@ -11,10 +12,12 @@ import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,6 +29,7 @@ public class FeedbackService {
     private final FeedbackRepository feedbackRepository;
     private final LessonRepository lessonRepository;
     private final StudentRepository studentRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
     /**
      * 获取课程的所有评价
@@ -71,6 +75,11 @@ public class FeedbackService {
                 feedbackDTO.getStudentId(), feedbackDTO.getLessonId())
                 .orElse(new Feedback());
         
+        // 评分或内容有变化时，该课程已保存的AI评价需要重新生成
+        boolean changed = feedback.getId() == null
+                || !Objects.equals(feedback.getRating(), feedbackDTO.getRating())
+                || !Objects.equals(feedback.getContent(), feedbackDTO.getContent());
+
         // 设置/更新评价内容
         feedback.setLesson(lesson);
         feedback.setStudent(student);
@@ -80,6 +89,9 @@ public class FeedbackService {
         // 保存评价
         feedback = feedbackRepository.save(feedback);
         log.info("评价已保存，ID: {}", feedback.getId());
+        if (changed) {
+            eventPublisher.publishEvent(new FeedbackChangedEvent(lesson.getId(), student.getId()));
+        }
         
         return convertToDTO(feedback);
     }
@@ -90,7 +102,10 @@ public class FeedbackService {
     @Transactional
     public void deleteFeedback(Long feedbackId) {
         log.info("删除评价，ID: {}", feedbackId);
-        feedbackRepository.deleteById(feedbackId);
+        feedbackRepository.findById(feedbackId).ifPresent(feedback -> {
+            feedbackRepository.delete(feedback);
+            eventPublisher.publishEvent(new FeedbackChangedEvent(feedback.getLesson().getId(), feedback.getStudent().getId()));
+        });
     }
     
     /**
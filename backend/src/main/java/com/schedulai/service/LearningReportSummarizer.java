@@ -0,0 +1,151 @@
+package com.schedulai.service;
+
+import com.schedulai.util.CompletionCache;
+import com.schedulai.util.MapReduceSummary;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps learning report prompts within a token budget. Lesson records that fit are passed through
+ * unchanged; longer periods are split into monthly chunks (a large month into several), summarized
+ * with at most report.summary.max-parallel-calls calls in flight (map) and the partial summaries are
+ * condensed until they fit (reduce).
+ * Partial summaries of past months are cached: their lessons no longer change, and the key
+ * includes the lesson text so an edited note still produces a fresh summary, and the model that wrote it.
+ */
+@Service
+public class LearningReportSummarizer {
+
+    private static final Logger log = LoggerFactory.getLogger(LearningReportSummarizer.class);
+
+    private static final double SUMMARY_TEMPERATURE = 0.3;
+
+    private static final String PARTIAL_SYSTEM_MESSAGE = "You are an assistant helping private tutors track student progress. " +
+            "Summarize lesson records factually and compactly; keep dates, attendance counts, topics, observed challenges and progress.";
+
+    private final OpenAIService openAIService;
+
+    // Lesson records up to this size go into the report prompt unchanged
+    @Value("${report.summary.prompt-token-budget:6000}")
+    private int promptTokenBudget;
+
+    // Size of one map-step chunk
+    @Value("${report.summary.chunk-token-budget:3000}")
+    private int chunkTokenBudget;
+
+    // Summary calls in flight at once for one report
+    @Value("${report.summary.max-parallel-calls:4}")
+    private int maxParallelCalls;
+
+    @Value("${report.summary.partial-max-tokens:400}")
+    private int partialMaxTokens;
+
+    @Value("${report.summary.partial-cache.max-entries:2000}")
+    private int partialCacheMaxEntries;
+
+    @Value("${report.summary.partial-cache.ttl-seconds:2592000}")
+    private long partialCacheTtlSeconds;
+
+    private CompletionCache partialCache;
+
+    public LearningReportSummarizer(OpenAIService openAIService) {
+        this.openAIService = openAIService;
+    }
+
+    @PostConstruct
+    void initCache() {
+        partialCache = new CompletionCache(partialCacheMaxEntries, partialCacheTtlSeconds, null);
+    }
+
+    /**
+     * Lesson section of a learning report prompt.
+     * @param summarized true when {@code content} holds period summaries instead of the raw records
+     */
+    public record LessonDigest(String content, boolean summarized) {
+    }
+
+    /**
+     * One model call of the map or reduce step. Report jobs pass an implementation that goes through their
+     * rate limiters and retry policy; interactive reports call the model directly.
+     */
+    @FunctionalInterface
+    public interface SummaryCall {
+        CompletableFuture<OpenAIService.ModelReply> complete(String systemMessage, String userPrompt, int maxTokens, double temperature);
+    }
+
+    /**
+     * @param lessonLinesByMonth one formatted line per lesson, grouped by month in chronological order
+     * @param call makes each summary call of the map and reduce steps
+     */
+    public CompletableFuture<LessonDigest> digest(Long studentId, Map<YearMonth, List<String>> lessonLinesByMonth,
+                                                  SummaryCall call) {
+        List<String> allLines = lessonLinesByMonth.values().stream().flatMap(List::stream).collect(Collectors.toList());
+        int totalTokens = MapReduceSummary.tokens(allLines);
+        if (totalTokens <= promptTokenBudget) {
+            return CompletableFuture.completedFuture(new LessonDigest(String.join("\n", allLines), false));
+        }
+
+        List<PartialChunk> chunks = new ArrayList<>();
+        lessonLinesByMonth.forEach((month, lines) -> {
+            List<List<String>> monthChunks = MapReduceSummary.chunk(lines, chunkTokenBudget);
+            for (int i = 0; i < monthChunks.size(); i++) {
+                String label = monthChunks.size() == 1 ? month.toString() : month + " (part " + (i + 1) + "/" + monthChunks.size() + ")";
+                chunks.add(new PartialChunk(month, label, monthChunks.get(i)));
+            }
+        });
+        log.info("Summarizing {} lessons (~{} tokens) for student {} in {} chunks", allLines.size(), totalTokens, studentId, chunks.size());
+
+        return MapReduceSummary.mapBounded(chunks, maxParallelCalls, chunk -> summarizeChunk(chunk, call))
+                .thenCompose(partials -> MapReduceSummary.reduce(partials, promptTokenBudget, chunkTokenBudget, maxParallelCalls,
+                        group -> condense(group, call)))
+                .thenApply(summary -> new LessonDigest(summary, true));
+    }
+
+    private record PartialChunk(YearMonth month, String label, List<String> lines) {
+    }
+
+    private CompletableFuture<String> summarizeChunk(PartialChunk chunk, SummaryCall call) {
+        String userPrompt = String.format(
+                "Summarize the following lesson records of %s in at most 120 words:\n\n%s", chunk.label(), String.join("\n", chunk.lines()));
+        boolean pastMonth = chunk.month().isBefore(YearMonth.now());
+        if (pastMonth) {
+            // written by any of the configured models
+            for (String model : openAIService.getModels()) {
+                String cached = partialCache.get(partialKey(model, userPrompt));
+                if (cached != null) {
+                    return CompletableFuture.completedFuture(cached);
+                }
+            }
+        }
+        return call.complete(PARTIAL_SYSTEM_MESSAGE, userPrompt, partialMaxTokens, SUMMARY_TEMPERATURE)
+                .thenApply(reply -> {
+                    String partial = chunk.label() + ": " + reply.text().trim();
+                    if (pastMonth) {
+                        partialCache.put(partialKey(reply.model(), userPrompt), partial);
+                    }
+                    return partial;
+                });
+    }
+
+    private String partialKey(String model, String userPrompt) {
+        return CompletionCache.key(model, PARTIAL_SYSTEM_MESSAGE, userPrompt, SUMMARY_TEMPERATURE, partialMaxTokens);
+    }
+
+    // One reduce step: condenses a group of consecutive summaries
+    private CompletableFuture<String> condense(List<String> group, SummaryCall call) {
+        String userPrompt = "Condense these consecutive period summaries into one summary of at most 150 words, " +
+                "starting with the covered date range:\n\n" + String.join("\n", group);
+        return call.complete(PARTIAL_SYSTEM_MESSAGE, userPrompt, partialMaxTokens, SUMMARY_TEMPERATURE)
+                .thenApply(reply -> reply.text().trim());
+    }
+}
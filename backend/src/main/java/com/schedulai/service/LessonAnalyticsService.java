@@ -0,0 +1,203 @@
+package com.schedulai.service;
+
+import com.schedulai.domain.LessonStatus;
+import com.schedulai.event.LessonScheduleChangedEvent;
+import com.schedulai.repository.LessonRepository;
+import com.schedulai.util.LessonColumns;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory columnar copy of all lessons ({@link LessonColumns}) for ad-hoc dashboard slicing without
+ * touching MySQL. The store is streamed from the database on startup and on the reload cron, and kept
+ * current by re-reading each lesson after a committed change. Aggregations run on a dedicated fork-join
+ * pool. Until the first load completes, {@link #isReady()} is false and callers use the database.
+ */
+@Service
+public class LessonAnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(LessonAnalyticsService.class);
+
+    private final LessonRepository lessonRepository;
+    private final boolean enabled;
+    private final int maxDayBuckets;
+    private final ForkJoinPool scanPool;
+    private final ExecutorService loader;
+
+    private volatile LessonColumns columns;
+    private final AtomicBoolean loading = new AtomicBoolean(false);
+    // Lessons changed while a load streams; re-read once the new store is in place
+    private final Set<Long> changedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile LocalDateTime lastLoadStartedAt;
+    private volatile LocalDateTime lastLoadFinishedAt;
+    private volatile long lastLoadMillis;
+    private volatile String lastLoadError;
+
+    public LessonAnalyticsService(LessonRepository lessonRepository,
+                                  @Value("${analytics.lessons.enabled:true}") boolean enabled,
+                                  @Value("${analytics.lessons.scan-parallelism:0}") int scanParallelism,
+                                  @Value("${report.time-series.max-buckets:4000}") int maxDayBuckets) {
+        this.lessonRepository = lessonRepository;
+        this.enabled = enabled;
+        this.maxDayBuckets = maxDayBuckets;
+        this.scanPool = new ForkJoinPool(scanParallelism > 0 ? scanParallelism : Runtime.getRuntime().availableProcessors());
+        this.loader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lesson-analytics-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isReady() {
+        return enabled && columns != null;
+    }
+
+    /**
+     * Filters, groups and sums the lessons in memory; only valid when {@link #isReady()}
+     *
+     * @throws IllegalArgumentException if the range is inverted, or DAY grouping spans more than
+     *                                  report.time-series.max-buckets days
+     */
+    public LessonColumns.Result aggregate(LessonColumns.Filter filter, LessonColumns.GroupBy groupBy) {
+        LessonColumns current = columns;
+        if (!enabled || current == null) {
+            throw new IllegalStateException("Lesson analytics store is not loaded");
+        }
+        return current.aggregate(filter, groupBy, maxDayBuckets);
+    }
+
+    // --- Loading ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled) {
+            startLoad();
+        }
+    }
+
+    @Scheduled(cron = "${analytics.lessons.reload-cron:0 30 3 * * *}")
+    public void scheduledReload() {
+        // Reclaims deleted rows and picks up lessons changed outside LessonService
+        if (enabled) {
+            startLoad();
+        }
+    }
+
+    /**
+     * Streams all lessons into a new store in the background and swaps it in; returns false if a load is running
+     */
+    public boolean startLoad() {
+        if (!loading.compareAndSet(false, true)) {
+            return false;
+        }
+        changedDuringLoad.clear();
+        lastLoadStartedAt = LocalDateTime.now();
+        try {
+            loader.execute(this::load);
+        } catch (RuntimeException e) {
+            loading.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    private void load() {
+        long startedAt = System.currentTimeMillis();
+        try {
+            LessonColumns fresh = new LessonColumns(Math.toIntExact(Math.max(1024, lessonRepository.count())), scanPool);
+            lessonRepository.forEachAnalyticsRow(row -> put(fresh, row));
+            columns = fresh;
+            lastLoadMillis = System.currentTimeMillis() - startedAt;
+            lastLoadError = null;
+            log.info("Loaded {} lessons into the analytics store in {} ms", fresh.size(), lastLoadMillis);
+        } catch (Exception e) {
+            lastLoadError = e.getMessage();
+            log.error("Failed to load the lesson analytics store: {}", e.getMessage(), e);
+        } finally {
+            lastLoadFinishedAt = LocalDateTime.now();
+            loading.set(false);
+        }
+        // A change committed while the rows streamed may be missing from the snapshot
+        for (Long lessonId : Set.copyOf(changedDuringLoad)) {
+            changedDuringLoad.remove(lessonId);
+            refresh(lessonId);
+        }
+    }
+
+    // --- Incremental updates ---
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLessonScheduleChanged(LessonScheduleChangedEvent event) {
+        if (!enabled || event.getLessonId() == null) {
+            return;
+        }
+        if (loading.get()) {
+            changedDuringLoad.add(event.getLessonId());
+        }
+        refresh(event.getLessonId());
+    }
+
+    // Re-reads the committed state of one lesson; a lesson that is gone is removed
+    private void refresh(Long lessonId) {
+        LessonColumns current = columns;
+        if (current == null) {
+            return;
+        }
+        try {
+            List<Object[]> rows = lessonRepository.findAnalyticsRow(lessonId);
+            if (rows.isEmpty()) {
+                current.remove(lessonId);
+            } else {
+                put(current, rows.get(0));
+            }
+        } catch (Exception e) {
+            // The nightly reload corrects it
+            log.warn("Could not refresh lesson {} in the analytics store: {}", lessonId, e.getMessage());
+        }
+    }
+
+    // Row layout of LessonRepository.findAnalyticsRow
+    private static void put(LessonColumns target, Object[] row) {
+        target.put((Long) row[0], (LocalDateTime) row[1], (LocalDateTime) row[2], (LessonStatus) row[3],
+                (Long) row[4], (Long) row[5], (Long) row[6]);
+    }
+
+    public Map<String, Object> getStats() {
+        LessonColumns current = columns;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", isReady());
+        stats.put("loading", loading.get());
+        stats.put("lessons", current != null ? current.size() : 0);
+        stats.put("scanParallelism", scanPool.getParallelism());
+        stats.put("lastLoadStartedAt", lastLoadStartedAt);
+        stats.put("lastLoadFinishedAt", lastLoadFinishedAt);
+        stats.put("lastLoadMillis", lastLoadMillis);
+        stats.put("lastLoadError", lastLoadError);
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        loader.shutdownNow();
+        scanPool.shutdownNow();
+    }
+}
@@ -0,0 +1,101 @@
+package com.schedulai.service;
+
+import com.schedulai.domain.LessonEvaluation;
+import com.schedulai.event.FeedbackChangedEvent;
+import com.schedulai.event.LessonChangedEvent;
+import com.schedulai.repository.LessonEvaluationRepository;
+import com.schedulai.util.CompletionCache;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Stores generated single-lesson evaluations so repeat views are a single-row lookup.
+ * An evaluation is marked stale when the lesson or its feedback changes; on the next read the
+ * prompt fingerprint decides whether the model really has to be called again.
+ * Writes use their own transaction because callers run inside read-only report transactions,
+ * on AI client threads, or (the invalidation listeners) after the publishing transaction committed.
+ */
+@Service
+@RequiredArgsConstructor
+public class LessonEvaluationService {
+
+    private static final Logger log = LoggerFactory.getLogger(LessonEvaluationService.class);
+
+    private final LessonEvaluationRepository lessonEvaluationRepository;
+
+    /**
+     * Fingerprint of everything that goes into an evaluation: the model and the full prompt
+     * (which carries the lesson notes, times and the student's rating/feedback).
+     */
+    public static String fingerprint(String model, String systemMessage, String userPrompt) {
+        return CompletionCache.key(model, systemMessage, userPrompt, 0, 0);
+    }
+
+    /**
+     * Stored evaluation, if none of its inputs changed since it was generated and its model is one of
+     * the configured providers' models.
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> findCurrent(Long lessonId, Collection<String> models) {
+        return lessonEvaluationRepository.findByLessonId(lessonId)
+                .filter(evaluation -> !evaluation.isStale() && models.contains(evaluation.getModel()))
+                .map(LessonEvaluation::getContent);
+    }
+
+    /**
+     * For a stale evaluation whose rebuilt inputs turn out identical (e.g. only the location was edited):
+     * clears the stale flag and returns the stored content. The prompt is fingerprinted with the model
+     * that generated the stored evaluation.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Optional<String> revalidate(Long lessonId, Collection<String> models, String systemMessage, String userPrompt) {
+        return lessonEvaluationRepository.findByLessonId(lessonId)
+                .filter(evaluation -> models.contains(evaluation.getModel())
+                        && evaluation.getInputFingerprint().equals(fingerprint(evaluation.getModel(), systemMessage, userPrompt)))
+                .map(evaluation -> {
+                    if (evaluation.isStale()) {
+                        evaluation.setStale(false);
+                        lessonEvaluationRepository.save(evaluation);
+                        log.debug("Lesson {} evaluation inputs unchanged, reusing stored evaluation", lessonId);
+                    }
+                    return evaluation.getContent();
+                });
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void save(Long lessonId, String model, String fingerprint, String content) {
+        LessonEvaluation evaluation = lessonEvaluationRepository.findByLessonId(lessonId).orElseGet(LessonEvaluation::new);
+        evaluation.setLessonId(lessonId);
+        evaluation.setModel(model);
+        evaluation.setInputFingerprint(fingerprint);
+        evaluation.setContent(content);
+        evaluation.setStale(false);
+        evaluation.setGeneratedAt(LocalDateTime.now());
+        lessonEvaluationRepository.save(evaluation);
+        log.info("Stored evaluation for lesson {}", lessonId);
+    }
+
+    // --- Invalidation ---
+
+    // After commit the finished transaction is still bound; joining it would fail with TransactionRequiredException
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLessonChanged(LessonChangedEvent event) {
+        lessonEvaluationRepository.markStale(event.getLessonId());
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFeedbackChanged(FeedbackChangedEvent event) {
+        lessonEvaluationRepository.markStale(event.getLessonId());
+    }
+}
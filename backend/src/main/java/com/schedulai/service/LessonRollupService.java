@@ -0,0 +1,231 @@
+package com.schedulai.service;
+
+import com.schedulai.domain.Enrollment;
+import com.schedulai.domain.Lesson;
+import com.schedulai.domain.LessonStatus;
+import com.schedulai.event.LessonDayChangedEvent;
+import com.schedulai.repository.LessonDailyRollupRepository;
+import com.schedulai.repository.LessonRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maintains lesson_daily_rollups, the per-day lesson counts and minutes the dashboards read.
+ * LessonService reports every lesson write here inside its own transaction, so a rollup row changes
+ * atomically with the lesson. A backfill rebuilds the rows from the lessons table month by month; it runs
+ * on startup when the rollups do not add up to the lesson count and can be started again from the admin API.
+ * Until a full backfill has completed, {@link #isReady()} is false and the reports aggregate the lessons
+ * table directly.
+ */
+@Service
+public class LessonRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(LessonRollupService.class);
+
+    /**
+     * What a single lesson adds to its rollup row
+     */
+    public record Contribution(LocalDate date, Long teacherId, Long studentId, Long courseId,
+                               LessonStatus status, long minutes) {
+
+        public static Contribution of(Lesson lesson) {
+            Enrollment enrollment = lesson.getEnrollment();
+            return new Contribution(
+                    lesson.getStartDateTime().toLocalDate(),
+                    enrollment.getTeacherCourse().getTeacher().getId(),
+                    enrollment.getStudent().getId(),
+                    enrollment.getTeacherCourse().getCourse().getId(),
+                    lesson.getStatus(),
+                    ChronoUnit.MINUTES.between(lesson.getStartDateTime(), lesson.getEndDateTime()));
+        }
+    }
+
+    private final LessonDailyRollupRepository lessonDailyRollupRepository;
+    private final LessonRepository lessonRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+
+    private final ExecutorService backfillExecutor;
+    private final AtomicBoolean backfilling = new AtomicBoolean(false);
+    private volatile boolean ready;
+    private volatile LocalDateTime lastBackfillStartedAt;
+    private volatile LocalDateTime lastBackfillFinishedAt;
+    private volatile int lastBackfillRows;
+    private volatile String lastBackfillError;
+
+    public LessonRollupService(LessonDailyRollupRepository lessonDailyRollupRepository,
+                               LessonRepository lessonRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${report.rollup.enabled:true}") boolean enabled) {
+        this.lessonDailyRollupRepository = lessonDailyRollupRepository;
+        this.lessonRepository = lessonRepository;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lesson-rollup-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // --- Incremental maintenance (runs in the caller's transaction) ---
+
+    public void added(Lesson lesson) {
+        apply(Contribution.of(lesson), 1);
+    }
+
+    public void removed(Contribution before) {
+        apply(before, -1);
+    }
+
+    /**
+     * A lesson changed from the state captured in before; nothing is written when its row and minutes are the same
+     */
+    public void changed(Contribution before, Lesson after) {
+        Contribution now = Contribution.of(after);
+        if (!Objects.equals(before, now)) {
+            apply(before, -1);
+            apply(now, 1);
+        }
+    }
+
+    private void apply(Contribution contribution, int sign) {
+        lessonDailyRollupRepository.addLessons(contribution.date(), contribution.teacherId(), contribution.studentId(),
+                contribution.courseId(), contribution.status().name(), sign, sign * contribution.minutes());
+        // Delivered after commit; lets the time-series cache drop the buckets covering this day
+        eventPublisher.publishEvent(new LessonDayChangedEvent(contribution.date()));
+    }
+
+    /**
+     * Whether the rollups cover all lessons and the reports may read them
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    // --- Backfill ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfIncomplete() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Empty on first start; short after a backfill was interrupted or lessons were changed outside LessonService
+            long rolledUp = lessonDailyRollupRepository.sumLessonCount();
+            long lessons = lessonRepository.count();
+            if (rolledUp == lessons) {
+                ready = true;
+                return;
+            }
+            log.info("Lesson rollups cover {} of {} lessons, backfilling from lesson history", rolledUp, lessons);
+        } catch (Exception e) {
+            log.warn("Could not check lesson rollups, reports aggregate lessons directly: {}", e.getMessage());
+            return;
+        }
+        startBackfill(null, null);
+    }
+
+    /**
+     * Rebuilds the rollups of lessons starting between from and to (inclusive) in the background;
+     * with both null the whole history is rebuilt. Returns false if a backfill is already running.
+     * Each month is rebuilt in its own transaction, so readers see either the old or the new rows of a month.
+     */
+    public boolean startBackfill(LocalDate from, LocalDate to) {
+        if (!backfilling.compareAndSet(false, true)) {
+            log.info("Lesson rollup backfill already running, skipping");
+            return false;
+        }
+        lastBackfillStartedAt = LocalDateTime.now();
+        lastBackfillFinishedAt = null;
+        lastBackfillError = null;
+        try {
+            backfillExecutor.execute(() -> backfill(from, to));
+        } catch (RuntimeException e) {
+            backfilling.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    private void backfill(LocalDate from, LocalDate to) {
+        boolean fullHistory = from == null && to == null;
+        int rows = 0;
+        try {
+            LocalDate first = from;
+            LocalDate last = to;
+            if (first == null || last == null) {
+                Object[] range = lessonRepository.findStartDateTimeRange().get(0);
+                if (range[0] == null) {
+                    // No lessons at all: nothing may be rolled up
+                    lessonDailyRollupRepository.deleteAllInBatch();
+                    ready = true;
+                    return;
+                }
+                first = first != null ? first : ((LocalDateTime) range[0]).toLocalDate();
+                last = last != null ? last : ((LocalDateTime) range[1]).toLocalDate();
+            }
+            if (fullHistory) {
+                // Rows left over from lessons that no longer exist
+                lessonDailyRollupRepository.deleteOutside(first, last.plusDays(1));
+            }
+            // Lessons written meanwhile either update a month already rebuilt or are read by its rebuild
+            LocalDate monthStart = first.withDayOfMonth(1);
+            LocalDate end = last.plusDays(1);
+            while (monthStart.isBefore(end)) {
+                LocalDate chunkFrom = monthStart.isBefore(first) ? first : monthStart;
+                LocalDate next = monthStart.plusMonths(1);
+                LocalDate chunkTo = next.isAfter(end) ? end : next;
+                rows += lessonDailyRollupRepository.rebuildBetween(chunkFrom, chunkTo);
+                monthStart = next;
+            }
+            lessonDailyRollupRepository.deleteEmpty();
+            if (fullHistory) {
+                ready = true;
+            }
+            log.info("Lesson rollup backfill finished: {} rows from {} to {}", rows, first, last);
+        } catch (Exception e) {
+            lastBackfillError = e.getMessage();
+            log.error("Lesson rollup backfill failed after {} rows: {}", rows, e.getMessage(), e);
+        } finally {
+            lastBackfillRows = rows;
+            lastBackfillFinishedAt = LocalDateTime.now();
+            backfilling.set(false);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", isReady());
+        stats.put("backfilling", backfilling.get());
+        stats.put("rollupRows", lessonDailyRollupRepository.count());
+        stats.put("lastBackfillStartedAt", lastBackfillStartedAt);
+        stats.put("lastBackfillFinishedAt", lastBackfillFinishedAt);
+        stats.put("lastBackfillRows", lastBackfillRows);
+        stats.put("lastBackfillError", lastBackfillError);
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // An interrupted month rolls back; the next backfill rebuilds it
+        backfillExecutor.shutdownNow();
+    }
+}
@@ -4,17 +4,21 @@ import com.schedulai.domain.Enrollment;
 import com.schedulai.domain.Lesson;
 import com.schedulai.domain.LessonStatus;
 import com.schedulai.dto.LessonDTO;
+import com.schedulai.event.LessonChangedEvent;
+import com.schedulai.event.LessonScheduleChangedEvent;
 import com.schedulai.repository.EnrollmentRepository;
 import com.schedulai.repository.LessonRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.persistence.EntityNotFoundException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -25,6 +29,9 @@ public class LessonService {
     private static final Logger log = LoggerFactory.getLogger(LessonService.class);
     private final LessonRepository lessonRepository;
     private final EnrollmentRepository enrollmentRepository;
+    private final BlackoutService blackoutService;
+    private final LessonRollupService lessonRollupService;
+    private final ApplicationEventPublisher eventPublisher;
 
     // --- DTO Conversion ---
 
@@ -123,6 +130,10 @@ public class LessonService {
         // Validate date/time
         validateLessonTimes(lessonDTO.getStartDateTime(), lessonDTO.getEndDateTime());
 
+        // Reject holidays and teacher vacation days
+        blackoutService.checkNotBlackedOut(enrollment.getTeacherCourse().getTeacher().getId(),
+                       lessonDTO.getStartDateTime(), lessonDTO.getEndDateTime());
+
         // Check for conflicts
         checkConflicts(enrollment.getStudent().getId(), enrollment.getTeacherCourse().getTeacher().getId(), 
                        lessonDTO.getStartDateTime(), lessonDTO.getEndDateTime(), null);
@@ -136,6 +147,8 @@ public class LessonService {
         lesson.setNotes(lessonDTO.getNotes());       // Set notes
 
         Lesson savedLesson = lessonRepository.save(lesson);
+        lessonRollupService.added(savedLesson);
+        publishScheduleChanged(savedLesson);
         log.info("Successfully created lesson with ID: {}", savedLesson.getId());
         return convertToDTO(savedLesson);
     }
@@ -148,11 +161,24 @@ public class LessonService {
                     // Validate date/time
                     validateLessonTimes(lessonDTO.getStartDateTime(), lessonDTO.getEndDateTime());
 
+                    // Reject holidays and teacher vacation days
+                    blackoutService.checkNotBlackedOut(existingLesson.getEnrollment().getTeacherCourse().getTeacher().getId(),
+                                   lessonDTO.getStartDateTime(), lessonDTO.getEndDateTime());
+
                     // Check for conflicts (excluding self)
                     checkConflicts(existingLesson.getEnrollment().getStudent().getId(), 
                                    existingLesson.getEnrollment().getTeacherCourse().getTeacher().getId(),
                                    lessonDTO.getStartDateTime(), lessonDTO.getEndDateTime(), id);
 
+                    // Time and status decide which slots the student and teacher have taken
+                    boolean scheduleChanged = (lessonDTO.getStatus() != null && lessonDTO.getStatus() != existingLesson.getStatus())
+                            || !lessonDTO.getStartDateTime().isEqual(existingLesson.getStartDateTime())
+                            || !lessonDTO.getEndDateTime().isEqual(existingLesson.getEndDateTime());
+                    // Time, status and notes feed the stored AI evaluation of this lesson
+                    boolean evaluationInputsChanged = scheduleChanged
+                            || !Objects.equals(existingLesson.getNotes(), lessonDTO.getNotes());
+                    LessonRollupService.Contribution before = LessonRollupService.Contribution.of(existingLesson);
+
                     // Update fields
                     existingLesson.setStartDateTime(lessonDTO.getStartDateTime());
                     existingLesson.setEndDateTime(lessonDTO.getEndDateTime());
@@ -164,6 +190,13 @@ public class LessonService {
                     // Cannot change enrollment via this method
 
                     Lesson updatedLesson = lessonRepository.save(existingLesson);
+                    lessonRollupService.changed(before, updatedLesson);
+                    if (evaluationInputsChanged) {
+                        eventPublisher.publishEvent(new LessonChangedEvent(id));
+                    }
+                    if (scheduleChanged) {
+                        publishScheduleChanged(updatedLesson);
+                    }
                     log.info("Successfully updated lesson with ID: {}", id);
                     return convertToDTO(updatedLesson);
                 });
@@ -178,8 +211,15 @@ public class LessonService {
         }
          return lessonRepository.findById(id)
                 .map(lesson -> {
+                    boolean statusChanged = lesson.getStatus() != status;
+                    LessonRollupService.Contribution before = LessonRollupService.Contribution.of(lesson);
                     lesson.setStatus(status);
                     Lesson updatedLesson = lessonRepository.save(lesson);
+                    if (statusChanged) {
+                        lessonRollupService.changed(before, updatedLesson);
+                        eventPublisher.publishEvent(new LessonChangedEvent(id));
+                        publishScheduleChanged(updatedLesson);
+                    }
                     log.info("Successfully updated status for lesson ID: {} to {}", id, status);
                     return convertToDTO(updatedLesson);
                 })
@@ -192,15 +232,22 @@ public class LessonService {
     @Transactional
     public void deleteLesson(Long id) {
         log.info("Attempting to delete lesson with ID: {}", id);
-        if (!lessonRepository.existsById(id)) {
-            throw new EntityNotFoundException("Lesson not found with id: " + id);
-        }
-        lessonRepository.deleteById(id);
+        Lesson lesson = lessonRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Lesson not found with id: " + id));
+        lessonRepository.delete(lesson);
+        lessonRollupService.removed(LessonRollupService.Contribution.of(lesson));
+        publishScheduleChanged(lesson);
         log.info("Successfully deleted lesson with ID: {}", id);
     }
 
     // --- Helper Methods ---
 
+    private void publishScheduleChanged(Lesson lesson) {
+        Enrollment enrollment = lesson.getEnrollment();
+        eventPublisher.publishEvent(new LessonScheduleChangedEvent(lesson.getId(), enrollment.getStudent().getId(),
+                enrollment.getTeacherCourse().getTeacher().getId()));
+    }
+
     private void validateLessonTimes(LocalDateTime start, LocalDateTime end) {
         if (start == null || end == null || start.isAfter(end) || start.isEqual(end)) {
              log.warn("Invalid lesson times provided: start={}, end={}", start, end);
@@ -0,0 +1,185 @@
+package com.schedulai.service;
+
+import com.schedulai.domain.LessonStatus;
+import com.schedulai.dto.LessonTimeSeriesPointDTO;
+import com.schedulai.event.LessonDayChangedEvent;
+import com.schedulai.repository.LessonDailyRollupRepository;
+import com.schedulai.repository.LessonRepository;
+import com.schedulai.util.LessonTimeSeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lesson counts and minutes per status in day, week or month buckets, optionally for one teacher or course.
+ * Buckets that have fully elapsed are cached without expiry and dropped only when a lesson on one of their
+ * days changes (see {@link LessonDayChangedEvent}); the open bucket and anything missing from the cache is
+ * summed from the daily rollups, or from the lessons table until the rollups are ready. Consecutive
+ * missing buckets are read with one query.
+ */
+@Service
+public class LessonTimeSeriesService {
+
+    private static final Logger log = LoggerFactory.getLogger(LessonTimeSeriesService.class);
+
+    private final LessonRepository lessonRepository;
+    private final LessonDailyRollupRepository lessonDailyRollupRepository;
+    private final LessonRollupService lessonRollupService;
+    private final boolean cacheEnabled;
+    private final int maxBuckets;
+    private final LessonTimeSeries.ClosedBucketCache cache;
+
+    public LessonTimeSeriesService(LessonRepository lessonRepository,
+                                   LessonDailyRollupRepository lessonDailyRollupRepository,
+                                   LessonRollupService lessonRollupService,
+                                   @Value("${report.time-series.cache.enabled:true}") boolean cacheEnabled,
+                                   @Value("${report.time-series.cache.max-entries:200000}") int cacheMaxEntries,
+                                   @Value("${report.time-series.max-buckets:4000}") int maxBuckets) {
+        this.lessonRepository = lessonRepository;
+        this.lessonDailyRollupRepository = lessonDailyRollupRepository;
+        this.lessonRollupService = lessonRollupService;
+        this.cacheEnabled = cacheEnabled;
+        this.maxBuckets = maxBuckets;
+        this.cache = new LessonTimeSeries.ClosedBucketCache(cacheMaxEntries);
+    }
+
+    /**
+     * One point per bucket from the bucket containing startDate to the one containing endDate (whole buckets,
+     * empty ones included); teacherId and courseId may be null
+     *
+     * @throws IllegalArgumentException if the range spans more than report.time-series.max-buckets buckets
+     */
+    @Transactional(readOnly = true)
+    public List<LessonTimeSeriesPointDTO> getSeries(LessonTimeSeries.Granularity granularity, LocalDate startDate,
+                                                    LocalDate endDate, Long teacherId, Long courseId) {
+        LocalDate today = LocalDate.now();
+        List<LocalDate> starts = new ArrayList<>();
+        for (LocalDate start = granularity.bucketStart(startDate); !start.isAfter(endDate); start = granularity.nextBucket(start)) {
+            if (starts.size() == maxBuckets) {
+                throw new IllegalArgumentException("时间范围过大，最多 " + maxBuckets + " 个时段");
+            }
+            starts.add(start);
+        }
+
+        // Read before querying: a bucket invalidated while the query runs must not be cached with old numbers
+        long version = cache.version();
+        LessonTimeSeries.Totals[] totals = new LessonTimeSeries.Totals[starts.size()];
+        boolean[] closed = new boolean[starts.size()];
+        for (int i = 0; i < starts.size(); i++) {
+            closed[i] = !granularity.nextBucket(starts.get(i)).isAfter(today);
+            if (closed[i] && cacheEnabled) {
+                totals[i] = cache.get(granularity, starts.get(i), teacherId, courseId);
+            }
+        }
+
+        int queries = 0;
+        for (int from = 0; from < starts.size(); ) {
+            if (totals[from] != null) {
+                from++;
+                continue;
+            }
+            int to = from;
+            while (to < starts.size() && totals[to] == null) {
+                to++;
+            }
+            sumBuckets(granularity, starts, from, to, teacherId, courseId, totals);
+            queries++;
+            for (int i = from; i < to; i++) {
+                if (closed[i] && cacheEnabled) {
+                    cache.put(granularity, starts.get(i), teacherId, courseId, totals[i], version);
+                }
+            }
+            from = to;
+        }
+        log.debug("Lesson time series {} {}..{}: {} buckets, {} queries", granularity, startDate, endDate,
+                starts.size(), queries);
+
+        List<LessonTimeSeriesPointDTO> points = new ArrayList<>(starts.size());
+        for (int i = 0; i < starts.size(); i++) {
+            points.add(toPoint(starts.get(i), granularity.nextBucket(starts.get(i)).minusDays(1), closed[i], totals[i]));
+        }
+        return points;
+    }
+
+    // Sums buckets [from, to) of starts with one grouped query; empty buckets get zero totals
+    private void sumBuckets(LessonTimeSeries.Granularity granularity, List<LocalDate> starts, int from, int to,
+                            Long teacherId, Long courseId, LessonTimeSeries.Totals[] totals) {
+        Map<LocalDate, Integer> indexByStart = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            totals[i] = new LessonTimeSeries.Totals();
+            indexByStart.put(starts.get(i), i);
+        }
+        LocalDate rangeStart = starts.get(from);
+        LocalDate rangeEnd = granularity.nextBucket(starts.get(to - 1));
+        // 日期, 状态, 课程数, 分钟数
+        List<Object[]> rows = lessonRollupService.isReady()
+                ? lessonDailyRollupRepository.sumLessonsByDayAndStatus(rangeStart, rangeEnd, teacherId, courseId)
+                : lessonRepository.sumLessonsByDayAndStatus(rangeStart.atStartOfDay(), rangeEnd.atStartOfDay(), teacherId, courseId);
+        for (Object[] row : rows) {
+            Integer index = indexByStart.get(granularity.bucketStart(toLocalDate(row[0])));
+            if (index != null) {
+                totals[index].add(LessonStatus.valueOf((String) row[1]), toLong(row[2]), toLong(row[3]));
+            }
+        }
+    }
+
+    private static LessonTimeSeriesPointDTO toPoint(LocalDate start, LocalDate end, boolean closed,
+                                                    LessonTimeSeries.Totals totals) {
+        Map<String, Long> lessonsByStatus = new LinkedHashMap<>();
+        Map<String, Long> minutesByStatus = new LinkedHashMap<>();
+        for (LessonStatus status : LessonStatus.values()) {
+            lessonsByStatus.put(status.name(), totals.lessons(status));
+            minutesByStatus.put(status.name(), totals.minutes(status));
+        }
+        return new LessonTimeSeriesPointDTO(start, end, closed, totals.totalLessons(), totals.totalMinutes(),
+                lessonsByStatus, minutesByStatus);
+    }
+
+    // 原生查询的日期列随驱动为 java.sql.Date 或 LocalDate，数值列为 BigDecimal、BigInteger 或 Long
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    // --- Invalidation ---
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLessonDayChanged(LessonDayChangedEvent event) {
+        // Today and later only belong to open buckets, which are never cached
+        if (event.getDate().isBefore(LocalDate.now())) {
+            cache.invalidate(event.getDate());
+        }
+    }
+
+    /**
+     * Drops every cached bucket, e.g. after lessons were changed outside LessonService
+     */
+    public void clearCache() {
+        cache.clear();
+        log.info("Lesson time series cache cleared");
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cacheEnabled", cacheEnabled);
+        stats.put("cachedBuckets", cache.size());
+        stats.put("hits", cache.hits());
+        stats.put("misses", cache.misses());
+        stats.put("invalidations", cache.invalidations());
+        stats.put("source", lessonRollupService.isReady() ? "rollups" : "lessons");
+        return stats;
+    }
+}
@@ -0,0 +1,41 @@
+package com.schedulai.service;
+
+/**
+ * Failure of a call to the AI provider. Status code 0 means the request never got an HTTP
+ * response (connect failure, timeout, broken stream); -1 means the request could not be built.
+ */
+public class OpenAIApiException extends RuntimeException {
+
+    private final int statusCode;
+    private final Long retryAfterSeconds;
+
+    public OpenAIApiException(String message, int statusCode, Long retryAfterSeconds) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public OpenAIApiException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+        this.retryAfterSeconds = null;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Delay requested by the provider's Retry-After header, or null if none was sent.
+     */
+    public Long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Rate limiting (429), server errors (5xx) and transport failures are worth retrying; other 4xx are not.
+     */
+    public boolean isRetryable() {
+        return statusCode == 0 || statusCode == 429 || statusCode >= 500;
+    }
+}
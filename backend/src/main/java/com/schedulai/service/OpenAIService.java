@@ -2,29 +2,57 @@ package com.schedulai.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.schedulai.dto.ProposedLessonDTO;
+import com.schedulai.util.CircuitBreaker;
+import com.schedulai.util.CompletionCache;
+import com.schedulai.util.JsonArrayStreamParser;
+import com.schedulai.util.ProviderPool;
+import com.schedulai.util.SingleFlight;
+import com.schedulai.util.TokenEstimator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class OpenAIService {
 
     private static final Logger log = LoggerFactory.getLogger(OpenAIService.class);
 
-    private final RestTemplate restTemplate;
+    private static final String SCHEDULE_SYSTEM_MESSAGE = "You are an intelligent course scheduling assistant. Respond ONLY with a valid JSON array of proposed lessons, adhering strictly to the format provided in the user prompt. Do not include any introductory text, explanations, or markdown formatting.";
+
+    private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final AIUsageService aiUsageService;
 
+    // Initial primary endpoint; replaced at runtime through configureProviders (system settings)
     @Value("${openai.api.key}")
     private String apiKey;
 
@@ -33,134 +61,704 @@ public class OpenAIService {
 
     // Consider adding model name to properties as well
     @Value("${openai.model:gpt-4}") // Default to gpt-4 if not specified
-    private String model;
+    private volatile String model;
+
+    // Provider pool: per-endpoint concurrency limit and EWMA latency/error routing
+    @Value("${openai.pool.default-max-concurrent-calls:8}")
+    private int defaultProviderConcurrency;
+
+    @Value("${openai.pool.ewma-alpha:0.2}")
+    private double poolEwmaAlpha;
+
+    @Value("${openai.pool.probe-interval-ms:30000}")
+    private long poolProbeIntervalMs;
+
+    private ProviderPool providerPool;
+
+    // Time allowed for the response headers once the request is sent
+    @Value("${openai.http.read-timeout-ms:30000}")
+    private long readTimeoutMs;
+
+    // Hard deadline for the whole call, including reading the body
+    @Value("${openai.http.total-timeout-ms:60000}")
+    private long totalTimeoutMs;
+
+    // Completion cache: in-memory LRU with TTL, optionally backed by an append-only file
+    @Value("${openai.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${openai.cache.max-entries:1000}")
+    private int cacheMaxEntries;
+
+    @Value("${openai.cache.ttl-seconds:86400}")
+    private long cacheTtlSeconds;
+
+    @Value("${openai.cache.disk-path:}")
+    private String cacheDiskPath;
 
-    public OpenAIService() {
-        this.restTemplate = new RestTemplate();
+    private CompletionCache completionCache;
+
+    // In-progress upstream calls keyed by request hash
+    private final SingleFlight<String, ModelReply> inFlightRequests = new SingleFlight<>();
+
+    // Resilience: circuit breaker over recent upstream outcomes and a bulkhead on concurrent upstream calls
+    @Value("${openai.resilience.breaker.window-size:20}")
+    private int breakerWindowSize;
+
+    @Value("${openai.resilience.breaker.minimum-calls:10}")
+    private int breakerMinimumCalls;
+
+    @Value("${openai.resilience.breaker.failure-rate-threshold:0.5}")
+    private double breakerFailureRateThreshold;
+
+    @Value("${openai.resilience.breaker.open-duration-ms:30000}")
+    private long breakerOpenDurationMs;
+
+    @Value("${openai.resilience.bulkhead.max-concurrent-calls:16}")
+    private int bulkheadMaxConcurrentCalls;
+
+    private CircuitBreaker circuitBreaker;
+    private Semaphore bulkhead;
+    private final AtomicLong bulkheadRejections = new AtomicLong();
+
+    /**
+     * A reply together with the model of the endpoint that produced it (or whose cache entry served it).
+     * Anything derived from a reply — cache keys, stored evaluations — is keyed by this model.
+     */
+    public record ModelReply(String model, String text) {
+    }
+
+    public OpenAIService(HttpClient openAIHttpClient, AIUsageService aiUsageService) {
+        this.httpClient = openAIHttpClient;
+        this.aiUsageService = aiUsageService;
         this.objectMapper = new ObjectMapper();
         // Configure Jackson for Java Time API and ignore unknown properties
         this.objectMapper.registerModule(new JavaTimeModule());
         this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
-    public List<ProposedLessonDTO> getScheduleRecommendations(String prompt) {
+    public CompletableFuture<List<ProposedLessonDTO>> getScheduleRecommendationsAsync(String prompt) {
         log.info("Sending request to OpenAI API for schedule recommendations. Prompt length: {}", prompt.length());
         log.debug("Prompt content for scheduling:\n{}", prompt); // Log full prompt only in debug mode
 
+        // Increased max_tokens significantly; lower temperature might give more predictable results
+        return requestReplyAsync(SCHEDULE_SYSTEM_MESSAGE, prompt, 1500, 0.5).thenApply(reply -> {
+            if (reply == null) {
+                return Collections.<ProposedLessonDTO>emptyList();
+            }
+            log.debug("OpenAI raw reply for scheduling: {}", reply);
+            // Clean potential markdown code fences
+            String cleanedReply = reply.trim().replace("```json", "").replace("```", "").trim();
+            return parseResponse(cleanedReply);
+        });
+    }
+
+    public List<ProposedLessonDTO> getScheduleRecommendations(String prompt) {
+        return getScheduleRecommendationsAsync(prompt).join();
+    }
+
+    public CompletableFuture<String> generateTextCompletionAsync(String systemMessage, String userPrompt) {
+        log.info("Sending request to OpenAI API for text completion. Prompt length: {}", userPrompt.length());
+        log.debug("System Message: {}\nUser Prompt:\n{}", systemMessage, userPrompt);
+
+        // 增加为2000以确保有足够的空间返回完整JSON；降低温度以获得更精确的结果
+        return requestReplyAsync(systemMessage, userPrompt, 2000, 0.5).thenApply(reply -> {
+            if (reply == null) {
+                return "[]"; // 返回空数组而不是null，确保解析不会失败
+            }
+            return extractJsonArray(reply);
+        });
+    }
+
+    /**
+     * Like {@link #generateTextCompletionAsync} (same request and cache key), but fails with
+     * {@link OpenAIApiException} instead of answering "[]", so callers can tell an empty answer
+     * from an unavailable provider and use their own fallback.
+     */
+    public CompletableFuture<String> generateJsonArrayCompletionAsync(String systemMessage, String userPrompt) {
+        log.info("Sending request to OpenAI API for JSON completion. Prompt length: {}", userPrompt.length());
+        return completeAsync(systemMessage, userPrompt, 2000, 0.5).thenApply(this::extractJsonArray);
+    }
+
+    private String extractJsonArray(String reply) {
+        log.debug("OpenAI raw text completion reply: {}", reply);
+        // 清除可能的Markdown代码围栏和其他非JSON内容
+        String cleanedReply = reply.trim();
+        // 提取JSON部分 - 查找数组起点（跳过说明文字中的[）和最后一个]之间的内容，与流式解析的判定相同
+        int startIdx = JsonArrayStreamParser.arrayStart(cleanedReply);
+        int endIdx = cleanedReply.lastIndexOf(']');
+
+        if (startIdx >= 0 && endIdx > startIdx) {
+            cleanedReply = cleanedReply.substring(startIdx, endIdx + 1);
+            log.debug("Extracted JSON array: {}", cleanedReply);
+        } else {
+            // 如果找不到JSON数组标记，尝试清除常见的Markdown格式
+            cleanedReply = cleanedReply
+                .replace("```json", "")
+                .replace("```", "")
+                .trim();
+        }
+        return cleanedReply;
+    }
+
+    public String generateTextCompletion(String systemMessage, String userPrompt) {
+        return generateTextCompletionAsync(systemMessage, userPrompt).join();
+    }
+
+    /**
+     * Streams a text completion: tokens are passed to {@code onToken} as they arrive and the returned
+     * future completes with the full text, which is cached like a regular completion (same key as
+     * {@link #generateTextCompletionAsync}). A cache hit is delivered as a single token.
+     * Cancelling the returned future, or {@code onToken} throwing (e.g. the browser went away), cancels the upstream stream.
+     */
+    public CompletableFuture<String> streamTextCompletion(String systemMessage, String userPrompt, Consumer<String> onToken) {
+        return textOf(streamCompletion(systemMessage, userPrompt, onToken));
+    }
+
+    /**
+     * {@link #streamTextCompletion} that also reports which model answered.
+     */
+    public CompletableFuture<ModelReply> streamCompletion(String systemMessage, String userPrompt, Consumer<String> onToken) {
+        log.info("Sending streaming request to OpenAI API for text completion. Prompt length: {}", userPrompt.length());
+        int maxTokens = 2000;
+        double temperature = 0.5;
+        ModelReply cached = cachedReply(systemMessage, userPrompt, temperature, maxTokens);
+        if (cached != null) {
+            log.info("Serving streamed OpenAI completion from cache (model {})", cached.model());
+            try {
+                onToken.accept(cached.text());
+                return CompletableFuture.completedFuture(cached);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        return metered(systemMessage, userPrompt,
+                guarded(() -> doStreamTextCompletion(systemMessage, userPrompt, maxTokens, temperature, onToken)));
+    }
+
+    private CompletableFuture<ModelReply> doStreamTextCompletion(String systemMessage, String userPrompt,
+                                                                 int maxTokens, double temperature, Consumer<String> onToken) {
+        ProviderPool.Lease lease = providerPool.acquire();
+        if (lease == null) {
+            return CompletableFuture.failedFuture(noProviderAvailable());
+        }
+        ProviderPool.Provider provider = lease.provider();
         Map<String, Object> requestBody = Map.of(
-                "model", model,
+                "model", provider.model(),
                 "messages", List.of(
-                        Map.of("role", "system", "content", "You are an intelligent course scheduling assistant. Respond ONLY with a valid JSON array of proposed lessons, adhering strictly to the format provided in the user prompt. Do not include any introductory text, explanations, or markdown formatting."),
-                        Map.of("role", "user", "content", prompt)
+                        Map.of("role", "system", "content", systemMessage),
+                        Map.of("role", "user", "content", userPrompt)
                 ),
-                "max_tokens", 1500, // Increased max_tokens significantly
-                "temperature", 0.5 // Lower temperature might give more predictable results
+                "max_tokens", maxTokens,
+                "temperature", temperature,
+                "stream", true
         );
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
+        ChatStreamSubscriber subscriber = new ChatStreamSubscriber(provider.model(), onToken);
+        HttpRequest request;
+        try {
+            request = buildRequest(provider.url(), provider.apiKey(), requestBody, Duration.ofMillis(readTimeoutMs));
+        } catch (Exception e) {
+            lease.abandon();
+            log.error("Error building OpenAI API request: {}", e.getMessage(), e);
+            return CompletableFuture.failedFuture(new OpenAIApiException("Error building OpenAI API request: " + e.getMessage(), -1, null));
+        }
+
+        // The status is checked as soon as headers arrive; error bodies are discarded instead of parsed as events
+        HttpResponse.BodyHandler<Void> handler = responseInfo -> {
+            lease.markResponded();
+            if (responseInfo.statusCode() != 200) {
+                subscriber.fail(new OpenAIApiException("OpenAI streaming call failed with status: " + responseInfo.statusCode(),
+                        responseInfo.statusCode(), null));
+                return HttpResponse.BodySubscribers.discarding();
+            }
+            return HttpResponse.BodySubscribers.fromLineSubscriber(subscriber, s -> null, StandardCharsets.UTF_8, null);
+        };
+        httpClient.sendAsync(request, handler).whenComplete((response, ex) -> {
+            if (ex != null) {
+                subscriber.fail(ex);
+            }
+        });
 
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+        CompletableFuture<ModelReply> result = subscriber.result.orTimeout(totalTimeoutMs, TimeUnit.MILLISECONDS);
+        result.whenComplete((reply, ex) -> {
+            releaseLease(lease, ex);
+            if (ex != null) {
+                log.error("OpenAI streaming completion failed: {}", ex.toString());
+            } else if (completionCache != null && subscriber.isFinished() && !reply.text().isBlank()) {
+                // A truncated stream is returned to the caller but never cached as the full reply
+                completionCache.put(CompletionCache.key(provider.model(), systemMessage, userPrompt, temperature, maxTokens), reply.text());
+            }
+        });
+        // Returned as-is (not a dependent stage) so that cancelling it reaches the subscriber
+        return result;
+    }
 
+    /**
+     * Sends a minimal chat request with the given credentials; completes with true on a 2xx response.
+     * Used by the settings page, so it never touches the completion cache.
+     */
+    public CompletableFuture<Boolean> testConnectionAsync(String url, String key, String modelName, Duration timeout) {
+        Map<String, Object> requestBody = Map.of(
+                "model", modelName,
+                "messages", Collections.singletonList(Map.of("role", "user", "content", "Hello")),
+                "max_tokens", 5
+        );
         try {
-            ResponseEntity<Map> response = restTemplate.postForEntity(apiUrl, request, Map.class);
-            log.info("Received response from OpenAI API. Status: {}", response.getStatusCode());
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                List<Map<String, Object>> choices = (List<Map<String, Object>>) response.getBody().get("choices");
-                if (choices != null && !choices.isEmpty()) {
-                    Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
-                    if (message != null) {
-                        String reply = (String) message.get("content");
-                        if (reply != null && !reply.isBlank()) {
-                            log.debug("OpenAI raw reply for scheduling: {}", reply);
-                            // Clean potential markdown code fences
-                            String cleanedReply = reply.trim().replace("```json", "").replace("```", "").trim();
-                            return parseResponse(cleanedReply);
+            HttpRequest request = buildRequest(url, key, requestBody, timeout);
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .handle((response, ex) -> {
+                        if (ex != null) {
+                            log.error("Error testing OpenAI connection: {}", ex.getMessage());
+                            return false;
                         }
-                    }
-                }
-                 log.warn("OpenAI schedule response did not contain expected structure.");
-                 log.debug("Full OpenAI response body: {}", response.getBody());
-            } else {
-                 log.error("OpenAI API call failed with status: {}", response.getStatusCode());
-                 log.debug("Full OpenAI response body: {}", response.getBody());
-            }
-        } catch (HttpClientErrorException e) {
-            log.error("HTTP error calling OpenAI API: {} - {}", e.getStatusCode(), e.getResponseBodyAsString(), e);
+                        return response.statusCode() >= 200 && response.statusCode() < 300;
+                    });
         } catch (Exception e) {
-            log.error("Error calling or processing OpenAI API response: {}", e.getMessage(), e);
+            log.error("Error testing OpenAI connection: {}", e.getMessage());
+            return CompletableFuture.completedFuture(false);
         }
+    }
 
-        return Collections.emptyList();
+    /**
+     * Model of the primary (first) provider, shown in the settings.
+     */
+    public String getModel() {
+        return model;
     }
 
-    public String generateTextCompletion(String systemMessage, String userPrompt) {
-        log.info("Sending request to OpenAI API for text completion. Prompt length: {}", userPrompt.length());
-        log.debug("System Message: {}\nUser Prompt:\n{}", systemMessage, userPrompt);
+    /**
+     * Distinct models of the configured providers, primary first; a call may be answered by any of them.
+     */
+    public List<String> getModels() {
+        List<String> models = providerPool.providers().stream().map(ProviderPool.Provider::model).distinct().toList();
+        return models.isEmpty() ? List.of(model) : models;
+    }
+
+    /**
+     * Cached reply for the request from any model in the pool, or null
+     */
+    private ModelReply cachedReply(String systemMessage, String userPrompt, double temperature, int maxTokens) {
+        if (completionCache == null) {
+            return null;
+        }
+        for (String candidate : getModels()) {
+            String cached = completionCache.get(CompletionCache.key(candidate, systemMessage, userPrompt, temperature, maxTokens));
+            if (cached != null) {
+                return new ModelReply(candidate, cached);
+            }
+        }
+        return null;
+    }
+
+    // Text of a reply; cancelling the returned stage still cancels the call
+    private static CompletableFuture<String> textOf(CompletableFuture<ModelReply> call) {
+        CompletableFuture<String> text = call.thenApply(ModelReply::text);
+        text.whenComplete((reply, ex) -> {
+            if (text.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        return text;
+    }
+
+    /**
+     * Completion cache hit/miss statistics.
+     */
+    public CompletionCache.Stats getCacheStats() {
+        return completionCache != null ? completionCache.stats() : null;
+    }
+
+    /**
+     * Number of requests that joined an identical in-flight call instead of calling upstream.
+     */
+    public long getCoalescedRequestCount() {
+        return inFlightRequests.coalescedCount();
+    }
+
+    public void clearCache() {
+        if (completionCache != null) {
+            completionCache.clear();
+        }
+    }
 
+    /**
+     * Completes with the raw reply for the chat request, or fails with {@link OpenAIApiException}
+     * (wrapped in a CompletionException) so callers such as batch jobs can retry rate-limit and server errors.
+     */
+    public CompletableFuture<String> completeAsync(String systemMessage, String userPrompt, int maxTokens, double temperature) {
+        return textOf(completeWithModelAsync(systemMessage, userPrompt, maxTokens, temperature));
+    }
+
+    /**
+     * {@link #completeAsync} that also reports which model answered; results keyed by model (stored
+     * evaluations, summary caches) must use this model rather than {@link #getModel()}.
+     */
+    public CompletableFuture<ModelReply> completeWithModelAsync(String systemMessage, String userPrompt, int maxTokens, double temperature) {
+        ModelReply cached = cachedReply(systemMessage, userPrompt, temperature, maxTokens);
+        if (cached != null) {
+            log.info("Serving OpenAI completion from cache (model {})", cached.model());
+            return CompletableFuture.completedFuture(cached);
+        }
+        // Identical concurrent requests (double-clicks, several staff on the same student) share one upstream call,
+        // whichever endpoint it is routed to
+        String requestKey = CompletionCache.key(model, systemMessage, userPrompt, temperature, maxTokens);
+        return metered(systemMessage, userPrompt,
+                inFlightRequests.execute(requestKey, () -> sendChatRequest(systemMessage, userPrompt, maxTokens, temperature)));
+    }
+
+    // Charges the estimated prompt tokens now and the reply tokens on completion to the user of the current
+    // request (nobody for background work). Returns the call itself so cancellation still reaches it.
+    private CompletableFuture<ModelReply> metered(String systemMessage, String userPrompt, CompletableFuture<ModelReply> call) {
+        AIUsageService.Subject subject = aiUsageService.currentSubject();
+        if (subject == null) {
+            return call;
+        }
+        aiUsageService.addTokens(subject, TokenEstimator.estimate(systemMessage) + TokenEstimator.estimate(userPrompt));
+        call.thenAccept(reply -> {
+            if (reply != null) {
+                aiUsageService.addTokens(subject, TokenEstimator.estimate(reply.text()));
+            }
+        });
+        return call;
+    }
+
+    /**
+     * Completes with the raw reply content for the chat request, serving identical requests from the
+     * completion cache. Completes with null when the call fails, times out or the reply is empty
+     * (failures are not cached); the future itself never completes exceptionally.
+     */
+    private CompletableFuture<String> requestReplyAsync(String systemMessage, String userPrompt, int maxTokens, double temperature) {
+        return completeAsync(systemMessage, userPrompt, maxTokens, temperature).exceptionally(ex -> null);
+    }
+
+    private CompletableFuture<ModelReply> sendChatRequest(String systemMessage, String userPrompt, int maxTokens, double temperature) {
+        return guarded(() -> doSendChatRequest(systemMessage, userPrompt, maxTokens, temperature));
+    }
+
+    private CompletableFuture<ModelReply> doSendChatRequest(String systemMessage, String userPrompt, int maxTokens, double temperature) {
+        ProviderPool.Lease lease = providerPool.acquire();
+        if (lease == null) {
+            return CompletableFuture.failedFuture(noProviderAvailable());
+        }
+        ProviderPool.Provider provider = lease.provider();
         Map<String, Object> requestBody = Map.of(
-                "model", model,
+                "model", provider.model(),
                 "messages", List.of(
                         Map.of("role", "system", "content", systemMessage),
                         Map.of("role", "user", "content", userPrompt)
                 ),
-                "max_tokens", 2000, // 增加为2000以确保有足够的空间返回完整JSON
-                "temperature", 0.5  // 降低温度以获得更精确的结果
+                "max_tokens", maxTokens,
+                "temperature", temperature
         );
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
+        HttpRequest request;
+        try {
+            request = buildRequest(provider.url(), provider.apiKey(), requestBody, Duration.ofMillis(readTimeoutMs));
+        } catch (Exception e) {
+            lease.abandon();
+            log.error("Error building OpenAI API request: {}", e.getMessage(), e);
+            return CompletableFuture.failedFuture(new OpenAIApiException("Error building OpenAI API request: " + e.getMessage(), -1, null));
+        }
+
+        // Latency for routing is measured until the response headers arrive
+        HttpResponse.BodyHandler<String> handler = responseInfo -> {
+            lease.markResponded();
+            return HttpResponse.BodyHandlers.ofString().apply(responseInfo);
+        };
+        CompletableFuture<ModelReply> result = httpClient.sendAsync(request, handler)
+                .orTimeout(totalTimeoutMs, TimeUnit.MILLISECONDS)
+                .handle((response, ex) -> {
+                    if (ex != null) {
+                        log.error("Error calling OpenAI API ({}): {}", provider.name(), ex.toString());
+                        throw new OpenAIApiException("Error calling OpenAI API: " + ex, ex);
+                    }
+                    log.info("Received response from OpenAI API. Status: {}", response.statusCode());
+                    if (response.statusCode() != 200) {
+                        log.error("OpenAI API call failed with status: {}", response.statusCode());
+                        log.debug("Full OpenAI response body: {}", response.body());
+                        throw new OpenAIApiException("OpenAI API call failed with status: " + response.statusCode(),
+                                response.statusCode(), retryAfterSeconds(response));
+                    }
+                    String reply = extractReply(response.body());
+                    if (reply == null) {
+                        throw new OpenAIApiException("OpenAI response did not contain a reply", response.statusCode(), null);
+                    }
+                    if (completionCache != null) {
+                        // Keyed by the model that answered, so a reply is never filed under another provider's model
+                        completionCache.put(CompletionCache.key(provider.model(), systemMessage, userPrompt, temperature, maxTokens), reply);
+                    }
+                    return new ModelReply(provider.model(), reply);
+                });
+        result.whenComplete((reply, ex) -> releaseLease(lease, ex));
+        return result;
+    }
+
+    private OpenAIUnavailableException noProviderAvailable() {
+        if (providerPool.isEmpty()) {
+            return new OpenAIUnavailableException("No AI provider configured", null);
+        }
+        log.warn("All AI providers are at their concurrency limit, rejecting request");
+        return new OpenAIUnavailableException("All AI providers are busy", 1L);
+    }
+
+    private void releaseLease(ProviderPool.Lease lease, Throwable ex) {
+        switch (classify(ex)) {
+            case SUCCESS -> lease.release(false);
+            case FAILURE -> lease.release(true);
+            case IGNORED -> lease.abandon();
+        }
+    }
+
+    /**
+     * Replaces the provider pool (e.g. after the system settings were saved); calls already in flight
+     * finish on their old endpoint. Replies are cached under the model of the provider that answered.
+     */
+    public void configureProviders(List<ProviderPool.Provider> providers) {
+        providerPool.reconfigure(providers);
+        if (!providers.isEmpty()) {
+            model = providers.get(0).model();
+        }
+        log.info("OpenAI provider pool configured: {}", providers);
+    }
+
+    public List<ProviderPool.Provider> getProviders() {
+        return providerPool.providers();
+    }
+
+    /**
+     * Runs an upstream call behind the bulkhead and the circuit breaker. Rejected calls fail immediately
+     * with {@link OpenAIUnavailableException}; the per-call deadlines are the read and total timeouts.
+     * The call's own future is returned (not a dependent stage) so cancellation still reaches it.
+     */
+    private <T> CompletableFuture<T> guarded(Supplier<CompletableFuture<T>> call) {
+        if (!bulkhead.tryAcquire()) {
+            bulkheadRejections.incrementAndGet();
+            log.warn("OpenAI bulkhead full ({} concurrent calls), rejecting request", bulkheadMaxConcurrentCalls);
+            return CompletableFuture.failedFuture(new OpenAIUnavailableException("Too many concurrent AI requests", 1L));
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            long retryAfterMs = circuitBreaker.metrics().millisUntilHalfOpen();
+            log.debug("OpenAI circuit breaker open, failing fast");
+            return CompletableFuture.failedFuture(new OpenAIUnavailableException("AI provider temporarily unavailable (circuit open)",
+                    Math.max(1L, TimeUnit.MILLISECONDS.toSeconds(retryAfterMs))));
+        }
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            circuitBreaker.onIgnored();
+            return CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((result, ex) -> {
+            bulkhead.release();
+            recordOutcome(ex);
+        });
+        return future;
+    }
+
+    private enum CallOutcome { SUCCESS, FAILURE, IGNORED }
+
+    // Only provider trouble (transport errors, timeouts, 429, 5xx) counts as a failure
+    private static CallOutcome classify(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause == null) {
+            return CallOutcome.SUCCESS;
+        } else if (cause instanceof OpenAIUnavailableException) {
+            return CallOutcome.IGNORED; // rejected locally, the provider was never called
+        } else if (cause instanceof OpenAIApiException apiError) {
+            return apiError.isRetryable() ? CallOutcome.FAILURE : CallOutcome.SUCCESS; // a 4xx means the provider answered
+        } else if (cause instanceof IOException || cause instanceof TimeoutException) {
+            return CallOutcome.FAILURE;
+        }
+        // cancelled by the caller, or the caller's token consumer failed
+        return CallOutcome.IGNORED;
+    }
+
+    private void recordOutcome(Throwable ex) {
+        switch (classify(ex)) {
+            case SUCCESS -> circuitBreaker.onSuccess();
+            case FAILURE -> circuitBreaker.onFailure();
+            case IGNORED -> circuitBreaker.onIgnored();
+        }
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        CircuitBreaker.State state = circuitBreaker.state();
+        if (state == CircuitBreaker.State.OPEN && cause != null) {
+            log.warn("OpenAI circuit breaker is OPEN after: {}", cause.toString());
+        }
+    }
 
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+    /**
+     * False while the circuit breaker is open; callers may go straight to their fallback. Once the open
+     * period has passed this is true again, so the next call can be the half-open probe.
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.state() != CircuitBreaker.State.OPEN;
+    }
 
+    /**
+     * Circuit breaker and bulkhead metrics.
+     */
+    public Map<String, Object> getResilienceMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("circuitBreaker", circuitBreaker.metrics());
+        metrics.put("bulkheadMaxConcurrentCalls", bulkheadMaxConcurrentCalls);
+        metrics.put("bulkheadActiveCalls", bulkheadMaxConcurrentCalls - bulkhead.availablePermits());
+        metrics.put("bulkheadRejectedCalls", bulkheadRejections.get());
+        metrics.put("providers", providerPool.stats());
+        metrics.put("providerPoolSaturatedCalls", providerPool.saturatedCount());
+        return metrics;
+    }
+
+    private Long retryAfterSeconds(HttpResponse<?> response) {
         try {
-            ResponseEntity<Map> response = restTemplate.postForEntity(apiUrl, request, Map.class);
-            log.info("Received response from OpenAI API for text completion. Status: {}", response.getStatusCode());
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                List<Map<String, Object>> choices = (List<Map<String, Object>>) response.getBody().get("choices");
-                if (choices != null && !choices.isEmpty()) {
-                    Map<String, Object> message = (Map<String, Object>) choices.get(0).get("message");
-                    if (message != null) {
-                        String reply = (String) message.get("content");
-                        if (reply != null && !reply.isBlank()) {
-                            log.debug("OpenAI raw text completion reply: {}", reply);
-                            // 清除可能的Markdown代码围栏和其他非JSON内容
-                            String cleanedReply = reply.trim();
-                            // 提取JSON部分 - 查找第一个[和最后一个]之间的内容
-                            int startIdx = cleanedReply.indexOf('[');
-                            int endIdx = cleanedReply.lastIndexOf(']');
-                            
-                            if (startIdx >= 0 && endIdx > startIdx) {
-                                cleanedReply = cleanedReply.substring(startIdx, endIdx + 1);
-                                log.debug("Extracted JSON array: {}", cleanedReply);
-                            } else {
-                                // 如果找不到JSON数组标记，尝试清除常见的Markdown格式
-                                cleanedReply = cleanedReply
-                                    .replace("```json", "")
-                                    .replace("```", "")
-                                    .trim();
-                            }
-                            return cleanedReply;
+            return response.headers().firstValue("retry-after").map(Long::parseLong).orElse(null);
+        } catch (NumberFormatException e) {
+            return null; // HTTP-date form is not used by the provider
+        }
+    }
+
+    /**
+     * Parses the chat completion event stream line by line ("data: {json}" ... "data: [DONE]").
+     * Lines are requested one at a time, so only the accumulated reply text is held in memory.
+     */
+    private final class ChatStreamSubscriber implements Flow.Subscriber<String> {
+
+        private final String model;
+        private final Consumer<String> onToken;
+        private final CompletableFuture<ModelReply> result = new CompletableFuture<>();
+        private final StringBuilder text = new StringBuilder();
+        private volatile Flow.Subscription subscription;
+        // Only a stream terminated by [DONE] is a complete reply; a dropped connection also ends in onComplete
+        private volatile boolean finished;
+
+        ChatStreamSubscriber(String model, Consumer<String> onToken) {
+            this.model = model;
+            this.onToken = onToken;
+            // Cancelled by the caller (client disconnected): close the connection now, not at the next line
+            result.whenComplete((reply, ex) -> {
+                Flow.Subscription current = subscription;
+                if (result.isCancelled() && current != null) {
+                    current.cancel();
+                }
+            });
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (result.isDone()) {
+                subscription.cancel();
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (result.isDone()) {
+                // Caller cancelled, timed out or already failed: stop reading from upstream
+                subscription.cancel();
+                return;
+            }
+            try {
+                if (line.startsWith("data:")) {
+                    String data = line.substring(5).trim();
+                    if ("[DONE]".equals(data)) {
+                        finished = true;
+                        result.complete(new ModelReply(model, text.toString()));
+                    } else if (!data.isEmpty()) {
+                        JsonNode delta = objectMapper.readTree(data).path("choices").path(0).path("delta").path("content");
+                        if (delta.isTextual() && !delta.asText().isEmpty()) {
+                            text.append(delta.asText());
+                            onToken.accept(delta.asText());
                         }
                     }
                 }
-                log.warn("OpenAI text completion response did not contain expected structure.");
-                log.debug("Full OpenAI response body: {}", response.getBody());
-            } else {
-                log.error("OpenAI API call for text completion failed with status: {}", response.getStatusCode());
-                log.debug("Full OpenAI response body: {}", response.getBody());
+                subscription.request(1);
+            } catch (Exception e) {
+                subscription.cancel();
+                result.completeExceptionally(e);
             }
-        } catch (HttpClientErrorException e) {
-            log.error("HTTP error calling OpenAI API for text completion: {} - {}", e.getStatusCode(), e.getResponseBodyAsString(), e);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (!finished) {
+                log.warn("OpenAI stream ended without [DONE] after {} characters", text.length());
+            }
+            result.complete(new ModelReply(model, text.toString()));
+        }
+
+        boolean isFinished() {
+            return finished;
+        }
+
+        void fail(Throwable cause) {
+            result.completeExceptionally(cause);
+        }
+    }
+
+    private HttpRequest buildRequest(String url, String key, Map<String, Object> requestBody, Duration timeout) throws Exception {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + key)
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(requestBody)))
+                .build();
+    }
+
+    // choices[0].message.content, or null if the body does not have the expected structure
+    private String extractReply(String body) {
+        try {
+            JsonNode content = objectMapper.readTree(body).path("choices").path(0).path("message").path("content");
+            if (content.isTextual() && !content.asText().isBlank()) {
+                return content.asText();
+            }
+            log.warn("OpenAI response did not contain expected structure.");
+            log.debug("Full OpenAI response body: {}", body);
         } catch (Exception e) {
-            log.error("Error calling or processing OpenAI API response for text completion: {}", e.getMessage(), e);
+            log.error("Error processing OpenAI API response: {}", e.getMessage(), e);
+        }
+        return null;
+    }
+
+    @PostConstruct
+    void init() {
+        circuitBreaker = new CircuitBreaker(breakerWindowSize, breakerMinimumCalls, breakerFailureRateThreshold, breakerOpenDurationMs);
+        bulkhead = new Semaphore(bulkheadMaxConcurrentCalls);
+        providerPool = new ProviderPool(poolEwmaAlpha, poolProbeIntervalMs);
+        if (apiUrl != null && !apiUrl.isBlank()) {
+            providerPool.reconfigure(List.of(new ProviderPool.Provider("primary", apiUrl, apiKey, model, defaultProviderConcurrency)));
+        } else {
+            log.warn("openai.api.url is not set; AI calls fail until a provider is configured in the system settings");
         }
+        log.info("OpenAI resilience: breaker window={}, threshold={}, open={}ms; bulkhead={} concurrent calls",
+                breakerWindowSize, breakerFailureRateThreshold, breakerOpenDurationMs, bulkheadMaxConcurrentCalls);
 
-        return "[]"; // 返回空数组而不是null，确保解析不会失败
+        if (!cacheEnabled) {
+            log.info("OpenAI completion cache disabled");
+            return;
+        }
+        Path diskPath = cacheDiskPath == null || cacheDiskPath.isBlank() ? null : Path.of(cacheDiskPath);
+        completionCache = new CompletionCache(cacheMaxEntries, cacheTtlSeconds, diskPath);
+        log.info("OpenAI completion cache enabled: maxEntries={}, ttl={}s, disk={}", cacheMaxEntries, cacheTtlSeconds, diskPath);
+    }
+
+    @PreDestroy
+    void closeCache() {
+        if (completionCache != null) {
+            completionCache.close();
+        }
     }
 
     private List<ProposedLessonDTO> parseResponse(String jsonResponse) {
@@ -174,4 +772,4 @@ public class OpenAIService {
             return Collections.emptyList();
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package com.schedulai.service;
+
+/**
+ * The call was rejected locally without reaching the AI provider: the circuit breaker is open
+ * or the maximum number of concurrent upstream calls is reached. Callers should fall back
+ * to a deterministic result instead of waiting.
+ */
+public class OpenAIUnavailableException extends OpenAIApiException {
+
+    public OpenAIUnavailableException(String message, Long retryAfterSeconds) {
+        super(message, 0, retryAfterSeconds);
+    }
+}
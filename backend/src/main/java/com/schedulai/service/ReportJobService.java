@@ -0,0 +1,427 @@
+package com.schedulai.service;
+
+import com.schedulai.domain.ReportJob;
+import com.schedulai.domain.ReportJobItem;
+import com.schedulai.domain.ReportJobItemStatus;
+import com.schedulai.domain.ReportJobStatus;
+import com.schedulai.dto.ReportJobDTO;
+import com.schedulai.dto.ReportJobItemDTO;
+import com.schedulai.repository.LessonRepository;
+import com.schedulai.repository.ReportJobItemRepository;
+import com.schedulai.repository.ReportJobRepository;
+import com.schedulai.util.TokenBucket;
+import com.schedulai.util.TokenEstimator;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Batch generation of learning reports for every student with lessons in a period
+ * (e.g. the monthly run). Work is spread over a bounded worker pool, throttled by request
+ * and token budgets, and retried with exponential backoff on 429/5xx. Each student's result
+ * is persisted as soon as it finishes, so an interrupted job resumes where it stopped.
+ */
+@Service
+public class ReportJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportJobService.class);
+
+    // Same request shape as ReportService/OpenAIService.generateTextCompletion so results share the completion cache
+    private static final int REPORT_MAX_TOKENS = 2000;
+    private static final double REPORT_TEMPERATURE = 0.5;
+
+    private final ReportJobRepository reportJobRepository;
+    private final ReportJobItemRepository reportJobItemRepository;
+    private final LessonRepository lessonRepository;
+    private final ReportService reportService;
+    private final OpenAIService openAIService;
+    // Job state changes run in their own transaction: startJob also runs in createJob's afterCommit,
+    // where the committed transaction is still bound and a joining write would fail
+    private final TransactionTemplate stateTransaction;
+
+    private final ExecutorService workers;
+    private final TokenBucket requestBucket;
+    private final TokenBucket tokenBucket;
+    private final int maxAttempts;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+
+    // Jobs currently executing in this process
+    private final Map<Long, RunningJob> runningJobs = new ConcurrentHashMap<>();
+
+    public ReportJobService(ReportJobRepository reportJobRepository,
+                            ReportJobItemRepository reportJobItemRepository,
+                            LessonRepository lessonRepository,
+                            ReportService reportService,
+                            OpenAIService openAIService,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${report.job.workers:4}") int workerCount,
+                            @Value("${report.job.requests-per-minute:60}") long requestsPerMinute,
+                            @Value("${report.job.tokens-per-minute:90000}") long tokensPerMinute,
+                            @Value("${report.job.max-attempts:5}") int maxAttempts,
+                            @Value("${report.job.backoff-base-ms:2000}") long backoffBaseMs,
+                            @Value("${report.job.backoff-max-ms:60000}") long backoffMaxMs) {
+        this.reportJobRepository = reportJobRepository;
+        this.reportJobItemRepository = reportJobItemRepository;
+        this.lessonRepository = lessonRepository;
+        this.reportService = reportService;
+        this.openAIService = openAIService;
+        this.stateTransaction = new TransactionTemplate(transactionManager);
+        this.stateTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "report-job-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // Burst capacity equals the per-minute budget
+        this.requestBucket = new TokenBucket(requestsPerMinute, requestsPerMinute);
+        this.tokenBucket = new TokenBucket(tokensPerMinute, tokensPerMinute);
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+    }
+
+    // In-memory state of a job being executed
+    private static final class RunningJob {
+        final Long jobId;
+        final LocalDate periodStart;
+        final LocalDate periodEnd;
+        final AtomicInteger remaining;
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        RunningJob(ReportJob job, int items) {
+            this.jobId = job.getId();
+            this.periodStart = job.getPeriodStart();
+            this.periodEnd = job.getPeriodEnd();
+            this.remaining = new AtomicInteger(items);
+        }
+    }
+
+    // --- Job lifecycle ---
+
+    /**
+     * Creates a job with one item per student who has lessons in [startDate, endDate]; it starts after commit.
+     */
+    @Transactional
+    public ReportJobDTO createJob(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("A valid start and end date are required.");
+        }
+        List<Long> studentIds = lessonRepository.findStudentIdsWithLessonsBetween(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        log.info("Creating report job for {} to {} with {} students", startDate, endDate, studentIds.size());
+
+        ReportJob job = new ReportJob();
+        job.setPeriodStart(startDate);
+        job.setPeriodEnd(endDate);
+        job.setStatus(ReportJobStatus.PENDING);
+        job.setTotalItems(studentIds.size());
+        ReportJob saved = reportJobRepository.save(job);
+
+        reportJobItemRepository.saveAll(studentIds.stream().map(studentId -> {
+            ReportJobItem item = new ReportJobItem();
+            item.setJobId(saved.getId());
+            item.setStudentId(studentId);
+            item.setStatus(ReportJobItemStatus.PENDING);
+            return item;
+        }).collect(Collectors.toList()));
+
+        Long jobId = saved.getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    startJob(jobId);
+                }
+            });
+        } else {
+            startJob(jobId);
+        }
+        return toDTO(saved);
+    }
+
+    /**
+     * Resumes a job: items left RUNNING by a crash are re-queued, optionally FAILED items too.
+     */
+    public ReportJobDTO resumeJob(Long jobId, boolean retryFailed) {
+        ReportJob job = findJob(jobId);
+        if (runningJobs.containsKey(jobId)) {
+            return toDTO(job);
+        }
+        if (retryFailed) {
+            reportJobItemRepository.updateStatus(jobId, ReportJobItemStatus.FAILED, ReportJobItemStatus.PENDING);
+        }
+        if (job.getStatus() == ReportJobStatus.CANCELLED) {
+            job.setStatus(ReportJobStatus.PENDING);
+            reportJobRepository.save(job);
+        }
+        startJob(jobId);
+        return toDTO(findJob(jobId));
+    }
+
+    /**
+     * Stops handing out items; reports already in flight finish and are kept.
+     */
+    public ReportJobDTO cancelJob(Long jobId) {
+        ReportJob job = findJob(jobId);
+        RunningJob running = runningJobs.get(jobId);
+        if (running != null) {
+            running.cancelled.set(true);
+        }
+        if (job.getStatus() == ReportJobStatus.PENDING || job.getStatus() == ReportJobStatus.RUNNING) {
+            job.setStatus(ReportJobStatus.CANCELLED);
+            job.setFinishedAt(LocalDateTime.now());
+            reportJobRepository.save(job);
+        }
+        return toDTO(job);
+    }
+
+    /**
+     * Called on startup: continues every job that was pending or running when the process stopped.
+     */
+    public void resumeInterruptedJobs() {
+        List<ReportJob> jobs = reportJobRepository.findByStatusIn(List.of(ReportJobStatus.PENDING, ReportJobStatus.RUNNING));
+        for (ReportJob job : jobs) {
+            log.info("Resuming interrupted report job {}", job.getId());
+            startJob(job.getId());
+        }
+    }
+
+    // A job marked RUNNING with the IDs of its pending items
+    private record ClaimedJob(ReportJob job, List<Long> itemIds) {
+    }
+
+    private synchronized void startJob(Long jobId) {
+        if (runningJobs.containsKey(jobId)) {
+            return; // already running in this process
+        }
+        // Committed before any worker reads the items or finishJob checks the status
+        ClaimedJob claimed = stateTransaction.execute(status -> claimJob(jobId));
+        if (claimed == null) {
+            return;
+        }
+        List<Long> itemIds = claimed.itemIds();
+        RunningJob running = new RunningJob(claimed.job(), itemIds.size());
+        runningJobs.put(jobId, running);
+        log.info("Report job {} started with {} pending students", jobId, itemIds.size());
+
+        if (itemIds.isEmpty()) {
+            finishJob(running);
+            return;
+        }
+        for (Long itemId : itemIds) {
+            workers.submit(() -> processItem(running, itemId));
+        }
+    }
+
+    // Null if the job was cancelled
+    private ClaimedJob claimJob(Long jobId) {
+        ReportJob job = findJob(jobId);
+        if (job.getStatus() == ReportJobStatus.CANCELLED) {
+            return null;
+        }
+        // Not running here, so any RUNNING items were interrupted (only this process runs jobs)
+        reportJobItemRepository.updateStatus(jobId, ReportJobItemStatus.RUNNING, ReportJobItemStatus.PENDING);
+        List<Long> itemIds = reportJobItemRepository.findIdsByJobIdAndStatus(jobId, ReportJobItemStatus.PENDING);
+        job.setStatus(ReportJobStatus.RUNNING);
+        if (job.getStartedAt() == null) {
+            job.setStartedAt(LocalDateTime.now());
+        }
+        job.setFinishedAt(null);
+        return new ClaimedJob(reportJobRepository.save(job), itemIds);
+    }
+
+    private synchronized void finishJob(RunningJob running) {
+        runningJobs.remove(running.jobId);
+        stateTransaction.executeWithoutResult(status -> reportJobRepository.findById(running.jobId).ifPresent(job -> {
+            if (job.getStatus() == ReportJobStatus.RUNNING) {
+                job.setStatus(ReportJobStatus.COMPLETED);
+                job.setFinishedAt(LocalDateTime.now());
+                reportJobRepository.save(job);
+            }
+            log.info("Report job {} finished with status {}", job.getId(), job.getStatus());
+        }));
+    }
+
+    // --- Workers ---
+
+    private void processItem(RunningJob running, Long itemId) {
+        try {
+            if (running.cancelled.get()) {
+                return;
+            }
+            ReportJobItem item = reportJobItemRepository.findById(itemId).orElse(null);
+            if (item == null || item.getStatus() != ReportJobItemStatus.PENDING) {
+                return;
+            }
+            item.setStatus(ReportJobItemStatus.RUNNING);
+            item = reportJobItemRepository.save(item);
+
+            try {
+                // Lessons are read in their own transaction; no connection is held while the model is called
+                ReportService.LearningReportInput input = reportService.loadLearningReportInput(
+                        item.getStudentId(), running.periodStart, running.periodEnd);
+                String content = ReportService.NO_LESSON_DATA_MESSAGE;
+                if (input != null) {
+                    ReportJobItem current = item;
+                    // Summaries of long periods are made one at a time on this worker, under the job's limits and retries
+                    ReportService.ReportPrompt prompt = reportService.composeLearningReportPrompt(item.getStudentId(), input,
+                            (systemMessage, userPrompt, maxTokens, temperature) ->
+                                    summaryCall(running, current, systemMessage, userPrompt, maxTokens, temperature)).join();
+                    content = generateWithRetry(running, item, prompt);
+                }
+                item.setReportContent(content);
+                item.setStatus(ReportJobItemStatus.COMPLETED);
+                item.setErrorMessage(null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                item.setStatus(ReportJobItemStatus.PENDING); // picked up again on resume
+            } catch (Exception e) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                    item.setStatus(ReportJobItemStatus.PENDING);
+                    reportJobItemRepository.save(item);
+                    return;
+                }
+                log.warn("Report job {} failed for student {}: {}", running.jobId, item.getStudentId(), cause.getMessage());
+                item.setStatus(ReportJobItemStatus.FAILED);
+                String message = String.valueOf(cause.getMessage());
+                item.setErrorMessage(message.length() > 500 ? message.substring(0, 500) : message);
+            }
+            reportJobItemRepository.save(item);
+        } catch (Exception e) {
+            log.error("Unexpected error processing report job item {}: {}", itemId, e.getMessage(), e);
+        } finally {
+            if (running.remaining.decrementAndGet() == 0) {
+                finishJob(running);
+            }
+        }
+    }
+
+    private String generateWithRetry(RunningJob running, ReportJobItem item, ReportService.ReportPrompt prompt) throws InterruptedException {
+        return completeWithRetry(running, item, prompt.systemMessage(), prompt.userPrompt(), REPORT_MAX_TOKENS, REPORT_TEMPERATURE, true).text();
+    }
+
+    // A summary call of the report's map/reduce step, completed synchronously on the worker thread
+    private CompletableFuture<OpenAIService.ModelReply> summaryCall(RunningJob running, ReportJobItem item, String systemMessage,
+                                                                    String userPrompt, int maxTokens, double temperature) {
+        try {
+            return CompletableFuture.completedFuture(
+                    completeWithRetry(running, item, systemMessage, userPrompt, maxTokens, temperature, false));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        } catch (CompletionException e) {
+            return CompletableFuture.failedFuture(e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    // countAttempt: only calls for the report itself count towards the item's attempts
+    private OpenAIService.ModelReply completeWithRetry(RunningJob running, ReportJobItem item, String systemMessage, String userPrompt,
+                                                       int maxTokens, double temperature, boolean countAttempt) throws InterruptedException {
+        // Local estimate of the prompt plus the completion budget
+        long estimatedTokens = TokenEstimator.estimate(systemMessage) + TokenEstimator.estimate(userPrompt) + maxTokens;
+        for (int attempt = 1; ; attempt++) {
+            requestBucket.acquire(1);
+            tokenBucket.acquire(estimatedTokens);
+            if (countAttempt) {
+                item.setAttempts(item.getAttempts() + 1);
+            }
+            try {
+                return openAIService.completeWithModelAsync(systemMessage, userPrompt, maxTokens, temperature).join();
+            } catch (CompletionException e) {
+                if (!(e.getCause() instanceof OpenAIApiException apiError) || !apiError.isRetryable()
+                        || attempt >= maxAttempts || running.cancelled.get()) {
+                    throw e;
+                }
+                long delay = backoffDelayMs(attempt, apiError.getRetryAfterSeconds());
+                log.info("Report job {}: retrying student {} in {} ms after {} (attempt {}/{})",
+                        running.jobId, item.getStudentId(), delay, apiError.getMessage(), attempt, maxAttempts);
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    // Exponential backoff with jitter, never shorter than the provider's Retry-After
+    private long backoffDelayMs(int attempt, Long retryAfterSeconds) {
+        long exponential = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt - 1, 20));
+        long jittered = exponential / 2 + ThreadLocalRandom.current().nextLong(exponential / 2 + 1);
+        return retryAfterSeconds != null ? Math.max(jittered, retryAfterSeconds * 1000L) : jittered;
+    }
+
+    // --- Queries ---
+
+    @Transactional(readOnly = true)
+    public List<ReportJobDTO> getJobs() {
+        return reportJobRepository.findAllByOrderByCreatedAtDesc().stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public ReportJobDTO getJob(Long jobId) {
+        return toDTO(findJob(jobId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ReportJobItemDTO> getJobItems(Long jobId, ReportJobItemStatus status) {
+        findJob(jobId);
+        List<ReportJobItem> items = status != null
+                ? reportJobItemRepository.findByJobIdAndStatusOrderByIdAsc(jobId, status)
+                : reportJobItemRepository.findByJobIdOrderByIdAsc(jobId);
+        return items.stream()
+                .map(i -> new ReportJobItemDTO(i.getId(), i.getStudentId(), i.getStatus(), i.getAttempts(),
+                        i.getReportContent(), i.getErrorMessage(), i.getUpdatedAt()))
+                .collect(Collectors.toList());
+    }
+
+    private ReportJob findJob(Long jobId) {
+        return reportJobRepository.findById(jobId)
+                .orElseThrow(() -> new EntityNotFoundException("Report job not found with ID: " + jobId));
+    }
+
+    private ReportJobDTO toDTO(ReportJob job) {
+        Map<ReportJobItemStatus, Long> counts = new EnumMap<>(ReportJobItemStatus.class);
+        for (Object[] row : reportJobItemRepository.countByStatus(job.getId())) {
+            counts.put((ReportJobItemStatus) row[0], (Long) row[1]);
+        }
+        return new ReportJobDTO(job.getId(), job.getPeriodStart(), job.getPeriodEnd(), job.getStatus(), job.getTotalItems(),
+                counts.getOrDefault(ReportJobItemStatus.PENDING, 0L),
+                counts.getOrDefault(ReportJobItemStatus.RUNNING, 0L),
+                counts.getOrDefault(ReportJobItemStatus.COMPLETED, 0L),
+                counts.getOrDefault(ReportJobItemStatus.FAILED, 0L),
+                job.getCreatedAt(), job.getStartedAt(), job.getFinishedAt());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Unfinished items stay PENDING/RUNNING in the database and are resumed on next startup
+        workers.shutdownNow();
+    }
+}
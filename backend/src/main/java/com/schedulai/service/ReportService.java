@@ -2,32 +2,51 @@ package com.schedulai.service;
 
 import com.schedulai.domain.Lesson;
 import com.schedulai.domain.LessonStatus;
+import com.schedulai.domain.Student;
+import com.schedulai.domain.Teacher;
 import com.schedulai.dto.LearningReportDTO;
 import com.schedulai.dto.MonthlyLessonDTO;
 import com.schedulai.dto.CoursePopularityDTO;
 import com.schedulai.dto.TeacherWorkloadDTO;
 import com.schedulai.dto.StudentLearningDTO;
+import com.schedulai.repository.LessonDailyRollupRepository;
 import com.schedulai.repository.LessonRepository;
 import com.schedulai.repository.StudentRepository;
 import com.schedulai.repository.TeacherRepository;
 import com.schedulai.repository.CourseRepository;
 import com.schedulai.repository.EnrollmentRepository;
 import com.schedulai.repository.FeedbackRepository;
+import com.schedulai.util.KeyedJsonReply;
+import com.schedulai.util.LessonColumns;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,19 +56,173 @@ public class ReportService {
     private static final Logger log = LoggerFactory.getLogger(ReportService.class);
 
     private final LessonRepository lessonRepository;
+    private final LessonDailyRollupRepository lessonDailyRollupRepository;
+    private final LessonRollupService lessonRollupService;
+    private final LessonAnalyticsService lessonAnalyticsService;
     private final OpenAIService openAIService;
     private final StudentRepository studentRepository;
     private final TeacherRepository teacherRepository;
     private final CourseRepository courseRepository;
     private final EnrollmentRepository enrollmentRepository;
     private final FeedbackRepository feedbackRepository;
+    private final LessonEvaluationService lessonEvaluationService;
+    private final LearningReportSummarizer learningReportSummarizer;
+    private final AIUsageService aiUsageService;
+
+    // 仪表盘数据来源：rollups（每日汇总表）或 analytics（内存分析库）
+    @Value("${report.dashboard.source:rollups}")
+    private String dashboardSource;
+
+    private static final Set<LessonStatus> CANCELLED_STATUSES = EnumSet.of(
+            LessonStatus.CANCELLED, LessonStatus.CANCELLED_BY_TEACHER, LessonStatus.CANCELLED_BY_STUDENT);
+
+    // Lessons per batched evaluation call; 1 disables batching
+    @Value("${report.evaluation.batch-size:8}")
+    private int evaluationBatchSize;
+
+    // Completion budget per lesson in a batched evaluation (a 2-4 sentence evaluation)
+    private static final int BATCH_TOKENS_PER_LESSON = 300;
+    private static final int BATCH_BASE_TOKENS = 200;
 
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
+    static final String NO_LESSON_DATA_MESSAGE = "No lesson data available for the selected period to generate a report.";
+
+    /**
+     * System message and user prompt for one AI report.
+     */
+    public record ReportPrompt(String systemMessage, String userPrompt) {
+    }
+
+    // Prompt (possibly still being summarized) plus a deterministic report for when the AI provider is unavailable
+    private record PreparedLearningReport(CompletableFuture<ReportPrompt> prompt, String fallbackContent) {
+    }
+
+    // lessonDetails is the lesson's section of a batched evaluation prompt
+    private record PreparedLessonReport(ReportPrompt prompt, String fallbackContent, String lessonDetails) {
+    }
+
+    // A lesson of a batched evaluation that still needs the model; result completes once it is evaluated
+    private record PendingEvaluation(Long lessonId, PreparedLessonReport prepared,
+                                     CompletableFuture<LearningReportDTO> result) {
+    }
+
+    /**
+     * Loads the lessons inside the read-only transaction and returns without waiting for the AI calls.
+     * Long periods are summarized month by month first (see {@link LearningReportSummarizer}).
+     */
     @Transactional(readOnly = true)
-    public LearningReportDTO generateLearningReport(Long studentId, LocalDate startDate, LocalDate endDate) {
+    public CompletableFuture<LearningReportDTO> generateLearningReportAsync(Long studentId, LocalDate startDate, LocalDate endDate) {
         log.info("Generating learning report for student ID {} from {} to {}", studentId, startDate, endDate);
+        PreparedLearningReport prepared = buildLearningReportPrompt(studentId, startDate, endDate);
+        if (prepared == null) {
+            return CompletableFuture.completedFuture(new LearningReportDTO(NO_LESSON_DATA_MESSAGE));
+        }
+        return prepared.prompt()
+                .thenCompose(aiUsageService.propagate((ReportPrompt prompt) -> openAIService.generateTextCompletionAsync(prompt.systemMessage(), prompt.userPrompt())))
+                .exceptionally(ex -> {
+                    log.error("Summarizing lessons for student {} failed: {}", studentId, ex.getMessage());
+                    return null;
+                })
+                .thenApply(reportContent -> {
+                    if (!isUsableReport(reportContent)) {
+                        log.error("AI service failed to generate report content for student {}, using templated summary", studentId);
+                        return new LearningReportDTO(prepared.fallbackContent());
+                    }
+                    return new LearningReportDTO(reportContent);
+                });
+    }
+
+    /**
+     * Streaming variant: report text is forwarded to {@code onToken} as the model produces it.
+     * The future completes with the full report once the stream ends.
+     */
+    @Transactional(readOnly = true)
+    public CompletableFuture<LearningReportDTO> streamLearningReport(Long studentId, LocalDate startDate, LocalDate endDate, Consumer<String> onToken) {
+        log.info("Streaming learning report for student ID {} from {} to {}", studentId, startDate, endDate);
+        PreparedLearningReport prepared = buildLearningReportPrompt(studentId, startDate, endDate);
+        if (prepared == null) {
+            onToken.accept(NO_LESSON_DATA_MESSAGE);
+            return CompletableFuture.completedFuture(new LearningReportDTO(NO_LESSON_DATA_MESSAGE));
+        }
+        AtomicBoolean streamed = new AtomicBoolean();
+        Consumer<String> trackingConsumer = token -> {
+            streamed.set(true);
+            onToken.accept(token);
+        };
+        UpstreamStream upstream = new UpstreamStream();
+        return upstream.cancelledWith(prepared.prompt()
+                .thenCompose(aiUsageService.propagate((ReportPrompt prompt) -> upstream.track(
+                        openAIService.streamTextCompletion(prompt.systemMessage(), prompt.userPrompt(), trackingConsumer))))
+                .handle((reportContent, ex) -> withStreamFallback(reportContent, ex, streamed.get(), prepared.fallbackContent(), onToken))
+                .thenApply(LearningReportDTO::new));
+    }
+
+    /**
+     * The AI stream behind a chain of dependent stages. Cancelling a dependent stage does not reach the
+     * stage it depends on, so cancelling the returned future (client disconnected) cancels the stream explicitly.
+     */
+    private static final class UpstreamStream {
+
+        private volatile CompletableFuture<?> stream;
+        private volatile boolean cancelled;
+
+        <T> CompletableFuture<T> track(CompletableFuture<T> call) {
+            stream = call;
+            if (cancelled) {
+                call.cancel(true);
+            }
+            return call;
+        }
+
+        <T> CompletableFuture<T> cancelledWith(CompletableFuture<T> result) {
+            result.whenComplete((value, ex) -> {
+                if (result.isCancelled()) {
+                    cancelled = true;
+                    CompletableFuture<?> current = stream;
+                    if (current != null) {
+                        current.cancel(true);
+                    }
+                }
+            });
+            return result;
+        }
+    }
+
+    /**
+     * Lesson records of a learning report, read from the database; turning them into a prompt (which may call
+     * the model to summarize long periods) happens afterwards, outside any transaction.
+     */
+    public record LearningReportInput(String studentName, LocalDate startDate, LocalDate endDate,
+                                      Map<YearMonth, List<String>> lessonLinesByMonth, String fallbackContent) {
+    }
+
+    /**
+     * Reads the lesson records for a learning report (used by batch report jobs, which then build the prompt
+     * with {@link #composeLearningReportPrompt} through their own rate limits)
+     * @return the records, or null when the student has no lessons in the period
+     */
+    @Transactional(readOnly = true)
+    public LearningReportInput loadLearningReportInput(Long studentId, LocalDate startDate, LocalDate endDate) {
+        return readLearningReportInput(studentId, startDate, endDate);
+    }
 
+    // Returns null when the student has no lessons in the period
+    private PreparedLearningReport buildLearningReportPrompt(Long studentId, LocalDate startDate, LocalDate endDate) {
+        LearningReportInput input = readLearningReportInput(studentId, startDate, endDate);
+        if (input == null) {
+            return null;
+        }
+        // Later summary calls start on HTTP client threads; keep metering them against the caller
+        Function<Supplier<CompletableFuture<OpenAIService.ModelReply>>, CompletableFuture<OpenAIService.ModelReply>> asCaller =
+                aiUsageService.propagate(Supplier::get);
+        LearningReportSummarizer.SummaryCall summaryCall = (systemMessage, userPrompt, maxTokens, temperature) ->
+                asCaller.apply(() -> openAIService.completeWithModelAsync(systemMessage, userPrompt, maxTokens, temperature));
+        return new PreparedLearningReport(composeLearningReportPrompt(studentId, input, summaryCall), input.fallbackContent());
+    }
+
+    // Returns null when the student has no lessons in the period
+    private LearningReportInput readLearningReportInput(Long studentId, LocalDate startDate, LocalDate endDate) {
         String studentName = studentRepository.findById(studentId)
                 .map(student -> student.getName())
                 .orElseThrow(() -> new EntityNotFoundException("Student not found with ID: " + studentId));
@@ -57,57 +230,326 @@ public class ReportService {
         LocalDateTime startDateTime = startDate.atStartOfDay();
         LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
 
-        List<Lesson> lessons = lessonRepository.findByEnrollment_StudentIdAndStartDateTimeBetweenOrderByStartDateTimeAsc(
+        // Teacher and course are fetched in the same query instead of lazily per lesson
+        List<Lesson> lessons = lessonRepository.findByStudentIdAndStartDateTimeBetweenWithDetails(
                 studentId, startDateTime, endDateTime);
 
         if (lessons.isEmpty()) {
             log.warn("No lessons found for student {} between {} and {}", studentId, startDate, endDate);
-            return new LearningReportDTO("No lesson data available for the selected period to generate a report.");
+            return null;
         }
 
-        String lessonDataSummary = lessons.stream()
-                .map(lesson -> String.format("- Date: %s, Duration: %d mins, Status: %s, Teacher: %s, Course: %s, Notes: %s",
-                        lesson.getStartDateTime().format(DATE_TIME_FORMATTER),
-                        java.time.Duration.between(lesson.getStartDateTime(), lesson.getEndDateTime()).toMinutes(),
-                        lesson.getStatus(),
-                        lesson.getEnrollment().getTeacherCourse().getTeacher().getName(),
-                        lesson.getEnrollment().getTeacherCourse().getCourse().getName(),
-                        lesson.getNotes() != null ? lesson.getNotes() : "N/A"
-                ))
-                .collect(Collectors.joining("\n"));
+        Map<YearMonth, List<String>> lessonLinesByMonth = lessons.stream()
+                .collect(Collectors.groupingBy(lesson -> YearMonth.from(lesson.getStartDateTime()), TreeMap::new,
+                        Collectors.mapping(lesson -> String.format("- Date: %s, Duration: %d mins, Status: %s, Teacher: %s, Course: %s, Notes: %s",
+                                lesson.getStartDateTime().format(DATE_TIME_FORMATTER),
+                                java.time.Duration.between(lesson.getStartDateTime(), lesson.getEndDateTime()).toMinutes(),
+                                lesson.getStatus(),
+                                lesson.getEnrollment().getTeacherCourse().getTeacher().getName(),
+                                lesson.getEnrollment().getTeacherCourse().getCourse().getName(),
+                                lesson.getNotes() != null ? lesson.getNotes() : "N/A"
+                        ), Collectors.toList())));
 
-        String systemMessage = "You are an insightful assistant helping private tutors summarize student progress. Generate a concise learning report based on the provided lesson records.";
-        String userPrompt = String.format(
-                "Please generate a learning report for student '%s' based on their lesson history from %s to %s.\n\n" +
-                "Lesson Records:\n%s\n\n" +
-                "The report should summarize the student's attendance (based on lesson status like COMPLETED vs CANCELLED), highlight key areas of progress or topics covered (infer from course name and notes if available), mention any challenges observed (from notes), and suggest potential focus areas for upcoming lessons. Be constructive and professional.",
-                studentName,
-                startDate.toString(),
-                endDate.toString(),
-                lessonDataSummary
-        );
+        String fallbackContent = buildLearningReportFallback(studentName, startDate, endDate, lessons);
+        return new LearningReportInput(studentName, startDate, endDate, lessonLinesByMonth, fallbackContent);
+    }
+
+    /**
+     * Builds the report prompt from the lesson records; long periods are summarized first, each summary
+     * call made through {@code summaryCall}
+     */
+    public CompletableFuture<ReportPrompt> composeLearningReportPrompt(Long studentId, LearningReportInput input,
+                                                                     LearningReportSummarizer.SummaryCall summaryCall) {
+        return learningReportSummarizer.digest(studentId, input.lessonLinesByMonth(), summaryCall).thenApply(digest -> {
+            String systemMessage = "You are an insightful assistant helping private tutors summarize student progress. Generate a concise learning report based on the provided lesson records.";
+            String userPrompt = String.format(
+                    "Please generate a learning report for student '%s' based on their lesson history from %s to %s.\n\n" +
+                    "%s:\n%s\n\n" +
+                    "The report should summarize the student's attendance (based on lesson status like COMPLETED vs CANCELLED), highlight key areas of progress or topics covered (infer from course name and notes if available), mention any challenges observed (from notes), and suggest potential focus areas for upcoming lessons. Be constructive and professional.",
+                    input.studentName(),
+                    input.startDate().toString(),
+                    input.endDate().toString(),
+                    digest.summarized() ? "Lesson Record Summaries (by period)" : "Lesson Records",
+                    digest.content()
+            );
+            return new ReportPrompt(systemMessage, userPrompt);
+        });
+    }
+
+    // Deterministic summary from the lesson records, served when the AI provider is unavailable
+    private String buildLearningReportFallback(String studentName, LocalDate startDate, LocalDate endDate, List<Lesson> lessons) {
+        long completed = lessons.stream().filter(l -> l.getStatus() == LessonStatus.COMPLETED).count();
+        long cancelled = lessons.stream().filter(l -> l.getStatus() == LessonStatus.CANCELLED
+                || l.getStatus() == LessonStatus.CANCELLED_BY_TEACHER
+                || l.getStatus() == LessonStatus.CANCELLED_BY_STUDENT).count();
+        long completedMinutes = lessons.stream()
+                .filter(l -> l.getStatus() == LessonStatus.COMPLETED)
+                .mapToLong(l -> ChronoUnit.MINUTES.between(l.getStartDateTime(), l.getEndDateTime()))
+                .sum();
+        String courses = lessons.stream()
+                .collect(Collectors.groupingBy(l -> l.getEnrollment().getTeacherCourse().getCourse().getName(), TreeMap::new, Collectors.counting()))
+                .entrySet().stream()
+                .map(e -> e.getKey() + " (" + e.getValue() + ")")
+                .collect(Collectors.joining(", "));
+        String recentNotes = lessons.stream()
+                .filter(l -> l.getNotes() != null && !l.getNotes().isBlank())
+                .sorted((a, b) -> b.getStartDateTime().compareTo(a.getStartDateTime()))
+                .limit(3)
+                .map(l -> String.format("- %s (%s): %s", l.getStartDateTime().format(DATE_TIME_FORMATTER),
+                        l.getEnrollment().getTeacherCourse().getCourse().getName(), l.getNotes()))
+                .collect(Collectors.joining("\n"));
 
-        String reportContent = openAIService.generateTextCompletion(systemMessage, userPrompt);
+        return String.format(
+                "Automatic summary (the AI report service is temporarily unavailable)\n\n" +
+                "Student: %s\n" +
+                "Period: %s to %s\n" +
+                "Lessons: %d in total, %d completed, %d cancelled, %d other\n" +
+                "Completed lesson time: %d minutes\n" +
+                "Courses: %s\n" +
+                "Recent teacher notes:\n%s",
+                studentName, startDate, endDate,
+                lessons.size(), completed, cancelled, lessons.size() - completed - cancelled,
+                completedMinutes, courses, recentNotes.isEmpty() ? "- None" : recentNotes);
+    }
 
-        if (reportContent == null || reportContent.isBlank()) {
-            log.error("AI service failed to generate report content for student {}", studentId);
-            return new LearningReportDTO("Failed to generate report content from AI service.");
+    // Streams that fail before producing any text are answered with the templated report
+    private String withStreamFallback(String content, Throwable ex, boolean streamed, String fallbackContent, Consumer<String> onToken) {
+        if (ex == null && (streamed || isUsableReport(content))) {
+            return content;
         }
-
-        return new LearningReportDTO(reportContent);
+        if (streamed) {
+            throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+        }
+        log.warn("AI stream unavailable, sending templated summary instead: {}", ex != null ? ex.getMessage() : "empty reply");
+        onToken.accept(fallbackContent);
+        return fallbackContent;
     }
 
     /**
      * Generates a learning report/evaluation based on a single completed lesson.
+     * A stored evaluation is returned as long as the lesson and its feedback are unchanged;
+     * otherwise the lesson is loaded and validated synchronously and only the AI call is asynchronous.
      * @param lessonId The ID of the lesson.
-     * @return A LearningReportDTO containing the generated report.
+     * @return A future LearningReportDTO containing the generated report.
      * @throws EntityNotFoundException if the lesson is not found.
      * @throws IllegalStateException if the lesson is not completed.
      */
     @Transactional(readOnly = true)
-    public LearningReportDTO generateReportForLesson(Long lessonId) {
+    public CompletableFuture<LearningReportDTO> generateReportForLessonAsync(Long lessonId) {
+        List<String> models = openAIService.getModels();
+        Optional<String> stored = lessonEvaluationService.findCurrent(lessonId, models);
+        if (stored.isPresent()) {
+            log.debug("Serving stored evaluation for lesson {}", lessonId);
+            return servedFromStore(stored.get());
+        }
         log.info("Generating learning report for single lesson ID: {}", lessonId);
+        PreparedLessonReport prepared = buildLessonReportPrompt(lessonId);
+        ReportPrompt prompt = prepared.prompt();
+        stored = lessonEvaluationService.revalidate(lessonId, models, prompt.systemMessage(), prompt.userPrompt());
+        if (stored.isPresent()) {
+            return servedFromStore(stored.get());
+        }
+        return evaluateLesson(lessonId, prepared);
+    }
+
+    // Answered without calling the model: not counted against the caller's daily AI calls (request thread only)
+    private CompletableFuture<LearningReportDTO> servedFromStore(String content) {
+        aiUsageService.refundCall();
+        return CompletableFuture.completedFuture(new LearningReportDTO(content));
+    }
+
+    // One completion call for one lesson (the request generateTextCompletionAsync makes); the templated summary
+    // is returned when the AI gives no usable answer. The evaluation is stored under the model that answered.
+    private CompletableFuture<LearningReportDTO> evaluateLesson(Long lessonId, PreparedLessonReport prepared) {
+        ReportPrompt prompt = prepared.prompt();
+        return openAIService.completeWithModelAsync(prompt.systemMessage(), prompt.userPrompt(), 2000, 0.5)
+                .exceptionally(ex -> null)
+                .thenApply(reply -> {
+                    if (reply == null || !isUsableReport(reply.text())) {
+                        log.error("AI service failed to generate report content for lesson {}, using templated summary", lessonId);
+                        // The templated summary is not stored, so the next view tries the AI again
+                        return new LearningReportDTO(prepared.fallbackContent());
+                    }
+                    storeEvaluation(lessonId, reply.model(), prompt, reply.text());
+                    return new LearningReportDTO(reply.text());
+                });
+    }
+
+    /**
+     * Evaluations for several completed lessons (e.g. everything a teacher finished today). Stored evaluations are
+     * reused; the remaining lessons are packed up to report.evaluation.batch-size per completion call, which answers
+     * a JSON object keyed by lesson ID. Lessons missing from that answer, or whose answer could not be parsed, fall
+     * back to one call each; a failed batch call (e.g. rate limited) fails the returned future with its cause. Results are stored under the single-lesson fingerprint (with the model
+     * that answered the batch), so single views reuse them. All lessons are loaded and validated up front, like {@link #generateReportForLessonAsync}.
+     * @return evaluations keyed by lesson ID, in request order
+     */
+    @Transactional(readOnly = true)
+    public CompletableFuture<Map<Long, LearningReportDTO>> generateReportsForLessonsAsync(List<Long> lessonIds) {
+        List<String> models = openAIService.getModels();
+        Map<Long, CompletableFuture<LearningReportDTO>> results = new LinkedHashMap<>();
+        List<PendingEvaluation> pending = new ArrayList<>();
+        for (Long lessonId : new LinkedHashSet<>(lessonIds)) {
+            Optional<String> stored = lessonEvaluationService.findCurrent(lessonId, models);
+            if (stored.isEmpty()) {
+                PreparedLessonReport prepared = buildLessonReportPrompt(lessonId);
+                stored = lessonEvaluationService.revalidate(lessonId, models, prepared.prompt().systemMessage(), prepared.prompt().userPrompt());
+                if (stored.isEmpty()) {
+                    PendingEvaluation evaluation = new PendingEvaluation(lessonId, prepared, new CompletableFuture<>());
+                    pending.add(evaluation);
+                    results.put(lessonId, evaluation.result());
+                    continue;
+                }
+            }
+            results.put(lessonId, CompletableFuture.completedFuture(new LearningReportDTO(stored.get())));
+        }
+        log.info("Evaluating {} lessons: {} stored, {} to generate in batches of {}",
+                results.size(), results.size() - pending.size(), pending.size(), evaluationBatchSize);
+        if (pending.isEmpty()) {
+            // Every evaluation was stored: no model call for this request
+            aiUsageService.refundCall();
+        }
+
+        int batchSize = Math.max(1, evaluationBatchSize);
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<PendingEvaluation> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            if (batch.size() == 1) {
+                evaluateSingly(batch);
+            } else {
+                evaluateBatch(batch);
+            }
+        }
+
+        return CompletableFuture.allOf(results.values().toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            Map<Long, LearningReportDTO> evaluations = new LinkedHashMap<>();
+            results.forEach((lessonId, result) -> evaluations.put(lessonId, result.join()));
+            return evaluations;
+        });
+    }
+
+    // A failed batch call (rate limit, provider unavailable, ...) fails the whole batch instead of multiplying the calls
+    private void evaluateBatch(List<PendingEvaluation> batch) {
+        ReportPrompt prompt = buildBatchEvaluationPrompt(batch);
+        int maxTokens = BATCH_BASE_TOKENS + BATCH_TOKENS_PER_LESSON * batch.size();
+        openAIService.completeWithModelAsync(prompt.systemMessage(), prompt.userPrompt(), maxTokens, 0.5)
+                .thenApply(aiUsageService.propagate((OpenAIService.ModelReply reply) -> splitBatchReply(batch, reply)))
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    log.warn("Batched evaluation of {} lessons failed: {}", batch.size(), cause.getMessage());
+                    batch.forEach(evaluation -> evaluation.result().completeExceptionally(cause));
+                    return null;
+                });
+    }
 
+    // Completes every lesson answered in the reply; lessons missing from it, or all of them when it cannot be parsed,
+    // go to single calls
+    private Void splitBatchReply(List<PendingEvaluation> batch, OpenAIService.ModelReply reply) {
+        KeyedJsonReply.Split<PendingEvaluation> split = KeyedJsonReply.split(reply.text(), batch,
+                evaluation -> String.valueOf(evaluation.lessonId()));
+        split.answered().forEach((evaluation, content) -> {
+            storeEvaluation(evaluation.lessonId(), reply.model(), evaluation.prepared().prompt(), content);
+            evaluation.result().complete(new LearningReportDTO(content));
+        });
+        if (!split.parsed()) {
+            log.warn("Batched evaluation reply for {} lessons could not be parsed, evaluating them one by one", batch.size());
+        } else if (!split.unanswered().isEmpty()) {
+            log.warn("Batched evaluation answered {} of {} lessons, evaluating the rest one by one",
+                    split.answered().size(), batch.size());
+        }
+        evaluateSingly(split.unanswered());
+        return null;
+    }
+
+    private void evaluateSingly(List<PendingEvaluation> evaluations) {
+        for (PendingEvaluation evaluation : evaluations) {
+            evaluateLesson(evaluation.lessonId(), evaluation.prepared())
+                    .whenComplete((report, ex) -> {
+                        if (ex != null) {
+                            evaluation.result().completeExceptionally(ex);
+                        } else {
+                            evaluation.result().complete(report);
+                        }
+                    });
+        }
+    }
+
+    private ReportPrompt buildBatchEvaluationPrompt(List<PendingEvaluation> batch) {
+        String systemMessage = "You are an insightful AI assistant helping private tutors summarize student progress after lessons. " +
+                "Generate a concise evaluation for each of the provided lessons. Respond ONLY with a JSON object whose keys are the lesson IDs " +
+                "and whose values are the evaluation texts. Do not include any other text or markdown formatting.";
+        StringBuilder lessons = new StringBuilder();
+        for (PendingEvaluation evaluation : batch) {
+            lessons.append("Lesson ID ").append(evaluation.lessonId()).append(":\n")
+                    .append(evaluation.prepared().lessonDetails()).append("\n\n");
+        }
+        String userPrompt = String.format(
+                "Please generate a brief learning evaluation for each of the following %d lessons.\n\n" +
+                "%s" +
+                "Each evaluation should focus on its own lesson. Briefly comment on the student's engagement, understanding of the topic covered (infer from course/notes), strengths shown, and any areas needing reinforcement or focus for the next session. " +
+                "If student feedback is provided, incorporate their self-assessment and perspective into the evaluation. " +
+                "Keep each evaluation constructive and concise (e.g., 2-4 sentences). " +
+                "Return a JSON object such as {\"%d\": \"...\"} that contains every lesson ID above exactly once. " +
+                "请用中文回答。",
+                batch.size(), lessons, batch.get(0).lessonId());
+        return new ReportPrompt(systemMessage, userPrompt);
+    }
+
+    /**
+     * Streaming variant of {@link #generateReportForLessonAsync}; same validation, tokens forwarded to {@code onToken}.
+     * A stored evaluation is sent as a single token.
+     */
+    @Transactional(readOnly = true)
+    public CompletableFuture<LearningReportDTO> streamReportForLesson(Long lessonId, Consumer<String> onToken) {
+        List<String> models = openAIService.getModels();
+        Optional<String> stored = lessonEvaluationService.findCurrent(lessonId, models);
+        if (stored.isEmpty()) {
+            log.info("Streaming learning report for single lesson ID: {}", lessonId);
+            PreparedLessonReport prepared = buildLessonReportPrompt(lessonId);
+            ReportPrompt prompt = prepared.prompt();
+            stored = lessonEvaluationService.revalidate(lessonId, models, prompt.systemMessage(), prompt.userPrompt());
+            if (stored.isEmpty()) {
+                AtomicBoolean streamed = new AtomicBoolean();
+                Consumer<String> trackingConsumer = token -> {
+                    streamed.set(true);
+                    onToken.accept(token);
+                };
+                UpstreamStream upstream = new UpstreamStream();
+                return upstream.cancelledWith(upstream.track(
+                                openAIService.streamCompletion(prompt.systemMessage(), prompt.userPrompt(), trackingConsumer))
+                        .thenApply(reply -> {
+                            if (isUsableReport(reply.text())) {
+                                storeEvaluation(lessonId, reply.model(), prompt, reply.text());
+                            }
+                            return reply.text();
+                        })
+                        .handle((reportContent, ex) -> withStreamFallback(reportContent, ex, streamed.get(), prepared.fallbackContent(), onToken))
+                        .thenApply(LearningReportDTO::new));
+            }
+        }
+        try {
+            onToken.accept(stored.get());
+            return servedFromStore(stored.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // generateTextCompletionAsync answers "[]" when the model returned nothing
+    private static boolean isUsableReport(String content) {
+        return content != null && !content.isBlank() && !"[]".equals(content);
+    }
+
+    // model is the one that produced the content; it is part of the stored fingerprint
+    private void storeEvaluation(Long lessonId, String model, ReportPrompt prompt, String content) {
+        try {
+            lessonEvaluationService.save(lessonId, model,
+                    LessonEvaluationService.fingerprint(model, prompt.systemMessage(), prompt.userPrompt()), content);
+        } catch (Exception e) {
+            // e.g. a concurrent request stored the same lesson first; the evaluation is still returned
+            log.warn("Could not store evaluation for lesson {}: {}", lessonId, e.getMessage());
+        }
+    }
+
+    private PreparedLessonReport buildLessonReportPrompt(Long lessonId) {
         // Fetch lesson with details using the repository method
         Lesson lesson = lessonRepository.findByIdWithEnrollmentDetails(lessonId)
                 .orElseThrow(() -> new EntityNotFoundException("Lesson not found with ID: " + lessonId));
@@ -165,15 +607,34 @@ public class ReportService {
                 studentFeedback.isEmpty() ? "" : "- Student's Own Feedback:\n" + studentFeedback
         );
 
-        String reportContent = openAIService.generateTextCompletion(systemMessage, userPrompt);
+        // 模板化摘要：AI 服务不可用时返回
+        String fallbackContent = String.format(
+                "AI 评价服务暂时不可用，以下为本节课记录摘要：\n学生 %s 于 %s 参加了 %s 老师的《%s》课程。\n教师备注：%s%s",
+                studentName,
+                lesson.getStartDateTime().format(DATE_TIME_FORMATTER),
+                teacherName,
+                courseName,
+                lesson.getNotes() != null && !lesson.getNotes().isBlank() ? lesson.getNotes() : "无",
+                studentFeedback.isEmpty() ? "" : "\n" + studentFeedback
+        );
 
-        if (reportContent == null || reportContent.isBlank()) {
-            log.error("AI service failed to generate report content for lesson {}", lessonId);
-            // Consider returning a more specific error DTO or throwing exception
-            return new LearningReportDTO("Failed to generate report content from AI service."); 
-        }
+        // Same facts as the single prompt, as one section of a batched evaluation prompt
+        String lessonDetails = String.format(
+                "- Student: %s\n" +
+                "- Teacher: %s\n" +
+                "- Course: %s\n" +
+                "- Date & Time: %s to %s\n" +
+                "- Teacher's Notes/Observations: %s%s",
+                studentName,
+                teacherName,
+                courseName,
+                lesson.getStartDateTime().format(DATE_TIME_FORMATTER),
+                lesson.getEndDateTime().format(DATE_TIME_FORMATTER),
+                lessonNotes,
+                studentFeedback.isEmpty() ? "" : "\n- Student's Own Feedback:\n" + studentFeedback
+        );
 
-        return new LearningReportDTO(reportContent);
+        return new PreparedLessonReport(new ReportPrompt(systemMessage, userPrompt), fallbackContent, lessonDetails);
     }
 
     // --- 仪表盘数据接口 ---
@@ -185,45 +646,25 @@ public class ReportService {
     public List<TeacherWorkloadDTO> getTeacherWorkloadReport(LocalDate startDate, LocalDate endDate) {
         log.info("Generating teacher workload report from {} to {}", startDate, endDate);
         
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
-        
-        // 获取所有课程记录
-        List<Lesson> lessons = lessonRepository.findByStartDateTimeBetweenOrderByStartDateTimeAsc(
-                startDateTime, endDateTime);
-        
-        // 按教师分组统计
-        Map<Long, TeacherWorkloadDTO> teacherStatsMap = new HashMap<>();
-        
-        for (Lesson lesson : lessons) {
-            Long teacherId = lesson.getEnrollment().getTeacherCourse().getTeacher().getId();
-            String teacherName = lesson.getEnrollment().getTeacherCourse().getTeacher().getName();
-            
-            teacherStatsMap.putIfAbsent(teacherId, new TeacherWorkloadDTO(
-                    teacherId, teacherName, 0, 0, 0, 0L
-            ));
-            
-            TeacherWorkloadDTO stats = teacherStatsMap.get(teacherId);
-            stats.setTotalLessons(stats.getTotalLessons() + 1);
-            
-            // 计算课程时长（分钟）
-            long durationMinutes = ChronoUnit.MINUTES.between(
-                    lesson.getStartDateTime(), lesson.getEndDateTime());
-            
-            // 根据课程状态更新统计
-            if (lesson.getStatus() == LessonStatus.COMPLETED) {
-                stats.setCompletedLessons(stats.getCompletedLessons() + 1);
-                stats.setTotalMinutes(stats.getTotalMinutes() + durationMinutes);
-            } else if (lesson.getStatus() == LessonStatus.CANCELLED || 
-                      lesson.getStatus() == LessonStatus.CANCELLED_BY_TEACHER || 
-                      lesson.getStatus() == LessonStatus.CANCELLED_BY_STUDENT) {
-                stats.setCancelledLessons(stats.getCancelledLessons() + 1);
-            }
+        // 按教师分组汇总（每日汇总表就绪前直接聚合课程表），已按总分钟数降序
+        List<Object[]> rows;
+        if (useAnalyticsStore()) {
+            rows = analyticsRows(LessonColumns.GroupBy.TEACHER, startDate, endDate, ids -> teacherRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Teacher::getId, Teacher::getName)));
+        } else if (lessonRollupService.isReady()) {
+            rows = lessonDailyRollupRepository.sumWorkloadByTeacher(startDate, endDate);
+        } else {
+            rows = lessonRepository.sumWorkloadByTeacher(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
         }
-        
-        // 转换为列表并排序（按总课时降序）
-        return teacherStatsMap.values().stream()
-                .sorted((a, b) -> b.getTotalMinutes().compareTo(a.getTotalMinutes()))
+        return rows.stream()
+                .map(row -> new TeacherWorkloadDTO(
+                        toLong(row[0]),
+                        (String) row[1],
+                        toInt(row[2]),
+                        toInt(row[3]),
+                        toInt(row[4]),
+                        toLong(row[5])
+                ))
                 .collect(Collectors.toList());
     }
     
@@ -234,47 +675,69 @@ public class ReportService {
     public List<StudentLearningDTO> getStudentLearningReport(LocalDate startDate, LocalDate endDate) {
         log.info("Generating student learning report from {} to {}", startDate, endDate);
         
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
-        
-        // 获取所有课程记录
-        List<Lesson> lessons = lessonRepository.findByStartDateTimeBetweenOrderByStartDateTimeAsc(
-                startDateTime, endDateTime);
-        
-        // 按学生分组统计
-        Map<Long, StudentLearningDTO> studentStatsMap = new HashMap<>();
-        
-        for (Lesson lesson : lessons) {
-            Long studentId = lesson.getEnrollment().getStudent().getId();
-            String studentName = lesson.getEnrollment().getStudent().getName();
-            
-            studentStatsMap.putIfAbsent(studentId, new StudentLearningDTO(
-                    studentId, studentName, 0, 0, 0, 0L
-            ));
-            
-            StudentLearningDTO stats = studentStatsMap.get(studentId);
-            stats.setTotalLessons(stats.getTotalLessons() + 1);
-            
-            // 计算课程时长（分钟）
-            long durationMinutes = ChronoUnit.MINUTES.between(
-                    lesson.getStartDateTime(), lesson.getEndDateTime());
-            
-            // 根据课程状态更新统计
-            if (lesson.getStatus() == LessonStatus.COMPLETED) {
-                stats.setCompletedLessons(stats.getCompletedLessons() + 1);
-                stats.setTotalMinutes(stats.getTotalMinutes() + durationMinutes);
-            } else if (lesson.getStatus() == LessonStatus.CANCELLED || 
-                      lesson.getStatus() == LessonStatus.CANCELLED_BY_TEACHER || 
-                      lesson.getStatus() == LessonStatus.CANCELLED_BY_STUDENT) {
-                stats.setCancelledLessons(stats.getCancelledLessons() + 1);
+        // 按学生分组汇总（每日汇总表就绪前直接聚合课程表），已按总分钟数降序
+        List<Object[]> rows;
+        if (useAnalyticsStore()) {
+            rows = analyticsRows(LessonColumns.GroupBy.STUDENT, startDate, endDate, ids -> studentRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Student::getId, Student::getName)));
+        } else if (lessonRollupService.isReady()) {
+            rows = lessonDailyRollupRepository.sumLearningByStudent(startDate, endDate);
+        } else {
+            rows = lessonRepository.sumLearningByStudent(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        }
+        return rows.stream()
+                .map(row -> new StudentLearningDTO(
+                        toLong(row[0]),
+                        (String) row[1],
+                        toInt(row[2]),
+                        toInt(row[3]),
+                        toInt(row[4]),
+                        toLong(row[5])
+                ))
+                .collect(Collectors.toList());
+    }
+
+    // 仪表盘改由内存分析库计算（report.dashboard.source=analytics）；分析库加载完成前仍查数据库
+    private boolean useAnalyticsStore() {
+        return "analytics".equalsIgnoreCase(dashboardSource) && lessonAnalyticsService.isReady();
+    }
+
+    // 内存分析库按教师或学生分组，列与数据库汇总查询相同；已删除的教师、学生不出现（与 JOIN 一致）
+    private List<Object[]> analyticsRows(LessonColumns.GroupBy groupBy, LocalDate startDate, LocalDate endDate,
+                                         Function<List<Long>, Map<Long, String>> namesById) {
+        LessonColumns.Result result = lessonAnalyticsService.aggregate(
+                LessonColumns.Filter.all().between(startDate, endDate), groupBy);
+        List<Integer> groups = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        for (int group = 0; group < result.groups(); group++) {
+            if (result.count(group) > 0) {
+                groups.add(group);
+                ids.add(result.key(group));
             }
         }
-        
-        // 转换为列表并排序（按总课时降序）
-        return studentStatsMap.values().stream()
-                .sorted((a, b) -> b.getTotalMinutes().compareTo(a.getTotalMinutes()))
+        Map<Long, String> names = namesById.apply(ids);
+        return groups.stream()
+                .filter(group -> names.containsKey(result.key(group)))
+                .map(group -> new Object[] {
+                        result.key(group),
+                        names.get(result.key(group)),
+                        result.count(group),
+                        result.count(group, LessonStatus.COMPLETED),
+                        result.count(group, CANCELLED_STATUSES),
+                        result.minutes(group, LessonStatus.COMPLETED)
+                })
+                .sorted(Comparator.comparingLong((Object[] row) -> (Long) row[5]).reversed())
                 .collect(Collectors.toList());
     }
+
+    // 原生聚合查询的数值列类型随驱动而异（BigInteger、BigDecimal、Long），SUM 在无行时为 null
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static int toInt(Object value) {
+        return value != null ? ((Number) value).intValue() : 0;
+    }
     
     /**
      * 获取课程受欢迎度统计
@@ -315,12 +778,18 @@ public class ReportService {
         log.info("Generating monthly lessons report for year {}", year);
         
         // 设置年份的时间范围
-        LocalDateTime startOfYear = LocalDate.of(year, 1, 1).atStartOfDay();
-        LocalDateTime endOfYear = LocalDate.of(year, 12, 31).atTime(23, 59, 59);
+        LocalDate startOfYear = LocalDate.of(year, 1, 1);
+        LocalDate endOfYear = LocalDate.of(year, 12, 31);
         
-        // 获取该年份的所有课程
-        List<Lesson> yearLessons = lessonRepository.findByStartDateTimeBetweenOrderByStartDateTimeAsc(
-                startOfYear, endOfYear);
+        // 按月汇总该年份的课程（每日汇总表就绪前直接聚合课程表）
+        List<Object[]> monthRows;
+        if (useAnalyticsStore()) {
+            monthRows = analyticsMonthRows(startOfYear, endOfYear);
+        } else if (lessonRollupService.isReady()) {
+            monthRows = lessonDailyRollupRepository.sumLessonsByMonth(startOfYear, endOfYear);
+        } else {
+            monthRows = lessonRepository.sumLessonsByMonth(startOfYear.atStartOfDay(), endOfYear.plusDays(1).atStartOfDay());
+        }
         
         // 初始化12个月的数据
         List<MonthlyLessonDTO> monthlyData = new ArrayList<>();
@@ -337,18 +806,63 @@ public class ReportService {
             ));
         }
         
-        // 统计每月课程数据
-        for (Lesson lesson : yearLessons) {
-            int month = lesson.getStartDateTime().getMonthValue(); // 1-12
-            MonthlyLessonDTO monthData = monthlyData.get(month - 1);
-            
-            if (lesson.getStatus() == LessonStatus.SCHEDULED) {
-                monthData.setScheduledLessons(monthData.getScheduledLessons() + 1);
-            } else if (lesson.getStatus() == LessonStatus.COMPLETED) {
-                monthData.setCompletedLessons(monthData.getCompletedLessons() + 1);
-            }
+        // 填入每月课程数据：月份(1-12), 计划课程数, 已完成数
+        for (Object[] row : monthRows) {
+            MonthlyLessonDTO monthData = monthlyData.get(toInt(row[0]) - 1);
+            monthData.setScheduledLessons(toInt(row[1]));
+            monthData.setCompletedLessons(toInt(row[2]));
         }
         
         return monthlyData;
     }
-} 
\ No newline at end of file
+
+    /**
+     * 内存分析库上的即席查询：每个非空分组的课程数、分钟数及按状态细分
+     * （分组键为实体 id；按天分组时为日期）
+     */
+    public List<Map<String, Object>> queryLessonAnalytics(LessonColumns.Filter filter, LessonColumns.GroupBy groupBy) {
+        if (!lessonAnalyticsService.isReady()) {
+            throw new IllegalStateException("课程分析数据正在加载，请稍后再试");
+        }
+        LessonColumns.Result result = lessonAnalyticsService.aggregate(filter, groupBy);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int group = 0; group < result.groups(); group++) {
+            if (result.count(group) == 0) {
+                continue;
+            }
+            Map<String, Object> byStatus = new LinkedHashMap<>();
+            for (LessonStatus status : LessonStatus.values()) {
+                if (result.count(group, status) > 0) {
+                    byStatus.put(status.name(), Map.of(
+                            "lessons", result.count(group, status),
+                            "minutes", result.minutes(group, status)));
+                }
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("key", groupBy == LessonColumns.GroupBy.DAY ? result.day(group).toString() : result.key(group));
+            row.put("totalLessons", result.count(group));
+            row.put("totalMinutes", result.minutes(group));
+            row.put("byStatus", byStatus);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // 内存分析库按天分组后折叠成月：月份(1-12), 计划课程数, 已完成数
+    private List<Object[]> analyticsMonthRows(LocalDate startOfYear, LocalDate endOfYear) {
+        LessonColumns.Result result = lessonAnalyticsService.aggregate(
+                LessonColumns.Filter.all().between(startOfYear, endOfYear), LessonColumns.GroupBy.DAY);
+        long[] scheduled = new long[12];
+        long[] completed = new long[12];
+        for (int group = 0; group < result.groups(); group++) {
+            int month = result.day(group).getMonthValue() - 1;
+            scheduled[month] += result.count(group, LessonStatus.SCHEDULED);
+            completed[month] += result.count(group, LessonStatus.COMPLETED);
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (int month = 0; month < 12; month++) {
+            rows.add(new Object[] {month + 1, scheduled[month], completed[month]});
+        }
+        return rows;
+    }
+}
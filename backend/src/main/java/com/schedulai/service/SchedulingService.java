@@ -1,5 +1,6 @@
 package com.schedulai.service;
 
+import com.schedulai.domain.AvailabilityOwnerType;
 import com.schedulai.domain.Enrollment;
 import com.schedulai.domain.Lesson;
 import com.schedulai.domain.LessonStatus;
@@ -11,12 +12,19 @@ import com.schedulai.repository.LessonRepository;
 import com.schedulai.repository.StudentAvailabilityRepository;
 import com.schedulai.repository.TeacherAvailabilityRepository;
 import com.schedulai.repository.EnrollmentRepository;
+import com.schedulai.util.BlackoutCalendar;
+import com.schedulai.util.EffectiveDateIndex;
+import com.schedulai.util.JsonArrayStreamParser;
+import com.schedulai.util.LocalSlotSolver;
+import com.schedulai.util.ProposalValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -25,17 +33,21 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.core.type.TypeReference;
 
 @Service
 @RequiredArgsConstructor
@@ -43,48 +55,148 @@ public class SchedulingService {
 
     private static final Logger log = LoggerFactory.getLogger(SchedulingService.class);
 
+    // Suggestion count matches the AI prompt; fewer valid AI proposals are topped up with local slots
+    private static final int MAX_SUGGESTIONS = 5;
+    static final int MIN_SUGGESTIONS = 3;
+    // Start-time grid for local slots and how far a near-miss AI proposal may be moved
+    private static final int SLOT_STEP_MINUTES = 30;
+    private static final int MAX_SNAP_MINUTES = 60;
+    static final String LOCAL_FALLBACK_NOTE = "由本地排课规则生成（AI 服务暂不可用）";
+    // Longest range (inclusive days) findCommonAvailableSlotsBetween expands; each day costs blackout and template lookups
+    static final int MAX_DATED_RANGE_DAYS = 92;
+
+    // Configured once and shared; ObjectReader is immutable and thread-safe
+    private static final ObjectReader PROPOSAL_READER = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build()
+            .readerFor(ProposedLessonDTO.class);
+    private static final ObjectReader PROPOSAL_ARRAY_READER = PROPOSAL_READER.forType(ProposedLessonDTO[].class);
+
     private final StudentAvailabilityRepository studentAvailabilityRepository;
     private final TeacherAvailabilityRepository teacherAvailabilityRepository;
     private final LessonRepository lessonRepository;
     private final OpenAIService openAIService;
     private final EnrollmentRepository enrollmentRepository;
+    private final BlackoutService blackoutService;
+    private final AvailabilityTemplateService availabilityTemplateService;
 
     @Transactional(readOnly = true)
     public List<TimeSlotDTO> findCommonAvailableSlots(Long studentId, Long teacherId) {
         log.info("Finding common available slots for student {} and teacher {}", studentId, teacherId);
 
-        // Fetch available slots for student (assuming StudentAvailability still has isAvailable filter)
-        List<StudentAvailability> studentSlotsFromDb = studentAvailabilityRepository.findByStudentIdAndIsAvailable(studentId, true);
-        
-        // Fetch all slots for teacher and then filter by isAvailable=true
-        List<TeacherAvailability> teacherSlotsFromDb = teacherAvailabilityRepository.findByTeacherIdOrderByDayOfWeekAscStartTimeAsc(teacherId);
-        List<TeacherAvailability> teacherAvailableSlots = teacherSlotsFromDb.stream()
-                .filter(TeacherAvailability::getIsAvailable) // Filter for isAvailable == true
+        List<TimeSlotDTO> mergedSlots = intersectWeeklySlots(loadStudentWeeklySlots(studentId, null), loadTeacherWeeklySlots(teacherId, null));
+
+        log.info("Found {} common available slots (merged) for student {} and teacher {}", mergedSlots.size(), studentId, teacherId);
+        return mergedSlots;
+    }
+
+    /**
+     * Expands common availability onto concrete dates in [startDate, endDate], skipping organization
+     * holidays and the teacher's own blackout days. Each side's dated template (e.g. a summer schedule)
+     * is resolved through its effective-date index, so the weekly intersection is only recomputed at
+     * template boundaries rather than per day.
+     *
+     * @throws IllegalArgumentException if the range is inverted or longer than {@value #MAX_DATED_RANGE_DAYS} days
+     */
+    @Transactional(readOnly = true)
+    public List<ProposedLessonDTO> findCommonAvailableSlotsBetween(Long studentId, Long teacherId, LocalDate startDate, LocalDate endDate) {
+        log.info("Expanding common slots for student {} and teacher {} from {} to {}", studentId, teacherId, startDate, endDate);
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date.");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= MAX_DATED_RANGE_DAYS) {
+            throw new IllegalArgumentException("The date range must not exceed " + MAX_DATED_RANGE_DAYS + " days.");
+        }
+
+        BlackoutCalendar blackouts = blackoutService.getCalendarForTeacher(teacherId);
+        EffectiveDateIndex teacherTemplates = availabilityTemplateService.getIndex(AvailabilityOwnerType.TEACHER, teacherId);
+        EffectiveDateIndex studentTemplates = availabilityTemplateService.getIndex(AvailabilityOwnerType.STUDENT, studentId);
+
+        // Weekly intersection per (teacher template, student template) pair; null = base weekly template
+        Map<String, Map<DayOfWeek, List<TimeSlotDTO>>> weeklyByTemplatePair = new HashMap<>();
+
+        List<ProposedLessonDTO> datedSlots = new ArrayList<>();
+        for (EffectiveDateIndex.Segment teacherSegment : teacherTemplates.segments(startDate, endDate)) {
+            for (EffectiveDateIndex.Segment segment : studentTemplates.segments(teacherSegment.start(), teacherSegment.end())) {
+                Long teacherTemplateId = teacherSegment.templateId();
+                Long studentTemplateId = segment.templateId();
+                Map<DayOfWeek, List<TimeSlotDTO>> weeklySlots = weeklyByTemplatePair.computeIfAbsent(
+                        teacherTemplateId + ":" + studentTemplateId,
+                        key -> groupSlotsByDay(intersectWeeklySlots(
+                                loadStudentWeeklySlots(studentId, studentTemplateId),
+                                loadTeacherWeeklySlots(teacherId, teacherTemplateId)).stream()));
+
+                for (LocalDate date = segment.start(); !date.isAfter(segment.end()); date = date.plusDays(1)) {
+                    if (blackouts.isBlocked(date)) {
+                        continue; // Holiday, exam week or teacher vacation
+                    }
+                    for (TimeSlotDTO slot : weeklySlots.getOrDefault(date.getDayOfWeek(), List.of())) {
+                        ProposedLessonDTO dated = new ProposedLessonDTO(date.atTime(slot.getStartTime()), date.atTime(slot.getEndTime()));
+                        dated.setStudentId(studentId);
+                        dated.setTeacherId(teacherId);
+                        datedSlots.add(dated);
+                    }
+                }
+            }
+        }
+        log.info("Expanded {} dated common slots ({} template combinations, {} blackout ranges considered)",
+                datedSlots.size(), weeklyByTemplatePair.size(), blackouts.size());
+        return datedSlots;
+    }
+
+    // Available weekly slots of a student: the base template when templateId is null, otherwise the dated template
+    private List<TimeSlotDTO> loadStudentWeeklySlots(Long studentId, Long templateId) {
+        if (templateId != null) {
+            return availabilityTemplateService.getTemplateSlots(templateId);
+        }
+        return studentAvailabilityRepository.findByStudentIdAndIsAvailableTrueOrderByDayOfWeekAscStartTimeAsc(studentId).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    private List<TimeSlotDTO> loadTeacherWeeklySlots(Long teacherId, Long templateId) {
+        if (templateId != null) {
+            return availabilityTemplateService.getTemplateSlots(templateId);
+        }
+        return teacherAvailabilityRepository.findByTeacherIdAndIsAvailableTrueOrderByDayOfWeekAscStartTimeAsc(teacherId).stream()
+                .map(this::convertToDTO)
                 .collect(Collectors.toList());
+    }
 
-        // Group slots by DayOfWeek for easier comparison
-        Map<DayOfWeek, List<TimeSlotDTO>> studentSlotsByDay = groupSlotsByDay(studentSlotsFromDb.stream().map(this::convertToDTO));
-        Map<DayOfWeek, List<TimeSlotDTO>> teacherSlotsByDay = groupSlotsByDay(teacherAvailableSlots.stream().map(this::convertToDTO));
+    /**
+     * Intersects two canonical weekly schedules (per day sorted by start time, non-overlapping and
+     * non-adjacent, as guaranteed by write-time normalization) with a linear two-pointer sweep per day.
+     * The result is itself canonical, so no sorting or merging is needed afterwards.
+     */
+    private List<TimeSlotDTO> intersectWeeklySlots(List<TimeSlotDTO> studentSlots, List<TimeSlotDTO> teacherSlots) {
+        Map<DayOfWeek, List<TimeSlotDTO>> studentSlotsByDay = groupSlotsByDay(studentSlots.stream());
+        Map<DayOfWeek, List<TimeSlotDTO>> teacherSlotsByDay = groupSlotsByDay(teacherSlots.stream());
 
         List<TimeSlotDTO> commonSlots = new ArrayList<>();
-
-        // Iterate through each day of the week
         for (DayOfWeek day : DayOfWeek.values()) {
             List<TimeSlotDTO> studentDaySlots = studentSlotsByDay.getOrDefault(day, List.of());
             List<TimeSlotDTO> teacherDaySlots = teacherSlotsByDay.getOrDefault(day, List.of());
 
-            if (studentDaySlots.isEmpty() || teacherDaySlots.isEmpty()) {
-                continue; // No common slots if one is unavailable the whole day
+            int i = 0;
+            int j = 0;
+            while (i < studentDaySlots.size() && j < teacherDaySlots.size()) {
+                TimeSlotDTO studentSlot = studentDaySlots.get(i);
+                TimeSlotDTO teacherSlot = teacherDaySlots.get(j);
+                LocalTime overlapStart = studentSlot.getStartTime().isAfter(teacherSlot.getStartTime()) ? studentSlot.getStartTime() : teacherSlot.getStartTime();
+                LocalTime overlapEnd = studentSlot.getEndTime().isBefore(teacherSlot.getEndTime()) ? studentSlot.getEndTime() : teacherSlot.getEndTime();
+                if (overlapStart.isBefore(overlapEnd)) {
+                    commonSlots.add(new TimeSlotDTO(day, overlapStart, overlapEnd));
+                }
+                // Advance whichever interval finishes first
+                if (studentSlot.getEndTime().isBefore(teacherSlot.getEndTime())) {
+                    i++;
+                } else {
+                    j++;
+                }
             }
-
-            // Find intersections for the current day
-            commonSlots.addAll(findIntersection(studentDaySlots, teacherDaySlots, day));
         }
-        // Optional: Merge overlapping/adjacent slots
-        List<TimeSlotDTO> mergedSlots = mergeTimeSlots(commonSlots);
-
-        log.info("Found {} common available slots (merged) for student {} and teacher {}", mergedSlots.size(), studentId, teacherId);
-        return mergedSlots;
+        return commonSlots;
     }
 
     // Helper to convert Entity to DTO
@@ -96,80 +208,173 @@ public class SchedulingService {
         return new TimeSlotDTO(slot.getDayOfWeek(), slot.getStartTime(), slot.getEndTime());
     }
 
-    // Helper to group DTOs by DayOfWeek
+    // Buckets slots by DayOfWeek in a single pass, keeping their start-time order within each day
     private Map<DayOfWeek, List<TimeSlotDTO>> groupSlotsByDay(Stream<TimeSlotDTO> slots) {
-        return slots.collect(Collectors.groupingBy(TimeSlotDTO::getDayOfWeek));
+        return slots.collect(Collectors.groupingBy(TimeSlotDTO::getDayOfWeek,
+                () -> new EnumMap<>(DayOfWeek.class), Collectors.toList()));
     }
 
-    // Core logic to find intersections between two lists of time slots for a specific day
-    private List<TimeSlotDTO> findIntersection(List<TimeSlotDTO> list1, List<TimeSlotDTO> list2, DayOfWeek day) {
-        List<TimeSlotDTO> intersection = new ArrayList<>();
-        // Simple O(n*m) comparison. Can be optimized if lists are sorted.
-        for (TimeSlotDTO slot1 : list1) {
-            for (TimeSlotDTO slot2 : list2) {
-                // Calculate the overlap
-                LocalTime overlapStart = slot1.getStartTime().isAfter(slot2.getStartTime()) ? slot1.getStartTime() : slot2.getStartTime();
-                LocalTime overlapEnd = slot1.getEndTime().isBefore(slot2.getEndTime()) ? slot1.getEndTime() : slot2.getEndTime();
-
-                // If overlap exists (start is before end)
-                if (overlapStart.isBefore(overlapEnd)) {
-                    intersection.add(new TimeSlotDTO(day, overlapStart, overlapEnd));
-                }
-            }
+    // --- AI Scheduling Suggestion ---
+
+    // Everything the AI call, the validation and the local fallback need, read inside the transaction
+    private record SuggestionContext(Long studentId, Long teacherId, Long courseId, Long enrollmentId,
+                                     ProposalValidator.Rules rules, String systemMessage, String userPrompt) {
+
+        ProposedLessonDTO toProposal(LocalSlotSolver.Interval slot, String notes) {
+            ProposedLessonDTO proposal = new ProposedLessonDTO(slot.start(), slot.end());
+            proposal.setStudentId(studentId);
+            proposal.setTeacherId(teacherId);
+            proposal.setCourseId(courseId);
+            proposal.setEnrollmentId(enrollmentId);
+            proposal.setNotes(notes);
+            return proposal;
         }
-        return intersection;
-    }
 
-    // Helper to merge overlapping or adjacent time slots
-    private List<TimeSlotDTO> mergeTimeSlots(List<TimeSlotDTO> slots) {
-        if (slots == null || slots.size() <= 1) {
-            return slots;
+        // Deterministic answer from the same inputs, used when the AI provider is unavailable
+        List<ProposedLessonDTO> localSuggestions() {
+            return LocalSlotSolver.solve(rules.weekly(), rules.busy(), rules.blocked(), rules.notBefore(), rules.lastDate(),
+                            rules.durationMinutes(), rules.stepMinutes(), MAX_SUGGESTIONS).stream()
+                    .map(slot -> toProposal(slot, LOCAL_FALLBACK_NOTE))
+                    .collect(Collectors.toList());
         }
+    }
 
-        // Group by day first
-        Map<DayOfWeek, List<TimeSlotDTO>> groupedByDay = slots.stream()
-                .collect(Collectors.groupingBy(TimeSlotDTO::getDayOfWeek));
+    // Availability and existing lessons are read inside the transaction; the AI call completes asynchronously.
+    @Transactional(readOnly = true)
+    public CompletableFuture<List<ProposedLessonDTO>> suggestLessonTimesAsync(
+            Long enrollmentId, 
+            int durationMinutes) {
 
-        List<TimeSlotDTO> mergedResult = new ArrayList<>();
+        SuggestionContext context = prepareSuggestionContext(enrollmentId, durationMinutes);
+        if (context == null) {
+            return CompletableFuture.completedFuture(new ArrayList<>()); // Return empty list if no common slots
+        }
+        if (!openAIService.isAvailable()) {
+            log.warn("AI provider unavailable (circuit open), using local slot solver for enrollment {}", enrollmentId);
+            return CompletableFuture.completedFuture(context.localSuggestions());
+        }
+
+        // 6. Call OpenAI Service
+        log.debug("Sending prompt to OpenAI for enrollment {}, student {}, teacher {}", enrollmentId, context.studentId(), context.teacherId());
+        log.debug("OpenAI prompt:\n{}", context.userPrompt());  // 输出完整提示内容，便于调试
+        
+        return openAIService.generateJsonArrayCompletionAsync(context.systemMessage(), context.userPrompt()).thenApply(suggestionsJson -> {
+            log.debug("Received OpenAI response:\n{}", suggestionsJson);  // 输出OpenAI的原始响应
 
-        for (Map.Entry<DayOfWeek, List<TimeSlotDTO>> entry : groupedByDay.entrySet()) {
-            DayOfWeek day = entry.getKey();
-            List<TimeSlotDTO> daySlots = entry.getValue();
+            // 7. Parse Response, then validate/repair every proposal and top up with local slots
+            ProposalValidator validator = new ProposalValidator(context.rules());
+            List<ProposedLessonDTO> proposedLessons = new ArrayList<>();
+            for (ProposedLessonDTO proposal : parseOpenAIResponse(suggestionsJson)) {
+                if (validateProposal(context, validator, proposal)) {
+                    proposedLessons.add(proposal);
+                }
+            }
+            proposedLessons.addAll(topUpSuggestions(context, validator));
+            proposedLessons.sort(Comparator.comparing(ProposedLessonDTO::getStartTime));
 
-            // Sort slots by start time for merging
-            daySlots.sort(Comparator.comparing(TimeSlotDTO::getStartTime));
+            log.info("Found {} lesson time suggestions for enrollment {} (Student: {}, Teacher: {}, {} AI proposals dropped)", 
+                     proposedLessons.size(), enrollmentId, context.studentId(), context.teacherId(), validator.droppedCount());
+            
+            return proposedLessons;
+        }).exceptionally(e -> {
+            log.error("OpenAI API timeout or error, using local slot solver: {}", e.getMessage());
+            return context.localSuggestions();
+        });
+    }
 
-            List<TimeSlotDTO> mergedDaySlots = new ArrayList<>();
-            if (daySlots.isEmpty()) continue;
+    /**
+     * Streaming variant: the model's reply is parsed incrementally and each suggestion is validated (and repaired
+     * if it is a near miss) as soon as its JSON object closes, then passed to {@code onSuggestion}. Locally computed
+     * slots are sent at the end if too few survived. The returned future completes with all suggestions sent.
+     * If the AI call fails before anything was accepted, the local slot solver's suggestions are sent instead.
+     */
+    @Transactional(readOnly = true)
+    public CompletableFuture<List<ProposedLessonDTO>> streamLessonTimeSuggestions(
+            Long enrollmentId, int durationMinutes, Consumer<ProposedLessonDTO> onSuggestion) {
 
-            TimeSlotDTO currentMerge = new TimeSlotDTO(day, daySlots.get(0).getStartTime(), daySlots.get(0).getEndTime());
+        SuggestionContext context = prepareSuggestionContext(enrollmentId, durationMinutes);
+        if (context == null) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        if (!openAIService.isAvailable()) {
+            log.warn("AI provider unavailable (circuit open), streaming local slot solver suggestions for enrollment {}", enrollmentId);
+            return CompletableFuture.completedFuture(sendAll(context.localSuggestions(), onSuggestion));
+        }
 
-            for (int i = 1; i < daySlots.size(); i++) {
-                TimeSlotDTO nextSlot = daySlots.get(i);
-                // Check for overlap or adjacency
-                if (!nextSlot.getStartTime().isAfter(currentMerge.getEndTime())) {
-                    // Merge: extend the end time if next slot ends later
-                    currentMerge.setEndTime(currentMerge.getEndTime().isAfter(nextSlot.getEndTime()) ? currentMerge.getEndTime() : nextSlot.getEndTime());
-                } else {
-                    // No overlap, add the completed merged slot and start a new one
-                    mergedDaySlots.add(currentMerge);
-                    currentMerge = new TimeSlotDTO(day, nextSlot.getStartTime(), nextSlot.getEndTime());
+        // Only touched from the stream's token callback, which runs one token at a time
+        ProposalValidator validator = new ProposalValidator(context.rules());
+        List<ProposedLessonDTO> accepted = new ArrayList<>();
+        JsonArrayStreamParser<ProposedLessonDTO> parser;
+        try {
+            parser = new JsonArrayStreamParser<>(PROPOSAL_READER, proposal -> {
+                if (validateProposal(context, validator, proposal)) {
+                    accepted.add(proposal);
+                    onSuggestion.accept(proposal);
                 }
-            }
-            // Add the last merged slot
-            mergedDaySlots.add(currentMerge);
-            mergedResult.addAll(mergedDaySlots);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        mergedResult.sort(Comparator.comparing(TimeSlotDTO::getDayOfWeek).thenComparing(TimeSlotDTO::getStartTime));
-        return mergedResult;
+
+        return openAIService.streamTextCompletion(context.systemMessage(), context.userPrompt(), token -> {
+                    try {
+                        parser.feed(token);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e); // malformed JSON: stop reading from upstream
+                    }
+                })
+                .handle((text, ex) -> {
+                    boolean complete = false;
+                    try {
+                        complete = ex == null && parser.finish();
+                    } catch (IOException e) {
+                        log.warn("Streamed suggestions for enrollment {} ended with malformed JSON: {}", enrollmentId, e.getMessage());
+                    }
+                    log.info("Streamed {} suggestions for enrollment {} ({} parsed, {} unreadable, {} dropped, complete={})",
+                            accepted.size(), enrollmentId, parser.elementCount(), parser.skippedCount(), validator.droppedCount(), complete);
+                    if (ex != null && accepted.isEmpty()) {
+                        log.error("OpenAI streaming error, using local slot solver: {}", ex.getMessage());
+                        return sendAll(context.localSuggestions(), onSuggestion);
+                    }
+                    accepted.addAll(sendAll(topUpSuggestions(context, validator), onSuggestion));
+                    return accepted;
+                });
     }
 
-    // --- AI Scheduling Suggestion ---
-    @Transactional(readOnly = true)
-    public List<ProposedLessonDTO> suggestLessonTimes(
-            Long enrollmentId, 
-            int durationMinutes) {
+    private static List<ProposedLessonDTO> sendAll(List<ProposedLessonDTO> suggestions, Consumer<ProposedLessonDTO> onSuggestion) {
+        suggestions.forEach(onSuggestion);
+        return suggestions;
+    }
 
+    // Checks a proposal against the in-memory rules; valid and repaired proposals get the enrollment's ids and the final times
+    private boolean validateProposal(SuggestionContext context, ProposalValidator validator, ProposedLessonDTO proposal) {
+        ProposalValidator.Result result = validator.offer(proposal.getStartTime());
+        if (result.verdict() == ProposalValidator.Verdict.DROPPED) {
+            log.debug("Dropping AI suggestion that cannot be repaired or is a duplicate: {}", proposal);
+            return false;
+        }
+        if (result.verdict() == ProposalValidator.Verdict.SNAPPED) {
+            log.debug("Moved AI suggestion {} to {}", proposal.getStartTime(), result.slot().start());
+            proposal.setNotes(proposal.getNotes() != null && !proposal.getNotes().isBlank()
+                    ? proposal.getNotes() + "（已调整到最近的可用时间）" : "已调整到最近的可用时间");
+        }
+        proposal.setStartTime(result.slot().start());
+        proposal.setEndTime(result.slot().end());
+        proposal.setStudentId(context.studentId());
+        proposal.setTeacherId(context.teacherId());
+        proposal.setCourseId(context.courseId());
+        proposal.setEnrollmentId(context.enrollmentId());
+        return true;
+    }
+
+    private List<ProposedLessonDTO> topUpSuggestions(SuggestionContext context, ProposalValidator validator) {
+        return validator.topUp().stream()
+                .map(slot -> context.toProposal(slot, "由本地排课规则补充"))
+                .collect(Collectors.toList());
+    }
+
+    // Returns null when the student and teacher have no common weekly availability
+    private SuggestionContext prepareSuggestionContext(Long enrollmentId, int durationMinutes) {
         log.info("Suggesting lesson times for enrollment ID: {}, duration: {} minutes", enrollmentId, durationMinutes);
 
         // 1. Fetch Enrollment and related entities
@@ -193,7 +398,7 @@ public class SchedulingService {
         // 记录共同可用时间槽
         if (commonSlots.isEmpty()) {
             log.warn("No common availability found for student {} and teacher {}. Cannot suggest times.", studentId, teacherId);
-            return new ArrayList<>(); // Return empty list if no common slots
+            return null;
         } else {
             // 详细记录找到哪些共同可用时间槽
             log.info("Found {} common time slots for student {} and teacher {}", commonSlots.size(), studentId, teacherId);
@@ -214,6 +419,25 @@ public class SchedulingService {
         // Combine and format existing lessons for the prompt
         String existingLessonsSummary = formatLessonsForPrompt(existingStudentLessons, existingTeacherLessons);
 
+        // Holidays and the teacher's vacation days inside the suggestion horizon
+        BlackoutCalendar blackouts = blackoutService.getCalendarForTeacher(teacherId);
+        existingLessonsSummary += formatBlackoutsForPrompt(blackouts.rangesBetween(now.toLocalDate(), futureLimit.toLocalDate()));
+
+        // Validation rules (and local fallback inputs) as plain values, so they can be used after the transaction
+        List<LocalSlotSolver.WeeklyWindow> weekly = commonSlots.stream()
+                .map(slot -> new LocalSlotSolver.WeeklyWindow(slot.getDayOfWeek(), slot.getStartTime(), slot.getEndTime()))
+                .collect(Collectors.toList());
+        List<LocalSlotSolver.Interval> busy = Stream.concat(existingStudentLessons.stream(), existingTeacherLessons.stream())
+                .filter(lesson -> lesson.getStatus() != LessonStatus.CANCELLED
+                        && lesson.getStatus() != LessonStatus.CANCELLED_BY_STUDENT
+                        && lesson.getStatus() != LessonStatus.CANCELLED_BY_TEACHER)
+                .map(lesson -> new LocalSlotSolver.Interval(lesson.getStartDateTime(), lesson.getEndDateTime()))
+                .collect(Collectors.toList());
+        // Next full hour onwards
+        LocalDateTime notBefore = now.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        ProposalValidator.Rules rules = new ProposalValidator.Rules(weekly, busy, blackouts::isBlocked, notBefore,
+                futureLimit.toLocalDate(), actualDuration, SLOT_STEP_MINUTES, MAX_SNAP_MINUTES, MIN_SUGGESTIONS, MAX_SUGGESTIONS);
+
         // 4. Format common availability for the prompt
         String commonSlotsSummary = formatTimeSlotsForPrompt(commonSlots);
 
@@ -221,26 +445,8 @@ public class SchedulingService {
         String systemMessage = "You are an AI assistant specialized in scheduling private tutoring lessons. Your goal is to suggest optimal lesson times based on availability and existing schedules.";
         String userPrompt = buildSuggestTimesPrompt(studentName, teacherName, courseName, actualDuration, commonSlotsSummary, existingLessonsSummary, enrollment, enrollmentId);
 
-        // 6. Call OpenAI Service
-        log.debug("Sending prompt to OpenAI for enrollment {}, student {}, teacher {}", enrollmentId, studentId, teacherId);
-        log.debug("OpenAI prompt:\n{}", userPrompt);  // 输出完整提示内容，便于调试
-        
-        try {
-            String suggestionsJson = openAIService.generateTextCompletion(systemMessage, userPrompt);
-            
-            log.debug("Received OpenAI response:\n{}", suggestionsJson);  // 输出OpenAI的原始响应
-
-            // 7. Parse Response
-            List<ProposedLessonDTO> proposedLessons = parseOpenAIResponse(suggestionsJson);
-
-            log.info("Found {} potential lesson time suggestions for enrollment {} (Student: {}, Teacher: {})", 
-                     proposedLessons.size(), enrollmentId, studentId, teacherId);
-            
-            return proposedLessons;
-        } catch (Exception e) {
-            log.error("OpenAI API timeout or error: {}", e.getMessage());
-            return generateTestSuggestions("[]"); // 出错时返回测试数据
-        }
+        return new SuggestionContext(studentId, teacherId, enrollment.getTeacherCourse().getCourse().getId(), enrollmentId,
+                rules, systemMessage, userPrompt);
     }
 
     // --- Helper Methods for Prompt Construction and Parsing ---
@@ -257,6 +463,15 @@ public class SchedulingService {
         return sb.toString();
     }
 
+    private String formatBlackoutsForPrompt(List<LocalDate[]> blackoutRanges) {
+        if (blackoutRanges.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder("\nClosed dates (holidays / teacher vacation, do NOT schedule on these days):\n");
+        blackoutRanges.forEach(r -> sb.append(String.format("- %s to %s\n", r[0], r[1])));
+        return sb.toString();
+    }
+
     private String formatTimeSlotsForPrompt(List<TimeSlotDTO> slots) {
         return slots.stream()
             .map(slot -> String.format("- %s: %s to %s", slot.getDayOfWeek(), slot.getStartTime(), slot.getEndTime()))
@@ -314,21 +529,9 @@ public class SchedulingService {
             
             log.debug("Attempting to parse JSON response: {}", cleanedResponse);
             
-            // 使用JavaTimeModule确保正确解析日期时间
-            ObjectMapper objectMapper = new ObjectMapper();
-            objectMapper.registerModule(new JavaTimeModule()); 
-            objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            
-            List<ProposedLessonDTO> suggestions;
-            // 尝试直接解析为数组
-            try {
-                suggestions = Arrays.asList(objectMapper.readValue(cleanedResponse, ProposedLessonDTO[].class));
-            } catch (Exception e) {
-                log.warn("Failed to parse as array, trying as List: {}", e.getMessage());
-                // 如果数组解析失败，尝试作为List解析
-                suggestions = objectMapper.readValue(cleanedResponse, 
-                                                   new TypeReference<List<ProposedLessonDTO>>() {});
-            }
+            // 共享的预配置 reader（含JavaTimeModule），一次解析
+            ProposedLessonDTO[] parsed = PROPOSAL_ARRAY_READER.readValue(cleanedResponse);
+            List<ProposedLessonDTO> suggestions = parsed != null ? new ArrayList<>(Arrays.asList(parsed)) : null;
             
             // 验证结果
             if (suggestions != null) {
@@ -339,12 +542,6 @@ public class SchedulingService {
                              suggestion.getStartTime(), suggestion.getEndTime());
                 }
                 
-                // 如果解析成功但结果为空，使用模拟数据（仅用于测试）
-                if (suggestions.isEmpty()) {
-                    log.warn("OpenAI returned empty suggestions array, using test data for development");
-                    suggestions = generateTestSuggestions(jsonResponse);
-                }
-                
                 return suggestions;
             } else {
                 log.warn("Parsed result was null");
@@ -356,63 +553,6 @@ public class SchedulingService {
         }
     }
 
-    /**
-     * 生成测试用的课程时间建议（仅用于开发测试）
-     * 根据现有的时间槽模式创建建议
-     */
-    private List<ProposedLessonDTO> generateTestSuggestions(String originalResponse) {
-        log.info("Generating test suggestions for development");
-        
-        // 如果原始响应是[]，表示OpenAI确实返回了空数组，我们创建测试数据
-        if ("[]".equals(originalResponse.trim())) {
-            List<ProposedLessonDTO> testSuggestions = new ArrayList<>();
-            
-            // 获取当前时间作为基准
-            LocalDateTime now = LocalDateTime.now();
-            LocalDateTime tomorrow = now.plusDays(1).withHour(10).withMinute(0).withSecond(0);
-            LocalDateTime dayAfterTomorrow = now.plusDays(2).withHour(14).withMinute(30).withSecond(0);
-            LocalDateTime nextWeek = now.plusDays(7).withHour(16).withMinute(0).withSecond(0);
-            
-            // 创建三个测试建议
-            ProposedLessonDTO suggestion1 = new ProposedLessonDTO();
-            suggestion1.setStartTime(tomorrow);
-            suggestion1.setEndTime(tomorrow.plusMinutes(90));
-            suggestion1.setNotes("测试数据：明天上午的课程");
-            suggestion1.setStudentId(1L);
-            suggestion1.setTeacherId(1L);
-            suggestion1.setCourseId(1L);
-            suggestion1.setEnrollmentId(1L);
-            
-            ProposedLessonDTO suggestion2 = new ProposedLessonDTO();
-            suggestion2.setStartTime(dayAfterTomorrow);
-            suggestion2.setEndTime(dayAfterTomorrow.plusMinutes(90));
-            suggestion2.setNotes("测试数据：后天下午的课程");
-            suggestion2.setStudentId(1L);
-            suggestion2.setTeacherId(1L);
-            suggestion2.setCourseId(1L);
-            suggestion2.setEnrollmentId(1L);
-            
-            ProposedLessonDTO suggestion3 = new ProposedLessonDTO();
-            suggestion3.setStartTime(nextWeek);
-            suggestion3.setEndTime(nextWeek.plusMinutes(90));
-            suggestion3.setNotes("测试数据：下周同一天的课程");
-            suggestion3.setStudentId(1L);
-            suggestion3.setTeacherId(1L);
-            suggestion3.setCourseId(1L);
-            suggestion3.setEnrollmentId(1L);
-            
-            testSuggestions.add(suggestion1);
-            testSuggestions.add(suggestion2);
-            testSuggestions.add(suggestion3);
-            
-            log.info("Generated {} test suggestions for development", testSuggestions.size());
-            return testSuggestions;
-        }
-        
-        // 如果原始响应不是空数组，返回空列表
-        return new ArrayList<>();
-    }
-
     // --- Helper for findCommonAvailableSlots --- 
     private List<TimeSlotDTO> mergeAndFilterAvailability(List<StudentAvailability> studentAvailabilities, List<TeacherAvailability> teacherAvailabilities) {
        // ... (implementation as before) ...
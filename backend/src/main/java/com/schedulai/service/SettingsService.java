@@ -1,17 +1,19 @@
 package com.schedulai.service;
 
+import com.schedulai.dto.AIProviderDTO;
 import com.schedulai.dto.SystemSettingsDTO;
+import com.schedulai.util.ProviderPool;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.*;
 
 import java.io.*;
-import java.util.Collections;
-import java.util.Map;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.TimeZone;
 
@@ -23,6 +25,9 @@ public class SettingsService {
     // 配置文件路径
     private static final String CONFIG_PATH = "config/application-custom.properties";
     
+    // 额外AI端点的配置键前缀：openai.providers.<序号>.url 等
+    private static final String PROVIDERS_PREFIX = "openai.providers.";
+    
     @Value("${spring.application.name:SchedulAI}")
     private String defaultSystemName;
     
@@ -35,6 +40,25 @@ public class SettingsService {
     @Value("${openai.model:gpt-3.5-turbo}")
     private String defaultOpenaiModel;
     
+    @Value("${openai.pool.default-max-concurrent-calls:8}")
+    private int defaultMaxConcurrentCalls;
+    
+    private final OpenAIService openAIService;
+    
+    public SettingsService(OpenAIService openAIService) {
+        this.openAIService = openAIService;
+    }
+    
+    /**
+     * 启动时应用已保存的AI端点配置
+     */
+    @PostConstruct
+    void applySavedProviders() {
+        if (new File(CONFIG_PATH).exists()) {
+            applyProviderSettings(loadProperties());
+        }
+    }
+    
     /**
      * 获取系统设置
      */
@@ -62,6 +86,7 @@ public class SettingsService {
         settings.setOpenaiApiKey(props.getProperty("openai.api.key", defaultOpenaiApiKey));
         settings.setOpenaiApiUrl(props.getProperty("openai.api.url", defaultOpenaiApiUrl));
         settings.setOpenaiModel(props.getProperty("openai.model", defaultOpenaiModel));
+        settings.setOpenaiProviders(readProviders(props));
         
         // 邮件通知设置
         settings.setEmailNotification(Boolean.parseBoolean(props.getProperty("email.notification", "false")));
@@ -94,6 +119,9 @@ public class SettingsService {
         // 保存配置文件
         saveProperties(props);
         
+        // 立即应用到AI端点池，无需重启
+        applyProviderSettings(props);
+        
         return settingsDTO;
     }
     
@@ -120,6 +148,7 @@ public class SettingsService {
         defaultSettings.setOpenaiApiKey(defaultOpenaiApiKey);
         defaultSettings.setOpenaiApiUrl(defaultOpenaiApiUrl);
         defaultSettings.setOpenaiModel(defaultOpenaiModel);
+        defaultSettings.setOpenaiProviders(new ArrayList<>());
         
         // 邮件通知设置
         defaultSettings.setEmailNotification(false);
@@ -137,6 +166,7 @@ public class SettingsService {
         Properties props = new Properties();
         updateProperties(props, defaultSettings);
         saveProperties(props);
+        applyProviderSettings(props);
         
         return defaultSettings;
     }
@@ -147,33 +177,12 @@ public class SettingsService {
     public boolean testOpenAIConnection(SystemSettingsDTO settingsDTO) {
         log.info("Testing OpenAI connection with API URL: {}", settingsDTO.getOpenaiApiUrl());
         
-        try {
-            // 构建测试请求
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(settingsDTO.getOpenaiApiKey());
-            
-            Map<String, Object> requestBody = Map.of(
-                "model", settingsDTO.getOpenaiModel(),
-                "messages", Collections.singletonList(
-                    Map.of("role", "user", "content", "Hello")),
-                "max_tokens", 5
-            );
-            
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-            
-            // 设置超时时间（5秒）
-            RestTemplate restTemplate = new RestTemplate();
-            
-            // 发送请求
-            ResponseEntity<Map> response = restTemplate.postForEntity(
-                settingsDTO.getOpenaiApiUrl(), request, Map.class);
-            
-            return response.getStatusCode().is2xxSuccessful();
-        } catch (Exception e) {
-            log.error("Error testing OpenAI connection: {}", e.getMessage());
-            return false;
-        }
+        // 使用共享的HTTP客户端，超时时间5秒
+        return openAIService.testConnectionAsync(
+                settingsDTO.getOpenaiApiUrl(),
+                settingsDTO.getOpenaiApiKey(),
+                settingsDTO.getOpenaiModel(),
+                Duration.ofSeconds(5)).join();
     }
     
     /**
@@ -255,6 +264,23 @@ public class SettingsService {
         props.setProperty("openai.api.key", settings.getOpenaiApiKey());
         props.setProperty("openai.api.url", settings.getOpenaiApiUrl());
         props.setProperty("openai.model", settings.getOpenaiModel());
+        if (settings.getOpenaiProviders() != null) {
+            props.stringPropertyNames().stream()
+                .filter(key -> key.startsWith(PROVIDERS_PREFIX))
+                .forEach(props::remove);
+            List<AIProviderDTO> providers = settings.getOpenaiProviders();
+            for (int i = 0; i < providers.size(); i++) {
+                AIProviderDTO provider = providers.get(i);
+                String prefix = PROVIDERS_PREFIX + i + ".";
+                props.setProperty(prefix + "name", provider.getName() != null ? provider.getName() : "provider-" + (i + 1));
+                props.setProperty(prefix + "url", provider.getApiUrl() != null ? provider.getApiUrl() : "");
+                props.setProperty(prefix + "key", provider.getApiKey() != null ? provider.getApiKey() : "");
+                props.setProperty(prefix + "model", provider.getModel() != null ? provider.getModel() : "");
+                if (provider.getMaxConcurrentCalls() != null) {
+                    props.setProperty(prefix + "max-concurrent-calls", String.valueOf(provider.getMaxConcurrentCalls()));
+                }
+            }
+        }
         
         // 邮件通知设置
         props.setProperty("email.notification", String.valueOf(settings.getEmailNotification()));
@@ -269,6 +295,66 @@ public class SettingsService {
         props.setProperty("data.backup.path", settings.getBackupPath());
     }
     
+    /**
+     * 读取额外的AI端点（序号连续，遇到缺失的序号即停止）
+     */
+    private List<AIProviderDTO> readProviders(Properties props) {
+        List<AIProviderDTO> providers = new ArrayList<>();
+        for (int i = 0; props.getProperty(PROVIDERS_PREFIX + i + ".url") != null; i++) {
+            String prefix = PROVIDERS_PREFIX + i + ".";
+            String name = props.getProperty(prefix + "name", "provider-" + (i + 1));
+            providers.add(new AIProviderDTO(
+                name,
+                props.getProperty(prefix + "url"),
+                props.getProperty(prefix + "key", ""),
+                props.getProperty(prefix + "model", ""),
+                parseMaxConcurrentCalls(name, props.getProperty(prefix + "max-concurrent-calls"))));
+        }
+        return providers;
+    }
+    
+    /**
+     * 解析端点并发上限；配置文件可能被手工修改，无效值记录警告后返回null（使用默认值），不影响启动
+     */
+    private Integer parseMaxConcurrentCalls(String providerName, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            int maxConcurrentCalls = Integer.parseInt(value.trim());
+            if (maxConcurrentCalls > 0) {
+                return maxConcurrentCalls;
+            }
+        } catch (NumberFormatException e) {
+            // 与非正数一样处理
+        }
+        log.warn("Invalid max-concurrent-calls '{}' for AI provider '{}', using default {}", value, providerName, defaultMaxConcurrentCalls);
+        return null;
+    }
+    
+    /**
+     * 将主端点与额外端点应用到OpenAIService的端点池，无效条目记录警告后跳过
+     */
+    private void applyProviderSettings(Properties props) {
+        List<ProviderPool.Provider> providers = new ArrayList<>();
+        String primaryModel = props.getProperty("openai.model", defaultOpenaiModel);
+        String primaryUrl = props.getProperty("openai.api.url", defaultOpenaiApiUrl);
+        if (primaryUrl != null && !primaryUrl.isBlank()) {
+            providers.add(new ProviderPool.Provider("primary", primaryUrl,
+                props.getProperty("openai.api.key", defaultOpenaiApiKey), primaryModel, defaultMaxConcurrentCalls));
+        }
+        for (AIProviderDTO provider : readProviders(props)) {
+            try {
+                String model = provider.getModel() == null || provider.getModel().isBlank() ? primaryModel : provider.getModel();
+                int maxConcurrentCalls = provider.getMaxConcurrentCalls() != null ? provider.getMaxConcurrentCalls() : defaultMaxConcurrentCalls;
+                providers.add(new ProviderPool.Provider(provider.getName(), provider.getApiUrl(), provider.getApiKey(), model, maxConcurrentCalls));
+            } catch (IllegalArgumentException e) {
+                log.warn("Skipping invalid AI provider '{}': {}", provider.getName(), e.getMessage());
+            }
+        }
+        openAIService.configureProviders(providers);
+    }
+    
     /**
      * 保存配置文件
      */
@@ -1,17 +1,23 @@
 package com.schedulai.service;
 
+import com.schedulai.domain.AvailabilityOwnerType;
 import com.schedulai.domain.Student;
 import com.schedulai.domain.StudentAvailability;
+import com.schedulai.event.AvailabilityChangedEvent;
 import com.schedulai.repository.StudentAvailabilityRepository;
 import com.schedulai.repository.StudentRepository;
+import com.schedulai.util.AvailabilityDiff;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -21,6 +27,8 @@ public class StudentAvailabilityService {
 
     private final StudentAvailabilityRepository studentAvailabilityRepository;
     private final StudentRepository studentRepository; // To verify student exists
+    private final AvailabilityVersionService availabilityVersionService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Retrieves all availability slots for a specific student.
@@ -39,9 +47,10 @@ public class StudentAvailabilityService {
 
     /**
      * Adds a new availability slot for a student.
+     * The slot is merged into the student's canonical schedule, so it may extend an existing row.
      * @param studentId The ID of the student.
      * @param availability The StudentAvailability object to add.
-     * @return The saved StudentAvailability object.
+     * @return The stored StudentAvailability row that now covers the slot.
      */
     @Transactional
     public StudentAvailability addAvailability(Long studentId, StudentAvailability availability) {
@@ -57,16 +66,18 @@ public class StudentAvailabilityService {
             throw new IllegalArgumentException("Start time must be before end time.");
         }
 
-        availability.setStudent(student);
-        availability.setId(null); // Ensure it's a new entity
-        return studentAvailabilityRepository.save(availability);
+        List<AvailabilityDiff.Slot> slots = studentAvailabilityRepository.findByStudentIdOrderByDayOfWeekAscStartTimeAsc(studentId)
+                .stream().map(this::toSlot).collect(Collectors.toList());
+        AvailabilityDiff.Slot added = toSlot(availability);
+        slots.add(added);
+        return findCoveringRow(applyCanonical(student, slots), added);
     }
 
     /**
      * Updates an existing availability slot.
      * @param availabilityId The ID of the availability slot to update.
      * @param updatedAvailability The StudentAvailability object with updated data.
-     * @return The updated StudentAvailability object.
+     * @return The stored StudentAvailability row that now covers the updated slot.
      */
     @Transactional
     public StudentAvailability updateAvailability(Long availabilityId, StudentAvailability updatedAvailability) {
@@ -82,13 +93,17 @@ public class StudentAvailabilityService {
             throw new IllegalArgumentException("Start time must be before end time.");
         }
 
-        // Update fields - assuming student cannot be changed via this method
-        existingAvailability.setDayOfWeek(updatedAvailability.getDayOfWeek());
-        existingAvailability.setStartTime(updatedAvailability.getStartTime());
-        existingAvailability.setEndTime(updatedAvailability.getEndTime());
-        existingAvailability.setIsAvailable(updatedAvailability.getIsAvailable()); // Allow updating isAvailable flag
-
-        return studentAvailabilityRepository.save(existingAvailability);
+        // Replace the row's slot in the student's schedule (student cannot be changed via this method)
+        Student student = existingAvailability.getStudent();
+        List<AvailabilityDiff.Slot> slots = new ArrayList<>();
+        for (StudentAvailability row : studentAvailabilityRepository.findByStudentIdOrderByDayOfWeekAscStartTimeAsc(student.getId())) {
+            if (!row.getId().equals(availabilityId)) {
+                slots.add(toSlot(row));
+            }
+        }
+        AvailabilityDiff.Slot updated = toSlot(updatedAvailability);
+        slots.add(updated);
+        return findCoveringRow(applyCanonical(student, slots), updated);
     }
 
     /**
@@ -98,17 +113,26 @@ public class StudentAvailabilityService {
     @Transactional
     public void deleteAvailability(Long availabilityId) {
         log.info("Deleting availability ID: {}", availabilityId);
-        if (!studentAvailabilityRepository.existsById(availabilityId)) {
-            throw new EntityNotFoundException("StudentAvailability not found with ID: " + availabilityId);
-        }
-        studentAvailabilityRepository.deleteById(availabilityId);
+        StudentAvailability existingAvailability = studentAvailabilityRepository.findById(availabilityId)
+                .orElseThrow(() -> new EntityNotFoundException("StudentAvailability not found with ID: " + availabilityId));
+        Student student = existingAvailability.getStudent();
+        // Removing one row of a canonical schedule leaves it canonical
+        studentAvailabilityRepository.delete(existingAvailability);
+        List<AvailabilityDiff.Slot> remaining = studentAvailabilityRepository.findByStudentIdOrderByDayOfWeekAscStartTimeAsc(student.getId())
+                .stream().map(this::toSlot).collect(Collectors.toList());
+        availabilityVersionService.recordChange(AvailabilityOwnerType.STUDENT, student.getId(), remaining);
+        publishChange(student.getId(), List.of(), List.of(toSlot(existingAvailability)));
     }
 
     /**
      * Replaces all existing availability slots for a student with a new list.
+     * The submitted slots are normalized (zero-length slots dropped, overlapping and adjacent
+     * slots merged) and only the difference to the stored rows is written: unchanged rows keep
+     * their IDs, obsolete rows are rewritten in place where possible, and the remainder is
+     * inserted or deleted in batches.
      * @param studentId The ID of the student.
      * @param newAvailabilities The new list of StudentAvailability slots.
-     * @return The list of newly saved StudentAvailability slots.
+     * @return The student's canonical availability slots after the update.
      */
     @Transactional
     public List<StudentAvailability> batchUpdateAvailability(Long studentId, List<StudentAvailability> newAvailabilities) {
@@ -116,24 +140,100 @@ public class StudentAvailabilityService {
         Student student = studentRepository.findById(studentId)
                 .orElseThrow(() -> new EntityNotFoundException("Student not found with ID: " + studentId));
 
-        // Delete existing availability for this student
-        studentAvailabilityRepository.deleteByStudentId(studentId);
-        log.debug("Deleted existing availability for student ID: {}", studentId);
-
-        // Validate and save new availabilities
+        // Validate new availabilities
         for (StudentAvailability availability : newAvailabilities) {
             if (availability.getStartTime() == null || availability.getEndTime() == null || availability.getDayOfWeek() == null) {
                  throw new IllegalArgumentException("DayOfWeek, StartTime, and EndTime cannot be null for all slots.");
             }
-            if (!availability.getStartTime().isBefore(availability.getEndTime())) {
-                throw new IllegalArgumentException("Start time must be before end time for all slots.");
+            if (availability.getStartTime().isAfter(availability.getEndTime())) {
+                throw new IllegalArgumentException("Start time must not be after end time for all slots.");
             }
+        }
+
+        return applyCanonical(student, newAvailabilities.stream().map(this::toSlot).collect(Collectors.toList()));
+    }
+
+    /**
+     * Rewrites rows stored before write-time normalization into canonical form.
+     * @param studentId The ID of the student.
+     */
+    @Transactional
+    public List<StudentAvailability> canonicalizeAvailability(Long studentId) {
+        Student student = studentRepository.findById(studentId)
+                .orElseThrow(() -> new EntityNotFoundException("Student not found with ID: " + studentId));
+        List<AvailabilityDiff.Slot> slots = studentAvailabilityRepository.findByStudentIdOrderByDayOfWeekAscStartTimeAsc(studentId)
+                .stream().map(this::toSlot).collect(Collectors.toList());
+        return applyCanonical(student, slots);
+    }
+
+    /**
+     * Rewrites the student's rows into the canonical form of the given slots by applying the minimal diff,
+     * then records the new version and publishes the exact deltas.
+     * @return The student's rows after the update, ordered by day and start time.
+     */
+    private List<StudentAvailability> applyCanonical(Student student, List<AvailabilityDiff.Slot> slots) {
+        Long studentId = student.getId();
+        List<StudentAvailability> stored = studentAvailabilityRepository.findByStudentIdOrderByDayOfWeekAscStartTimeAsc(studentId);
+        AvailabilityDiff<StudentAvailability> diff = AvailabilityDiff.compute(stored, this::toSlot, slots);
+        if (diff.isEmpty()) {
+            log.info("Availability for student ID: {} is unchanged, nothing to write.", studentId);
+            availabilityVersionService.recordChange(AvailabilityOwnerType.STUDENT, studentId,
+                    stored.stream().map(this::toSlot).collect(Collectors.toList()));
+            return stored;
+        }
+
+        // Apply only the changes
+        if (!diff.getDeletes().isEmpty()) {
+            studentAvailabilityRepository.deleteAllInBatch(diff.getDeletes());
+        }
+        List<StudentAvailability> changed = new ArrayList<>();
+        for (AvailabilityDiff.Update<StudentAvailability> update : diff.getUpdates()) {
+            applySlot(update.row(), update.slot());
+            changed.add(update.row());
+        }
+        for (AvailabilityDiff.Slot slot : diff.getInserts()) {
+            StudentAvailability availability = new StudentAvailability();
             availability.setStudent(student);
-            availability.setId(null); // Ensure they are treated as new entities
+            applySlot(availability, slot);
+            changed.add(availability);
         }
+        studentAvailabilityRepository.saveAll(changed);
+        log.info("Applied availability diff for student ID: {}: {} inserted, {} updated, {} deleted",
+                studentId, diff.getInserts().size(), diff.getUpdates().size(), diff.getDeletes().size());
+
+        List<StudentAvailability> canonical = studentAvailabilityRepository.findByStudentIdOrderByDayOfWeekAscStartTimeAsc(studentId);
+        availabilityVersionService.recordChange(AvailabilityOwnerType.STUDENT, studentId,
+                canonical.stream().map(this::toSlot).collect(Collectors.toList()));
+        publishChange(studentId, diff.getAdded(), diff.getRemoved());
+        return canonical;
+    }
+
+    // --- Helpers ---
+
+    private AvailabilityDiff.Slot toSlot(StudentAvailability availability) {
+        return new AvailabilityDiff.Slot(availability.getDayOfWeek(), availability.getStartTime(), availability.getEndTime(),
+                availability.getIsAvailable() == null || availability.getIsAvailable());
+    }
+
+    private void applySlot(StudentAvailability availability, AvailabilityDiff.Slot slot) {
+        availability.setDayOfWeek(slot.dayOfWeek());
+        availability.setStartTime(slot.startTime());
+        availability.setEndTime(slot.endTime());
+        availability.setIsAvailable(slot.available());
+    }
+
+    // The row whose interval contains the given slot after merging
+    private StudentAvailability findCoveringRow(List<StudentAvailability> rows, AvailabilityDiff.Slot slot) {
+        return rows.stream()
+                .filter(row -> row.getDayOfWeek() == slot.dayOfWeek()
+                        && toSlot(row).available() == slot.available()
+                        && !row.getStartTime().isAfter(slot.startTime())
+                        && !row.getEndTime().isBefore(slot.endTime()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Availability slot was not stored: " + slot));
+    }
 
-        List<StudentAvailability> savedAvailabilities = studentAvailabilityRepository.saveAll(newAvailabilities);
-        log.info("Successfully saved {} new availability slots for student ID: {}", savedAvailabilities.size(), studentId);
-        return savedAvailabilities;
+    private void publishChange(Long studentId, List<AvailabilityDiff.Slot> added, List<AvailabilityDiff.Slot> removed) {
+        eventPublisher.publishEvent(new AvailabilityChangedEvent(AvailabilityOwnerType.STUDENT, studentId, added, removed));
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
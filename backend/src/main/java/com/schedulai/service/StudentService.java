@@ -26,14 +26,17 @@ public class StudentService {
 
     private final StudentRepository studentRepository;
     private final StudentAvailabilityRepository studentAvailabilityRepository;
+    private final StudentAvailabilityService studentAvailabilityService;
     private final EnrollmentRepository enrollmentRepository;
 
     @Autowired
     public StudentService(StudentRepository studentRepository, 
                           StudentAvailabilityRepository studentAvailabilityRepository,
+                          StudentAvailabilityService studentAvailabilityService,
                           EnrollmentRepository enrollmentRepository) {
         this.studentRepository = studentRepository;
         this.studentAvailabilityRepository = studentAvailabilityRepository;
+        this.studentAvailabilityService = studentAvailabilityService;
         this.enrollmentRepository = enrollmentRepository;
     }
 
@@ -205,8 +208,8 @@ public class StudentService {
         // Validate and convert DTOs to Entities
         List<StudentAvailability> newAvailabilities = newAvailabilityDTOs.stream()
                 .map(dto -> {
-                    if (dto.getStartTime() == null || dto.getEndTime() == null || !dto.getEndTime().isAfter(dto.getStartTime())) {
-                        throw new IllegalArgumentException("Invalid time slot: End time must be after start time. Slot: " + dto);
+                    if (dto.getStartTime() == null || dto.getEndTime() == null || dto.getEndTime().isBefore(dto.getStartTime())) {
+                        throw new IllegalArgumentException("Invalid time slot: End time must not be before start time. Slot: " + dto);
                     }
                     // 重要修复：将ID设为null，避免与已删除记录的ID冲突，从而避免乐观锁异常
                     dto.setId(null);
@@ -215,9 +218,8 @@ public class StudentService {
                 })
                 .collect(Collectors.toList());
 
-        // Replace existing availabilities efficiently
-        studentAvailabilityRepository.deleteByStudentId(studentId); // Delete old ones
-        List<StudentAvailability> savedAvailabilities = studentAvailabilityRepository.saveAll(newAvailabilities); // Save new ones
+        // Write only the difference against the stored slots
+        List<StudentAvailability> savedAvailabilities = studentAvailabilityService.batchUpdateAvailability(studentId, newAvailabilities);
 
         log.info("Successfully set {} availability slots for student ID: {}", savedAvailabilities.size(), studentId);
         return savedAvailabilities.stream()
@@ -0,0 +1,376 @@
+package com.schedulai.service;
+
+import com.schedulai.domain.AvailabilityOwnerType;
+import com.schedulai.domain.PrecomputedSuggestion;
+import com.schedulai.dto.ProposedLessonDTO;
+import com.schedulai.event.AvailabilityChangedEvent;
+import com.schedulai.event.LessonScheduleChangedEvent;
+import com.schedulai.repository.EnrollmentRepository;
+import com.schedulai.repository.PrecomputedSuggestionRepository;
+import com.schedulai.util.BlackoutCalendar;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Nightly precomputation of lesson time suggestions for every active enrollment (one with a lesson in the
+ * last lookback-days), so the Sunday-evening rush on /suggest-times is served from the
+ * precomputed_suggestions table instead of one AI call per request. Enrollments are spread over a
+ * bounded worker pool. Entries are deleted as soon as either participant's lessons or availability change;
+ * blackout days added later are filtered out when an entry is read. Misses fall back to the live path,
+ * whose answer is stored for the next request. Entries are keyed by duration: the nightly run computes the
+ * course's duration plus every other duration recently requested for the enrollment. Entries are written on
+ * a separate store thread in their own transaction, never on the AI client's threads; invalidation deletes
+ * also run in their own transaction, and an entry computed before the last in-memory invalidation of either
+ * participant is never served.
+ */
+@Service
+public class SuggestionPrecomputeService {
+
+    private static final Logger log = LoggerFactory.getLogger(SuggestionPrecomputeService.class);
+
+    private static final String PRECOMPUTED_NOTE = "预先计算的推荐时间";
+    // Used when the course has no duration
+    private static final int DEFAULT_DURATION_MINUTES = 60;
+    // Durations remembered per enrollment for the nightly run, besides the course's own
+    private static final int MAX_REQUESTED_DURATIONS = 4;
+
+    private final PrecomputedSuggestionRepository precomputedSuggestionRepository;
+    private final EnrollmentRepository enrollmentRepository;
+    private final SchedulingService schedulingService;
+    private final BlackoutService blackoutService;
+    private final AIUsageService aiUsageService;
+    // Stores and invalidation deletes: the listeners run after commit, when joining the finished transaction would fail
+    private final TransactionTemplate writeTransaction;
+
+    private final ExecutorService workers;
+    private final ExecutorService storeExecutor;
+    private final boolean enabled;
+    private final int activeLookbackDays;
+    private final int maxAgeHours;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    // Last invalidation (System.nanoTime) per participant, so a computation that started earlier is not stored
+    private final Map<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+    // Durations callers asked for per enrollment (pruned to active enrollments on each run)
+    private final Map<Long, Set<Integer>> requestedDurations = new ConcurrentHashMap<>();
+
+    private final AtomicLong storeHits = new AtomicLong();
+    private final AtomicLong storeMisses = new AtomicLong();
+    private final AtomicInteger runStored = new AtomicInteger();
+    private final AtomicInteger runFailed = new AtomicInteger();
+    private volatile LocalDateTime lastRunStartedAt;
+    private volatile LocalDateTime lastRunFinishedAt;
+    private volatile int lastRunEnrollments;
+
+    public SuggestionPrecomputeService(PrecomputedSuggestionRepository precomputedSuggestionRepository,
+                                       EnrollmentRepository enrollmentRepository,
+                                       SchedulingService schedulingService,
+                                       BlackoutService blackoutService,
+                                       AIUsageService aiUsageService,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${scheduling.precompute.enabled:true}") boolean enabled,
+                                       @Value("${scheduling.precompute.workers:4}") int workerCount,
+                                       @Value("${scheduling.precompute.active-lookback-days:60}") int activeLookbackDays,
+                                       @Value("${scheduling.precompute.max-age-hours:36}") int maxAgeHours) {
+        this.precomputedSuggestionRepository = precomputedSuggestionRepository;
+        this.enrollmentRepository = enrollmentRepository;
+        this.schedulingService = schedulingService;
+        this.blackoutService = blackoutService;
+        this.aiUsageService = aiUsageService;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.activeLookbackDays = activeLookbackDays;
+        this.maxAgeHours = maxAgeHours;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerCount), runnable -> {
+            Thread thread = new Thread(runnable, "suggestion-precompute-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.storeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "suggestion-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // --- Serving ---
+
+    /**
+     * Suggestions for an enrollment: the precomputed entry if it is fresh and still has enough usable slots,
+     * otherwise the live AI path (whose result is then stored).
+     */
+    public CompletableFuture<List<ProposedLessonDTO>> suggest(Long enrollmentId, int durationMinutes) {
+        rememberDuration(enrollmentId, durationMinutes);
+        Optional<PrecomputedSuggestion> stored = precomputedSuggestionRepository.findByEnrollmentIdAndDurationMinutes(enrollmentId, durationMinutes);
+        if (stored.isPresent() && !invalidatedSinceComputed(stored.get())) {
+            List<ProposedLessonDTO> usable = toProposals(stored.get());
+            if (usable.size() >= SchedulingService.MIN_SUGGESTIONS) {
+                storeHits.incrementAndGet();
+                // Served without calling the model: not counted against the caller's daily AI calls
+                aiUsageService.refundCall();
+                log.debug("Serving {} precomputed suggestions for enrollment {}", usable.size(), enrollmentId);
+                return CompletableFuture.completedFuture(usable);
+            }
+        }
+        storeMisses.incrementAndGet();
+        long startedAt = System.nanoTime();
+        CompletableFuture<List<ProposedLessonDTO>> live = schedulingService.suggestLessonTimesAsync(enrollmentId, durationMinutes);
+        // Stored in the background: the caller does not wait for the write
+        live.thenAcceptAsync(suggestions -> storeQuietly(enrollmentId, durationMinutes, suggestions, startedAt), storeExecutor);
+        return live;
+    }
+
+    private void rememberDuration(Long enrollmentId, int durationMinutes) {
+        Set<Integer> durations = requestedDurations.computeIfAbsent(enrollmentId, id -> ConcurrentHashMap.newKeySet());
+        if (durations.size() < MAX_REQUESTED_DURATIONS) {
+            durations.add(durationMinutes);
+        }
+    }
+
+    // The delete after an invalidation may have failed or not have run yet
+    private boolean invalidatedSinceComputed(PrecomputedSuggestion entry) {
+        long ageNanos = Math.max(0, ChronoUnit.NANOS.between(entry.getComputedAt(), LocalDateTime.now()));
+        return invalidatedSince(entry.getStudentId(), entry.getTeacherId(), System.nanoTime() - ageNanos);
+    }
+
+    // Slots that are still in the future and not on a blackout day; empty once the entry is older than max-age-hours
+    private List<ProposedLessonDTO> toProposals(PrecomputedSuggestion entry) {
+        LocalDateTime now = LocalDateTime.now();
+        if (entry.getComputedAt().isBefore(now.minusHours(maxAgeHours))) {
+            return List.of();
+        }
+        LocalDateTime notBefore = now.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        BlackoutCalendar blackouts = blackoutService.getCalendarForTeacher(entry.getTeacherId());
+        List<ProposedLessonDTO> proposals = new ArrayList<>();
+        for (String value : entry.getSlots().split(",")) {
+            LocalDateTime start = LocalDateTime.parse(value);
+            if (start.isBefore(notBefore) || blackouts.isBlocked(start.toLocalDate())) {
+                continue;
+            }
+            ProposedLessonDTO proposal = new ProposedLessonDTO(start, start.plusMinutes(entry.getDurationMinutes()));
+            proposal.setStudentId(entry.getStudentId());
+            proposal.setTeacherId(entry.getTeacherId());
+            proposal.setCourseId(entry.getCourseId());
+            proposal.setEnrollmentId(entry.getEnrollmentId());
+            proposal.setNotes(PRECOMPUTED_NOTE);
+            proposals.add(proposal);
+        }
+        return proposals;
+    }
+
+    // --- Precompute run ---
+
+    @Scheduled(cron = "${scheduling.precompute.cron:0 0 2 * * *}")
+    public void scheduledPrecompute() {
+        if (enabled) {
+            startPrecompute();
+        }
+    }
+
+    /**
+     * Starts a precompute run over all active enrollments in the background.
+     * Returns false if a run is already in progress.
+     */
+    public boolean startPrecompute() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Suggestion precompute already running, skipping");
+            return false;
+        }
+        List<Object[]> enrollments;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            precomputedSuggestionRepository.deleteComputedBefore(now.minusHours(maxAgeHours));
+            enrollments = enrollmentRepository.findActiveEnrollmentSummaries(now.minusDays(activeLookbackDays));
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        // Only computations still in flight need the invalidation times
+        long pruneBefore = System.nanoTime() - TimeUnit.HOURS.toNanos(1);
+        invalidatedAt.values().removeIf(at -> at - pruneBefore < 0);
+        Set<Long> activeIds = enrollments.stream().map(row -> (Long) row[0]).collect(Collectors.toSet());
+        requestedDurations.keySet().retainAll(activeIds);
+        lastRunStartedAt = LocalDateTime.now();
+        lastRunEnrollments = enrollments.size();
+        runStored.set(0);
+        runFailed.set(0);
+        log.info("Precomputing lesson time suggestions for {} active enrollments", enrollments.size());
+        if (enrollments.isEmpty()) {
+            finishRun();
+            return true;
+        }
+
+        // One task per enrollment and duration: the course's duration and the ones callers asked for
+        List<Map.Entry<Long, Integer>> tasks = new ArrayList<>();
+        for (Object[] row : enrollments) {
+            Long enrollmentId = (Long) row[0];
+            Set<Integer> durations = new TreeSet<>(requestedDurations.getOrDefault(enrollmentId, Set.of()));
+            durations.add(row[4] != null ? ((Number) row[4]).intValue() : DEFAULT_DURATION_MINUTES);
+            durations.forEach(duration -> tasks.add(Map.entry(enrollmentId, duration)));
+        }
+        AtomicInteger remaining = new AtomicInteger(tasks.size());
+        for (Map.Entry<Long, Integer> task : tasks) {
+            workers.execute(() -> {
+                try {
+                    precompute(task.getKey(), task.getValue());
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        finishRun();
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    private void precompute(Long enrollmentId, int durationMinutes) {
+        long startedAt = System.nanoTime();
+        try {
+            List<ProposedLessonDTO> suggestions = schedulingService.suggestLessonTimesAsync(enrollmentId, durationMinutes).join();
+            if (store(enrollmentId, durationMinutes, suggestions, startedAt)) {
+                runStored.incrementAndGet();
+            }
+        } catch (Exception e) {
+            runFailed.incrementAndGet();
+            log.warn("Failed to precompute suggestions for enrollment {}: {}", enrollmentId, e.getMessage());
+        }
+    }
+
+    private void finishRun() {
+        lastRunFinishedAt = LocalDateTime.now();
+        running.set(false);
+        log.info("Suggestion precompute finished: {} enrollments, {} stored, {} failed",
+                lastRunEnrollments, runStored.get(), runFailed.get());
+    }
+
+    private void storeQuietly(Long enrollmentId, int durationMinutes, List<ProposedLessonDTO> suggestions, long startedAt) {
+        try {
+            store(enrollmentId, durationMinutes, suggestions, startedAt);
+        } catch (Exception e) {
+            log.warn("Could not store suggestions for enrollment {}: {}", enrollmentId, e.getMessage());
+        }
+    }
+
+    // Returns false when there is nothing worth storing or the participants changed since startedAt
+    private boolean store(Long enrollmentId, int durationMinutes, List<ProposedLessonDTO> suggestions, long startedAt) {
+        return Boolean.TRUE.equals(writeTransaction.execute(status -> doStore(enrollmentId, durationMinutes, suggestions, startedAt)));
+    }
+
+    private boolean doStore(Long enrollmentId, int durationMinutes, List<ProposedLessonDTO> suggestions, long startedAt) {
+        // Local fallback answers are not kept, so the next request tries the AI again
+        if (suggestions.isEmpty() || suggestions.stream().anyMatch(s -> SchedulingService.LOCAL_FALLBACK_NOTE.equals(s.getNotes()))) {
+            return false;
+        }
+        ProposedLessonDTO first = suggestions.get(0);
+        if (invalidatedSince(first.getStudentId(), first.getTeacherId(), startedAt)) {
+            return false;
+        }
+        PrecomputedSuggestion entry = precomputedSuggestionRepository.findByEnrollmentIdAndDurationMinutes(enrollmentId, durationMinutes)
+                .orElseGet(PrecomputedSuggestion::new);
+        entry.setEnrollmentId(enrollmentId);
+        entry.setStudentId(first.getStudentId());
+        entry.setTeacherId(first.getTeacherId());
+        entry.setCourseId(first.getCourseId());
+        entry.setDurationMinutes(durationMinutes);
+        entry.setSlots(suggestions.stream()
+                .map(s -> s.getStartTime().toString())
+                .collect(Collectors.joining(",")));
+        entry.setComputedAt(LocalDateTime.now());
+        PrecomputedSuggestion saved = precomputedSuggestionRepository.save(entry);
+        // An invalidation may have run between the check and the save
+        if (invalidatedSince(first.getStudentId(), first.getTeacherId(), startedAt)) {
+            precomputedSuggestionRepository.delete(saved);
+            return false;
+        }
+        return true;
+    }
+
+    // --- Invalidation ---
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAvailabilityChanged(AvailabilityChangedEvent event) {
+        if (event.getOwnerType() == AvailabilityOwnerType.STUDENT) {
+            invalidatedAt.put(studentKey(event.getOwnerId()), System.nanoTime());
+            writeTransaction.executeWithoutResult(status -> precomputedSuggestionRepository.deleteByStudentId(event.getOwnerId()));
+        } else {
+            invalidatedAt.put(teacherKey(event.getOwnerId()), System.nanoTime());
+            writeTransaction.executeWithoutResult(status -> precomputedSuggestionRepository.deleteByTeacherId(event.getOwnerId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLessonScheduleChanged(LessonScheduleChangedEvent event) {
+        long now = System.nanoTime();
+        invalidatedAt.put(studentKey(event.getStudentId()), now);
+        invalidatedAt.put(teacherKey(event.getTeacherId()), now);
+        Integer deleted = writeTransaction.execute(status ->
+                precomputedSuggestionRepository.deleteByParticipants(event.getStudentId(), event.getTeacherId()));
+        log.debug("Deleted {} precomputed suggestions after lesson change of student {} / teacher {}",
+                deleted, event.getStudentId(), event.getTeacherId());
+    }
+
+    private boolean invalidatedSince(Long studentId, Long teacherId, long startedAt) {
+        Long student = invalidatedAt.get(studentKey(studentId));
+        Long teacher = invalidatedAt.get(teacherKey(teacherId));
+        return (student != null && student - startedAt >= 0) || (teacher != null && teacher - startedAt >= 0);
+    }
+
+    private static String studentKey(Long studentId) {
+        return "student:" + studentId;
+    }
+
+    private static String teacherKey(Long teacherId) {
+        return "teacher:" + teacherId;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("running", running.get());
+        stats.put("storedEntries", precomputedSuggestionRepository.count());
+        stats.put("storeHits", storeHits.get());
+        stats.put("storeMisses", storeMisses.get());
+        stats.put("lastRunStartedAt", lastRunStartedAt);
+        stats.put("lastRunFinishedAt", lastRunFinishedAt);
+        stats.put("lastRunEnrollments", lastRunEnrollments);
+        stats.put("lastRunStored", runStored.get());
+        stats.put("lastRunFailed", runFailed.get());
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Entries already stored stay valid; the rest is recomputed on the next run or on demand
+        workers.shutdownNow();
+        storeExecutor.shutdownNow();
+    }
+}
@@ -1,17 +1,23 @@
 package com.schedulai.service;
 
+import com.schedulai.domain.AvailabilityOwnerType;
 import com.schedulai.domain.Teacher;
 import com.schedulai.domain.TeacherAvailability;
+import com.schedulai.event.AvailabilityChangedEvent;
 import com.schedulai.repository.TeacherAvailabilityRepository;
 import com.schedulai.repository.TeacherRepository;
+import com.schedulai.util.AvailabilityDiff;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -21,6 +27,8 @@ public class TeacherAvailabilityService {
 
     private final TeacherAvailabilityRepository teacherAvailabilityRepository;
     private final TeacherRepository teacherRepository; // To verify teacher exists
+    private final AvailabilityVersionService availabilityVersionService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Retrieves all availability slots for a specific teacher.
@@ -39,9 +47,10 @@ public class TeacherAvailabilityService {
 
     /**
      * Adds a new availability slot for a teacher.
+     * The slot is merged into the teacher's canonical schedule, so it may extend an existing row.
      * @param teacherId The ID of the teacher.
      * @param availability The TeacherAvailability object to add.
-     * @return The saved TeacherAvailability object.
+     * @return The stored TeacherAvailability row that now covers the slot.
      */
     @Transactional
     public TeacherAvailability addAvailability(Long teacherId, TeacherAvailability availability) {
@@ -57,16 +66,18 @@ public class TeacherAvailabilityService {
             throw new IllegalArgumentException("Start time must be before end time.");
         }
 
-        availability.setTeacher(teacher);
-        availability.setId(null); // Ensure it's a new entity
-        return teacherAvailabilityRepository.save(availability);
+        List<AvailabilityDiff.Slot> slots = teacherAvailabilityRepository.findByTeacherIdOrderByDayOfWeekAscStartTimeAsc(teacherId)
+                .stream().map(this::toSlot).collect(Collectors.toList());
+        AvailabilityDiff.Slot added = toSlot(availability);
+        slots.add(added);
+        return findCoveringRow(applyCanonical(teacher, slots), added);
     }
 
     /**
      * Updates an existing availability slot.
      * @param availabilityId The ID of the availability slot to update.
      * @param updatedAvailability The TeacherAvailability object with updated data.
-     * @return The updated TeacherAvailability object.
+     * @return The stored TeacherAvailability row that now covers the updated slot.
      */
     @Transactional
     public TeacherAvailability updateAvailability(Long availabilityId, TeacherAvailability updatedAvailability) {
@@ -82,13 +93,17 @@ public class TeacherAvailabilityService {
             throw new IllegalArgumentException("Start time must be before end time.");
         }
 
-        // Update fields - assuming teacher cannot be changed via this method
-        existingAvailability.setDayOfWeek(updatedAvailability.getDayOfWeek());
-        existingAvailability.setStartTime(updatedAvailability.getStartTime());
-        existingAvailability.setEndTime(updatedAvailability.getEndTime());
-        existingAvailability.setIsAvailable(updatedAvailability.getIsAvailable()); // Allow updating isAvailable flag
-
-        return teacherAvailabilityRepository.save(existingAvailability);
+        // Replace the row's slot in the teacher's schedule (teacher cannot be changed via this method)
+        Teacher teacher = existingAvailability.getTeacher();
+        List<AvailabilityDiff.Slot> slots = new ArrayList<>();
+        for (TeacherAvailability row : teacherAvailabilityRepository.findByTeacherIdOrderByDayOfWeekAscStartTimeAsc(teacher.getId())) {
+            if (!row.getId().equals(availabilityId)) {
+                slots.add(toSlot(row));
+            }
+        }
+        AvailabilityDiff.Slot updated = toSlot(updatedAvailability);
+        slots.add(updated);
+        return findCoveringRow(applyCanonical(teacher, slots), updated);
     }
 
     /**
@@ -98,18 +113,27 @@ public class TeacherAvailabilityService {
     @Transactional
     public void deleteAvailability(Long availabilityId) {
         log.info("Deleting availability ID: {}", availabilityId);
-        if (!teacherAvailabilityRepository.existsById(availabilityId)) {
-            throw new EntityNotFoundException("TeacherAvailability not found with ID: " + availabilityId);
-        }
-        teacherAvailabilityRepository.deleteById(availabilityId);
+        TeacherAvailability existingAvailability = teacherAvailabilityRepository.findById(availabilityId)
+                .orElseThrow(() -> new EntityNotFoundException("TeacherAvailability not found with ID: " + availabilityId));
+        Teacher teacher = existingAvailability.getTeacher();
+        // Removing one row of a canonical schedule leaves it canonical
+        teacherAvailabilityRepository.delete(existingAvailability);
+        List<AvailabilityDiff.Slot> remaining = teacherAvailabilityRepository.findByTeacherIdOrderByDayOfWeekAscStartTimeAsc(teacher.getId())
+                .stream().map(this::toSlot).collect(Collectors.toList());
+        availabilityVersionService.recordChange(AvailabilityOwnerType.TEACHER, teacher.getId(), remaining);
+        publishChange(teacher.getId(), List.of(), List.of(toSlot(existingAvailability)));
     }
 
     /**
      * Replaces all existing availability slots for a teacher with a new list.
      * Useful for UIs where the user sets the entire weekly schedule at once.
+     * The submitted slots are normalized (zero-length slots dropped, overlapping and adjacent
+     * slots merged) and only the difference to the stored rows is written: unchanged rows keep
+     * their IDs, obsolete rows are rewritten in place where possible, and the remainder is
+     * inserted or deleted in batches.
      * @param teacherId The ID of the teacher.
      * @param newAvailabilities The new list of TeacherAvailability slots.
-     * @return The list of newly saved TeacherAvailability slots.
+     * @return The teacher's canonical availability slots after the update.
      */
     @Transactional
     public List<TeacherAvailability> batchUpdateAvailability(Long teacherId, List<TeacherAvailability> newAvailabilities) {
@@ -117,24 +141,100 @@ public class TeacherAvailabilityService {
         Teacher teacher = teacherRepository.findById(teacherId)
                 .orElseThrow(() -> new EntityNotFoundException("Teacher not found with ID: " + teacherId));
 
-        // Delete existing availability for this teacher
-        teacherAvailabilityRepository.deleteByTeacherId(teacherId);
-        log.debug("Deleted existing availability for teacher ID: {}", teacherId);
-
-        // Validate and save new availabilities
+        // Validate new availabilities
         for (TeacherAvailability availability : newAvailabilities) {
             if (availability.getStartTime() == null || availability.getEndTime() == null || availability.getDayOfWeek() == null) {
                  throw new IllegalArgumentException("DayOfWeek, StartTime, and EndTime cannot be null for all slots.");
             }
-            if (!availability.getStartTime().isBefore(availability.getEndTime())) {
-                throw new IllegalArgumentException("Start time must be before end time for all slots.");
+            if (availability.getStartTime().isAfter(availability.getEndTime())) {
+                throw new IllegalArgumentException("Start time must not be after end time for all slots.");
             }
+        }
+
+        return applyCanonical(teacher, newAvailabilities.stream().map(this::toSlot).collect(Collectors.toList()));
+    }
+
+    /**
+     * Rewrites rows stored before write-time normalization into canonical form.
+     * @param teacherId The ID of the teacher.
+     */
+    @Transactional
+    public List<TeacherAvailability> canonicalizeAvailability(Long teacherId) {
+        Teacher teacher = teacherRepository.findById(teacherId)
+                .orElseThrow(() -> new EntityNotFoundException("Teacher not found with ID: " + teacherId));
+        List<AvailabilityDiff.Slot> slots = teacherAvailabilityRepository.findByTeacherIdOrderByDayOfWeekAscStartTimeAsc(teacherId)
+                .stream().map(this::toSlot).collect(Collectors.toList());
+        return applyCanonical(teacher, slots);
+    }
+
+    /**
+     * Rewrites the teacher's rows into the canonical form of the given slots by applying the minimal diff,
+     * then records the new version and publishes the exact deltas.
+     * @return The teacher's rows after the update, ordered by day and start time.
+     */
+    private List<TeacherAvailability> applyCanonical(Teacher teacher, List<AvailabilityDiff.Slot> slots) {
+        Long teacherId = teacher.getId();
+        List<TeacherAvailability> stored = teacherAvailabilityRepository.findByTeacherIdOrderByDayOfWeekAscStartTimeAsc(teacherId);
+        AvailabilityDiff<TeacherAvailability> diff = AvailabilityDiff.compute(stored, this::toSlot, slots);
+        if (diff.isEmpty()) {
+            log.info("Availability for teacher ID: {} is unchanged, nothing to write.", teacherId);
+            availabilityVersionService.recordChange(AvailabilityOwnerType.TEACHER, teacherId,
+                    stored.stream().map(this::toSlot).collect(Collectors.toList()));
+            return stored;
+        }
+
+        // Apply only the changes
+        if (!diff.getDeletes().isEmpty()) {
+            teacherAvailabilityRepository.deleteAllInBatch(diff.getDeletes());
+        }
+        List<TeacherAvailability> changed = new ArrayList<>();
+        for (AvailabilityDiff.Update<TeacherAvailability> update : diff.getUpdates()) {
+            applySlot(update.row(), update.slot());
+            changed.add(update.row());
+        }
+        for (AvailabilityDiff.Slot slot : diff.getInserts()) {
+            TeacherAvailability availability = new TeacherAvailability();
             availability.setTeacher(teacher);
-            availability.setId(null); // Ensure they are treated as new entities
+            applySlot(availability, slot);
+            changed.add(availability);
         }
+        teacherAvailabilityRepository.saveAll(changed);
+        log.info("Applied availability diff for teacher ID: {}: {} inserted, {} updated, {} deleted",
+                teacherId, diff.getInserts().size(), diff.getUpdates().size(), diff.getDeletes().size());
+
+        List<TeacherAvailability> canonical = teacherAvailabilityRepository.findByTeacherIdOrderByDayOfWeekAscStartTimeAsc(teacherId);
+        availabilityVersionService.recordChange(AvailabilityOwnerType.TEACHER, teacherId,
+                canonical.stream().map(this::toSlot).collect(Collectors.toList()));
+        publishChange(teacherId, diff.getAdded(), diff.getRemoved());
+        return canonical;
+    }
+
+    // --- Helpers ---
+
+    private AvailabilityDiff.Slot toSlot(TeacherAvailability availability) {
+        return new AvailabilityDiff.Slot(availability.getDayOfWeek(), availability.getStartTime(), availability.getEndTime(),
+                availability.getIsAvailable() == null || availability.getIsAvailable());
+    }
+
+    private void applySlot(TeacherAvailability availability, AvailabilityDiff.Slot slot) {
+        availability.setDayOfWeek(slot.dayOfWeek());
+        availability.setStartTime(slot.startTime());
+        availability.setEndTime(slot.endTime());
+        availability.setIsAvailable(slot.available());
+    }
+
+    // The row whose interval contains the given slot after merging
+    private TeacherAvailability findCoveringRow(List<TeacherAvailability> rows, AvailabilityDiff.Slot slot) {
+        return rows.stream()
+                .filter(row -> row.getDayOfWeek() == slot.dayOfWeek()
+                        && toSlot(row).available() == slot.available()
+                        && !row.getStartTime().isAfter(slot.startTime())
+                        && !row.getEndTime().isBefore(slot.endTime()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Availability slot was not stored: " + slot));
+    }
 
-        List<TeacherAvailability> savedAvailabilities = teacherAvailabilityRepository.saveAll(newAvailabilities);
-        log.info("Successfully saved {} new availability slots for teacher ID: {}", savedAvailabilities.size(), teacherId);
-        return savedAvailabilities;
+    private void publishChange(Long teacherId, List<AvailabilityDiff.Slot> added, List<AvailabilityDiff.Slot> removed) {
+        eventPublisher.publishEvent(new AvailabilityChangedEvent(AvailabilityOwnerType.TEACHER, teacherId, added, removed));
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -32,6 +32,7 @@ public class TeacherService {
 
     private final TeacherRepository teacherRepository;
     private final TeacherAvailabilityRepository teacherAvailabilityRepository;
+    private final TeacherAvailabilityService teacherAvailabilityService;
     private final TeacherCourseRepository teacherCourseRepository;
     private final TeacherRecommendationService recommendationService;
     private final CourseRepository courseRepository;
@@ -39,11 +40,13 @@ public class TeacherService {
     @Autowired
     public TeacherService(TeacherRepository teacherRepository,
                           TeacherAvailabilityRepository teacherAvailabilityRepository,
+                          TeacherAvailabilityService teacherAvailabilityService,
                           TeacherCourseRepository teacherCourseRepository,
                           TeacherRecommendationService recommendationService,
                           CourseRepository courseRepository) {
         this.teacherRepository = teacherRepository;
         this.teacherAvailabilityRepository = teacherAvailabilityRepository;
+        this.teacherAvailabilityService = teacherAvailabilityService;
         this.teacherCourseRepository = teacherCourseRepository;
         this.recommendationService = recommendationService;
         this.courseRepository = courseRepository;
@@ -285,8 +288,8 @@ public class TeacherService {
         // Validate and convert DTOs to Entities
         List<TeacherAvailability> newAvailabilities = newAvailabilityDTOs.stream()
             .map(dto -> {
-                 if (dto.getStartTime() == null || dto.getEndTime() == null || !dto.getEndTime().isAfter(dto.getStartTime())) {
-                    throw new IllegalArgumentException("Invalid time slot: End time must be after start time. Slot: " + dto);
+                 if (dto.getStartTime() == null || dto.getEndTime() == null || dto.getEndTime().isBefore(dto.getStartTime())) {
+                    throw new IllegalArgumentException("Invalid time slot: End time must not be before start time. Slot: " + dto);
                 }
                 // 重要修复：将ID设为null，避免与已删除记录的ID冲突，从而避免乐观锁异常
                 dto.setId(null);
@@ -294,9 +297,8 @@ public class TeacherService {
             })
             .collect(Collectors.toList());
 
-        // Efficiently replace existing availabilities
-        teacherAvailabilityRepository.deleteByTeacherId(teacherId);
-        List<TeacherAvailability> savedAvailabilities = teacherAvailabilityRepository.saveAll(newAvailabilities);
+        // Write only the difference against the stored slots
+        List<TeacherAvailability> savedAvailabilities = teacherAvailabilityService.batchUpdateAvailability(teacherId, newAvailabilities);
 
         log.info("Successfully set {} availability slots for teacher ID: {}", savedAvailabilities.size(), teacherId);
         return savedAvailabilities.stream()
@@ -0,0 +1,182 @@
+package com.schedulai.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 可用时间差量：比较已存储的时间段行与提交的新时间段集合，得出最少的插入、更新、删除操作，
+ * 以及供下游缓存增量更新的精确增减时间段。
+ * 未变化的行保持原 ID；被删除的行优先复用为更新，以减少主键与索引页的变动。
+ * @param <T> 存储行的实体类型
+ */
+public final class AvailabilityDiff<T> {
+
+    /**
+     * 与实体无关的时间段表示
+     */
+    public record Slot(DayOfWeek dayOfWeek, LocalTime startTime, LocalTime endTime, boolean available) {
+    }
+
+    /**
+     * 复用已有行：将 row 改写为 slot
+     */
+    public record Update<T>(T row, Slot slot) {
+    }
+
+    private static final Comparator<Slot> ORDER = Comparator.comparing(Slot::dayOfWeek)
+            .thenComparing(Slot::startTime)
+            .thenComparing(Slot::endTime)
+            .thenComparing(Slot::available);
+
+    private final List<Slot> inserts;
+    private final List<Update<T>> updates;
+    private final List<T> deletes;
+    private final List<Slot> added;
+    private final List<Slot> removed;
+
+    private AvailabilityDiff(List<Slot> inserts, List<Update<T>> updates, List<T> deletes, List<Slot> added, List<Slot> removed) {
+        this.inserts = inserts;
+        this.updates = updates;
+        this.deletes = deletes;
+        this.added = added;
+        this.removed = removed;
+    }
+
+    /**
+     * 规范化：丢弃零长度时间段，按星期、开始时间排序，并合并同一天内状态相同且重叠或相邻的时间段。
+     * 规范形式下同一天同一状态的时间段按开始时间严格递增且互不相接，读取时无需再排序合并。
+     */
+    public static List<Slot> normalize(List<Slot> slots) {
+        List<Slot> sorted = new ArrayList<>();
+        for (Slot slot : slots) {
+            if (slot.startTime().isBefore(slot.endTime())) {
+                sorted.add(slot);
+            }
+        }
+        sorted.sort(Comparator.comparing(Slot::available).thenComparing(ORDER));
+        List<Slot> merged = new ArrayList<>();
+        for (Slot slot : sorted) {
+            Slot last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && last.available() == slot.available() && last.dayOfWeek() == slot.dayOfWeek()
+                    && !slot.startTime().isAfter(last.endTime())) {
+                LocalTime end = slot.endTime().isAfter(last.endTime()) ? slot.endTime() : last.endTime();
+                merged.set(merged.size() - 1, new Slot(last.dayOfWeek(), last.startTime(), end, last.available()));
+            } else {
+                merged.add(slot);
+            }
+        }
+        merged.sort(ORDER);
+        return merged;
+    }
+
+    /**
+     * 规范形式的 SHA-256 校验和，用于判断两端的可用时间是否一致
+     */
+    public static String checksum(List<Slot> canonicalSlots) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Slot slot : canonicalSlots) {
+                String line = slot.dayOfWeek() + "|" + slot.startTime() + "|" + slot.endTime() + "|" + slot.available() + "\n";
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 计算差量
+     * @param stored 当前存储的行
+     * @param toSlot 行到时间段的转换
+     * @param submitted 提交的时间段（会先规范化）
+     */
+    public static <T> AvailabilityDiff<T> compute(List<T> stored, Function<T, Slot> toSlot, List<Slot> submitted) {
+        // 提交集合中尚未匹配到存储行的时间段（多重集合）
+        Map<Slot, Integer> pending = new HashMap<>();
+        List<Slot> normalized = normalize(submitted);
+        for (Slot slot : normalized) {
+            pending.merge(slot, 1, Integer::sum);
+        }
+
+        List<T> unmatchedRows = new ArrayList<>();
+        List<Slot> removed = new ArrayList<>();
+        for (T row : stored) {
+            Slot slot = toSlot.apply(row);
+            Integer count = pending.get(slot);
+            if (count != null) {
+                // 完全相同，保留该行
+                if (count == 1) pending.remove(slot); else pending.put(slot, count - 1);
+            } else {
+                unmatchedRows.add(row);
+                removed.add(slot);
+            }
+        }
+
+        List<Slot> added = new ArrayList<>();
+        for (Slot slot : normalized) {
+            Integer count = pending.get(slot);
+            if (count != null) {
+                added.add(slot);
+                if (count == 1) pending.remove(slot); else pending.put(slot, count - 1);
+            }
+        }
+
+        // 多余的旧行优先改写为新时间段，其余删除；新时间段不足时再插入
+        List<Update<T>> updates = new ArrayList<>();
+        List<Slot> inserts = new ArrayList<>();
+        Iterator<T> reusable = unmatchedRows.iterator();
+        for (Slot slot : added) {
+            if (reusable.hasNext()) {
+                updates.add(new Update<>(reusable.next(), slot));
+            } else {
+                inserts.add(slot);
+            }
+        }
+        List<T> deletes = new ArrayList<>();
+        reusable.forEachRemaining(deletes::add);
+
+        return new AvailabilityDiff<>(inserts, updates, deletes, added, removed);
+    }
+
+    public List<Slot> getInserts() {
+        return inserts;
+    }
+
+    public List<Update<T>> getUpdates() {
+        return updates;
+    }
+
+    public List<T> getDeletes() {
+        return deletes;
+    }
+
+    /**
+     * 新增的时间段（含通过改写旧行实现的部分）
+     */
+    public List<Slot> getAdded() {
+        return added;
+    }
+
+    /**
+     * 移除的时间段（含被改写的旧行原来的值）
+     */
+    public List<Slot> getRemoved() {
+        return removed;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+}
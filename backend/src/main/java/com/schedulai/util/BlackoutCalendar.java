@@ -0,0 +1,151 @@
+package com.schedulai.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 停课日历：将若干闭区间日期段（节假日、考试周、教师休假）编译为有序、互不重叠的区间数组，
+ * 通过二分查找在 O(log n) 内判断某个日期或时间段是否落在停课期内。
+ * 实例不可变，可安全地在多个线程间共享。
+ */
+public final class BlackoutCalendar {
+
+    public static final BlackoutCalendar EMPTY = new BlackoutCalendar(new long[0], new long[0]);
+
+    // 以 epochDay 表示的区间起止（均为闭区间），按起点升序排列且互不重叠、互不相邻
+    private final long[] starts;
+    private final long[] ends;
+
+    private BlackoutCalendar(long[] starts, long[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * 由任意顺序、可能重叠的日期段构建日历
+     * @param ranges 每个元素为 {startDate, endDate}（闭区间）
+     */
+    public static BlackoutCalendar of(List<LocalDate[]> ranges) {
+        if (ranges == null || ranges.isEmpty()) {
+            return EMPTY;
+        }
+        long[][] raw = new long[ranges.size()][];
+        int n = 0;
+        for (LocalDate[] range : ranges) {
+            if (range == null || range[0] == null || range[1] == null || range[1].isBefore(range[0])) {
+                continue;
+            }
+            raw[n++] = new long[]{range[0].toEpochDay(), range[1].toEpochDay()};
+        }
+        return compile(Arrays.copyOf(raw, n));
+    }
+
+    private static BlackoutCalendar compile(long[][] raw) {
+        if (raw.length == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(raw, (a, b) -> Long.compare(a[0], b[0]));
+        long[] starts = new long[raw.length];
+        long[] ends = new long[raw.length];
+        int size = 0;
+        for (long[] range : raw) {
+            // 与上一段重叠或相邻（相差一天）时合并
+            if (size > 0 && range[0] <= ends[size - 1] + 1) {
+                ends[size - 1] = Math.max(ends[size - 1], range[1]);
+            } else {
+                starts[size] = range[0];
+                ends[size] = range[1];
+                size++;
+            }
+        }
+        return new BlackoutCalendar(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size));
+    }
+
+    /**
+     * 合并两个日历（例如机构统一停课 + 某位教师的个人休假）
+     */
+    public BlackoutCalendar union(BlackoutCalendar other) {
+        if (other == null || other.isEmpty()) return this;
+        if (this.isEmpty()) return other;
+        long[][] raw = new long[starts.length + other.starts.length][];
+        for (int i = 0; i < starts.length; i++) {
+            raw[i] = new long[]{starts[i], ends[i]};
+        }
+        for (int i = 0; i < other.starts.length; i++) {
+            raw[starts.length + i] = new long[]{other.starts[i], other.ends[i]};
+        }
+        return compile(raw);
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * 判断某一天是否处于停课期
+     */
+    public boolean isBlocked(LocalDate date) {
+        return date != null && isBlocked(date.toEpochDay());
+    }
+
+    public boolean isBlocked(long epochDay) {
+        int idx = firstEndingOnOrAfter(epochDay);
+        return idx < starts.length && starts[idx] <= epochDay;
+    }
+
+    /**
+     * 判断 [start, end) 时间段是否触及任何停课日
+     */
+    public boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null || isEmpty()) {
+            return false;
+        }
+        long firstDay = start.toLocalDate().toEpochDay();
+        // end 为开区间，恰好在午夜结束的课程不占用次日
+        LocalDateTime lastInstant = end.isAfter(start) ? end.minusNanos(1) : start;
+        long lastDay = lastInstant.toLocalDate().toEpochDay();
+        int idx = firstEndingOnOrAfter(firstDay);
+        return idx < starts.length && starts[idx] <= lastDay;
+    }
+
+    /**
+     * 返回与 [from, to] 相交的停课区间（已裁剪到查询范围内），用于展示或提示词
+     */
+    public List<LocalDate[]> rangesBetween(LocalDate from, LocalDate to) {
+        List<LocalDate[]> result = new ArrayList<>();
+        if (from == null || to == null || to.isBefore(from)) {
+            return result;
+        }
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        for (int i = firstEndingOnOrAfter(fromDay); i < starts.length && starts[i] <= toDay; i++) {
+            result.add(new LocalDate[]{
+                    LocalDate.ofEpochDay(Math.max(starts[i], fromDay)),
+                    LocalDate.ofEpochDay(Math.min(ends[i], toDay))
+            });
+        }
+        return result;
+    }
+
+    // 二分查找第一个 end >= day 的区间下标
+    private int firstEndingOnOrAfter(long day) {
+        int lo = 0;
+        int hi = ends.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[mid] < day) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
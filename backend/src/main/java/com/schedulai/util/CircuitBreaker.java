@@ -0,0 +1,171 @@
+package com.schedulai.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 熔断器：统计最近 windowSize 次调用的失败率，达到阈值（且样本数不少于 minimumCalls）时断开，
+ * 断开期间直接拒绝调用；openDurationMillis 后进入半开状态，只放行一个探测请求，
+ * 探测成功则闭合并清空统计，失败则重新断开。线程安全。
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * 熔断器指标快照
+     */
+    public record Metrics(State state, double failureRate, int bufferedCalls, long openedCount,
+                          long rejectedCount, long successCount, long failureCount, long millisUntilHalfOpen) {
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationMillis;
+    private final LongSupplier clock;
+
+    // 环形缓冲区记录最近的调用结果
+    private final boolean[] outcomes;
+    private int position;
+    private int buffered;
+    private int failuresInWindow;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    private long openedCount;
+    private long rejectedCount;
+    private long successCount;
+    private long failureCount;
+
+    /**
+     * @param windowSize 滑动窗口大小（调用次数）
+     * @param minimumCalls 计算失败率所需的最少调用次数
+     * @param failureRateThreshold 触发熔断的失败率（0-1）
+     * @param openDurationMillis 断开状态持续时长，之后进入半开
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openDurationMillis) {
+        this(windowSize, minimumCalls, failureRateThreshold, openDurationMillis, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openDurationMillis, LongSupplier clock) {
+        if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("Require 0 < minimumCalls <= windowSize");
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("failureRateThreshold must be in (0, 1]");
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.clock = clock;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    /**
+     * 是否允许本次调用；返回 true 时调用方必须随后调用 onSuccess、onFailure 或 onIgnored
+     */
+    public synchronized boolean tryAcquirePermission() {
+        refreshState();
+        if (state == State.OPEN) {
+            rejectedCount++;
+            return false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                rejectedCount++;
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        successCount++;
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            state = State.CLOSED;
+            resetWindow();
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        failureCount++;
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && buffered >= minimumCalls && failureRate() >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * 调用结束但结果不计入统计（如调用方主动取消），只释放半开状态下的探测名额
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * 当前状态；断开时长已过则为半开，即使还没有调用方申请过许可
+     */
+    public synchronized State state() {
+        refreshState();
+        return state;
+    }
+
+    public synchronized Metrics metrics() {
+        refreshState();
+        long untilHalfOpen = state == State.OPEN ? Math.max(0, openDurationMillis - (clock.getAsLong() - openedAt)) : 0;
+        return new Metrics(state, failureRate(), buffered, openedCount, rejectedCount, successCount, failureCount, untilHalfOpen);
+    }
+
+    // 断开时长已过：进入半开，等待下一次 tryAcquirePermission 探测
+    private void refreshState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openDurationMillis) {
+            state = State.HALF_OPEN;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (buffered == windowSize) {
+            if (outcomes[position]) {
+                failuresInWindow--;
+            }
+        } else {
+            buffered++;
+        }
+        outcomes[position] = failure;
+        if (failure) {
+            failuresInWindow++;
+        }
+        position = (position + 1) % windowSize;
+    }
+
+    private double failureRate() {
+        return buffered == 0 ? 0 : failuresInWindow / (double) buffered;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+        openedCount++;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        position = 0;
+        buffered = 0;
+        failuresInWindow = 0;
+    }
+}
@@ -0,0 +1,379 @@
+package com.schedulai.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * AI 补全结果缓存：以 (模型, 系统消息, 用户提示, 温度, 最大 token) 的 SHA-256 作为键（内容寻址），
+ * 内存层为按访问顺序淘汰的 LRU，并带 TTL；可选的磁盘层为追加写日志文件，
+ * 每行 "key \t 过期时间 \t Base64(内容)"，重启时回放（后写覆盖先写）。
+ * 磁盘层在内存中只保留键、过期时间和行在文件中的位置，内容按需从文件读取；
+ * 被覆盖或过期的行超过有效数据量时压缩重写日志。所有方法线程安全。
+ */
+public final class CompletionCache {
+
+    /**
+     * 命中率统计快照
+     */
+    public record Stats(long hits, long misses, long diskHits, long evictions, int size, int maxEntries, long ttlSeconds) {
+    }
+
+    // 日志文件小于该大小时不压缩
+    private static final long DEFAULT_COMPACT_MIN_BYTES = 1L << 20;
+    // 每追加这么多行扫描一次磁盘索引，把过期条目计入待回收空间
+    private static final int EXPIRY_SWEEP_INTERVAL = 1024;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Path diskPath;
+    private final LongSupplier clock;
+    private final long compactMinBytes;
+
+    // 值为过期时间与内容
+    private record Entry(long expiresAt, String value) {
+    }
+
+    // 磁盘层索引：行的起始位置与长度（含换行）
+    private record DiskRef(long offset, int length, long expiresAt) {
+    }
+
+    private final LinkedHashMap<String, Entry> memory;
+    // 磁盘层中仍有效的条目（内存层被 LRU 淘汰后仍可从文件恢复），按最后写入顺序
+    private final LinkedHashMap<String, DiskRef> diskIndex = new LinkedHashMap<>();
+    private FileChannel diskChannel;
+    private long diskSize;
+    private long liveBytes;
+    private int appendsSinceSweep;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxEntries 内存层最大条目数
+     * @param ttlSeconds 条目有效期（秒）
+     * @param diskPath 磁盘层文件路径，为 null 时只使用内存层
+     */
+    public CompletionCache(int maxEntries, long ttlSeconds, Path diskPath) {
+        this(maxEntries, ttlSeconds, diskPath, System::currentTimeMillis, DEFAULT_COMPACT_MIN_BYTES);
+    }
+
+    CompletionCache(int maxEntries, long ttlSeconds, Path diskPath, LongSupplier clock) {
+        this(maxEntries, ttlSeconds, diskPath, clock, DEFAULT_COMPACT_MIN_BYTES);
+    }
+
+    CompletionCache(int maxEntries, long ttlSeconds, Path diskPath, LongSupplier clock, long compactMinBytes) {
+        if (maxEntries <= 0 || ttlSeconds <= 0) {
+            throw new IllegalArgumentException("maxEntries and ttlSeconds must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.diskPath = diskPath;
+        this.clock = clock;
+        this.compactMinBytes = compactMinBytes;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > CompletionCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        if (diskPath != null) {
+            loadFromDisk();
+        }
+    }
+
+    /**
+     * 计算请求的内容寻址键
+     */
+    public static String key(String model, String systemMessage, String userPrompt, double temperature, int maxTokens) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // 各字段带长度前缀，避免拼接歧义
+            for (String part : new String[]{model, systemMessage, userPrompt, Double.toString(temperature), Integer.toString(maxTokens)}) {
+                byte[] bytes = (part == null ? "" : part).getBytes(StandardCharsets.UTF_8);
+                digest.update((bytes.length + ":").getBytes(StandardCharsets.UTF_8));
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 查询缓存，未命中或已过期返回 null
+     */
+    public synchronized String get(String key) {
+        long now = clock.getAsLong();
+        Entry entry = memory.get(key);
+        if (entry != null && entry.expiresAt() > now) {
+            hits.incrementAndGet();
+            return entry.value();
+        }
+        if (entry != null) {
+            memory.remove(key);
+        }
+        DiskRef ref = diskIndex.get(key);
+        if (ref != null && ref.expiresAt() > now) {
+            String value = readValue(ref);
+            if (value != null) {
+                memory.put(key, new Entry(ref.expiresAt(), value));
+                hits.incrementAndGet();
+                diskHits.incrementAndGet();
+                return value;
+            }
+        }
+        if (ref != null) {
+            dropFromIndex(key);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 写入缓存；启用磁盘层时同时追加到日志文件
+     */
+    public synchronized void put(String key, String value) {
+        if (key == null || value == null) {
+            return;
+        }
+        Entry entry = new Entry(clock.getAsLong() + ttlMillis, value);
+        memory.put(key, entry);
+        if (diskPath != null) {
+            append(key, entry);
+        }
+    }
+
+    /**
+     * 清空内存层与磁盘层
+     */
+    public synchronized void clear() {
+        memory.clear();
+        diskIndex.clear();
+        liveBytes = 0;
+        if (diskPath != null) {
+            compact();
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.get(), misses.get(), diskHits.get(), evictions.get(), memory.size(), maxEntries, ttlMillis / 1000L);
+    }
+
+    /**
+     * 关闭磁盘日志文件
+     */
+    public synchronized void close() {
+        if (diskChannel != null) {
+            try {
+                diskChannel.close();
+            } catch (IOException ignored) {
+                // 关闭时的异常无需处理
+            }
+            diskChannel = null;
+        }
+    }
+
+    // --- 磁盘层 ---
+
+    private void loadFromDisk() {
+        long now = clock.getAsLong();
+        long offset = 0;
+        if (Files.exists(diskPath)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(diskPath))) {
+                ByteArrayOutputStream line = new ByteArrayOutputStream();
+                int b;
+                while ((b = in.read()) != -1) {
+                    if (b != '\n') {
+                        line.write(b);
+                        continue;
+                    }
+                    int length = line.size() + 1;
+                    index(line.toString(StandardCharsets.UTF_8), offset, length, now);
+                    offset += length;
+                    line.reset();
+                }
+                // 写入中断留下的半行不计入索引，压缩时丢弃
+                offset += line.size();
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read completion cache file " + diskPath, e);
+            }
+        }
+        diskSize = offset;
+        // 最近写入的条目预热到内存层
+        List<Map.Entry<String, DiskRef>> entries = new ArrayList<>(diskIndex.entrySet());
+        for (int i = Math.max(0, entries.size() - maxEntries); i < entries.size(); i++) {
+            String value = readValue(entries.get(i).getValue());
+            if (value != null) {
+                memory.put(entries.get(i).getKey(), new Entry(entries.get(i).getValue().expiresAt(), value));
+            }
+        }
+        if (diskSize > liveBytes) {
+            compact();
+        }
+    }
+
+    private void index(String line, long offset, int length, long now) {
+        String[] parts = line.split("\t", 3);
+        if (parts.length != 3) {
+            return;
+        }
+        try {
+            long expiresAt = Long.parseLong(parts[1]);
+            Base64.getDecoder().decode(parts[2]);
+            dropFromIndex(parts[0]); // 保持按最后写入顺序
+            if (expiresAt > now) {
+                diskIndex.put(parts[0], new DiskRef(offset, length, expiresAt));
+                liveBytes += length;
+            }
+        } catch (IllegalArgumentException e) {
+            // 跳过损坏的行
+        }
+    }
+
+    private void dropFromIndex(String key) {
+        DiskRef removed = diskIndex.remove(key);
+        if (removed != null) {
+            liveBytes -= removed.length();
+        }
+    }
+
+    private String readValue(DiskRef ref) {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(ref.length());
+            FileChannel channel = channel();
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, ref.offset() + buffer.position()) < 0) {
+                    return null;
+                }
+            }
+            String line = new String(buffer.array(), 0, ref.length() - 1, StandardCharsets.UTF_8);
+            return new String(Base64.getDecoder().decode(line.split("\t", 3)[2]), StandardCharsets.UTF_8);
+        } catch (IOException | RuntimeException e) {
+            // 文件被外部改动或损坏时按未命中处理
+            return null;
+        }
+    }
+
+    private void append(String key, Entry entry) {
+        byte[] line = format(key, entry).getBytes(StandardCharsets.UTF_8);
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            FileChannel channel = channel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, diskSize + buffer.position());
+            }
+        } catch (IOException e) {
+            // 磁盘层只是加速手段，写失败不影响内存层
+            close();
+            return;
+        }
+        dropFromIndex(key);
+        diskIndex.put(key, new DiskRef(diskSize, line.length, entry.expiresAt()));
+        liveBytes += line.length;
+        diskSize += line.length;
+        if (++appendsSinceSweep >= EXPIRY_SWEEP_INTERVAL) {
+            appendsSinceSweep = 0;
+            sweepExpired();
+        }
+        // 被覆盖、过期的行多于有效行时压缩
+        if (diskSize >= compactMinBytes && diskSize - liveBytes > liveBytes) {
+            try {
+                compact();
+            } catch (IllegalStateException e) {
+                // 保留未压缩的日志，下次写入时再试
+            }
+        }
+    }
+
+    private void sweepExpired() {
+        long now = clock.getAsLong();
+        Iterator<DiskRef> refs = diskIndex.values().iterator();
+        while (refs.hasNext()) {
+            DiskRef ref = refs.next();
+            if (ref.expiresAt() <= now) {
+                liveBytes -= ref.length();
+                refs.remove();
+            }
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (diskChannel == null) {
+            if (diskPath.getParent() != null) {
+                Files.createDirectories(diskPath.getParent());
+            }
+            diskChannel = FileChannel.open(diskPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return diskChannel;
+    }
+
+    // 压缩：逐条复制有效行到临时文件后原子替换，内存中只保留新的位置
+    private void compact() {
+        try {
+            if (diskPath.getParent() != null) {
+                Files.createDirectories(diskPath.getParent());
+            }
+            Path tmp = diskPath.resolveSibling(diskPath.getFileName() + ".tmp");
+            LinkedHashMap<String, DiskRef> compacted = new LinkedHashMap<>();
+            long offset = 0;
+            try (FileChannel target = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                long now = clock.getAsLong();
+                for (Map.Entry<String, DiskRef> e : diskIndex.entrySet()) {
+                    DiskRef ref = e.getValue();
+                    String value = ref.expiresAt() > now ? readValue(ref) : null;
+                    if (value == null) {
+                        continue;
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(format(e.getKey(), new Entry(ref.expiresAt(), value))
+                            .getBytes(StandardCharsets.UTF_8));
+                    int length = buffer.remaining();
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    compacted.put(e.getKey(), new DiskRef(offset, length, ref.expiresAt()));
+                    offset += length;
+                }
+            }
+            close();
+            Files.move(tmp, diskPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            diskIndex.clear();
+            diskIndex.putAll(compacted);
+            diskSize = offset;
+            liveBytes = offset;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to compact completion cache file " + diskPath, e);
+        }
+    }
+
+    private static String format(String key, Entry entry) {
+        return key + "\t" + entry.expiresAt() + "\t"
+                + Base64.getEncoder().encodeToString(entry.value().getBytes(StandardCharsets.UTF_8)) + "\n";
+    }
+}
@@ -0,0 +1,128 @@
+package com.schedulai.util;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 有效期索引：将若干互不重叠的日期区间（可用时间模板的生效期）映射到模板 ID，
+ * 通过二分查找在 O(log n) 内定位某天生效的模板，并可将日期范围切分为模板不变的连续区段，
+ * 使按日期展开时间段时只在区段边界处切换模板。实例不可变，可在线程间共享。
+ */
+public final class EffectiveDateIndex {
+
+    public static final EffectiveDateIndex EMPTY = new EffectiveDateIndex(new long[0], new long[0], new long[0]);
+
+    // 开放结束日期用 Long.MAX_VALUE 表示
+    private static final long OPEN_END = Long.MAX_VALUE;
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] ids;
+
+    private EffectiveDateIndex(long[] starts, long[] ends, long[] ids) {
+        this.starts = starts;
+        this.ends = ends;
+        this.ids = ids;
+    }
+
+    /**
+     * 一个生效区间；to 为 null 表示长期有效
+     */
+    public record Entry(long id, LocalDate from, LocalDate to) {
+    }
+
+    /**
+     * 日期范围内模板不变的连续区段；templateId 为 null 表示使用基础周模板
+     */
+    public record Segment(LocalDate start, LocalDate end, Long templateId) {
+    }
+
+    /**
+     * 构建索引
+     * @throws IllegalArgumentException 区间无效或相互重叠
+     */
+    public static EffectiveDateIndex of(List<Entry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return EMPTY;
+        }
+        Entry[] sorted = entries.toArray(new Entry[0]);
+        Arrays.sort(sorted, (a, b) -> a.from().compareTo(b.from()));
+        long[] starts = new long[sorted.length];
+        long[] ends = new long[sorted.length];
+        long[] ids = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            Entry entry = sorted[i];
+            if (entry.from() == null || (entry.to() != null && entry.to().isBefore(entry.from()))) {
+                throw new IllegalArgumentException("Invalid effective date range for template " + entry.id());
+            }
+            starts[i] = entry.from().toEpochDay();
+            ends[i] = entry.to() == null ? OPEN_END : entry.to().toEpochDay();
+            ids[i] = entry.id();
+            if (i > 0 && starts[i] <= ends[i - 1]) {
+                throw new IllegalArgumentException("Effective date ranges of templates " + ids[i - 1] + " and " + ids[i] + " overlap.");
+            }
+        }
+        return new EffectiveDateIndex(starts, ends, ids);
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    /**
+     * 返回该日期生效的模板 ID，没有则返回 null（即使用基础周模板）
+     */
+    public Long templateIdOn(LocalDate date) {
+        if (date == null) {
+            return null;
+        }
+        long day = date.toEpochDay();
+        int idx = firstEndingOnOrAfter(day);
+        return idx < starts.length && starts[idx] <= day ? ids[idx] : null;
+    }
+
+    /**
+     * 将 [from, to] 切分为连续区段，相邻区段的模板不同
+     */
+    public List<Segment> segments(LocalDate from, LocalDate to) {
+        List<Segment> result = new ArrayList<>();
+        if (from == null || to == null || to.isBefore(from)) {
+            return result;
+        }
+        long cursor = from.toEpochDay();
+        long last = to.toEpochDay();
+        int idx = firstEndingOnOrAfter(cursor);
+        while (cursor <= last) {
+            if (idx < starts.length && starts[idx] <= cursor) {
+                // 处于模板生效期内
+                long segmentEnd = Math.min(ends[idx], last);
+                result.add(new Segment(LocalDate.ofEpochDay(cursor), LocalDate.ofEpochDay(segmentEnd), ids[idx]));
+                cursor = segmentEnd + 1;
+                idx++;
+            } else {
+                // 下一个模板生效前使用基础周模板
+                long segmentEnd = idx < starts.length ? Math.min(starts[idx] - 1, last) : last;
+                result.add(new Segment(LocalDate.ofEpochDay(cursor), LocalDate.ofEpochDay(segmentEnd), null));
+                cursor = segmentEnd + 1;
+            }
+        }
+        return result;
+    }
+
+    // 二分查找第一个 end >= day 的区间下标
+    private int firstEndingOnOrAfter(long day) {
+        int lo = 0;
+        int hi = ends.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[mid] < day) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
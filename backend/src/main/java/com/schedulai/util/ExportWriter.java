@@ -0,0 +1,141 @@
+package com.schedulai.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * 逐行写出导出数据（CSV 或 NDJSON），只保留一个固定大小的写缓冲，因此导出多少行内存占用都不变。
+ * CSV 以 UTF-8 BOM 开头（Excel 才能正确显示中文），第一行为列名；以 = + - @ 开头的文本加单引号前缀，
+ * 避免在表格软件中被当作公式执行。NDJSON 每行一个 JSON 对象，键为列名。
+ */
+public abstract class ExportWriter {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final DateTimeFormatter CSV_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    protected final List<String> columns;
+
+    private ExportWriter(List<String> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * 创建写出器；CSV 的 BOM 和列名行立即写入（调用 flush 后即发送给客户端）
+     */
+    public static ExportWriter create(Format format, OutputStream out, List<String> columns) throws IOException {
+        return format == Format.CSV ? new Csv(out, columns) : new Ndjson(out, columns);
+    }
+
+    /**
+     * 写出一行，值的顺序与列名一致
+     */
+    public abstract void writeRow(Object... values) throws IOException;
+
+    public abstract void flush() throws IOException;
+
+    private static final class Csv extends ExportWriter {
+
+        private final Writer writer;
+
+        Csv(OutputStream out, List<String> columns) throws IOException {
+            super(columns);
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write('\uFEFF');
+            writeLine(columns.toArray());
+        }
+
+        @Override
+        public void writeRow(Object... values) throws IOException {
+            writeLine(values);
+        }
+
+        private void writeLine(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(cell(values[i]));
+            }
+            writer.write("\r\n");
+        }
+
+        static String cell(Object value) {
+            if (value == null) {
+                return "";
+            }
+            if (value instanceof LocalDateTime time) {
+                return time.format(CSV_DATE_TIME);
+            }
+            if (value instanceof Number) {
+                return value.toString();
+            }
+            String text = value.toString();
+            if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+                text = "'" + text;
+            }
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                text = '"' + text.replace("\"", "\"\"") + '"';
+            }
+            return text;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static final class Ndjson extends ExportWriter {
+
+        private final JsonGenerator generator;
+
+        Ndjson(OutputStream out, List<String> columns) throws IOException {
+            super(columns);
+            this.generator = JSON_FACTORY.createGenerator(out);
+            // 流的关闭由调用方负责
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // 行之间只用换行分隔（默认会在顶层值之间再加一个空格）
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void writeRow(Object... values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                generator.writeFieldName(columns.get(i));
+                Object value = values[i];
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof Integer || value instanceof Long) {
+                    generator.writeNumber(((Number) value).longValue());
+                } else if (value instanceof BigDecimal decimal) {
+                    generator.writeNumber(decimal);
+                } else if (value instanceof LocalDateTime time) {
+                    generator.writeString(time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.schedulai.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * 增量解析流式返回的 JSON 数组：文本片段到达即喂给 Jackson 非阻塞解析器，
+ * 数组中每个对象一闭合就用给定的 ObjectReader 绑定并回调 onElement，无需等待完整响应。
+ * 数组之前的内容（如 Markdown 代码围栏、含 '[' 的说明文字）以及数组结束后的内容会被忽略，
+ * 数组起点按 {@link #arrayStart} 识别（与非流式解析相同）；
+ * 无法绑定的元素（如日期格式错误）跳过并计数。JSON 语法错误时 feed 抛出异常。非线程安全。
+ */
+public final class JsonArrayStreamParser<T> {
+
+    private final ObjectReader reader;
+    private final Consumer<T> onElement;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private boolean started;
+    // 数组开始之前尚无法判定的文本：末尾的 '['（及其后的空白）要等下一个字符才能确定是否为数组起点
+    private final StringBuilder preamble = new StringBuilder();
+    private boolean complete;
+    // 相对顶层数组的嵌套深度：1 表示位于数组内、元素之间
+    private int depth;
+    private TokenBuffer element;
+    private int elementCount;
+    private int skippedCount;
+
+    public JsonArrayStreamParser(ObjectReader reader, Consumer<T> onElement) throws IOException {
+        this.reader = reader;
+        this.onElement = onElement;
+        this.parser = reader.getFactory().createNonBlockingByteArrayParser();
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * 喂入下一段文本，并回调其中已闭合的元素
+     */
+    public void feed(String chunk) throws IOException {
+        if (complete || chunk.isEmpty()) {
+            return;
+        }
+        if (!started) {
+            preamble.append(chunk);
+            int arrayStart = arrayStart(preamble);
+            if (arrayStart < 0) {
+                int open = preamble.lastIndexOf("[");
+                if (open >= 0 && preamble.substring(open + 1).isBlank()) {
+                    preamble.delete(0, open);
+                } else {
+                    preamble.setLength(0);
+                }
+                return;
+            }
+            started = true;
+            chunk = preamble.substring(arrayStart);
+            preamble.setLength(0);
+        }
+        byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        feeder.feedInput(bytes, 0, bytes.length);
+        drain();
+    }
+
+    /**
+     * 输入结束；返回顶层数组是否完整闭合（响应被截断时为 false，已回调的元素仍然有效）
+     */
+    public boolean finish() throws IOException {
+        if (started && !complete) {
+            feeder.endOfInput();
+            try {
+                drain();
+            } catch (JsonEOFException e) {
+                return false;
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * 对象数组的起点：之后第一个非空白字符为 '{' 或 ']' 的 '['；说明文字中的 "[1]"、"[注]" 等不算。
+     * 没有（或尚无法判定）时返回 -1
+     */
+    public static int arrayStart(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != '[') {
+                continue;
+            }
+            int next = i + 1;
+            while (next < text.length() && Character.isWhitespace(text.charAt(next))) {
+                next++;
+            }
+            if (next < text.length() && (text.charAt(next) == '{' || text.charAt(next) == ']')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int elementCount() {
+        return elementCount;
+    }
+
+    public int skippedCount() {
+        return skippedCount;
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while (!complete && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (depth == 0) {
+                // 首个 token 必为 '['（前面的内容已被截掉）
+                depth = 1;
+                continue;
+            }
+            if (element != null) {
+                element.copyCurrentEvent(parser);
+                if (token.isStructStart()) {
+                    depth++;
+                } else if (token.isStructEnd() && --depth == 1) {
+                    emit();
+                }
+                continue;
+            }
+            // depth == 1：数组元素之间
+            if (token == JsonToken.END_ARRAY) {
+                complete = true;
+            } else if (token.isStructStart()) {
+                element = new TokenBuffer(parser);
+                element.copyCurrentEvent(parser);
+                depth++;
+            } else {
+                skippedCount++; // 标量元素
+            }
+        }
+    }
+
+    private void emit() {
+        TokenBuffer buffered = element;
+        element = null;
+        T value;
+        try (JsonParser elementParser = buffered.asParser()) {
+            value = reader.readValue(elementParser);
+        } catch (IOException e) {
+            skippedCount++;
+            return;
+        }
+        elementCount++;
+        onElement.accept(value);
+    }
+}
@@ -0,0 +1,95 @@
+package com.schedulai.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 解析模型返回的"键 → 文本"JSON 对象（批量请求的回答按键拆分回各条结果）。
+ * 第一个 '{' 之前和最后一个 '}' 之后的内容（Markdown 代码围栏、说明文字）会被忽略；
+ * 只保留期望的键且值为非空文本的条目，缺失或无效的键由调用方单独处理。
+ */
+public final class KeyedJsonReply {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private KeyedJsonReply() {
+    }
+
+    /**
+     * 按回答拆分一批条目的结果
+     *
+     * @param parsed     回答是否为合法的 JSON 对象（为 false 时所有条目都未回答）
+     * @param answered   已回答的条目及其文本（保持批内顺序）
+     * @param unanswered 回答中缺失或值无效的条目（保持批内顺序）
+     */
+    public record Split<T>(boolean parsed, Map<T, String> answered, List<T> unanswered) {
+    }
+
+    /**
+     * @return 期望键中解析成功的条目（保持回答中的顺序）；回答不是合法 JSON 对象时为空
+     */
+    public static Map<String, String> parse(String reply, Collection<String> expectedKeys) {
+        Map<String, String> values = new LinkedHashMap<>();
+        JsonNode root = readObject(reply);
+        if (root == null) {
+            return values;
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String key = field.getKey().trim();
+            JsonNode value = field.getValue();
+            if (expectedKeys.contains(key) && value.isTextual() && !value.asText().isBlank()) {
+                values.put(key, value.asText().trim());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 把回答按 keyOf 得到的键分配给批内各条目
+     */
+    public static <T> Split<T> split(String reply, List<T> items, Function<T, String> keyOf) {
+        List<String> keys = items.stream().map(keyOf).toList();
+        boolean parsed = readObject(reply) != null;
+        Map<String, String> values = parsed ? parse(reply, keys) : Map.of();
+        Map<T, String> answered = new LinkedHashMap<>();
+        List<T> unanswered = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            String content = values.get(keys.get(i));
+            if (content != null) {
+                answered.put(items.get(i), content);
+            } else {
+                unanswered.add(items.get(i));
+            }
+        }
+        return new Split<>(parsed, answered, unanswered);
+    }
+
+    // 第一个 '{' 到最后一个 '}' 之间的 JSON 对象；不存在或无法解析时为 null
+    private static JsonNode readObject(String reply) {
+        if (reply == null) {
+            return null;
+        }
+        int start = reply.indexOf('{');
+        int end = reply.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            return null;
+        }
+        try {
+            JsonNode root = MAPPER.readTree(reply.substring(start, end + 1));
+            return root != null && root.isObject() ? root : null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
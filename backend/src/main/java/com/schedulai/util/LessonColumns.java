@@ -0,0 +1,460 @@
+package com.schedulai.util;
+
+import com.schedulai.domain.LessonStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 按列存放的课程分析数据：每节课一行，各列为并行的基本类型数组
+ * （开始时间的 epoch 分钟、时长、状态序号，以及教师、学生、课程的稠密下标），每行约 30 字节。
+ * 行按课程 id 升序排列，更新时二分查找；删除只做标记，重新加载时才真正释放。
+ * 聚合查询（过滤 + 分组 + 按状态计数和求和）在 ForkJoinPool 上分段并行扫描，
+ * 与写入之间用读写锁隔离。
+ * 时间按本地时间编码（不做时区换算），与数据库中的 LocalDateTime 一致。
+ */
+public final class LessonColumns {
+
+    /**
+     * 分组维度；DAY 需要过滤条件中的时间范围
+     */
+    public enum GroupBy { NONE, TEACHER, STUDENT, COURSE, DAY }
+
+    private static final LessonStatus[] STATUSES = LessonStatus.values();
+    private static final byte DELETED = -1;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    // 未指定上限时 DAY 分组最多的天数
+    public static final int DEFAULT_MAX_DAYS = 4000;
+    // 每个并行任务至少扫描的行数
+    static final int SCAN_CHUNK = 1 << 15;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ForkJoinPool pool;
+
+    private long[] ids;
+    private int[] startMinutes;
+    private int[] durations;
+    private byte[] statuses;
+    private int[] teachers;
+    private int[] students;
+    private int[] courses;
+    private int size;
+    private int liveRows;
+
+    private final Dictionary teacherIds = new Dictionary();
+    private final Dictionary studentIds = new Dictionary();
+    private final Dictionary courseIds = new Dictionary();
+
+    public LessonColumns() {
+        this(1024, ForkJoinPool.commonPool());
+    }
+
+    public LessonColumns(int initialCapacity, ForkJoinPool pool) {
+        int capacity = Math.max(16, initialCapacity);
+        this.pool = pool;
+        ids = new long[capacity];
+        startMinutes = new int[capacity];
+        durations = new int[capacity];
+        statuses = new byte[capacity];
+        teachers = new int[capacity];
+        students = new int[capacity];
+        courses = new int[capacity];
+    }
+
+    // --- 写入 ---
+
+    /**
+     * 新增或覆盖一节课
+     */
+    public void put(long id, LocalDateTime start, LocalDateTime end, LessonStatus status,
+                    long teacherId, long studentId, long courseId) {
+        int startMinute = toMinute(start);
+        int duration = (int) Math.min(Integer.MAX_VALUE, Math.max(0L, (long) toMinute(end) - startMinute));
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, id);
+            if (row < 0) {
+                row = insertRow(-row - 1, id);
+                liveRows++;
+            } else if (statuses[row] == DELETED) {
+                liveRows++;
+            }
+            startMinutes[row] = startMinute;
+            durations[row] = duration;
+            statuses[row] = (byte) status.ordinal();
+            teachers[row] = teacherIds.indexOf(teacherId);
+            students[row] = studentIds.indexOf(studentId);
+            courses[row] = courseIds.indexOf(courseId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return 这节课此前是否存在
+     */
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, id);
+            if (row < 0 || statuses[row] == DELETED) {
+                return false;
+            }
+            statuses[row] = DELETED;
+            liveRows--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 按 id 顺序加载时总是追加到末尾；并发提交的新课程偶尔需要移动后面的行
+    private int insertRow(int row, long id) {
+        if (size == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            startMinutes = Arrays.copyOf(startMinutes, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            teachers = Arrays.copyOf(teachers, capacity);
+            students = Arrays.copyOf(students, capacity);
+            courses = Arrays.copyOf(courses, capacity);
+        }
+        int moved = size - row;
+        if (moved > 0) {
+            System.arraycopy(ids, row, ids, row + 1, moved);
+            System.arraycopy(startMinutes, row, startMinutes, row + 1, moved);
+            System.arraycopy(durations, row, durations, row + 1, moved);
+            System.arraycopy(statuses, row, statuses, row + 1, moved);
+            System.arraycopy(teachers, row, teachers, row + 1, moved);
+            System.arraycopy(students, row, students, row + 1, moved);
+            System.arraycopy(courses, row, courses, row + 1, moved);
+        }
+        ids[row] = id;
+        size++;
+        return row;
+    }
+
+    /**
+     * 当前（未删除的）课程数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveRows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- 查询 ---
+
+    /**
+     * 按过滤条件筛选课程，按维度分组，统计每组各状态的课程数和分钟数；DAY 分组最多 {@link #DEFAULT_MAX_DAYS} 天
+     */
+    public Result aggregate(Filter filter, GroupBy groupBy) {
+        return aggregate(filter, groupBy, DEFAULT_MAX_DAYS);
+    }
+
+    /**
+     * @param maxDays DAY 分组允许的最多天数（每天一组）
+     * @throws IllegalArgumentException 时间范围颠倒，或 DAY 分组缺少时间范围、超过 maxDays 天
+     */
+    public Result aggregate(Filter filter, GroupBy groupBy, int maxDays) {
+        if (filter.from != null && filter.to != null && filter.from.isAfter(filter.to)) {
+            throw new IllegalArgumentException("Time range starts after it ends");
+        }
+        if (groupBy == GroupBy.DAY) {
+            if (filter.from == null || filter.to == null) {
+                throw new IllegalArgumentException("DAY grouping needs a time range");
+            }
+            long days = Math.floorDiv((long) toMinute(filter.to) - 1, MINUTES_PER_DAY)
+                    - Math.floorDiv((long) toMinute(filter.from), MINUTES_PER_DAY) + 1;
+            if (days > maxDays) {
+                throw new IllegalArgumentException("DAY grouping spans " + days + " days, at most " + maxDays + " allowed");
+            }
+        }
+        lock.readLock().lock();
+        try {
+            int teacher = filter.teacherId != null ? teacherIds.find(filter.teacherId) : -1;
+            int student = filter.studentId != null ? studentIds.find(filter.studentId) : -1;
+            int course = filter.courseId != null ? courseIds.find(filter.courseId) : -1;
+            int fromMinute = filter.from != null ? toMinute(filter.from) : Integer.MIN_VALUE;
+            int toMinute = filter.to != null ? toMinute(filter.to) : Integer.MAX_VALUE;
+            int fromDay = filter.from != null ? Math.floorDiv(fromMinute, MINUTES_PER_DAY) : 0;
+
+            long[] keys = switch (groupBy) {
+                case NONE -> new long[] {0L};
+                case TEACHER -> teacherIds.snapshot();
+                case STUDENT -> studentIds.snapshot();
+                case COURSE -> courseIds.snapshot();
+                // 超出可表示范围的时间会被截到同一分钟，此时范围为空
+                case DAY -> fromMinute < toMinute ? dayKeys(fromDay, Math.floorDiv(toMinute - 1, MINUTES_PER_DAY)) : new long[0];
+            };
+            boolean unknownEntity = (filter.teacherId != null && teacher < 0)
+                    || (filter.studentId != null && student < 0)
+                    || (filter.courseId != null && course < 0);
+            if (unknownEntity || size == 0 || keys.length == 0 || fromMinute >= toMinute) {
+                return new Result(groupBy, keys, new long[keys.length * STATUSES.length], new long[keys.length * STATUSES.length]);
+            }
+            Scan scan = new Scan(startMinutes, durations, statuses, teachers, students, courses,
+                    fromMinute, toMinute, statusMask(filter.statuses), teacher, student, course, groupBy, fromDay, keys.length);
+            long[][] totals = pool.invoke(new ScanTask(scan, 0, size));
+            return new Result(groupBy, keys, totals[0], totals[1]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static long[] dayKeys(int fromDay, int lastDay) {
+        long[] keys = new long[Math.max(0, lastDay - fromDay + 1)];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = fromDay + i;
+        }
+        return keys;
+    }
+
+    private static int statusMask(Set<LessonStatus> statuses) {
+        if (statuses == null || statuses.isEmpty()) {
+            return -1;
+        }
+        int mask = 0;
+        for (LessonStatus status : statuses) {
+            mask |= 1 << status.ordinal();
+        }
+        return mask;
+    }
+
+    // 超出 int 范围（约公元 6053 年之后或公元前 2114 年之前）的时间取边界值，不抛异常
+    static int toMinute(LocalDateTime time) {
+        long minute = Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, minute));
+    }
+
+    // 一次扫描用到的列（加读锁时取得的数组引用）和已编译的过滤条件
+    private record Scan(int[] startMinutes, int[] durations, byte[] statuses,
+                        int[] teachers, int[] students, int[] courses,
+                        int fromMinute, int toMinute, int statusMask, int teacher, int student, int course,
+                        GroupBy groupBy, int fromDay, int groups) {
+    }
+
+    private static final class ScanTask extends RecursiveTask<long[][]> {
+
+        private final Scan scan;
+        private final int from;
+        private final int to;
+
+        ScanTask(Scan scan, int from, int to) {
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[][] compute() {
+            if (to - from <= SCAN_CHUNK) {
+                return scanRange();
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(scan, from, middle);
+            left.fork();
+            long[][] right = new ScanTask(scan, middle, to).compute();
+            long[][] result = left.join();
+            for (int i = 0; i < result[0].length; i++) {
+                result[0][i] += right[0][i];
+                result[1][i] += right[1][i];
+            }
+            return result;
+        }
+
+        private long[][] scanRange() {
+            int width = STATUSES.length;
+            long[] counts = new long[scan.groups() * width];
+            long[] minutes = new long[scan.groups() * width];
+            for (int row = from; row < to; row++) {
+                byte status = scan.statuses()[row];
+                int start = scan.startMinutes()[row];
+                if (status == DELETED
+                        || start < scan.fromMinute() || start >= scan.toMinute()
+                        || (scan.statusMask() & (1 << status)) == 0
+                        || (scan.teacher() >= 0 && scan.teachers()[row] != scan.teacher())
+                        || (scan.student() >= 0 && scan.students()[row] != scan.student())
+                        || (scan.course() >= 0 && scan.courses()[row] != scan.course())) {
+                    continue;
+                }
+                int group = switch (scan.groupBy()) {
+                    case NONE -> 0;
+                    case TEACHER -> scan.teachers()[row];
+                    case STUDENT -> scan.students()[row];
+                    case COURSE -> scan.courses()[row];
+                    case DAY -> Math.floorDiv(start, MINUTES_PER_DAY) - scan.fromDay();
+                };
+                int cell = group * width + status;
+                counts[cell]++;
+                minutes[cell] += scan.durations()[row];
+            }
+            return new long[][] {counts, minutes};
+        }
+    }
+
+    // 实体 id 与稠密下标的双向映射
+    private static final class Dictionary {
+
+        private final Map<Long, Integer> indexes = new HashMap<>();
+        private long[] values = new long[16];
+
+        int indexOf(long id) {
+            Integer index = indexes.get(id);
+            if (index != null) {
+                return index;
+            }
+            int next = indexes.size();
+            if (next == values.length) {
+                values = Arrays.copyOf(values, next * 2);
+            }
+            values[next] = id;
+            indexes.put(id, next);
+            return next;
+        }
+
+        int find(long id) {
+            Integer index = indexes.get(id);
+            return index != null ? index : -1;
+        }
+
+        long[] snapshot() {
+            return Arrays.copyOf(values, indexes.size());
+        }
+    }
+
+    /**
+     * 过滤条件，时间范围为 [from, to)；未设置的条件不过滤
+     */
+    public static final class Filter {
+
+        private LocalDateTime from;
+        private LocalDateTime to;
+        private Set<LessonStatus> statuses;
+        private Long teacherId;
+        private Long studentId;
+        private Long courseId;
+
+        public static Filter all() {
+            return new Filter();
+        }
+
+        public Filter between(LocalDateTime from, LocalDateTime to) {
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        /**
+         * 日期范围（含首尾两天）
+         */
+        public Filter between(LocalDate firstDay, LocalDate lastDay) {
+            return between(firstDay.atStartOfDay(), lastDay.plusDays(1).atStartOfDay());
+        }
+
+        public Filter statuses(Set<LessonStatus> statuses) {
+            this.statuses = statuses != null ? EnumSet.copyOf(statuses) : null;
+            return this;
+        }
+
+        public Filter teacher(Long teacherId) {
+            this.teacherId = teacherId;
+            return this;
+        }
+
+        public Filter student(Long studentId) {
+            this.studentId = studentId;
+            return this;
+        }
+
+        public Filter course(Long courseId) {
+            this.courseId = courseId;
+            return this;
+        }
+    }
+
+    /**
+     * 分组聚合结果：每组一个键（实体 id；DAY 为 epoch 天数；NONE 为 0），每组每个状态的课程数和分钟数
+     */
+    public static final class Result {
+
+        private final GroupBy groupBy;
+        private final long[] keys;
+        private final long[] counts;
+        private final long[] minutes;
+
+        private Result(GroupBy groupBy, long[] keys, long[] counts, long[] minutes) {
+            this.groupBy = groupBy;
+            this.keys = keys;
+            this.counts = counts;
+            this.minutes = minutes;
+        }
+
+        public GroupBy groupBy() {
+            return groupBy;
+        }
+
+        public int groups() {
+            return keys.length;
+        }
+
+        public long key(int group) {
+            return keys[group];
+        }
+
+        public LocalDate day(int group) {
+            return LocalDate.ofEpochDay(keys[group]);
+        }
+
+        public long count(int group, LessonStatus status) {
+            return counts[group * STATUSES.length + status.ordinal()];
+        }
+
+        public long minutes(int group, LessonStatus status) {
+            return minutes[group * STATUSES.length + status.ordinal()];
+        }
+
+        public long count(int group, Set<LessonStatus> statuses) {
+            long total = 0;
+            for (LessonStatus status : statuses) {
+                total += count(group, status);
+            }
+            return total;
+        }
+
+        /**
+         * 该组所有状态的课程数
+         */
+        public long count(int group) {
+            long total = 0;
+            for (int i = 0; i < STATUSES.length; i++) {
+                total += counts[group * STATUSES.length + i];
+            }
+            return total;
+        }
+
+        /**
+         * 该组所有状态的分钟数
+         */
+        public long minutes(int group) {
+            long total = 0;
+            for (int i = 0; i < STATUSES.length; i++) {
+                total += minutes[group * STATUSES.length + i];
+            }
+            return total;
+        }
+    }
+}
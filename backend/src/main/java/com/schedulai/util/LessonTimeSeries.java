@@ -0,0 +1,179 @@
+package com.schedulai.util;
+
+import com.schedulai.domain.LessonStatus;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 课程时间序列的分桶（日、周、月，周从周一开始）和已结束时段的缓存。
+ * 已完全过去的桶结果不会再变，除非有人补录或修改了当时的课程，因此缓存没有过期时间，
+ * 只在某天的课程变化时丢弃覆盖该天的桶（每种粒度各一个）。
+ */
+public final class LessonTimeSeries {
+
+    private static final LessonStatus[] STATUSES = LessonStatus.values();
+
+    private LessonTimeSeries() {
+    }
+
+    public enum Granularity {
+        DAY, WEEK, MONTH;
+
+        /**
+         * 包含 day 的桶的第一天
+         */
+        public LocalDate bucketStart(LocalDate day) {
+            return switch (this) {
+                case DAY -> day;
+                case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> day.withDayOfMonth(1);
+            };
+        }
+
+        /**
+         * 下一个桶的第一天（即本桶的结束，不含）
+         */
+        public LocalDate nextBucket(LocalDate start) {
+            return switch (this) {
+                case DAY -> start.plusDays(1);
+                case WEEK -> start.plusWeeks(1);
+                case MONTH -> start.plusMonths(1);
+            };
+        }
+    }
+
+    /**
+     * 一个桶内按状态的课程数和分钟数；汇总完成后只读
+     */
+    public static final class Totals {
+
+        private final long[] lessons = new long[STATUSES.length];
+        private final long[] minutes = new long[STATUSES.length];
+
+        public void add(LessonStatus status, long lessonCount, long lessonMinutes) {
+            lessons[status.ordinal()] += lessonCount;
+            minutes[status.ordinal()] += lessonMinutes;
+        }
+
+        public long lessons(LessonStatus status) {
+            return lessons[status.ordinal()];
+        }
+
+        public long minutes(LessonStatus status) {
+            return minutes[status.ordinal()];
+        }
+
+        public long totalLessons() {
+            long total = 0;
+            for (long count : lessons) {
+                total += count;
+            }
+            return total;
+        }
+
+        public long totalMinutes() {
+            long total = 0;
+            for (long count : minutes) {
+                total += count;
+            }
+            return total;
+        }
+    }
+
+    /**
+     * 已结束桶的缓存，按 (粒度, 桶起始日, 教师, 课程) 存放。
+     * 调用方在查询数据库前取 {@link #version()}，写入时带上；期间若有失效发生则不写入，
+     * 避免把失效前读到的旧结果缓存下来。
+     */
+    public static final class ClosedBucketCache {
+
+        private record Key(Long teacherId, Long courseId) {
+        }
+
+        private final int maxEntries;
+        private final Map<Granularity, ConcurrentMap<LocalDate, ConcurrentMap<Key, Totals>>> buckets =
+                new EnumMap<>(Granularity.class);
+        private long version;
+        private int size;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong invalidations = new AtomicLong();
+
+        public ClosedBucketCache(int maxEntries) {
+            this.maxEntries = maxEntries;
+            for (Granularity granularity : Granularity.values()) {
+                buckets.put(granularity, new ConcurrentHashMap<>());
+            }
+        }
+
+        public Totals get(Granularity granularity, LocalDate start, Long teacherId, Long courseId) {
+            ConcurrentMap<Key, Totals> byFilter = buckets.get(granularity).get(start);
+            Totals totals = byFilter != null ? byFilter.get(new Key(teacherId, courseId)) : null;
+            (totals != null ? hits : misses).incrementAndGet();
+            return totals;
+        }
+
+        public synchronized long version() {
+            return version;
+        }
+
+        /**
+         * 缓存一个已结束的桶；自 seenVersion 以来有过失效或缓存已满时忽略
+         */
+        public synchronized void put(Granularity granularity, LocalDate start, Long teacherId, Long courseId,
+                                     Totals totals, long seenVersion) {
+            if (seenVersion != version || size >= maxEntries) {
+                return;
+            }
+            Totals previous = buckets.get(granularity)
+                    .computeIfAbsent(start, key -> new ConcurrentHashMap<>())
+                    .put(new Key(teacherId, courseId), totals);
+            if (previous == null) {
+                size++;
+            }
+        }
+
+        /**
+         * 丢弃覆盖 day 的桶（所有粒度、所有过滤条件）
+         */
+        public synchronized void invalidate(LocalDate day) {
+            version++;
+            invalidations.incrementAndGet();
+            for (Granularity granularity : Granularity.values()) {
+                ConcurrentMap<Key, Totals> removed = buckets.get(granularity).remove(granularity.bucketStart(day));
+                if (removed != null) {
+                    size -= removed.size();
+                }
+            }
+        }
+
+        public synchronized void clear() {
+            version++;
+            buckets.values().forEach(Map::clear);
+            size = 0;
+        }
+
+        public synchronized int size() {
+            return size;
+        }
+
+        public long hits() {
+            return hits.get();
+        }
+
+        public long misses() {
+            return misses.get();
+        }
+
+        public long invalidations() {
+            return invalidations.get();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.schedulai.util;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 不依赖 AI 的确定性排课求解：在每周共同可用时间内按固定步长枚举候选开始时间，
+ * 排除停课日与已有课程冲突，并尽量把建议分散到不同日期（轮询每天的候选）。
+ * AI 服务不可用时作为课程时间建议的兜底。
+ */
+public final class LocalSlotSolver {
+
+    public record WeeklyWindow(DayOfWeek dayOfWeek, LocalTime start, LocalTime end) {
+    }
+
+    public record Interval(LocalDateTime start, LocalDateTime end) {
+
+        boolean overlaps(LocalDateTime otherStart, LocalDateTime otherEnd) {
+            return start.isBefore(otherEnd) && end.isAfter(otherStart);
+        }
+    }
+
+    private LocalSlotSolver() {
+    }
+
+    /**
+     * @param weekly 每周共同可用时间窗口
+     * @param busy 学生或教师已有的课程
+     * @param blocked 停课日判断（节假日、教师休假）
+     * @param notBefore 最早开始时间
+     * @param lastDate 最后一个可选日期（含）
+     * @param durationMinutes 课程时长
+     * @param stepMinutes 候选开始时间的步长
+     * @param maxSuggestions 最多返回的建议数
+     * @return 按时间排序的建议
+     */
+    public static List<Interval> solve(List<WeeklyWindow> weekly, List<Interval> busy, Predicate<LocalDate> blocked,
+                                       LocalDateTime notBefore, LocalDate lastDate,
+                                       int durationMinutes, int stepMinutes, int maxSuggestions) {
+        if (durationMinutes <= 0 || stepMinutes <= 0) {
+            throw new IllegalArgumentException("durationMinutes and stepMinutes must be positive");
+        }
+        List<WeeklyWindow> windows = new ArrayList<>(weekly);
+        windows.sort(Comparator.comparing(WeeklyWindow::start));
+
+        List<List<Interval>> candidatesPerDay = new ArrayList<>();
+        for (LocalDate date = notBefore.toLocalDate(); !date.isAfter(lastDate); date = date.plusDays(1)) {
+            if (blocked.test(date)) {
+                continue;
+            }
+            List<Interval> dayCandidates = new ArrayList<>();
+            for (WeeklyWindow window : windows) {
+                if (window.dayOfWeek() != date.getDayOfWeek()) {
+                    continue;
+                }
+                LocalDateTime windowEnd = date.atTime(window.end());
+                for (LocalDateTime start = date.atTime(window.start());
+                     !start.plusMinutes(durationMinutes).isAfter(windowEnd);
+                     start = start.plusMinutes(stepMinutes)) {
+                    LocalDateTime end = start.plusMinutes(durationMinutes);
+                    if (start.isBefore(notBefore) || conflicts(busy, start, end)) {
+                        continue;
+                    }
+                    dayCandidates.add(new Interval(start, end));
+                }
+            }
+            if (!dayCandidates.isEmpty()) {
+                candidatesPerDay.add(dayCandidates);
+            }
+        }
+
+        // 轮询：先取每天最早的候选，不够再取每天的第二个……
+        List<Interval> result = new ArrayList<>();
+        for (int round = 0; result.size() < maxSuggestions; round++) {
+            boolean any = false;
+            for (List<Interval> dayCandidates : candidatesPerDay) {
+                if (round < dayCandidates.size() && result.size() < maxSuggestions) {
+                    Interval candidate = dayCandidates.get(round);
+                    // 同一天内避免与已选建议重叠
+                    if (!conflicts(result, candidate.start(), candidate.end())) {
+                        result.add(candidate);
+                    }
+                    any = true;
+                }
+            }
+            if (!any) {
+                break;
+            }
+        }
+        result.sort(Comparator.comparing(Interval::start));
+        return result;
+    }
+
+    private static boolean conflicts(List<Interval> intervals, LocalDateTime start, LocalDateTime end) {
+        for (Interval interval : intervals) {
+            if (interval.overlaps(start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,136 @@
+package com.schedulai.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 长文本的分块摘要（map）与逐级合并（reduce），与具体的模型调用无关：
+ * 按 token 预算把连续的行打包成块；摘要并发执行但同时进行的调用不超过 maxInFlight；
+ * 合并时把相邻摘要分组压缩，直到总长度不超过预算或只剩一条。
+ */
+public final class MapReduceSummary {
+
+    private MapReduceSummary() {
+    }
+
+    /**
+     * 估算的 token 数（每行另计一个换行）
+     */
+    public static int tokens(List<String> lines) {
+        return lines.stream().mapToInt(TokenEstimator::estimate).sum() + lines.size();
+    }
+
+    /**
+     * 连续的行按预算打包；单独超出预算的行自成一块
+     */
+    public static List<List<String>> chunk(List<String> lines, int chunkTokenBudget) {
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int currentTokens = 0;
+        for (String line : lines) {
+            int tokens = TokenEstimator.estimate(line) + 1;
+            if (!current.isEmpty() && currentTokens + tokens > chunkTokenBudget) {
+                chunks.add(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+            current.add(line);
+            currentTokens += tokens;
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    /**
+     * 对每个元素调用 call，同时未完成的调用不超过 maxInFlight；结果顺序与输入一致。
+     * 任一调用失败时整体失败，且不再发起新的调用。
+     */
+    public static <T, R> CompletableFuture<List<R>> mapBounded(List<T> items, int maxInFlight,
+                                                             Function<T, CompletableFuture<R>> call) {
+        CompletableFuture<List<R>> done = new CompletableFuture<>();
+        if (items.isEmpty()) {
+            done.complete(List.of());
+            return done;
+        }
+        Object[] results = new Object[items.size()];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(items.size());
+        for (int lane = 0; lane < Math.min(Math.max(1, maxInFlight), items.size()); lane++) {
+            runLane(items, call, results, next, remaining, done);
+        }
+        return done;
+    }
+
+    // 一条并发通道：依次发起调用；已完成的调用在循环中处理，避免同步完成时递归过深
+    private static <T, R> void runLane(List<T> items, Function<T, CompletableFuture<R>> call, Object[] results,
+                                       AtomicInteger next, AtomicInteger remaining, CompletableFuture<List<R>> done) {
+        while (!done.isDone()) {
+            int index = next.getAndIncrement();
+            if (index >= items.size()) {
+                return;
+            }
+            CompletableFuture<R> future;
+            try {
+                future = call.apply(items.get(index));
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+                return;
+            }
+            if (!future.isDone()) {
+                future.whenComplete((result, ex) -> {
+                    if (record(index, result, ex, results, remaining, done)) {
+                        runLane(items, call, results, next, remaining, done);
+                    }
+                });
+                return;
+            }
+            try {
+                record(index, future.join(), null, results, remaining, done);
+            } catch (CompletionException | CancellationException e) {
+                record(index, null, e, results, remaining, done);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> boolean record(int index, R result, Throwable ex, Object[] results, AtomicInteger remaining,
+                                      CompletableFuture<List<R>> done) {
+        if (ex != null) {
+            done.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            return false;
+        }
+        results[index] = result;
+        if (remaining.decrementAndGet() == 0) {
+            done.complete((List<R>) Arrays.asList(results));
+        }
+        return true;
+    }
+
+    /**
+     * 把相邻的摘要分组交给 condense 压缩，逐级进行直到总长度不超过 promptTokenBudget 或只剩一条，返回换行连接的结果
+     */
+    public static CompletableFuture<String> reduce(List<String> summaries, int promptTokenBudget, int chunkTokenBudget,
+                                                   int maxInFlight, Function<List<String>, CompletableFuture<String>> condense) {
+        if (tokens(summaries) <= promptTokenBudget || summaries.size() <= 1) {
+            return CompletableFuture.completedFuture(String.join("\n", summaries));
+        }
+        List<List<String>> groups = chunk(summaries, chunkTokenBudget);
+        if (groups.size() == summaries.size()) {
+            // 每条摘要单独就占满一块：两两合并，保证每一级都在缩短
+            groups = new ArrayList<>();
+            for (int i = 0; i < summaries.size(); i += 2) {
+                groups.add(summaries.subList(i, Math.min(i + 2, summaries.size())));
+            }
+        }
+        return mapBounded(groups, maxInFlight, condense)
+                .thenCompose(condensed -> reduce(condensed, promptTokenBudget, chunkTokenBudget, maxInFlight, condense));
+    }
+}
@@ -0,0 +1,177 @@
+package com.schedulai.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * AI 排课建议的校验与修复：逐条检查建议是否落在每周共同可用时间内、是否在建议期限内、
+ * 是否避开停课日、已有课程和已接受的建议。课程时长按请求修正；日期超出建议期限、但换一个年份即可落入期限的建议
+ * 改用该年份（期限可能跨年）；
+ * 不满足条件的建议吸附到同一天 maxSnapMinutes 内最近的合法开始时间，找不到则丢弃；重复建议直接丢弃。
+ * 最后可用 {@link LocalSlotSolver} 补足到 targetCount 条。所有检查都在内存中完成。
+ * 每次请求新建一个实例，非线程安全。
+ */
+public final class ProposalValidator {
+
+    /**
+     * @param weekly 每周共同可用时间窗口
+     * @param busy 学生或教师已有的课程
+     * @param blocked 停课日判断
+     * @param notBefore 最早开始时间
+     * @param lastDate 最后一个可选日期（含）
+     * @param durationMinutes 课程时长
+     * @param stepMinutes 合法开始时间的步长（从可用窗口开始计）
+     * @param maxSnapMinutes 吸附时允许移动的最大分钟数
+     * @param targetCount topUp 补足到的条数
+     * @param maxCount 最多接受的条数
+     */
+    public record Rules(List<LocalSlotSolver.WeeklyWindow> weekly, List<LocalSlotSolver.Interval> busy,
+                        Predicate<LocalDate> blocked, LocalDateTime notBefore, LocalDate lastDate,
+                        int durationMinutes, int stepMinutes, int maxSnapMinutes, int targetCount, int maxCount) {
+    }
+
+    public enum Verdict { VALID, SNAPPED, DROPPED }
+
+    /**
+     * 单条建议的处理结果；DROPPED 时 slot 为 null
+     */
+    public record Result(Verdict verdict, LocalSlotSolver.Interval slot) {
+    }
+
+    private final Rules rules;
+    private final List<LocalSlotSolver.Interval> accepted = new ArrayList<>();
+    private int droppedCount;
+
+    public ProposalValidator(Rules rules) {
+        if (rules.durationMinutes() <= 0 || rules.stepMinutes() <= 0) {
+            throw new IllegalArgumentException("durationMinutes and stepMinutes must be positive");
+        }
+        this.rules = rules;
+    }
+
+    /**
+     * 校验一条建议，通过（或修复后通过）时计入已接受列表
+     */
+    public Result offer(LocalDateTime start) {
+        if (start == null || accepted.size() >= rules.maxCount()) {
+            return drop();
+        }
+        LocalDateTime proposed = start.truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime withinPeriod = withYearInPeriod(proposed);
+        boolean repaired = !withinPeriod.equals(proposed);
+        proposed = withinPeriod;
+        LocalSlotSolver.Interval slot = new LocalSlotSolver.Interval(proposed, proposed.plusMinutes(rules.durationMinutes()));
+        if (accepted.contains(slot)) {
+            return drop(); // 重复
+        }
+        if (isAllowed(slot)) {
+            accepted.add(slot);
+            return new Result(repaired || !proposed.equals(start) ? Verdict.SNAPPED : Verdict.VALID, slot);
+        }
+        LocalSlotSolver.Interval snapped = nearestAllowed(proposed);
+        if (snapped == null) {
+            return drop();
+        }
+        accepted.add(snapped);
+        return new Result(Verdict.SNAPPED, snapped);
+    }
+
+    /**
+     * 已接受的建议不足 targetCount 条时，用本地求解器补足；返回补充的时间段
+     */
+    public List<LocalSlotSolver.Interval> topUp() {
+        int needed = Math.min(rules.targetCount(), rules.maxCount()) - accepted.size();
+        if (needed <= 0) {
+            return List.of();
+        }
+        List<LocalSlotSolver.Interval> taken = new ArrayList<>(rules.busy());
+        taken.addAll(accepted);
+        List<LocalSlotSolver.Interval> added = LocalSlotSolver.solve(rules.weekly(), taken, rules.blocked(),
+                rules.notBefore(), rules.lastDate(), rules.durationMinutes(), rules.stepMinutes(), needed);
+        accepted.addAll(added);
+        return added;
+    }
+
+    public List<LocalSlotSolver.Interval> accepted() {
+        return List.copyOf(accepted);
+    }
+
+    public int droppedCount() {
+        return droppedCount;
+    }
+
+    // 模型常用训练数据中的年份：只有日期落在 [notBefore, lastDate] 之外时，才改用使其落入该区间的年份；找不到则原样返回
+    private LocalDateTime withYearInPeriod(LocalDateTime proposed) {
+        LocalDate first = rules.notBefore().toLocalDate();
+        if (!isInPeriod(proposed.toLocalDate(), first)) {
+            for (int year = first.getYear(); year <= rules.lastDate().getYear(); year++) {
+                LocalDateTime candidate = proposed.withYear(year);
+                if (isInPeriod(candidate.toLocalDate(), first)) {
+                    return candidate;
+                }
+            }
+        }
+        return proposed;
+    }
+
+    private boolean isInPeriod(LocalDate date, LocalDate first) {
+        return !date.isBefore(first) && !date.isAfter(rules.lastDate());
+    }
+
+    private Result drop() {
+        droppedCount++;
+        return new Result(Verdict.DROPPED, null);
+    }
+
+    private boolean isAllowed(LocalSlotSolver.Interval slot) {
+        LocalDate date = slot.start().toLocalDate();
+        if (slot.start().isBefore(rules.notBefore()) || date.isAfter(rules.lastDate()) || rules.blocked().test(date)) {
+            return false;
+        }
+        // 结束时间也必须在同一天的窗口内
+        boolean insideWindow = rules.weekly().stream().anyMatch(window -> window.dayOfWeek() == date.getDayOfWeek()
+                && !slot.start().toLocalTime().isBefore(window.start())
+                && !slot.end().isAfter(date.atTime(window.end())));
+        return insideWindow && !overlapsAny(rules.busy(), slot) && !overlapsAny(accepted, slot);
+    }
+
+    // 同一天内距离最近的合法开始时间（步长网格从每个可用窗口的开始时间算起）
+    private LocalSlotSolver.Interval nearestAllowed(LocalDateTime proposed) {
+        LocalDate date = proposed.toLocalDate();
+        List<LocalSlotSolver.Interval> candidates = new ArrayList<>();
+        for (LocalSlotSolver.WeeklyWindow window : rules.weekly()) {
+            if (window.dayOfWeek() != date.getDayOfWeek()) {
+                continue;
+            }
+            LocalDateTime windowEnd = date.atTime(window.end());
+            for (LocalDateTime start = date.atTime(window.start());
+                 !start.plusMinutes(rules.durationMinutes()).isAfter(windowEnd);
+                 start = start.plusMinutes(rules.stepMinutes())) {
+                if (Math.abs(ChronoUnit.MINUTES.between(proposed, start)) <= rules.maxSnapMinutes()) {
+                    candidates.add(new LocalSlotSolver.Interval(start, start.plusMinutes(rules.durationMinutes())));
+                }
+            }
+        }
+        candidates.sort(Comparator.comparingLong(c -> Math.abs(ChronoUnit.MINUTES.between(proposed, c.start()))));
+        for (LocalSlotSolver.Interval candidate : candidates) {
+            if (isAllowed(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static boolean overlapsAny(List<LocalSlotSolver.Interval> intervals, LocalSlotSolver.Interval slot) {
+        for (LocalSlotSolver.Interval interval : intervals) {
+            if (interval.overlaps(slot.start(), slot.end())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,263 @@
+package com.schedulai.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * AI 服务端点池：每个端点（地址 + 密钥 + 模型）有独立的并发上限，
+ * 并记录响应延迟与错误率的指数加权移动平均（EWMA）。
+ * acquire 在仍有空闲并发名额的端点中选择得分最低者：得分 = 延迟 EWMA / (1 - 错误率 EWMA)；
+ * 尚无样本的端点按已测端点的平均延迟计分（得分相同时优先），避免新端点在首个样本返回前承接全部流量；
+ * 超过 probeIntervalMillis 未被选中的端点得分为 0，以便重新测量已恢复的端点。
+ * reconfigure 可在运行时替换端点列表，未变化的端点保留其统计。线程安全。
+ */
+public final class ProviderPool {
+
+    public record Provider(String name, String url, String apiKey, String model, int maxConcurrentCalls) {
+
+        public Provider {
+            if (url == null || url.isBlank()) {
+                throw new IllegalArgumentException("Provider url must not be blank");
+            }
+            if (maxConcurrentCalls <= 0) {
+                throw new IllegalArgumentException("maxConcurrentCalls must be positive");
+            }
+        }
+
+        // 日志与统计中不输出密钥
+        @Override
+        public String toString() {
+            return "Provider[name=" + name + ", url=" + url + ", model=" + model + ", maxConcurrentCalls=" + maxConcurrentCalls + "]";
+        }
+    }
+
+    /**
+     * 端点统计快照
+     */
+    public record ProviderStats(String name, String url, String model, int maxConcurrentCalls, int activeCalls,
+                                double latencyEwmaMillis, double errorRateEwma, long calls, long errors) {
+    }
+
+    private final double alpha;
+    private final long probeIntervalNanos;
+    private final LongSupplier nanoClock;
+
+    private volatile List<Slot> slots = List.of();
+    private final AtomicLong saturatedCount = new AtomicLong();
+
+    /**
+     * @param alpha EWMA 平滑系数（0-1），越大越偏重最近的样本
+     * @param probeIntervalMillis 端点闲置超过该时长后重新参与探测
+     */
+    public ProviderPool(double alpha, long probeIntervalMillis) {
+        this(alpha, probeIntervalMillis, System::nanoTime);
+    }
+
+    ProviderPool(double alpha, long probeIntervalMillis, LongSupplier nanoClock) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]");
+        }
+        this.alpha = alpha;
+        this.probeIntervalNanos = TimeUnit.MILLISECONDS.toNanos(probeIntervalMillis);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * 替换端点列表；配置完全相同的端点沿用原统计，进行中的调用仍在原端点上释放
+     */
+    public synchronized void reconfigure(List<Provider> providers) {
+        List<Slot> next = new ArrayList<>(providers.size());
+        for (Provider provider : providers) {
+            Slot reused = null;
+            for (Slot slot : slots) {
+                if (slot.provider.equals(provider)) {
+                    reused = slot;
+                    break;
+                }
+            }
+            next.add(reused != null ? reused : new Slot(provider, nanoClock.getAsLong()));
+        }
+        slots = List.copyOf(next);
+    }
+
+    public List<Provider> providers() {
+        return slots.stream().map(slot -> slot.provider).toList();
+    }
+
+    public boolean isEmpty() {
+        return slots.isEmpty();
+    }
+
+    /**
+     * 选择端点并占用一个并发名额；所有端点均已满载时返回 null。
+     * 返回的 Lease 必须恰好调用一次 release 或 abandon。
+     */
+    public Lease acquire() {
+        List<Slot> current = slots;
+        long now = nanoClock.getAsLong();
+        double neutralLatency = neutralLatency(current);
+        // 得分先算好再排序，避免排序过程中样本更新导致比较结果前后矛盾
+        List<Scored> ordered = new ArrayList<>(current.size());
+        for (Slot slot : current) {
+            ordered.add(slot.scored(now, neutralLatency));
+        }
+        // 按得分从低到高尝试（同分时尚无样本者优先），某个端点名额被抢占时退而求其次
+        ordered.sort(Comparator.comparingDouble(Scored::score).thenComparing(Scored::measured));
+        for (Scored scored : ordered) {
+            Slot slot = scored.slot();
+            if (slot.permits.tryAcquire()) {
+                slot.lastSelected = now;
+                return new Lease(slot, now);
+            }
+        }
+        if (!current.isEmpty()) {
+            saturatedCount.incrementAndGet();
+        }
+        return null;
+    }
+
+    // 已测端点延迟 EWMA 的平均值；都没有样本时为 0
+    private static double neutralLatency(List<Slot> slots) {
+        double sum = 0;
+        int measured = 0;
+        for (Slot slot : slots) {
+            double latency = slot.measuredLatency();
+            if (latency >= 0) {
+                sum += latency;
+                measured++;
+            }
+        }
+        return measured > 0 ? sum / measured : 0;
+    }
+
+    private record Scored(Slot slot, double score, boolean measured) {
+    }
+
+    /**
+     * 因所有端点满载而未能分配的次数
+     */
+    public long saturatedCount() {
+        return saturatedCount.get();
+    }
+
+    public List<ProviderStats> stats() {
+        List<ProviderStats> result = new ArrayList<>();
+        for (Slot slot : slots) {
+            result.add(slot.stats());
+        }
+        return result;
+    }
+
+    /**
+     * 一次调用占用的端点
+     */
+    public final class Lease {
+
+        private final Slot slot;
+        private final long startedAt;
+        private volatile long respondedAt = -1;
+        private boolean released;
+
+        private Lease(Slot slot, long startedAt) {
+            this.slot = slot;
+            this.startedAt = startedAt;
+        }
+
+        public Provider provider() {
+            return slot.provider;
+        }
+
+        /**
+         * 响应头到达时调用，记录延迟样本的终点
+         */
+        public void markResponded() {
+            if (respondedAt < 0) {
+                respondedAt = nanoClock.getAsLong();
+            }
+        }
+
+        /**
+         * 调用结束：failed 表示端点故障（超时、连接错误、429/5xx）。
+         * 未收到响应头的失败以已耗时作为延迟样本，使挂起的端点得分升高。
+         */
+        public synchronized void release(boolean failed) {
+            if (released) {
+                return;
+            }
+            released = true;
+            long end = respondedAt >= 0 ? respondedAt : nanoClock.getAsLong();
+            slot.record(TimeUnit.NANOSECONDS.toMicros(end - startedAt) / 1000.0, failed);
+            slot.permits.release();
+        }
+
+        /**
+         * 调用被取消等情况：释放名额但不记录样本
+         */
+        public synchronized void abandon() {
+            if (released) {
+                return;
+            }
+            released = true;
+            slot.permits.release();
+        }
+    }
+
+    private final class Slot {
+
+        private final Provider provider;
+        private final Semaphore permits;
+
+        private double latencyEwmaMillis;
+        private double errorRateEwma;
+        private long calls;
+        private long errors;
+        private volatile long lastSelected;
+
+        // 新端点从加入时起计算闲置时长，加入后先按中性延迟参与排序
+        Slot(Provider provider, long now) {
+            this.provider = provider;
+            this.permits = new Semaphore(provider.maxConcurrentCalls());
+            this.lastSelected = now;
+        }
+
+        synchronized Scored scored(long now, double neutralLatency) {
+            if (calls == 0) {
+                return new Scored(this, neutralLatency, false);
+            }
+            if (now - lastSelected > probeIntervalNanos) {
+                return new Scored(this, 0, true);
+            }
+            return new Scored(this, latencyEwmaMillis / Math.max(0.01, 1 - errorRateEwma), true);
+        }
+
+        // 延迟 EWMA；尚无样本时为 -1
+        synchronized double measuredLatency() {
+            return calls > 0 ? latencyEwmaMillis : -1;
+        }
+
+        synchronized void record(double latencyMillis, boolean failed) {
+            if (calls == 0) {
+                latencyEwmaMillis = latencyMillis;
+                errorRateEwma = failed ? 1 : 0;
+            } else {
+                latencyEwmaMillis += alpha * (latencyMillis - latencyEwmaMillis);
+                errorRateEwma += alpha * ((failed ? 1 : 0) - errorRateEwma);
+            }
+            calls++;
+            if (failed) {
+                errors++;
+            }
+        }
+
+        synchronized ProviderStats stats() {
+            return new ProviderStats(provider.name(), provider.url(), provider.model(), provider.maxConcurrentCalls(),
+                    provider.maxConcurrentCalls() - permits.availablePermits(),
+                    latencyEwmaMillis, errorRateEwma, calls, errors);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.schedulai.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并（single-flight）：同一键的并发调用共享一次进行中的异步调用及其结果。
+ * 调用完成后立即从进行中表移除，之后的调用会重新发起；结果缓存由调用方自行负责。
+ * 每个调用方拿到的是共享结果的副本，取消或完成副本不会影响其他调用方。
+ * @param <K> 请求键类型
+ * @param <V> 结果类型
+ */
+public final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * 若同一键已有进行中的调用则加入等待，否则调用 call 发起新的调用
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing.copy();
+        }
+        try {
+            call.get().whenComplete((value, ex) -> {
+                // 先移除再完成，保证完成之后到达的调用发起新请求
+                inFlight.remove(key, promise);
+                if (ex != null) {
+                    promise.completeExceptionally(ex);
+                } else {
+                    promise.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(e);
+        }
+        return promise.copy();
+    }
+
+    /**
+     * 当前进行中的调用数
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * 累计被合并（未发起上游调用）的请求数
+     */
+    public long coalescedCount() {
+        return coalesced.get();
+    }
+}
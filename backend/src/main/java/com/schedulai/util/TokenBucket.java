@@ -0,0 +1,96 @@
+package com.schedulai.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 令牌桶限流器：按每分钟速率匀速补充令牌，桶容量即允许的突发量。
+ * 采用"先预支后等待"：reserve 立即扣除令牌（余额可为负）并返回需要等待的时长，
+ * 因此多个线程排队时按到达顺序获得额度，不会互相饿死。线程安全。
+ */
+public final class TokenBucket {
+
+    private final long capacity;
+    private final double permitsPerNano;
+    private final LongSupplier nanoClock;
+
+    private double available;
+    private long lastRefill;
+
+    /**
+     * @param capacity 桶容量（突发上限）
+     * @param permitsPerMinute 每分钟补充的令牌数
+     */
+    public TokenBucket(long capacity, long permitsPerMinute) {
+        this(capacity, permitsPerMinute, System::nanoTime);
+    }
+
+    TokenBucket(long capacity, long permitsPerMinute, LongSupplier nanoClock) {
+        if (capacity <= 0 || permitsPerMinute <= 0) {
+            throw new IllegalArgumentException("capacity and permitsPerMinute must be positive");
+        }
+        this.capacity = capacity;
+        this.permitsPerNano = permitsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.nanoClock = nanoClock;
+        this.available = capacity;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    /**
+     * 预支令牌，返回调用方需要等待的纳秒数（0 表示可立即执行）。
+     * 单次请求超过容量时按容量计，避免永远无法满足。
+     */
+    public synchronized long reserve(long permits) {
+        refill();
+        long requested = Math.min(Math.max(permits, 0), capacity);
+        available -= requested;
+        return available >= 0 ? 0 : (long) Math.ceil(-available / permitsPerNano);
+    }
+
+    /**
+     * 非阻塞获取：令牌足够时扣除并返回 0；不足时不扣除，返回还需等待的纳秒数
+     */
+    public synchronized long tryReserve(long permits) {
+        refill();
+        long requested = Math.min(Math.max(permits, 0), capacity);
+        if (available >= requested) {
+            available -= requested;
+            return 0;
+        }
+        return (long) Math.ceil((requested - available) / permitsPerNano);
+    }
+
+    /**
+     * 获取令牌，必要时阻塞等待
+     */
+    public void acquire(long permits) throws InterruptedException {
+        long waitNanos = reserve(permits);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * 当前可用令牌数（可能为负，表示已被预支）
+     */
+    public synchronized double available() {
+        refill();
+        return available;
+    }
+
+    /**
+     * 桶已满：与新建的桶等价，可以丢弃
+     */
+    public synchronized boolean isFull() {
+        refill();
+        return available >= capacity;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        if (now > lastRefill) {
+            available = Math.min(capacity, available + (now - lastRefill) * permitsPerNano);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.schedulai.util;
+
+/**
+ * 本地估算文本的 token 数，无需调用分词器。
+ * 经验规则：英文/ASCII 约 4 个字符 1 个 token，中日韩文字约 1 个字 1 个 token，
+ * 其他非 ASCII 字符约 2 个字符 1 个 token。结果偏保守，用于预算控制而非计费。
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int ascii = 0;
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (codePoint < 0x80) {
+                ascii++;
+            } else if (isCjk(codePoint)) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return (ascii + 3) / 4 + cjk + (other + 1) / 2;
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,202 @@
+package com.schedulai.util;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 按用户计量 AI 调用次数和估算 token，并执行每日配额与突发限流。
+ * 计数器是 LongAdder（内部分段，同一用户的并发请求不会争用同一个变量），按（日期, 用户）分开；
+ * 尚未持久化的增量由 {@link #drain()} 取出写入数据库，当日累计用于配额判断，跨天后自然换用新计数器。
+ * 突发限流为每个用户一个 {@link TokenBucket}，已恢复满额的桶在 drain 时移除（与新建的桶等价），
+ * 因此只出现过一次的来源（如匿名 IP）不会一直占用内存。线程安全。
+ */
+public final class UsageMeter {
+
+    /**
+     * 配额，0 表示不限制
+     *
+     * @param dailyCalls 每日调用次数
+     * @param dailyTokens 每日估算 token 数
+     * @param burstCalls 突发调用次数（令牌桶容量）
+     * @param burstCallsPerMinute 突发额度每分钟恢复的次数
+     */
+    public record Limits(long dailyCalls, long dailyTokens, long burstCalls, long burstCallsPerMinute) {
+
+        public static final Limits UNLIMITED = new Limits(0, 0, 0, 0);
+    }
+
+    public enum Rejection { DAILY_CALLS, DAILY_TOKENS, BURST }
+
+    /**
+     * 准入结果；rejection 为 null 表示放行
+     */
+    public record Decision(Rejection rejection, long retryAfterSeconds) {
+
+        public boolean allowed() {
+            return rejection == null;
+        }
+    }
+
+    /**
+     * 自上次 drain 以来的增量
+     */
+    public record Delta(LocalDate date, String subject, String role, long calls, long tokens, long rejectedCalls) {
+    }
+
+    private record Key(LocalDate date, String subject) {
+    }
+
+    private static final class Usage {
+        final String role;
+        final LongAdder dailyCalls = new LongAdder();
+        final LongAdder dailyTokens = new LongAdder();
+        final LongAdder pendingCalls = new LongAdder();
+        final LongAdder pendingTokens = new LongAdder();
+        final LongAdder pendingRejected = new LongAdder();
+
+        Usage(String role) {
+            this.role = role;
+        }
+    }
+
+    private static final Decision ALLOWED = new Decision(null, 0);
+
+    private final Clock clock;
+    private final LongSupplier nanoClock;
+    private final Map<Key, Usage> usage = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> burstBuckets = new ConcurrentHashMap<>();
+
+    public UsageMeter() {
+        this(Clock.systemDefaultZone(), System::nanoTime);
+    }
+
+    UsageMeter(Clock clock, LongSupplier nanoClock) {
+        this.clock = clock;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * 检查配额；放行时记一次调用，拒绝时记一次被拒调用
+     */
+    public Decision admit(String subject, String role, Limits limits) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Usage today = usage(now.toLocalDate(), subject, role);
+        Decision decision = check(subject, today, limits, now);
+        if (decision.allowed()) {
+            today.dailyCalls.increment();
+            today.pendingCalls.increment();
+        } else {
+            today.pendingRejected.increment();
+        }
+        return decision;
+    }
+
+    /**
+     * 撤销 admit 记入的一次调用（请求最终没有调用模型，例如由预计算结果直接回答）；突发额度不退还
+     */
+    public void refundCall(String subject, String role) {
+        Usage today = usage(LocalDate.now(clock), subject, role);
+        today.dailyCalls.decrement();
+        today.pendingCalls.decrement();
+    }
+
+    /**
+     * 记入估算 token（在调用实际发往上游时）
+     */
+    public void addTokens(String subject, String role, long tokens) {
+        if (tokens <= 0) {
+            return;
+        }
+        Usage today = usage(LocalDate.now(clock), subject, role);
+        today.dailyTokens.add(tokens);
+        today.pendingTokens.add(tokens);
+    }
+
+    /**
+     * 用已持久化的数据恢复某日累计（启动时），不产生待写入的增量
+     */
+    public void restore(LocalDate date, String subject, String role, long calls, long tokens) {
+        Usage restored = usage(date, subject, role);
+        restored.dailyCalls.add(calls);
+        restored.dailyTokens.add(tokens);
+    }
+
+    /**
+     * 取出并清零所有待写入的增量；今天以前且已取空的计数器、以及已恢复满额的突发限流桶被移除
+     */
+    public List<Delta> drain() {
+        burstBuckets.values().removeIf(TokenBucket::isFull);
+        LocalDate today = LocalDate.now(clock);
+        List<Delta> deltas = new ArrayList<>();
+        Iterator<Map.Entry<Key, Usage>> iterator = usage.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Usage> entry = iterator.next();
+            Key key = entry.getKey();
+            Usage counters = entry.getValue();
+            if (key.date().isBefore(today)) {
+                // 先移除，之后的累加会落到当天的新计数器上
+                iterator.remove();
+            }
+            long calls = counters.pendingCalls.sumThenReset();
+            long tokens = counters.pendingTokens.sumThenReset();
+            long rejected = counters.pendingRejected.sumThenReset();
+            if (calls != 0 || tokens != 0 || rejected != 0) {
+                deltas.add(new Delta(key.date(), key.subject(), counters.role, calls, tokens, rejected));
+            }
+        }
+        return deltas;
+    }
+
+    public long dailyCalls(String subject) {
+        Usage today = usage.get(new Key(LocalDate.now(clock), subject));
+        return today != null ? today.dailyCalls.sum() : 0;
+    }
+
+    /**
+     * 当前保留的突发限流桶数
+     */
+    public int burstBucketCount() {
+        return burstBuckets.size();
+    }
+
+    public long dailyTokens(String subject) {
+        Usage today = usage.get(new Key(LocalDate.now(clock), subject));
+        return today != null ? today.dailyTokens.sum() : 0;
+    }
+
+    private Usage usage(LocalDate date, String subject, String role) {
+        return usage.computeIfAbsent(new Key(date, subject), key -> new Usage(role));
+    }
+
+    private Decision check(String subject, Usage today, Limits limits, LocalDateTime now) {
+        if (limits.dailyCalls() > 0 && today.dailyCalls.sum() >= limits.dailyCalls()) {
+            return new Decision(Rejection.DAILY_CALLS, secondsUntilTomorrow(now));
+        }
+        if (limits.dailyTokens() > 0 && today.dailyTokens.sum() >= limits.dailyTokens()) {
+            return new Decision(Rejection.DAILY_TOKENS, secondsUntilTomorrow(now));
+        }
+        if (limits.burstCalls() > 0 && limits.burstCallsPerMinute() > 0) {
+            TokenBucket bucket = burstBuckets.computeIfAbsent(subject,
+                    s -> new TokenBucket(limits.burstCalls(), limits.burstCallsPerMinute(), nanoClock));
+            long waitNanos = bucket.tryReserve(1);
+            if (waitNanos > 0) {
+                return new Decision(Rejection.BURST, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+            }
+        }
+        return ALLOWED;
+    }
+
+    private static long secondsUntilTomorrow(LocalDateTime now) {
+        return Math.max(1, Duration.between(now, now.toLocalDate().plusDays(1).atStartOfDay()).getSeconds());
+    }
+}
@@ -0,0 +1,71 @@
+package com.schedulai.util;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * 每周可用人数热力图累加器：一周按 30 分钟划分为 336 个时间格，
+ * 每个时间段只在差分数组上做两次加减，最后一次前缀和得到各时间格的可用人数，
+ * 因此累加 N 个时间段的代价为 O(N + 336)，与时间段长度无关。
+ * 只有被时间段完全覆盖的时间格才计数。
+ */
+public final class WeeklyHeatmap {
+
+    public static final int BUCKET_MINUTES = 30;
+    public static final int BUCKETS_PER_DAY = 24 * 60 / BUCKET_MINUTES;
+    public static final int BUCKETS = 7 * BUCKETS_PER_DAY;
+
+    // 差分数组，多一位用于区间右端
+    private final int[] diff = new int[BUCKETS + 1];
+
+    /**
+     * 累加一个时间段
+     */
+    public void add(DayOfWeek day, LocalTime start, LocalTime end) {
+        int from = firstBucket(day, start);
+        int to = endBucket(day, end);
+        if (from < to) {
+            diff[from]++;
+            diff[to]--;
+        }
+    }
+
+    /**
+     * 前缀和得到每个时间格的计数
+     */
+    public int[] toCounts() {
+        int[] counts = new int[BUCKETS];
+        int running = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            running += diff[i];
+            counts[i] = running;
+        }
+        return counts;
+    }
+
+    /**
+     * 在已计算好的计数数组上直接增减一个时间段（用于增量更新）
+     */
+    public static void applyDelta(int[] counts, DayOfWeek day, LocalTime start, LocalTime end, int delta) {
+        int to = endBucket(day, end);
+        for (int i = firstBucket(day, start); i < to; i++) {
+            counts[i] += delta;
+        }
+    }
+
+    // 起点向上取整到时间格边界
+    private static int firstBucket(DayOfWeek day, LocalTime start) {
+        int minute = start.getHour() * 60 + start.getMinute() + (start.getSecond() > 0 || start.getNano() > 0 ? 1 : 0);
+        return (day.getValue() - 1) * BUCKETS_PER_DAY + (minute + BUCKET_MINUTES - 1) / BUCKET_MINUTES;
+    }
+
+    // 终点向下取整到时间格边界（开区间）
+    private static int endBucket(DayOfWeek day, LocalTime end) {
+        int minute = end.getHour() * 60 + end.getMinute();
+        // 23:59 及以后视为当天结束
+        if (end.isAfter(LocalTime.of(23, 58, 59))) {
+            minute = 24 * 60;
+        }
+        return (day.getValue() - 1) * BUCKETS_PER_DAY + minute / BUCKET_MINUTES;
+    }
+}
@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS lesson_evaluations (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    lesson_id BIGINT NOT NULL,
+    input_fingerprint VARCHAR(64) NOT NULL,
+    model VARCHAR(100) NOT NULL,
+    content TEXT NOT NULL,
+    stale BOOLEAN NOT NULL DEFAULT FALSE,
+    generated_at DATETIME(6),
+    UNIQUE KEY uk_lesson_evaluation_lesson (lesson_id),
+    FOREIGN KEY (lesson_id) REFERENCES lessons(id) ON DELETE CASCADE
+);
@@ -0,0 +1,16 @@
+-- Nightly precomputed lesson time suggestions, one row per enrollment and lesson duration.
+-- slots holds the suggested start times as comma-separated ISO local date-times.
+CREATE TABLE IF NOT EXISTS precomputed_suggestions (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    enrollment_id BIGINT NOT NULL,
+    student_id BIGINT NOT NULL,
+    teacher_id BIGINT NOT NULL,
+    course_id BIGINT NOT NULL,
+    duration_minutes INT NOT NULL,
+    slots VARCHAR(1000) NOT NULL,
+    computed_at DATETIME(6) NOT NULL,
+    UNIQUE KEY uk_precomputed_suggestion (enrollment_id, duration_minutes),
+    INDEX idx_precomputed_suggestion_student (student_id),
+    INDEX idx_precomputed_suggestion_teacher (teacher_id),
+    FOREIGN KEY (enrollment_id) REFERENCES enrollments(id) ON DELETE CASCADE
+);
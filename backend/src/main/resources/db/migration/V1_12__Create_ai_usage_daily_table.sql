@@ -0,0 +1,14 @@
+-- Per-user AI usage per day, flushed periodically from the in-memory meter.
+-- subject is the username, or "ip:<address>" for unidentified callers.
+CREATE TABLE IF NOT EXISTS ai_usage_daily (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    usage_date DATE NOT NULL,
+    subject VARCHAR(100) NOT NULL,
+    role VARCHAR(20) NOT NULL,
+    calls BIGINT NOT NULL DEFAULT 0,
+    tokens BIGINT NOT NULL DEFAULT 0,
+    rejected_calls BIGINT NOT NULL DEFAULT 0,
+    updated_at DATETIME(6) NOT NULL,
+    UNIQUE KEY uk_ai_usage_daily (usage_date, subject),
+    INDEX idx_ai_usage_daily_role (usage_date, role)
+);
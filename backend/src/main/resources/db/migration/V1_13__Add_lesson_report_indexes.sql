@@ -0,0 +1,5 @@
+-- Supporting indexes for the grouped dashboard reports (teacher workload, student learning).
+-- The range scan on start_date_time reads status, end_date_time and enrollment_id from the index itself.
+CREATE INDEX idx_lessons_start_status ON lessons (start_date_time, status, end_date_time, enrollment_id);
+-- Per-enrollment lesson lookups by time range (learning reports, conflict checks).
+CREATE INDEX idx_lessons_enrollment_start ON lessons (enrollment_id, start_date_time);
@@ -0,0 +1,18 @@
+-- Lesson counts and minutes per day, teacher, student, course and status, kept in step with every
+-- lesson write and rebuilt from lessons by the backfill. The dashboards read these instead of lessons.
+CREATE TABLE IF NOT EXISTS lesson_daily_rollups (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    lesson_date DATE NOT NULL,
+    teacher_id BIGINT NOT NULL,
+    student_id BIGINT NOT NULL,
+    course_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    lesson_count INT NOT NULL DEFAULT 0,
+    total_minutes BIGINT NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_lesson_daily_rollup (lesson_date, teacher_id, student_id, course_id, status),
+    INDEX idx_lesson_daily_rollup_teacher (teacher_id, lesson_date),
+    INDEX idx_lesson_daily_rollup_student (student_id, lesson_date),
+    FOREIGN KEY (teacher_id) REFERENCES teachers(id) ON DELETE CASCADE,
+    FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE,
+    FOREIGN KEY (course_id) REFERENCES courses(id) ON DELETE CASCADE
+);
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS blackout_periods (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    teacher_id BIGINT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    reason VARCHAR(255),
+    created_at DATETIME(6),
+    FOREIGN KEY (teacher_id) REFERENCES teachers(id) ON DELETE CASCADE,
+    KEY idx_blackout_teacher_start (teacher_id, start_date)
+);
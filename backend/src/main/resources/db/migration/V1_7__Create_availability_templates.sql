@@ -0,0 +1,20 @@
+CREATE TABLE IF NOT EXISTS availability_templates (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    owner_type ENUM('TEACHER','STUDENT') NOT NULL,
+    owner_id BIGINT NOT NULL,
+    name VARCHAR(100) NOT NULL,
+    effective_from DATE NOT NULL,
+    effective_to DATE NULL,
+    created_at DATETIME(6),
+    KEY idx_availability_template_owner (owner_type, owner_id, effective_from)
+);
+
+CREATE TABLE IF NOT EXISTS availability_template_slots (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    template_id BIGINT NOT NULL,
+    day_of_week ENUM('MONDAY','TUESDAY','WEDNESDAY','THURSDAY','FRIDAY','SATURDAY','SUNDAY') NOT NULL,
+    start_time TIME(6) NOT NULL,
+    end_time TIME(6) NOT NULL,
+    FOREIGN KEY (template_id) REFERENCES availability_templates(id) ON DELETE CASCADE,
+    KEY idx_template_slot_day (template_id, day_of_week)
+);
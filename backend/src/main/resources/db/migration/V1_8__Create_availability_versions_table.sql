@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS availability_versions (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    owner_type ENUM('TEACHER','STUDENT') NOT NULL,
+    owner_id BIGINT NOT NULL,
+    version BIGINT NOT NULL,
+    checksum VARCHAR(64) NOT NULL,
+    updated_at DATETIME(6),
+    UNIQUE KEY uk_availability_version_owner (owner_type, owner_id)
+);
@@ -0,0 +1,27 @@
+CREATE TABLE IF NOT EXISTS report_jobs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    period_start DATE NOT NULL,
+    period_end DATE NOT NULL,
+    status ENUM('PENDING','RUNNING','COMPLETED','CANCELLED') NOT NULL,
+    total_items INT NOT NULL DEFAULT 0,
+    created_at DATETIME(6),
+    started_at DATETIME(6),
+    finished_at DATETIME(6),
+    INDEX idx_report_jobs_status (status)
+);
+
+-- One row per student; results are written as each report finishes so a restarted job only redoes unfinished students
+CREATE TABLE IF NOT EXISTS report_job_items (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    job_id BIGINT NOT NULL,
+    student_id BIGINT NOT NULL,
+    status ENUM('PENDING','RUNNING','COMPLETED','FAILED') NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    report_content TEXT,
+    error_message VARCHAR(500),
+    updated_at DATETIME(6),
+    UNIQUE KEY uk_report_job_item_student (job_id, student_id),
+    INDEX idx_report_job_items_status (job_id, status),
+    FOREIGN KEY (job_id) REFERENCES report_jobs(id) ON DELETE CASCADE,
+    FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE
+);
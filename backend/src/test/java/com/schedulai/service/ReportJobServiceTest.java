@@ -0,0 +1,128 @@
+package com.schedulai.service;
+
+import com.schedulai.domain.ReportJob;
+import com.schedulai.domain.ReportJobItemStatus;
+import com.schedulai.domain.ReportJobStatus;
+import com.schedulai.dto.ReportJobDTO;
+import com.schedulai.repository.LessonRepository;
+import com.schedulai.repository.ReportJobItemRepository;
+import com.schedulai.repository.ReportJobRepository;
+import jakarta.persistence.TransactionRequiredException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReportJobServiceTest {
+
+    @Mock
+    private ReportJobRepository reportJobRepository;
+    @Mock
+    private ReportJobItemRepository reportJobItemRepository;
+    @Mock
+    private LessonRepository lessonRepository;
+    @Mock
+    private ReportService reportService;
+    @Mock
+    private OpenAIService openAIService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ReportJobService service;
+    private final AtomicReference<ReportJob> storedJob = new AtomicReference<>();
+    // 是否处于新开启的事务中；createJob 的事务提交后仍绑定在线程上，加入它的写操作会失败
+    private final AtomicBoolean inNewTransaction = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        service = new ReportJobService(reportJobRepository, reportJobItemRepository, lessonRepository,
+                reportService, openAIService, transactionManager, 1, 60, 90000, 5, 2000, 60000);
+
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            TransactionDefinition definition = invocation.getArgument(0);
+            assertEquals(TransactionDefinition.PROPAGATION_REQUIRES_NEW, definition.getPropagationBehavior());
+            inNewTransaction.set(true);
+            return new SimpleTransactionStatus();
+        });
+        lenient().doAnswer(invocation -> {
+            inNewTransaction.set(false);
+            return null;
+        }).when(transactionManager).commit(any());
+        lenient().when(reportJobRepository.save(any(ReportJob.class))).thenAnswer(invocation -> {
+            ReportJob job = invocation.getArgument(0);
+            if (job.getId() == null) {
+                job.setId(42L);
+            }
+            storedJob.set(job);
+            return job;
+        });
+        lenient().when(reportJobRepository.findById(42L)).thenAnswer(invocation -> Optional.ofNullable(storedJob.get()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void testCreateJobStartsAfterCommitInItsOwnTransaction() {
+        when(lessonRepository.findStudentIdsWithLessonsBetween(any(), any())).thenReturn(List.of(7L, 8L));
+        when(reportJobItemRepository.updateStatus(42L, ReportJobItemStatus.RUNNING, ReportJobItemStatus.PENDING))
+                .thenAnswer(invocation -> {
+                    if (!inNewTransaction.get()) {
+                        throw new TransactionRequiredException("Executing an update/delete query");
+                    }
+                    return 0;
+                });
+        // 没有待处理的学生：任务启动后立即结束，不会交给工作线程
+        when(reportJobItemRepository.findIdsByJobIdAndStatus(42L, ReportJobItemStatus.PENDING)).thenReturn(List.of());
+
+        TransactionSynchronizationManager.initSynchronization();
+        ReportJobDTO created;
+        try {
+            created = service.createJob(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+            // 事务提交前任务还未启动
+            assertEquals(ReportJobStatus.PENDING, storedJob.get().getStatus());
+            verify(reportJobItemRepository, never()).updateStatus(any(), any(), any());
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(42L, created.getId());
+        verify(reportJobItemRepository).updateStatus(42L, ReportJobItemStatus.RUNNING, ReportJobItemStatus.PENDING);
+        assertEquals(ReportJobStatus.COMPLETED, storedJob.get().getStatus());
+        assertNotNull(storedJob.get().getStartedAt());
+        assertNotNull(storedJob.get().getFinishedAt());
+        // 启动与结束各在一个新事务中提交
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void testCreateJobRejectsInvertedPeriod() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.createJob(LocalDate.of(2025, 3, 31), LocalDate.of(2025, 3, 1)));
+        verifyNoInteractions(reportJobRepository, reportJobItemRepository, lessonRepository);
+    }
+}
@@ -0,0 +1,142 @@
+package com.schedulai.service;
+
+import com.schedulai.domain.PrecomputedSuggestion;
+import com.schedulai.dto.ProposedLessonDTO;
+import com.schedulai.event.LessonScheduleChangedEvent;
+import com.schedulai.repository.EnrollmentRepository;
+import com.schedulai.repository.PrecomputedSuggestionRepository;
+import com.schedulai.util.BlackoutCalendar;
+import jakarta.persistence.TransactionRequiredException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SuggestionPrecomputeServiceTest {
+
+    private static final long ENROLLMENT_ID = 5L;
+    private static final long STUDENT_ID = 17L;
+    private static final long TEACHER_ID = 3L;
+
+    @Mock
+    private PrecomputedSuggestionRepository precomputedSuggestionRepository;
+    @Mock
+    private EnrollmentRepository enrollmentRepository;
+    @Mock
+    private SchedulingService schedulingService;
+    @Mock
+    private BlackoutService blackoutService;
+    @Mock
+    private AIUsageService aiUsageService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SuggestionPrecomputeService service;
+    // 表中的预计算结果（null 表示已删除）
+    private final AtomicReference<PrecomputedSuggestion> row = new AtomicReference<>();
+    // 监听器在事务提交后运行：只有新开启的事务里才能执行删除
+    private final AtomicBoolean inNewTransaction = new AtomicBoolean();
+    private final List<ProposedLessonDTO> liveSuggestions = List.of();
+
+    @BeforeEach
+    void setUp() {
+        service = new SuggestionPrecomputeService(precomputedSuggestionRepository, enrollmentRepository, schedulingService,
+                blackoutService, aiUsageService, transactionManager, true, 1, 60, 36);
+
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            TransactionDefinition definition = invocation.getArgument(0);
+            assertEquals(TransactionDefinition.PROPAGATION_REQUIRES_NEW, definition.getPropagationBehavior());
+            inNewTransaction.set(true);
+            return new SimpleTransactionStatus();
+        });
+        lenient().doAnswer(invocation -> {
+            inNewTransaction.set(false);
+            return null;
+        }).when(transactionManager).commit(any());
+        lenient().when(precomputedSuggestionRepository.findByEnrollmentIdAndDurationMinutes(ENROLLMENT_ID, 60))
+                .thenAnswer(invocation -> Optional.ofNullable(row.get()));
+        lenient().when(blackoutService.getCalendarForTeacher(TEACHER_ID)).thenReturn(BlackoutCalendar.EMPTY);
+        lenient().when(schedulingService.suggestLessonTimesAsync(ENROLLMENT_ID, 60))
+                .thenReturn(CompletableFuture.completedFuture(liveSuggestions));
+
+        row.set(entry(LocalDateTime.now().minusMinutes(10)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private static PrecomputedSuggestion entry(LocalDateTime computedAt) {
+        LocalDateTime firstSlot = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).plusDays(2).withHour(10);
+        PrecomputedSuggestion entry = new PrecomputedSuggestion();
+        entry.setEnrollmentId(ENROLLMENT_ID);
+        entry.setStudentId(STUDENT_ID);
+        entry.setTeacherId(TEACHER_ID);
+        entry.setCourseId(9L);
+        entry.setDurationMinutes(60);
+        entry.setSlots(firstSlot + "," + firstSlot.plusDays(1) + "," + firstSlot.plusDays(2));
+        entry.setComputedAt(computedAt);
+        return entry;
+    }
+
+    @Test
+    void testServesStoredEntryWithoutCallingTheModel() {
+        List<ProposedLessonDTO> suggestions = service.suggest(ENROLLMENT_ID, 60).join();
+
+        assertEquals(3, suggestions.size());
+        verify(aiUsageService).refundCall();
+        verifyNoInteractions(schedulingService);
+    }
+
+    @Test
+    void testCommittedLessonChangeDeletesTheEntry() {
+        when(precomputedSuggestionRepository.deleteByParticipants(STUDENT_ID, TEACHER_ID)).thenAnswer(invocation -> {
+            if (!inNewTransaction.get()) {
+                throw new TransactionRequiredException("Executing an update/delete query");
+            }
+            row.set(null);
+            return 1;
+        });
+
+        // 课程保存的事务已提交，AFTER_COMMIT 监听器随后运行
+        service.onLessonScheduleChanged(new LessonScheduleChangedEvent(100L, STUDENT_ID, TEACHER_ID));
+
+        assertNull(row.get());
+        verify(transactionManager).commit(any());
+        assertSame(liveSuggestions, service.suggest(ENROLLMENT_ID, 60).join());
+        verify(aiUsageService, never()).refundCall();
+    }
+
+    @Test
+    void testEntryComputedBeforeAnInvalidationIsNotServed() {
+        // 删除失败（或尚未执行）时，内存中的失效时间仍阻止返回旧结果
+        when(precomputedSuggestionRepository.deleteByParticipants(anyLong(), anyLong()))
+                .thenThrow(new IllegalStateException("database unavailable"));
+        assertThrows(IllegalStateException.class,
+                () -> service.onLessonScheduleChanged(new LessonScheduleChangedEvent(100L, STUDENT_ID, TEACHER_ID)));
+
+        assertSame(liveSuggestions, service.suggest(ENROLLMENT_ID, 60).join());
+        verify(schedulingService).suggestLessonTimesAsync(ENROLLMENT_ID, 60);
+        verify(aiUsageService, never()).refundCall();
+    }
+}
@@ -0,0 +1,90 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AvailabilityDiffTest {
+
+    private static AvailabilityDiff.Slot slot(DayOfWeek day, String start, String end) {
+        return new AvailabilityDiff.Slot(day, LocalTime.parse(start), LocalTime.parse(end), true);
+    }
+
+    @Test
+    void testNormalizeMergesOverlappingAndAdjacentSlots() {
+        List<AvailabilityDiff.Slot> normalized = AvailabilityDiff.normalize(List.of(
+                slot(DayOfWeek.MONDAY, "10:00", "11:00"),
+                slot(DayOfWeek.MONDAY, "09:00", "10:00"),
+                slot(DayOfWeek.MONDAY, "10:30", "12:00"),
+                slot(DayOfWeek.TUESDAY, "09:00", "10:00")));
+
+        assertEquals(2, normalized.size());
+        assertEquals(slot(DayOfWeek.MONDAY, "09:00", "12:00"), normalized.get(0));
+        assertEquals(slot(DayOfWeek.TUESDAY, "09:00", "10:00"), normalized.get(1));
+    }
+
+    @Test
+    void testSingleSlotChangeRewritesOnlyOneRow() {
+        // 存储的行直接用 Slot 表示
+        List<AvailabilityDiff.Slot> stored = List.of(
+                slot(DayOfWeek.MONDAY, "09:00", "10:00"),
+                slot(DayOfWeek.WEDNESDAY, "14:00", "16:00"),
+                slot(DayOfWeek.FRIDAY, "18:00", "20:00"));
+        List<AvailabilityDiff.Slot> submitted = List.of(
+                slot(DayOfWeek.MONDAY, "09:00", "10:00"),
+                slot(DayOfWeek.WEDNESDAY, "15:00", "17:00"),
+                slot(DayOfWeek.FRIDAY, "18:00", "20:00"));
+
+        AvailabilityDiff<AvailabilityDiff.Slot> diff = AvailabilityDiff.compute(stored, s -> s, submitted);
+
+        assertTrue(diff.getInserts().isEmpty());
+        assertTrue(diff.getDeletes().isEmpty());
+        assertEquals(1, diff.getUpdates().size());
+        assertSame(stored.get(1), diff.getUpdates().get(0).row());
+        assertEquals(List.of(slot(DayOfWeek.WEDNESDAY, "15:00", "17:00")), diff.getAdded());
+        assertEquals(List.of(slot(DayOfWeek.WEDNESDAY, "14:00", "16:00")), diff.getRemoved());
+    }
+
+    @Test
+    void testUnchangedSetProducesEmptyDiff() {
+        List<AvailabilityDiff.Slot> stored = List.of(slot(DayOfWeek.MONDAY, "09:00", "10:00"));
+        AvailabilityDiff<AvailabilityDiff.Slot> diff = AvailabilityDiff.compute(stored, s -> s,
+                List.of(slot(DayOfWeek.MONDAY, "09:00", "10:00")));
+        assertTrue(diff.isEmpty());
+
+        AvailabilityDiff<AvailabilityDiff.Slot> cleared = AvailabilityDiff.compute(stored, s -> s, List.of());
+        assertEquals(1, cleared.getDeletes().size());
+        assertEquals(1, cleared.getRemoved().size());
+    }
+
+    @Test
+    void testNormalizeDropsZeroLengthSlotsAndKeepsFlagsApart() {
+        List<AvailabilityDiff.Slot> normalized = AvailabilityDiff.normalize(List.of(
+                slot(DayOfWeek.MONDAY, "09:00", "09:00"),
+                slot(DayOfWeek.MONDAY, "09:00", "10:00"),
+                new AvailabilityDiff.Slot(DayOfWeek.MONDAY, LocalTime.parse("10:00"), LocalTime.parse("11:00"), false)));
+
+        // 可用与不可用时间段不合并
+        assertEquals(2, normalized.size());
+        assertTrue(normalized.get(0).available());
+        assertFalse(normalized.get(1).available());
+    }
+
+    @Test
+    void testChecksumDependsOnlyOnCanonicalForm() {
+        String a = AvailabilityDiff.checksum(AvailabilityDiff.normalize(List.of(
+                slot(DayOfWeek.TUESDAY, "09:00", "10:00"),
+                slot(DayOfWeek.MONDAY, "09:00", "10:00"),
+                slot(DayOfWeek.MONDAY, "10:00", "11:00"))));
+        String b = AvailabilityDiff.checksum(AvailabilityDiff.normalize(List.of(
+                slot(DayOfWeek.MONDAY, "09:00", "11:00"),
+                slot(DayOfWeek.TUESDAY, "09:00", "10:00"))));
+
+        assertEquals(a, b);
+        assertEquals(64, a.length());
+    }
+}
@@ -0,0 +1,58 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlackoutCalendarTest {
+
+    private static LocalDate[] range(String start, String end) {
+        return new LocalDate[]{LocalDate.parse(start), LocalDate.parse(end)};
+    }
+
+    @Test
+    void testOverlappingAndAdjacentRangesAreMerged() {
+        // 国庆假期与相邻的调休日、重叠的考试周
+        BlackoutCalendar calendar = BlackoutCalendar.of(List.of(
+                range("2025-10-01", "2025-10-07"),
+                range("2025-10-08", "2025-10-08"),
+                range("2025-10-05", "2025-10-10"),
+                range("2025-12-29", "2026-01-02")));
+
+        assertEquals(2, calendar.size());
+        assertTrue(calendar.isBlocked(LocalDate.parse("2025-10-01")));
+        assertTrue(calendar.isBlocked(LocalDate.parse("2025-10-10")));
+        assertFalse(calendar.isBlocked(LocalDate.parse("2025-10-11")));
+        assertFalse(calendar.isBlocked(LocalDate.parse("2025-09-30")));
+        assertTrue(calendar.isBlocked(LocalDate.parse("2026-01-01")));
+    }
+
+    @Test
+    void testOverlapsUsesHalfOpenEnd() {
+        BlackoutCalendar calendar = BlackoutCalendar.of(List.<LocalDate[]>of(range("2025-10-02", "2025-10-02")));
+
+        // 前一天晚上到午夜结束的课程不算占用停课日
+        assertFalse(calendar.overlaps(LocalDateTime.parse("2025-10-01T22:00:00"), LocalDateTime.parse("2025-10-02T00:00:00")));
+        assertTrue(calendar.overlaps(LocalDateTime.parse("2025-10-01T23:00:00"), LocalDateTime.parse("2025-10-02T00:30:00")));
+        assertTrue(calendar.overlaps(LocalDateTime.parse("2025-10-02T09:00:00"), LocalDateTime.parse("2025-10-02T10:30:00")));
+    }
+
+    @Test
+    void testUnionAndRangesBetween() {
+        BlackoutCalendar organization = BlackoutCalendar.of(List.<LocalDate[]>of(range("2025-10-01", "2025-10-03")));
+        BlackoutCalendar teacher = BlackoutCalendar.of(List.<LocalDate[]>of(range("2025-10-04", "2025-10-06")));
+
+        BlackoutCalendar combined = organization.union(teacher);
+        assertEquals(1, combined.size());
+
+        List<LocalDate[]> clipped = combined.rangesBetween(LocalDate.parse("2025-10-02"), LocalDate.parse("2025-10-05"));
+        assertEquals(1, clipped.size());
+        assertEquals(LocalDate.parse("2025-10-02"), clipped.get(0)[0]);
+        assertEquals(LocalDate.parse("2025-10-05"), clipped.get(0)[1]);
+        assertTrue(BlackoutCalendar.EMPTY.union(teacher).isBlocked(LocalDate.parse("2025-10-05")));
+    }
+}
@@ -0,0 +1,99 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBreakerTest {
+
+    @Test
+    void testOpensWhenFailureRateReachesThreshold() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 1000, now::get);
+
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onSuccess();
+        // 样本不足 minimumCalls 时不熔断
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquirePermission());
+        assertEquals(1, breaker.metrics().rejectedCount());
+    }
+
+    @Test
+    void testHalfOpenAllowsSingleProbe() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, 1000, now::get);
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        now.addAndGet(1000);
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        // 探测进行中，其他请求仍被拒绝
+        assertFalse(breaker.tryAcquirePermission());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testStateIsHalfOpenOnceTheOpenPeriodPassed() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, 1000, now::get);
+        breaker.onFailure();
+        breaker.onFailure();
+
+        now.addAndGet(999);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        // 未申请许可也会进入半开，调用方据此发起探测
+        now.addAndGet(1);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertEquals(0, breaker.metrics().millisUntilHalfOpen());
+        assertEquals(0, breaker.metrics().rejectedCount());
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertFalse(breaker.tryAcquirePermission());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void testFailedProbeReopens() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, 1000, now::get);
+        breaker.onFailure();
+        breaker.onFailure();
+
+        now.addAndGet(1500);
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(2, breaker.metrics().openedCount());
+        assertEquals(1000, breaker.metrics().millisUntilHalfOpen());
+    }
+
+    @Test
+    void testOldOutcomesLeaveTheWindow() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.75, 1000, now::get);
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onSuccess();
+        // 窗口为 [F, F, S, S]，失败率 0.5
+        assertEquals(0.5, breaker.metrics().failureRate(), 1e-9);
+        breaker.onSuccess();
+        // 最早的失败被挤出窗口
+        assertEquals(0.25, breaker.metrics().failureRate(), 1e-9);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+}
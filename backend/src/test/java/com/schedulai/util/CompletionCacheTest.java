@@ -0,0 +1,118 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompletionCacheTest {
+
+    @Test
+    void testKeyDependsOnEveryField() {
+        String base = CompletionCache.key("gpt-4", "sys", "prompt", 0.5, 2000);
+        assertEquals(base, CompletionCache.key("gpt-4", "sys", "prompt", 0.5, 2000));
+        assertNotEquals(base, CompletionCache.key("gpt-3.5-turbo", "sys", "prompt", 0.5, 2000));
+        assertNotEquals(base, CompletionCache.key("gpt-4", "sys2", "prompt", 0.5, 2000));
+        assertNotEquals(base, CompletionCache.key("gpt-4", "sys", "prompt", 0.7, 2000));
+        assertNotEquals(base, CompletionCache.key("gpt-4", "sys", "prompt", 0.5, 1500));
+        // 字段边界不同的拼接不应冲突
+        assertNotEquals(CompletionCache.key("m", "ab", "c", 0.5, 1), CompletionCache.key("m", "a", "bc", 0.5, 1));
+    }
+
+    @Test
+    void testHitMissAndTtl() {
+        AtomicLong now = new AtomicLong(1_000_000L);
+        CompletionCache cache = new CompletionCache(10, 60, null, now::get);
+
+        assertNull(cache.get("k"));
+        cache.put("k", "reply");
+        assertEquals("reply", cache.get("k"));
+
+        now.addAndGet(61_000L);
+        assertNull(cache.get("k"));
+
+        CompletionCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(0, stats.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() {
+        CompletionCache cache = new CompletionCache(2, 60, null);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void testDiskTierSurvivesRestart() throws Exception {
+        Path dir = Files.createTempDirectory("completion-cache");
+        Path file = dir.resolve("cache.log");
+        AtomicLong now = new AtomicLong(1_000_000L);
+
+        CompletionCache first = new CompletionCache(10, 60, file, now::get);
+        first.put("a", "多行\n回复");
+        first.put("b", "old");
+        first.put("b", "new");
+        first.close();
+        assertEquals(3, Files.readAllLines(file).size());
+
+        CompletionCache second = new CompletionCache(10, 60, file, now::get);
+        assertEquals("多行\n回复", second.get("a"));
+        assertEquals("new", second.get("b"));
+        second.close();
+        // 回放后压缩为每个键一行
+        assertEquals(2, Files.readAllLines(file).size());
+
+        now.addAndGet(61_000L);
+        CompletionCache expired = new CompletionCache(10, 60, file, now::get);
+        assertNull(expired.get("a"));
+        expired.close();
+        assertEquals(0, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void testEvictedEntryIsRestoredFromDisk() throws Exception {
+        Path file = Files.createTempDirectory("completion-cache").resolve("cache.log");
+        CompletionCache cache = new CompletionCache(1, 60, file);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        assertEquals("1", cache.get("a"));
+        assertEquals(1, cache.stats().diskHits());
+        cache.close();
+    }
+
+    @Test
+    void testLogIsCompactedWhileRunning() throws Exception {
+        Path file = Files.createTempDirectory("completion-cache").resolve("cache.log");
+        AtomicLong now = new AtomicLong(1_000_000L);
+        CompletionCache cache = new CompletionCache(1, 60, file, now::get, 0);
+        for (int i = 0; i < 20; i++) {
+            cache.put("a", "v" + i);
+            cache.put("b", "w" + i);
+        }
+        // 覆盖写入的旧行已被回收，文件中每个键最多两行
+        assertTrue(Files.readAllLines(file).size() <= 4);
+        // 内存层只剩 b，a 从压缩后的文件中读出
+        assertEquals("v19", cache.get("a"));
+        assertEquals(1, cache.stats().diskHits());
+        cache.close();
+
+        CompletionCache reopened = new CompletionCache(10, 60, file, now::get);
+        assertEquals("v19", reopened.get("a"));
+        assertEquals("w19", reopened.get("b"));
+        reopened.close();
+        assertEquals(2, Files.readAllLines(file).size());
+    }
+}
@@ -0,0 +1,53 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EffectiveDateIndexTest {
+
+    private static LocalDate d(String date) {
+        return LocalDate.parse(date);
+    }
+
+    @Test
+    void testTemplateIdOnResolvesActiveTemplate() {
+        // 暑期模板 + 长期有效的秋季学期模板
+        EffectiveDateIndex index = EffectiveDateIndex.of(List.of(
+                new EffectiveDateIndex.Entry(2L, d("2025-09-01"), null),
+                new EffectiveDateIndex.Entry(1L, d("2025-07-01"), d("2025-08-31"))));
+
+        assertNull(index.templateIdOn(d("2025-06-30")));
+        assertEquals(Long.valueOf(1L), index.templateIdOn(d("2025-07-01")));
+        assertEquals(Long.valueOf(1L), index.templateIdOn(d("2025-08-31")));
+        assertEquals(Long.valueOf(2L), index.templateIdOn(d("2025-09-01")));
+        assertEquals(Long.valueOf(2L), index.templateIdOn(d("2030-01-01")));
+    }
+
+    @Test
+    void testSegmentsSwitchOnlyAtBoundaries() {
+        EffectiveDateIndex index = EffectiveDateIndex.of(List.of(
+                new EffectiveDateIndex.Entry(1L, d("2025-07-01"), d("2025-07-31")),
+                new EffectiveDateIndex.Entry(2L, d("2025-08-10"), d("2025-08-20"))));
+
+        List<EffectiveDateIndex.Segment> segments = index.segments(d("2025-06-25"), d("2025-08-15"));
+        assertEquals(4, segments.size());
+        assertEquals(new EffectiveDateIndex.Segment(d("2025-06-25"), d("2025-06-30"), null), segments.get(0));
+        assertEquals(new EffectiveDateIndex.Segment(d("2025-07-01"), d("2025-07-31"), 1L), segments.get(1));
+        assertEquals(new EffectiveDateIndex.Segment(d("2025-08-01"), d("2025-08-09"), null), segments.get(2));
+        assertEquals(new EffectiveDateIndex.Segment(d("2025-08-10"), d("2025-08-15"), 2L), segments.get(3));
+
+        // 空索引整个范围使用基础周模板
+        assertEquals(1, EffectiveDateIndex.EMPTY.segments(d("2025-01-01"), d("2025-12-31")).size());
+    }
+
+    @Test
+    void testOverlappingRangesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> EffectiveDateIndex.of(List.of(
+                new EffectiveDateIndex.Entry(1L, d("2025-07-01"), null),
+                new EffectiveDateIndex.Entry(2L, d("2025-09-01"), d("2025-12-31")))));
+    }
+}
@@ -0,0 +1,55 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExportWriterTest {
+
+    private static final List<String> COLUMNS = List.of("id", "start", "name", "rate");
+
+    @Test
+    void testCsvHeaderQuotingAndFormulaGuard() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportWriter writer = ExportWriter.create(ExportWriter.Format.CSV, out, COLUMNS);
+        writer.writeRow(1L, LocalDateTime.parse("2025-03-03T09:00"), "张三, \"小张\"", new BigDecimal("120.50"));
+        writer.writeRow(2L, null, "=SUM(A1)", -5);
+        writer.flush();
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertEquals("\uFEFFid,start,name,rate\r\n"
+                + "1,2025-03-03 09:00:00,\"张三, \"\"小张\"\"\",120.50\r\n"
+                + "2,,'=SUM(A1),-5\r\n", csv);
+    }
+
+    @Test
+    void testNdjsonWritesOneObjectPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportWriter writer = ExportWriter.create(ExportWriter.Format.NDJSON, out, COLUMNS);
+        writer.writeRow(1L, LocalDateTime.parse("2025-03-03T09:00"), "张三\n", new BigDecimal("120.50"));
+        writer.writeRow(2, null, "李四", null);
+        writer.flush();
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"id\":1,\"start\":\"2025-03-03T09:00:00\",\"name\":\"张三\\n\",\"rate\":120.50}", lines[0]);
+        assertEquals("{\"id\":2,\"start\":null,\"name\":\"李四\",\"rate\":null}", lines[1]);
+    }
+
+    @Test
+    void testHeaderIsWrittenBeforeAnyRow() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportWriter.create(ExportWriter.Format.CSV, out, COLUMNS).flush();
+        assertEquals("\uFEFFid,start,name,rate\r\n", out.toString(StandardCharsets.UTF_8));
+
+        out.reset();
+        ExportWriter.create(ExportWriter.Format.NDJSON, out, COLUMNS).flush();
+        assertEquals(0, out.size());
+    }
+}
@@ -0,0 +1,88 @@
+package com.schedulai.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonArrayStreamParserTest {
+
+    public record Item(String name, int count) {
+    }
+
+    private static final ObjectReader READER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .readerFor(Item.class);
+
+    @Test
+    void testEmitsEachElementAsSoonAsItCloses() throws Exception {
+        List<Item> items = new ArrayList<>();
+        JsonArrayStreamParser<Item> parser = new JsonArrayStreamParser<>(READER, items::add);
+
+        parser.feed("[{\"name\": \"a\", \"cou");
+        assertTrue(items.isEmpty());
+        parser.feed("nt\": 1}, {\"name\"");
+        // 第一个对象已闭合，第二个尚未完成
+        assertEquals(List.of(new Item("a", 1)), items);
+        parser.feed(": \"b\", \"count\": 2}]");
+
+        assertEquals(List.of(new Item("a", 1), new Item("b", 2)), items);
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    void testIgnoresTextAroundTheArray() throws Exception {
+        List<Item> items = new ArrayList<>();
+        JsonArrayStreamParser<Item> parser = new JsonArrayStreamParser<>(READER, items::add);
+
+        parser.feed("Here you go:\n```json\n");
+        parser.feed("[{\"name\": \"a\", \"count\": 1, \"nested\": {\"x\": [1, 2]}}]");
+        parser.feed("\n``` Let me know!");
+
+        assertEquals(1, items.size());
+        assertTrue(parser.finish());
+    }
+
+    @Test
+    void testSkipsBracketsInProseBeforeTheArray() throws Exception {
+        List<Item> items = new ArrayList<>();
+        JsonArrayStreamParser<Item> parser = new JsonArrayStreamParser<>(READER, items::add);
+
+        // "[1]" 与 "[注]" 不是数组起点；真正的 '[' 与其后的 '{' 分在两段到达
+        parser.feed("按规则 [1] 生成 [注] 建议如下：\n[");
+        parser.feed("  \n{\"name\": \"a\", \"count\": 1}]");
+
+        assertEquals(List.of(new Item("a", 1)), items);
+        assertTrue(parser.finish());
+        assertEquals(-1, JsonArrayStreamParser.arrayStart("see [1] and [2]"));
+        assertEquals(8, JsonArrayStreamParser.arrayStart("see [1] []"));
+    }
+
+    @Test
+    void testSkipsElementsThatCannotBeBound() throws Exception {
+        List<Item> items = new ArrayList<>();
+        JsonArrayStreamParser<Item> parser = new JsonArrayStreamParser<>(READER, items::add);
+
+        parser.feed("[{\"name\": \"a\", \"count\": \"many\"}, 42, {\"name\": \"b\", \"count\": 2}]");
+
+        assertEquals(List.of(new Item("b", 2)), items);
+        assertEquals(1, parser.elementCount());
+        assertEquals(2, parser.skippedCount());
+    }
+
+    @Test
+    void testUnterminatedArrayIsNotComplete() throws Exception {
+        List<Item> items = new ArrayList<>();
+        JsonArrayStreamParser<Item> parser = new JsonArrayStreamParser<>(READER, items::add);
+
+        parser.feed("[{\"name\": \"a\", \"count\": 1}, {\"name\": \"b\"");
+
+        assertFalse(parser.finish());
+        assertEquals(1, items.size());
+    }
+}
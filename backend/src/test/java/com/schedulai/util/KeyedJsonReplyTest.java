@@ -0,0 +1,61 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyedJsonReplyTest {
+
+    @Test
+    void testSplitsReplyByKey() {
+        String reply = "```json\n{\"12\": \"认真完成练习。\", \"15\": \"需要复习第三章。\"}\n```";
+
+        Map<String, String> values = KeyedJsonReply.parse(reply, List.of("12", "15"));
+
+        assertEquals(Map.of("12", "认真完成练习。", "15", "需要复习第三章。"), values);
+    }
+
+    @Test
+    void testKeepsOnlyExpectedNonBlankTextValues() {
+        String reply = "{\"12\": \"好\", \"13\": \"   \", \"14\": {\"text\": \"嵌套\"}, \"99\": \"多余\"}";
+
+        Map<String, String> values = KeyedJsonReply.parse(reply, List.of("12", "13", "14"));
+
+        // 13、14 缺失，由调用方单独重试
+        assertEquals(Map.of("12", "好"), values);
+    }
+
+    @Test
+    void testInvalidJsonGivesEmptyResult() {
+        assertTrue(KeyedJsonReply.parse("{\"12\": \"被截断", List.of("12")).isEmpty());
+        assertTrue(KeyedJsonReply.parse("抱歉，我无法完成。", List.of("12")).isEmpty());
+        assertTrue(KeyedJsonReply.parse(null, List.of("12")).isEmpty());
+    }
+
+    @Test
+    void testSplitAssignsAnswersAndKeepsMissingItemsInOrder() {
+        String reply = "{\"15\": \"需要复习第三章。\", \"12\": \"认真完成练习。\"}";
+
+        KeyedJsonReply.Split<Long> split = KeyedJsonReply.split(reply, List.of(12L, 13L, 15L, 16L), String::valueOf);
+
+        assertTrue(split.parsed());
+        assertEquals(List.of(12L, 15L), List.copyOf(split.answered().keySet()));
+        assertEquals("认真完成练习。", split.answered().get(12L));
+        // 缺失的课程逐条单独调用
+        assertEquals(List.of(13L, 16L), split.unanswered());
+    }
+
+    @Test
+    void testUnparseableReplyLeavesTheWholeBatchUnanswered() {
+        for (String reply : new String[] {"{\"12\": \"被截断", "抱歉，我无法完成。", null}) {
+            KeyedJsonReply.Split<Long> split = KeyedJsonReply.split(reply, List.of(12L, 13L), String::valueOf);
+
+            assertFalse(split.parsed());
+            assertTrue(split.answered().isEmpty());
+            assertEquals(List.of(12L, 13L), split.unanswered());
+        }
+    }
+}
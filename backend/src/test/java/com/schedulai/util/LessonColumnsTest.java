@@ -0,0 +1,170 @@
+package com.schedulai.util;
+
+import com.schedulai.domain.LessonStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LessonColumnsTest {
+
+    private static LocalDateTime t(String time) {
+        return LocalDateTime.parse(time);
+    }
+
+    private static int groupOf(LessonColumns.Result result, long key) {
+        for (int group = 0; group < result.groups(); group++) {
+            if (result.key(group) == key) {
+                return group;
+            }
+        }
+        throw new AssertionError("no group " + key);
+    }
+
+    @Test
+    void testGroupsByTeacherWithCountsAndMinutesPerStatus() {
+        LessonColumns columns = new LessonColumns();
+        columns.put(1, t("2025-03-03T09:00"), t("2025-03-03T10:00"), LessonStatus.COMPLETED, 10, 100, 1000);
+        columns.put(2, t("2025-03-04T09:00"), t("2025-03-04T10:30"), LessonStatus.COMPLETED, 10, 101, 1000);
+        columns.put(3, t("2025-03-05T09:00"), t("2025-03-05T10:00"), LessonStatus.CANCELLED_BY_STUDENT, 10, 100, 1000);
+        columns.put(4, t("2025-03-05T14:00"), t("2025-03-05T15:00"), LessonStatus.COMPLETED, 20, 100, 1001);
+        // 范围之外
+        columns.put(5, t("2025-04-01T09:00"), t("2025-04-01T10:00"), LessonStatus.COMPLETED, 20, 100, 1001);
+
+        LessonColumns.Result result = columns.aggregate(
+                LessonColumns.Filter.all().between(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31)),
+                LessonColumns.GroupBy.TEACHER);
+
+        int teacher10 = groupOf(result, 10);
+        assertEquals(3, result.count(teacher10));
+        assertEquals(2, result.count(teacher10, LessonStatus.COMPLETED));
+        assertEquals(150, result.minutes(teacher10, LessonStatus.COMPLETED));
+        assertEquals(1, result.count(teacher10, EnumSet.of(LessonStatus.CANCELLED_BY_STUDENT, LessonStatus.CANCELLED)));
+        int teacher20 = groupOf(result, 20);
+        assertEquals(1, result.count(teacher20));
+        assertEquals(60, result.minutes(teacher20));
+    }
+
+    @Test
+    void testFiltersAndGroupsByDay() {
+        LessonColumns columns = new LessonColumns();
+        columns.put(1, t("2025-03-03T09:00"), t("2025-03-03T10:00"), LessonStatus.COMPLETED, 10, 100, 1000);
+        columns.put(2, t("2025-03-03T23:30"), t("2025-03-04T00:30"), LessonStatus.COMPLETED, 10, 100, 1000);
+        columns.put(3, t("2025-03-04T09:00"), t("2025-03-04T10:00"), LessonStatus.SCHEDULED, 10, 100, 1000);
+        columns.put(4, t("2025-03-04T11:00"), t("2025-03-04T12:00"), LessonStatus.COMPLETED, 10, 101, 1000);
+
+        LessonColumns.Result result = columns.aggregate(
+                LessonColumns.Filter.all()
+                        .between(LocalDate.of(2025, 3, 3), LocalDate.of(2025, 3, 5))
+                        .student(100L)
+                        .statuses(EnumSet.of(LessonStatus.COMPLETED)),
+                LessonColumns.GroupBy.DAY);
+
+        assertEquals(3, result.groups());
+        assertEquals(LocalDate.of(2025, 3, 3), result.day(0));
+        // 按开始时间归入当天
+        assertEquals(2, result.count(0));
+        assertEquals(120, result.minutes(0));
+        assertEquals(0, result.count(1));
+        assertEquals(0, result.count(2));
+
+        LessonColumns.Result unknown = columns.aggregate(LessonColumns.Filter.all().teacher(99L), LessonColumns.GroupBy.NONE);
+        assertEquals(0, unknown.count(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> columns.aggregate(LessonColumns.Filter.all(), LessonColumns.GroupBy.DAY));
+    }
+
+    @Test
+    void testUpdatesRemovalsAndOutOfOrderInserts() {
+        LessonColumns columns = new LessonColumns();
+        columns.put(5, t("2025-03-03T09:00"), t("2025-03-03T10:00"), LessonStatus.SCHEDULED, 10, 100, 1000);
+        columns.put(3, t("2025-03-03T11:00"), t("2025-03-03T12:00"), LessonStatus.SCHEDULED, 10, 100, 1000);
+        columns.put(5, t("2025-03-03T09:00"), t("2025-03-03T09:45"), LessonStatus.COMPLETED, 10, 100, 1000);
+
+        LessonColumns.Result result = columns.aggregate(LessonColumns.Filter.all(), LessonColumns.GroupBy.NONE);
+        assertEquals(2, columns.size());
+        assertEquals(1, result.count(0, LessonStatus.SCHEDULED));
+        assertEquals(45, result.minutes(0, LessonStatus.COMPLETED));
+
+        assertTrue(columns.remove(3));
+        assertFalse(columns.remove(3));
+        assertEquals(1, columns.size());
+        assertEquals(0, columns.aggregate(LessonColumns.Filter.all(), LessonColumns.GroupBy.NONE).count(0, LessonStatus.SCHEDULED));
+
+        // 删除后重新出现
+        columns.put(3, t("2025-03-03T11:00"), t("2025-03-03T12:00"), LessonStatus.CANCELLED, 10, 100, 1000);
+        assertEquals(2, columns.size());
+        assertEquals(1, columns.aggregate(LessonColumns.Filter.all(), LessonColumns.GroupBy.NONE).count(0, LessonStatus.CANCELLED));
+    }
+
+    @Test
+    void testParallelScanMatchesSequentialTotals() {
+        LessonColumns columns = new LessonColumns(16, new ForkJoinPool(4));
+        Random random = new Random(7);
+        LocalDateTime base = t("2024-01-01T08:00");
+        int rows = LessonColumns.SCAN_CHUNK * 5 + 123;
+        long[] expectedCount = new long[3];
+        long[] expectedMinutes = new long[3];
+        for (int id = 1; id <= rows; id++) {
+            int teacher = random.nextInt(3);
+            int duration = 30 + random.nextInt(4) * 15;
+            LessonStatus status = random.nextBoolean() ? LessonStatus.COMPLETED : LessonStatus.SCHEDULED;
+            LocalDateTime start = base.plusHours(random.nextInt(24 * 365));
+            columns.put(id, start, start.plusMinutes(duration), status, teacher, id % 50, 1);
+            if (status == LessonStatus.COMPLETED) {
+                expectedCount[teacher]++;
+                expectedMinutes[teacher] += duration;
+            }
+        }
+
+        LessonColumns.Result result = columns.aggregate(
+                LessonColumns.Filter.all().statuses(EnumSet.of(LessonStatus.COMPLETED)), LessonColumns.GroupBy.TEACHER);
+
+        for (int teacher = 0; teacher < 3; teacher++) {
+            int group = groupOf(result, teacher);
+            assertEquals(expectedCount[teacher], result.count(group));
+            assertEquals(expectedMinutes[teacher], result.minutes(group, LessonStatus.COMPLETED));
+        }
+    }
+
+    @Test
+    void testRejectsInvertedRangesAndTooManyDays() {
+        LessonColumns columns = new LessonColumns();
+        columns.put(1, t("2025-03-03T09:00"), t("2025-03-03T10:00"), LessonStatus.COMPLETED, 10, 100, 1000);
+
+        assertThrows(IllegalArgumentException.class, () -> columns.aggregate(
+                LessonColumns.Filter.all().between(t("2025-03-05T00:00"), t("2025-03-03T00:00")), LessonColumns.GroupBy.NONE));
+
+        LessonColumns.Filter tenDays = LessonColumns.Filter.all().between(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 10));
+        assertEquals(10, columns.aggregate(tenDays, LessonColumns.GroupBy.DAY, 10).groups());
+        assertThrows(IllegalArgumentException.class, () -> columns.aggregate(tenDays, LessonColumns.GroupBy.DAY, 9));
+        // 默认上限同样适用，不会为整个可表示范围分配分组
+        assertThrows(IllegalArgumentException.class, () -> columns.aggregate(
+                LessonColumns.Filter.all().between(LocalDate.of(1, 1, 1), LocalDate.of(9999, 12, 31)), LessonColumns.GroupBy.DAY));
+    }
+
+    @Test
+    void testExtremeDatesDoNotOverflow() {
+        LessonColumns columns = new LessonColumns();
+        columns.put(1, t("2025-03-03T09:00"), t("2025-03-03T10:00"), LessonStatus.COMPLETED, 10, 100, 1000);
+        columns.put(2, LocalDateTime.MIN, LocalDateTime.MAX, LessonStatus.SCHEDULED, 10, 100, 1000);
+
+        assertEquals(Integer.MIN_VALUE, LessonColumns.toMinute(LocalDateTime.MIN));
+        assertEquals(Integer.MAX_VALUE, LessonColumns.toMinute(LocalDateTime.MAX));
+
+        LessonColumns.Result all = columns.aggregate(
+                LessonColumns.Filter.all().between(LocalDateTime.MIN, LocalDateTime.MAX), LessonColumns.GroupBy.NONE);
+        assertEquals(2, all.count(0));
+        assertEquals(Integer.MAX_VALUE + 60L, all.minutes(0));
+
+        LessonColumns.Result lastDays = columns.aggregate(
+                LessonColumns.Filter.all().between(LocalDate.of(999_999_990, 1, 1), LocalDate.of(999_999_990, 1, 3)),
+                LessonColumns.GroupBy.DAY);
+        assertEquals(0, lastDays.groups());
+    }
+}
@@ -0,0 +1,92 @@
+package com.schedulai.util;
+
+import com.schedulai.domain.LessonStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LessonTimeSeriesTest {
+
+    private static LocalDate d(String date) {
+        return LocalDate.parse(date);
+    }
+
+    private static LessonTimeSeries.Totals totals(long completed) {
+        LessonTimeSeries.Totals totals = new LessonTimeSeries.Totals();
+        totals.add(LessonStatus.COMPLETED, completed, completed * 60);
+        return totals;
+    }
+
+    @Test
+    void testBucketBoundaries() {
+        // 2025-03-05 是周三
+        assertEquals(d("2025-03-05"), LessonTimeSeries.Granularity.DAY.bucketStart(d("2025-03-05")));
+        assertEquals(d("2025-03-03"), LessonTimeSeries.Granularity.WEEK.bucketStart(d("2025-03-05")));
+        assertEquals(d("2025-03-03"), LessonTimeSeries.Granularity.WEEK.bucketStart(d("2025-03-03")));
+        assertEquals(d("2025-03-03"), LessonTimeSeries.Granularity.WEEK.bucketStart(d("2025-03-09")));
+        assertEquals(d("2025-03-01"), LessonTimeSeries.Granularity.MONTH.bucketStart(d("2025-03-31")));
+
+        assertEquals(d("2025-03-10"), LessonTimeSeries.Granularity.WEEK.nextBucket(d("2025-03-03")));
+        assertEquals(d("2025-03-01"), LessonTimeSeries.Granularity.MONTH.nextBucket(d("2025-02-01")));
+        assertEquals(d("2025-01-01"), LessonTimeSeries.Granularity.DAY.nextBucket(d("2024-12-31")));
+    }
+
+    @Test
+    void testTotalsPerStatus() {
+        LessonTimeSeries.Totals totals = new LessonTimeSeries.Totals();
+        totals.add(LessonStatus.COMPLETED, 3, 180);
+        totals.add(LessonStatus.CANCELLED, 1, 45);
+        totals.add(LessonStatus.COMPLETED, 1, 90);
+
+        assertEquals(4, totals.lessons(LessonStatus.COMPLETED));
+        assertEquals(270, totals.minutes(LessonStatus.COMPLETED));
+        assertEquals(0, totals.lessons(LessonStatus.SCHEDULED));
+        assertEquals(5, totals.totalLessons());
+        assertEquals(315, totals.totalMinutes());
+    }
+
+    @Test
+    void testInvalidateDropsOnlyBucketsCoveringTheDay() {
+        LessonTimeSeries.ClosedBucketCache cache = new LessonTimeSeries.ClosedBucketCache(100);
+        long version = cache.version();
+        cache.put(LessonTimeSeries.Granularity.DAY, d("2025-03-05"), null, null, totals(1), version);
+        cache.put(LessonTimeSeries.Granularity.DAY, d("2025-03-06"), null, null, totals(2), version);
+        cache.put(LessonTimeSeries.Granularity.WEEK, d("2025-03-03"), 7L, null, totals(3), version);
+        cache.put(LessonTimeSeries.Granularity.MONTH, d("2025-03-01"), null, 9L, totals(4), version);
+        cache.put(LessonTimeSeries.Granularity.MONTH, d("2025-02-01"), null, 9L, totals(5), version);
+        assertEquals(5, cache.size());
+        assertNull(cache.get(LessonTimeSeries.Granularity.WEEK, d("2025-03-03"), 8L, null));
+
+        cache.invalidate(d("2025-03-05"));
+
+        assertNull(cache.get(LessonTimeSeries.Granularity.DAY, d("2025-03-05"), null, null));
+        assertNull(cache.get(LessonTimeSeries.Granularity.WEEK, d("2025-03-03"), 7L, null));
+        assertNull(cache.get(LessonTimeSeries.Granularity.MONTH, d("2025-03-01"), null, 9L));
+        assertEquals(2, cache.get(LessonTimeSeries.Granularity.DAY, d("2025-03-06"), null, null).totalLessons());
+        assertEquals(5, cache.get(LessonTimeSeries.Granularity.MONTH, d("2025-02-01"), null, 9L).totalLessons());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testPutIsIgnoredAfterConcurrentInvalidationOrWhenFull() {
+        LessonTimeSeries.ClosedBucketCache cache = new LessonTimeSeries.ClosedBucketCache(2);
+        long seen = cache.version();
+        // 查询期间有课程变化：读到的结果可能已过时，不缓存
+        cache.invalidate(d("2024-01-10"));
+        cache.put(LessonTimeSeries.Granularity.MONTH, d("2024-01-01"), null, null, totals(1), seen);
+        assertNull(cache.get(LessonTimeSeries.Granularity.MONTH, d("2024-01-01"), null, null));
+
+        long version = cache.version();
+        cache.put(LessonTimeSeries.Granularity.MONTH, d("2024-01-01"), null, null, totals(1), version);
+        cache.put(LessonTimeSeries.Granularity.MONTH, d("2024-02-01"), null, null, totals(2), version);
+        cache.put(LessonTimeSeries.Granularity.MONTH, d("2024-03-01"), null, null, totals(3), version);
+        assertEquals(2, cache.size());
+        assertNull(cache.get(LessonTimeSeries.Granularity.MONTH, d("2024-03-01"), null, null));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(LessonTimeSeries.Granularity.MONTH, d("2024-01-01"), null, null));
+    }
+}
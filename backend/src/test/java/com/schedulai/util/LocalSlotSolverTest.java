@@ -0,0 +1,68 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalSlotSolverTest {
+
+    // 2025-06-02 是星期一
+    private static final LocalDate MONDAY = LocalDate.of(2025, 6, 2);
+
+    private static LocalSlotSolver.WeeklyWindow window(DayOfWeek day, int fromHour, int toHour) {
+        return new LocalSlotSolver.WeeklyWindow(day, LocalTime.of(fromHour, 0), LocalTime.of(toHour, 0));
+    }
+
+    @Test
+    void testSpreadsSuggestionsAcrossDays() {
+        List<LocalSlotSolver.WeeklyWindow> weekly = List.of(
+                window(DayOfWeek.MONDAY, 9, 12),
+                window(DayOfWeek.WEDNESDAY, 14, 16));
+
+        List<LocalSlotSolver.Interval> result = LocalSlotSolver.solve(weekly, List.of(), date -> false,
+                MONDAY.atStartOfDay(), MONDAY.plusDays(6), 60, 30, 2);
+
+        assertEquals(2, result.size());
+        assertEquals(MONDAY.atTime(9, 0), result.get(0).start());
+        assertEquals(MONDAY.plusDays(2).atTime(14, 0), result.get(1).start());
+    }
+
+    @Test
+    void testSkipsConflictsBlockedDaysAndPastTimes() {
+        List<LocalSlotSolver.WeeklyWindow> weekly = List.of(
+                window(DayOfWeek.MONDAY, 9, 12),
+                window(DayOfWeek.TUESDAY, 9, 10));
+        List<LocalSlotSolver.Interval> busy = List.of(
+                new LocalSlotSolver.Interval(MONDAY.atTime(10, 0), MONDAY.atTime(11, 0)));
+
+        List<LocalSlotSolver.Interval> result = LocalSlotSolver.solve(weekly, busy,
+                date -> date.equals(MONDAY.plusDays(1)),
+                MONDAY.atTime(9, 15), MONDAY.plusDays(6), 60, 30, 5);
+
+        // 9:30 与 10:00 的课冲突，周二停课，只剩 11:00
+        assertEquals(1, result.size());
+        assertEquals(MONDAY.atTime(11, 0), result.get(0).start());
+        assertEquals(MONDAY.atTime(12, 0), result.get(0).end());
+    }
+
+    @Test
+    void testSecondRoundDoesNotOverlapEarlierPick() {
+        List<LocalSlotSolver.WeeklyWindow> weekly = List.of(window(DayOfWeek.MONDAY, 9, 12));
+
+        List<LocalSlotSolver.Interval> result = LocalSlotSolver.solve(weekly, List.of(), date -> false,
+                MONDAY.atStartOfDay(), MONDAY, 60, 30, 3);
+
+        // 候选 9:00, 9:30, 10:00, ...；9:30 与 9:00 重叠被跳过，3 小时的窗口正好放下 3 节
+        assertEquals(3, result.size());
+        assertEquals(LocalDateTime.of(2025, 6, 2, 9, 0), result.get(0).start());
+        for (int i = 1; i < result.size(); i++) {
+            assertFalse(result.get(i).start().isBefore(result.get(i - 1).end()));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MapReduceSummaryTest {
+
+    // 40 个 ASCII 字符约 10 个 token，加换行共 11
+    private static String line(char c) {
+        return String.valueOf(c).repeat(40);
+    }
+
+    @Test
+    void testChunkPacksConsecutiveLinesWithinBudget() {
+        List<String> lines = List.of(line('a'), line('b'), line('c'), line('d'), line('e'));
+        List<List<String>> chunks = MapReduceSummary.chunk(lines, 25);
+
+        assertEquals(3, chunks.size());
+        assertEquals(List.of(line('a'), line('b')), chunks.get(0));
+        assertEquals(List.of(line('c'), line('d')), chunks.get(1));
+        assertEquals(List.of(line('e')), chunks.get(2));
+    }
+
+    @Test
+    void testOversizedLineFormsItsOwnChunk() {
+        String huge = "x".repeat(400);
+        List<List<String>> chunks = MapReduceSummary.chunk(List.of(line('a'), huge, line('b')), 25);
+
+        assertEquals(List.of(List.of(line('a')), List.of(huge), List.of(line('b'))), chunks);
+    }
+
+    @Test
+    void testReduceCondensesLevelByLevelUntilWithinBudget() {
+        List<String> summaries = new ArrayList<>();
+        for (char c = 'a'; c < 'i'; c++) {
+            summaries.add(line(c));
+        }
+        List<Integer> groupSizes = Collections.synchronizedList(new ArrayList<>());
+        // 每次合并得到一条约 5 个 token 的摘要
+        String result = MapReduceSummary.reduce(summaries, 15, 25, 2, group -> {
+            groupSizes.add(group.size());
+            return CompletableFuture.completedFuture("s" + group.size() + "-" + "y".repeat(10));
+        }).join();
+
+        // 8 条 (~88 token) 两两成块 -> 4 条 (~20 token，仍超预算，且能装进一块) -> 1 条
+        assertEquals(List.of(2, 2, 2, 2, 4), groupSizes);
+        assertEquals("s4-yyyyyyyyyy", result);
+    }
+
+    @Test
+    void testReduceReturnsInputWhenItFits() {
+        String result = MapReduceSummary.reduce(List.of("short", "text"), 100, 25, 2,
+                group -> { throw new AssertionError("no condense call expected"); }).join();
+        assertEquals("short\ntext", result);
+    }
+
+    @Test
+    void testMapBoundedLimitsCallsInFlightAndKeepsOrder() {
+        Map<Integer, CompletableFuture<String>> pending = new LinkedHashMap<>();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CompletableFuture<List<String>> result = MapReduceSummary.mapBounded(List.of(1, 2, 3, 4, 5), 2, item -> {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            pending.put(item, call);
+            maxInFlight.accumulateAndGet((int) pending.values().stream().filter(f -> !f.isDone()).count(), Math::max);
+            return call;
+        });
+
+        assertEquals(2, pending.size());
+        // 后发起的先完成，结果仍按输入顺序
+        while (pending.values().stream().anyMatch(f -> !f.isDone())) {
+            List<Integer> open = pending.entrySet().stream().filter(e -> !e.getValue().isDone()).map(Map.Entry::getKey).toList();
+            int item = open.get(open.size() - 1);
+            pending.get(item).complete("r" + item);
+        }
+        assertEquals(5, pending.size());
+        assertEquals(2, maxInFlight.get());
+        assertEquals(List.of("r1", "r2", "r3", "r4", "r5"), result.join());
+    }
+
+    @Test
+    void testMapBoundedStopsAfterFailure() {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<List<String>> result = MapReduceSummary.mapBounded(List.of(1, 2, 3, 4), 1, item -> {
+            calls.incrementAndGet();
+            return item == 2
+                    ? CompletableFuture.failedFuture(new IllegalStateException("rate limited"))
+                    : CompletableFuture.completedFuture("ok" + item);
+        });
+
+        assertEquals(2, calls.get());
+        CompletionException error = assertThrows(CompletionException.class, result::join);
+        assertEquals("rate limited", error.getCause().getMessage());
+    }
+}
@@ -0,0 +1,98 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProposalValidatorTest {
+
+    // 2025-06-02 是星期一
+    private static final LocalDate MONDAY = LocalDate.of(2025, 6, 2);
+
+    private static ProposalValidator validator(List<LocalSlotSolver.Interval> busy, int targetCount) {
+        List<LocalSlotSolver.WeeklyWindow> weekly = List.of(
+                new LocalSlotSolver.WeeklyWindow(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(12, 0)),
+                new LocalSlotSolver.WeeklyWindow(DayOfWeek.WEDNESDAY, LocalTime.of(14, 0), LocalTime.of(16, 0)));
+        return new ProposalValidator(new ProposalValidator.Rules(weekly, busy, date -> false,
+                MONDAY.atStartOfDay(), MONDAY.plusDays(13), 60, 30, 60, targetCount, 5));
+    }
+
+    @Test
+    void testAcceptsValidProposalAndFixesDuration() {
+        ProposalValidator validator = validator(List.of(), 0);
+
+        ProposalValidator.Result result = validator.offer(MONDAY.atTime(9, 30));
+
+        assertEquals(ProposalValidator.Verdict.VALID, result.verdict());
+        assertEquals(MONDAY.atTime(10, 30), result.slot().end());
+    }
+
+    @Test
+    void testSnapsNearMissesAndWrongYear() {
+        ProposalValidator validator = validator(List.of(
+                new LocalSlotSolver.Interval(MONDAY.atTime(9, 0), MONDAY.atTime(10, 0))), 0);
+
+        // 11:30 开始会超出 12:00 的窗口，吸附到 11:00
+        ProposalValidator.Result late = validator.offer(MONDAY.atTime(11, 30));
+        assertEquals(ProposalValidator.Verdict.SNAPPED, late.verdict());
+        assertEquals(MONDAY.atTime(11, 0), late.slot().start());
+
+        // 年份错误（2023），且 9:15 与已有课程冲突 → 2025 年同日 10:00
+        ProposalValidator.Result wrongYear = validator.offer(MONDAY.withYear(2023).atTime(9, 15));
+        assertEquals(ProposalValidator.Verdict.SNAPPED, wrongYear.verdict());
+        assertEquals(MONDAY.atTime(10, 0), wrongYear.slot().start());
+    }
+
+    @Test
+    void testKeepsOrRepairsYearAcrossTheYearBoundary() {
+        // 建议期限 2025-12-28 至 2026-01-10；2026-01-03 是星期六
+        List<LocalSlotSolver.WeeklyWindow> weekly = List.of(
+                new LocalSlotSolver.WeeklyWindow(DayOfWeek.SATURDAY, LocalTime.of(9, 0), LocalTime.of(12, 0)));
+        ProposalValidator validator = new ProposalValidator(new ProposalValidator.Rules(weekly, List.of(), date -> false,
+                LocalDate.of(2025, 12, 28).atStartOfDay(), LocalDate.of(2026, 1, 10), 60, 30, 60, 0, 5));
+
+        // 已在期限内的下一年日期不改年份
+        ProposalValidator.Result nextYear = validator.offer(LocalDateTime.of(2026, 1, 3, 9, 0));
+        assertEquals(ProposalValidator.Verdict.VALID, nextYear.verdict());
+        assertEquals(LocalDateTime.of(2026, 1, 3, 9, 0), nextYear.slot().start());
+
+        // 写成 2025-01-03（期限之外）→ 改为落入期限的 2026 年
+        ProposalValidator.Result oldYear = validator.offer(LocalDateTime.of(2025, 1, 3, 10, 0));
+        assertEquals(ProposalValidator.Verdict.SNAPPED, oldYear.verdict());
+        assertEquals(LocalDateTime.of(2026, 1, 3, 10, 0), oldYear.slot().start());
+    }
+
+    @Test
+    void testDropsDuplicatesAndUnfixableProposals() {
+        ProposalValidator validator = validator(List.of(), 0);
+
+        assertEquals(ProposalValidator.Verdict.VALID, validator.offer(MONDAY.plusDays(2).atTime(14, 0)).verdict());
+        assertEquals(ProposalValidator.Verdict.DROPPED, validator.offer(MONDAY.plusDays(2).atTime(14, 0)).verdict());
+        // 周二没有共同可用时间
+        assertEquals(ProposalValidator.Verdict.DROPPED, validator.offer(MONDAY.plusDays(1).atTime(10, 0)).verdict());
+        assertEquals(2, validator.droppedCount());
+    }
+
+    @Test
+    void testTopUpFillsWithoutOverlaps() {
+        ProposalValidator validator = validator(List.of(), 3);
+        validator.offer(MONDAY.atTime(9, 0));
+
+        List<LocalSlotSolver.Interval> added = validator.topUp();
+
+        assertEquals(2, added.size());
+        List<LocalSlotSolver.Interval> all = validator.accepted();
+        assertEquals(3, all.size());
+        for (LocalSlotSolver.Interval a : all) {
+            for (LocalSlotSolver.Interval b : all) {
+                assertTrue(a == b || !a.overlaps(b.start(), b.end()));
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProviderPoolTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static ProviderPool.Provider provider(String name, int maxConcurrentCalls) {
+        return new ProviderPool.Provider(name, "https://" + name + ".example.com/v1/chat/completions", "key-" + name, "gpt-4", maxConcurrentCalls);
+    }
+
+    // 用一次调用给端点建立延迟样本
+    private static void call(ProviderPool pool, AtomicLong now, String expectedName, long latencyMillis, boolean failed) {
+        ProviderPool.Lease lease = pool.acquire();
+        assertEquals(expectedName, lease.provider().name());
+        now.addAndGet(latencyMillis * MILLI);
+        lease.markResponded();
+        lease.release(failed);
+    }
+
+    @Test
+    void testRoutesToFasterProvider() {
+        AtomicLong now = new AtomicLong();
+        ProviderPool pool = new ProviderPool(0.5, 60_000, now::get);
+        pool.reconfigure(List.of(provider("a", 4), provider("b", 4)));
+
+        // 两个端点都没有样本时依次被探测
+        call(pool, now, "a", 800, false);
+        call(pool, now, "b", 200, false);
+
+        assertEquals("b", pool.acquire().provider().name());
+    }
+
+    @Test
+    void testErrorsOutweighLatency() {
+        AtomicLong now = new AtomicLong();
+        ProviderPool pool = new ProviderPool(1.0, 60_000, now::get);
+        pool.reconfigure(List.of(provider("a", 4), provider("b", 4)));
+
+        call(pool, now, "a", 100, true);
+        call(pool, now, "b", 300, false);
+
+        // a 更快但错误率为 1
+        assertEquals("b", pool.acquire().provider().name());
+        assertEquals(1, pool.stats().get(0).errors());
+    }
+
+    @Test
+    void testSkipsSaturatedProviderAndReportsFullPool() {
+        AtomicLong now = new AtomicLong();
+        ProviderPool pool = new ProviderPool(0.5, 60_000, now::get);
+        pool.reconfigure(List.of(provider("a", 1), provider("b", 1)));
+
+        ProviderPool.Lease first = pool.acquire();
+        ProviderPool.Lease second = pool.acquire();
+        assertNotEquals(first.provider().name(), second.provider().name());
+        assertNull(pool.acquire());
+        assertEquals(1, pool.saturatedCount());
+
+        first.abandon();
+        assertEquals(first.provider().name(), pool.acquire().provider().name());
+    }
+
+    @Test
+    void testReconfigureKeepsStatsOfUnchangedProviders() {
+        AtomicLong now = new AtomicLong();
+        ProviderPool pool = new ProviderPool(0.5, 60_000, now::get);
+        pool.reconfigure(List.of(provider("a", 2)));
+        call(pool, now, "a", 100, false);
+
+        pool.reconfigure(List.of(provider("a", 2), provider("c", 2)));
+
+        assertEquals(2, pool.providers().size());
+        assertEquals(1, pool.stats().get(0).calls());
+        assertEquals(0, pool.stats().get(1).calls());
+    }
+
+    @Test
+    void testNewProviderStartsAtNeutralLatency() {
+        AtomicLong now = new AtomicLong();
+        ProviderPool pool = new ProviderPool(1.0, 60_000, now::get);
+        pool.reconfigure(List.of(provider("a", 1), provider("b", 4)));
+        call(pool, now, "a", 100, false);
+        call(pool, now, "b", 900, false);
+
+        pool.reconfigure(List.of(provider("a", 1), provider("b", 4), provider("c", 4)));
+
+        // c 按 a、b 的平均延迟 500ms 计分：排在 a 之后、b 之前，而不是抢走所有调用
+        assertEquals("a", pool.acquire().provider().name());
+        assertEquals("c", pool.acquire().provider().name());
+    }
+
+    @Test
+    void testIdleProviderIsProbedAgain() {
+        AtomicLong now = new AtomicLong();
+        ProviderPool pool = new ProviderPool(0.5, 1_000, now::get);
+        pool.reconfigure(List.of(provider("a", 4), provider("b", 4)));
+        call(pool, now, "a", 900, false);
+        call(pool, now, "b", 100, false);
+        call(pool, now, "b", 100, false);
+
+        // a 闲置超过探测间隔后重新获得一次调用
+        now.addAndGet(2_000 * MILLI);
+        call(pool, now, "a", 50, false);
+    }
+}
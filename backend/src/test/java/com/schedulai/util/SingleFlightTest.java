@@ -0,0 +1,92 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    void testConcurrentCallersShareOneCall() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.execute("k", () -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> second = flight.execute("k", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+
+        assertEquals(1, calls.get());
+        assertEquals(1, flight.inFlightCount());
+        assertFalse(second.isDone());
+
+        upstream.complete("reply");
+        assertEquals("reply", first.join());
+        assertEquals("reply", second.join());
+        assertEquals(0, flight.inFlightCount());
+        assertEquals(1, flight.coalescedCount());
+    }
+
+    @Test
+    void testCallAfterCompletionStartsNewFlight() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        // 同步完成的调用（如缓存命中）也不能残留在进行中表里
+        assertEquals(Integer.valueOf(1), flight.execute("k", () -> CompletableFuture.completedFuture(calls.incrementAndGet())).join());
+        assertEquals(Integer.valueOf(2), flight.execute("k", () -> CompletableFuture.completedFuture(calls.incrementAndGet())).join());
+        assertEquals(0, flight.inFlightCount());
+        assertEquals(0, flight.coalescedCount());
+    }
+
+    @Test
+    void testDifferentKeysDoNotShare() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> a = flight.execute("a", CompletableFuture::new);
+        CompletableFuture<String> b = flight.execute("b", CompletableFuture::new);
+
+        assertEquals(2, flight.inFlightCount());
+        assertNotSame(a, b);
+    }
+
+    @Test
+    void testFailureIsSharedAndCleared() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> first = flight.execute("k", () -> upstream);
+        CompletableFuture<String> second = flight.execute("k", () -> upstream);
+
+        upstream.completeExceptionally(new IllegalStateException("boom"));
+        assertThrows(CompletionException.class, first::join);
+        assertThrows(CompletionException.class, second::join);
+        assertEquals(0, flight.inFlightCount());
+
+        // supplier 抛出异常时同样清理
+        CompletableFuture<String> thrown = flight.execute("k", () -> {
+            throw new IllegalArgumentException("bad request");
+        });
+        assertTrue(thrown.isCompletedExceptionally());
+        assertEquals(0, flight.inFlightCount());
+    }
+
+    @Test
+    void testCancellingOneCallerDoesNotAffectOthers() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> first = flight.execute("k", () -> upstream);
+        CompletableFuture<String> second = flight.execute("k", () -> upstream);
+
+        first.cancel(true);
+        upstream.complete("reply");
+        assertEquals("reply", second.join());
+    }
+}
@@ -0,0 +1,71 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testBurstUpToCapacityThenWait() {
+        AtomicLong now = new AtomicLong();
+        // 每分钟 60 个，即每秒 1 个
+        TokenBucket bucket = new TokenBucket(3, 60, now::get);
+
+        assertEquals(0, bucket.reserve(1));
+        assertEquals(0, bucket.reserve(1));
+        assertEquals(0, bucket.reserve(1));
+        // 第 4 个需要等 1 秒，第 5 个等 2 秒（先到先得）
+        assertEquals(SECOND, bucket.reserve(1));
+        assertEquals(2 * SECOND, bucket.reserve(1));
+    }
+
+    @Test
+    void testRefillIsCappedAtCapacity() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(2, 60, now::get);
+        bucket.reserve(2);
+
+        now.addAndGet(10 * SECOND);
+        assertEquals(2.0, bucket.available(), 1e-9);
+        assertEquals(0, bucket.reserve(2));
+        assertTrue(bucket.reserve(1) > 0);
+    }
+
+    @Test
+    void testWeightedReservation() {
+        AtomicLong now = new AtomicLong();
+        // token 预算：每分钟 6000 个
+        TokenBucket bucket = new TokenBucket(6000, 6000, now::get);
+
+        assertEquals(0, bucket.reserve(4000));
+        // 还剩 2000，再要 3000 需补 1000 个，即 10 秒
+        assertEquals(10 * SECOND, bucket.reserve(3000));
+    }
+
+    @Test
+    void testOversizedRequestIsCappedAtCapacity() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(100, 60, now::get);
+
+        assertEquals(0, bucket.reserve(1_000_000));
+        assertEquals(0.0, bucket.available(), 1e-9);
+    }
+
+    @Test
+    void testTryReserveDoesNotBorrow() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(1, 60, now::get);
+
+        assertEquals(0, bucket.tryReserve(1));
+        // 不足时不扣除，多次尝试的等待时间不累加
+        assertEquals(SECOND, bucket.tryReserve(1));
+        assertEquals(SECOND, bucket.tryReserve(1));
+        assertEquals(0.0, bucket.available(), 1e-9);
+    }
+}
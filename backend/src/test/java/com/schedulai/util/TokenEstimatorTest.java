@@ -0,0 +1,32 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenEstimatorTest {
+
+    @Test
+    void testEmptyText() {
+        assertEquals(0, TokenEstimator.estimate(null));
+        assertEquals(0, TokenEstimator.estimate(""));
+    }
+
+    @Test
+    void testAsciiRoundsUpPerFourCharacters() {
+        assertEquals(1, TokenEstimator.estimate("abc"));
+        assertEquals(1, TokenEstimator.estimate("abcd"));
+        assertEquals(2, TokenEstimator.estimate("abcde"));
+    }
+
+    @Test
+    void testCjkCountsOneTokenPerCharacter() {
+        // 4 个汉字 + 2 个 ASCII 字符
+        assertEquals(5, TokenEstimator.estimate("学习报告ok"));
+    }
+
+    @Test
+    void testOtherNonAsciiCountsHalfTokenPerCharacter() {
+        assertEquals(2, TokenEstimator.estimate("éèà"));
+    }
+}
@@ -0,0 +1,123 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UsageMeterTest {
+
+    private static final Instant NOON = Instant.parse("2025-06-02T12:00:00Z");
+    private static final LocalDate DAY = LocalDate.of(2025, 6, 2);
+
+    private static UsageMeter meter(Instant instant, AtomicLong nanos) {
+        return new UsageMeter(Clock.fixed(instant, ZoneOffset.UTC), nanos::get);
+    }
+
+    @Test
+    void testDailyCallQuota() {
+        UsageMeter meter = meter(NOON, new AtomicLong());
+        UsageMeter.Limits limits = new UsageMeter.Limits(2, 0, 0, 0);
+
+        assertTrue(meter.admit("alice", "STUDENT", limits).allowed());
+        assertTrue(meter.admit("alice", "STUDENT", limits).allowed());
+        UsageMeter.Decision third = meter.admit("alice", "STUDENT", limits);
+
+        assertEquals(UsageMeter.Rejection.DAILY_CALLS, third.rejection());
+        // 到次日零点还有 12 小时
+        assertEquals(TimeUnit.HOURS.toSeconds(12), third.retryAfterSeconds());
+        // 其他用户不受影响
+        assertTrue(meter.admit("bob", "STUDENT", limits).allowed());
+    }
+
+    @Test
+    void testDailyTokenQuotaIncludesRestoredUsage() {
+        UsageMeter meter = meter(NOON, new AtomicLong());
+        UsageMeter.Limits limits = new UsageMeter.Limits(0, 1000, 0, 0);
+        meter.restore(DAY, "alice", "TEACHER", 3, 900);
+
+        assertTrue(meter.admit("alice", "TEACHER", limits).allowed());
+        meter.addTokens("alice", "TEACHER", 200);
+
+        assertEquals(UsageMeter.Rejection.DAILY_TOKENS, meter.admit("alice", "TEACHER", limits).rejection());
+        assertEquals(4, meter.dailyCalls("alice"));
+        assertEquals(1100, meter.dailyTokens("alice"));
+    }
+
+    @Test
+    void testBurstLimitRecovers() {
+        AtomicLong nanos = new AtomicLong();
+        UsageMeter meter = meter(NOON, nanos);
+        // 突发 2 次，每分钟恢复 6 次（10 秒一次）
+        UsageMeter.Limits limits = new UsageMeter.Limits(0, 0, 2, 6);
+
+        assertTrue(meter.admit("alice", "STUDENT", limits).allowed());
+        assertTrue(meter.admit("alice", "STUDENT", limits).allowed());
+        UsageMeter.Decision rejected = meter.admit("alice", "STUDENT", limits);
+        assertEquals(UsageMeter.Rejection.BURST, rejected.rejection());
+        assertEquals(10, rejected.retryAfterSeconds());
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertTrue(meter.admit("alice", "STUDENT", limits).allowed());
+    }
+
+    @Test
+    void testIdleBurstBucketsAreEvicted() {
+        AtomicLong nanos = new AtomicLong();
+        UsageMeter meter = meter(NOON, nanos);
+        UsageMeter.Limits limits = new UsageMeter.Limits(0, 0, 2, 6);
+        meter.admit("ip:10.0.0.1", "ANONYMOUS", limits);
+        meter.admit("ip:10.0.0.2", "ANONYMOUS", limits);
+        meter.admit("ip:10.0.0.2", "ANONYMOUS", limits);
+
+        // 10 秒后第一个桶已恢复满额，第二个还差一次
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        meter.drain();
+        assertEquals(1, meter.burstBucketCount());
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        meter.drain();
+        assertEquals(0, meter.burstBucketCount());
+    }
+
+    @Test
+    void testRefundedCallDoesNotCountTowardsQuota() {
+        UsageMeter meter = meter(NOON, new AtomicLong());
+        UsageMeter.Limits limits = new UsageMeter.Limits(1, 0, 0, 0);
+
+        assertTrue(meter.admit("alice", "STUDENT", limits).allowed());
+        meter.refundCall("alice", "STUDENT");
+
+        assertTrue(meter.admit("alice", "STUDENT", limits).allowed());
+        assertEquals(1, meter.dailyCalls("alice"));
+        assertEquals(1, meter.drain().get(0).calls());
+    }
+
+    @Test
+    void testDrainReturnsDeltasOnce() {
+        UsageMeter meter = meter(NOON, new AtomicLong());
+        meter.restore(DAY, "alice", "STUDENT", 5, 500);
+        meter.admit("alice", "STUDENT", UsageMeter.Limits.UNLIMITED);
+        meter.addTokens("alice", "STUDENT", 120);
+        meter.admit("bob", "ADMIN", new UsageMeter.Limits(0, 0, 1, 1));
+        meter.admit("bob", "ADMIN", new UsageMeter.Limits(0, 0, 1, 1));
+
+        List<UsageMeter.Delta> deltas = meter.drain();
+
+        assertEquals(2, deltas.size());
+        UsageMeter.Delta alice = deltas.stream().filter(d -> d.subject().equals("alice")).findFirst().orElseThrow();
+        assertEquals(new UsageMeter.Delta(DAY, "alice", "STUDENT", 1, 120, 0), alice);
+        UsageMeter.Delta bob = deltas.stream().filter(d -> d.subject().equals("bob")).findFirst().orElseThrow();
+        assertEquals(1, bob.rejectedCalls());
+        assertTrue(meter.drain().isEmpty());
+        // 当日累计不受 drain 影响
+        assertEquals(6, meter.dailyCalls("alice"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.schedulai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WeeklyHeatmapTest {
+
+    private static LocalTime t(String time) {
+        return LocalTime.parse(time);
+    }
+
+    private static int bucket(DayOfWeek day, String time) {
+        LocalTime start = t(time);
+        return (day.getValue() - 1) * WeeklyHeatmap.BUCKETS_PER_DAY
+                + (start.getHour() * 60 + start.getMinute()) / WeeklyHeatmap.BUCKET_MINUTES;
+    }
+
+    @Test
+    void testOverlappingSlotsAreCounted() {
+        WeeklyHeatmap heatmap = new WeeklyHeatmap();
+        heatmap.add(DayOfWeek.MONDAY, t("09:00"), t("11:00"));
+        heatmap.add(DayOfWeek.MONDAY, t("10:00"), t("12:00"));
+
+        int[] counts = heatmap.toCounts();
+        assertEquals(WeeklyHeatmap.BUCKETS, counts.length);
+        assertEquals(0, counts[bucket(DayOfWeek.MONDAY, "08:30")]);
+        assertEquals(1, counts[bucket(DayOfWeek.MONDAY, "09:30")]);
+        assertEquals(2, counts[bucket(DayOfWeek.MONDAY, "10:00")]);
+        assertEquals(2, counts[bucket(DayOfWeek.MONDAY, "10:30")]);
+        assertEquals(1, counts[bucket(DayOfWeek.MONDAY, "11:30")]);
+        assertEquals(0, counts[bucket(DayOfWeek.MONDAY, "12:00")]);
+        assertEquals(0, counts[bucket(DayOfWeek.TUESDAY, "10:00")]);
+    }
+
+    @Test
+    void testOnlyFullyCoveredBucketsCount() {
+        // 09:10-10:20 只完整覆盖 09:30-10:00
+        WeeklyHeatmap heatmap = new WeeklyHeatmap();
+        heatmap.add(DayOfWeek.WEDNESDAY, t("09:10"), t("10:20"));
+
+        int[] counts = heatmap.toCounts();
+        assertEquals(0, counts[bucket(DayOfWeek.WEDNESDAY, "09:00")]);
+        assertEquals(1, counts[bucket(DayOfWeek.WEDNESDAY, "09:30")]);
+        assertEquals(0, counts[bucket(DayOfWeek.WEDNESDAY, "10:00")]);
+
+        // 不足一个时间格的时间段不计数
+        WeeklyHeatmap shortSlot = new WeeklyHeatmap();
+        shortSlot.add(DayOfWeek.WEDNESDAY, t("09:05"), t("09:25"));
+        assertEquals(0, Arrays.stream(shortSlot.toCounts()).sum());
+    }
+
+    @Test
+    void testEndOfDayCoversLastBucket() {
+        WeeklyHeatmap heatmap = new WeeklyHeatmap();
+        heatmap.add(DayOfWeek.SUNDAY, t("23:00"), t("23:59"));
+
+        int[] counts = heatmap.toCounts();
+        assertEquals(1, counts[WeeklyHeatmap.BUCKETS - 2]);
+        assertEquals(1, counts[WeeklyHeatmap.BUCKETS - 1]);
+    }
+
+    @Test
+    void testApplyDeltaMatchesRebuild() {
+        WeeklyHeatmap heatmap = new WeeklyHeatmap();
+        heatmap.add(DayOfWeek.FRIDAY, t("14:00"), t("16:00"));
+        int[] counts = heatmap.toCounts();
+
+        WeeklyHeatmap.applyDelta(counts, DayOfWeek.FRIDAY, t("15:00"), t("17:00"), 1);
+        WeeklyHeatmap.applyDelta(counts, DayOfWeek.FRIDAY, t("14:00"), t("16:00"), -1);
+
+        WeeklyHeatmap expected = new WeeklyHeatmap();
+        expected.add(DayOfWeek.FRIDAY, t("15:00"), t("17:00"));
+        assertArrayEquals(expected.toCounts(), counts);
+    }
+}
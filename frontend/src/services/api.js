@@ -12,8 +12,18 @@ const api = axios.create({
 api.interceptors.request.use(
   config => {
     // 记录请求信息
-    console.log(`API请求: ${config.method.toUpperCase()} ${config.url}`, 
+    console.log(`API请求: ${config.method.toUpperCase()} ${config.url}`,
       config.method === 'get' ? config.params : '数据已隐藏');
+    // 标识当前用户，后端按用户统计AI用量和配额
+    try {
+      const storedUser = localStorage.getItem('admin_user') || localStorage.getItem('student_user');
+      const user = storedUser ? JSON.parse(storedUser) : null;
+      if (user?.id) {
+        config.headers['X-User-Id'] = user.id;
+      }
+    } catch (e) {
+      console.warn('无法获取用户信息:', e);
+    }
     return config;
   }, 
   error => {